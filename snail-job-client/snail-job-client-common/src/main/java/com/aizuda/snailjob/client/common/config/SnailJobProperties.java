@@ -1,5 +1,6 @@
 package com.aizuda.snailjob.client.common.config;
 
+import com.aizuda.snailjob.client.common.window.BatchBuffer;
 import com.aizuda.snailjob.common.core.alarm.email.MailProperties;
 import lombok.Data;
 import lombok.Getter;
@@ -71,6 +72,11 @@ public class SnailJobProperties {
      */
     private Retry retry = new Retry();
 
+    /**
+     * 客户端netty服务配置
+     */
+    private NettyServerConfig nettyServer = new NettyServerConfig();
+
     /**
      * 邮件配置
      */
@@ -94,15 +100,27 @@ public class SnailJobProperties {
     public static class SlidingWindowConfig {
 
         /**
-         * 总量窗口期阈值
+         * 总量窗口期阈值(批次大小)
          */
         private int totalThreshold = 50;
 
         /**
          * 窗口数量预警
+         * 上报已改为批量缓冲区, 该配置不再生效
          */
+        @Deprecated
         private int windowTotalThreshold = 150;
 
+        /**
+         * 缓冲区容量
+         */
+        private int capacity = 10000;
+
+        /**
+         * 缓冲区满时的溢出策略, 默认由调用线程直接上报, 保证重试数据不丢失
+         */
+        private BatchBuffer.OverflowPolicy overflowPolicy = BatchBuffer.OverflowPolicy.SPILL;
+
         /**
          * 窗口期时间长度
          */
@@ -119,15 +137,27 @@ public class SnailJobProperties {
     public static class LogSlidingWindowConfig {
 
         /**
-         * 总量窗口期阈值
+         * 总量窗口期阈值(批次大小)
          */
         private int totalThreshold = 50;
 
         /**
          * 窗口数量预警
+         * 上报已改为批量缓冲区, 该配置不再生效
          */
+        @Deprecated
         private int windowTotalThreshold = 150;
 
+        /**
+         * 缓冲区容量
+         */
+        private int capacity = 10000;
+
+        /**
+         * 缓冲区满时的溢出策略, 默认丢弃日志, 避免日志洪峰拖慢业务线程
+         */
+        private BatchBuffer.OverflowPolicy overflowPolicy = BatchBuffer.OverflowPolicy.DROP;
+
         /**
          * 窗口期时间长度
          */
@@ -169,6 +199,45 @@ public class SnailJobProperties {
         private int queueCapacity = 10000;
     }
 
+    @Data
+    public static class NettyServerConfig {
+
+        /**
+         * 是否使用epoll原生传输, 仅在Linux且epoll可用时生效, 否则仍使用NIO
+         */
+        private boolean nativeTransport = false;
+
+        /**
+         * 接收连接的线程数
+         */
+        private int bossThreads = 1;
+
+        /**
+         * 处理读写的线程数, 小于等于0时使用netty默认值(cpu核数 * 2)
+         */
+        private int workerThreads = 0;
+
+        /**
+         * 等待接收的连接队列长度
+         */
+        private int soBacklog = 128;
+
+        /**
+         * 写缓冲区低水位(字节)
+         */
+        private int writeBufferLowWaterMark = 32 * 1024;
+
+        /**
+         * 写缓冲区高水位(字节)
+         */
+        private int writeBufferHighWaterMark = 64 * 1024;
+
+        /**
+         * 请求体的最大长度(字节)
+         */
+        private int maxContentLength = 5 * 1024 * 1024;
+    }
+
     @Data
     public static class Retry {
         /**
@@ -3,7 +3,7 @@ package com.aizuda.snailjob.client.common.log.report;
 import com.aizuda.snailjob.client.common.Lifecycle;
 import com.aizuda.snailjob.client.common.LogReport;
 import com.aizuda.snailjob.client.common.config.SnailJobProperties;
-import com.aizuda.snailjob.client.common.window.SlidingWindow;
+import com.aizuda.snailjob.client.common.window.BatchBuffer;
 import com.aizuda.snailjob.common.core.window.Listener;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.common.log.dto.LogContentDTO;
@@ -22,44 +22,45 @@ public abstract class AbstractLogReport<T extends LogTaskDTO> implements Lifecyc
 
     @Autowired
     private SnailJobProperties snailJobProperties;
-    private SlidingWindow<LogTaskDTO> slidingWindow;
+    private BatchBuffer<LogTaskDTO> batchBuffer;
 
     @Override
     public void report(LogContentDTO logContentDTO) {
-        slidingWindow.add(buildLogTaskDTO(logContentDTO));
+        batchBuffer.add(buildLogTaskDTO(logContentDTO));
     }
 
     protected abstract T buildLogTaskDTO(LogContentDTO logContentDTO);
 
     @Override
     public void start() {
-        if (Objects.nonNull(slidingWindow)) {
+        if (Objects.nonNull(batchBuffer)) {
             return;
         }
 
         SnailJobProperties.LogSlidingWindowConfig logSlidingWindow = snailJobProperties.getLogSlidingWindow();
 
         Listener<LogTaskDTO> reportLogListener = new ReportLogListener();
-        slidingWindow = SlidingWindow
+        batchBuffer = BatchBuffer
                 .Builder
                 .<LogTaskDTO>newBuilder()
-                .withTotalThreshold(logSlidingWindow.getTotalThreshold())
-                .withWindowTotalThreshold(logSlidingWindow.getWindowTotalThreshold())
-                .withDuration(logSlidingWindow.getDuration(), logSlidingWindow.getChronoUnit())
+                .withBatchSize(logSlidingWindow.getTotalThreshold())
+                .withCapacity(logSlidingWindow.getCapacity())
+                .withOverflowPolicy(logSlidingWindow.getOverflowPolicy())
+                .withFlushInterval(logSlidingWindow.getDuration(), logSlidingWindow.getChronoUnit())
                 .withListener(reportLogListener)
                 .build();
 
-        slidingWindow.start();
+        batchBuffer.start();
     }
 
     @Override
     public void close() {
-        if (Objects.isNull(slidingWindow)) {
+        if (Objects.isNull(batchBuffer)) {
             return;
         }
 
         SnailJobLog.LOCAL.info("AsyncReport Log about to shutdown");
-        slidingWindow.end();
+        batchBuffer.end();
         SnailJobLog.LOCAL.info("AsyncReport Log has been shutdown");
     }
 
@@ -2,20 +2,22 @@ package com.aizuda.snailjob.client.common.rpc.server;
 
 import com.aizuda.snailjob.client.common.Lifecycle;
 import com.aizuda.snailjob.client.common.config.SnailJobProperties;
+import com.aizuda.snailjob.client.common.config.SnailJobProperties.NettyServerConfig;
 import com.aizuda.snailjob.client.common.event.SnailServerStartFailedEvent;
 import com.aizuda.snailjob.client.common.exception.SnailJobClientException;
 import com.aizuda.snailjob.client.common.rpc.supports.handler.NettyHttpServerHandler;
 import com.aizuda.snailjob.client.common.rpc.supports.handler.SnailDispatcherRequestHandler;
 import com.aizuda.snailjob.common.core.context.SpringContext;
+import com.aizuda.snailjob.common.core.rpc.NettyTransport;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import lombok.Getter;
@@ -48,22 +50,28 @@ public class SnailNettyHttpServer implements Runnable, Lifecycle {
             return;
         }
 
-        EventLoopGroup bossGroup = new NioEventLoopGroup();
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        NettyServerConfig nettyServer = snailJobProperties.getNettyServer();
+        NettyTransport transport = NettyTransport.select(nettyServer.isNativeTransport());
+        EventLoopGroup bossGroup = transport.newEventLoopGroup(nettyServer.getBossThreads(), "snail-netty-client-boss");
+        EventLoopGroup workerGroup = transport.newEventLoopGroup(Math.max(nettyServer.getWorkerThreads(), 0),
+                "snail-netty-client-worker");
 
         try {
             // start server
             ServerBootstrap bootstrap = new ServerBootstrap();
             bootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .option(ChannelOption.SO_BACKLOG, 128)
+                    .channel(transport.serverChannelClass())
+                    .option(ChannelOption.SO_BACKLOG, nettyServer.getSoBacklog())
                     .childOption(ChannelOption.SO_KEEPALIVE, true)
+                    .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                            nettyServer.getWriteBufferLowWaterMark(), nettyServer.getWriteBufferHighWaterMark()))
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         public void initChannel(SocketChannel channel) throws Exception {
                             channel.pipeline()
                                     .addLast(new HttpServerCodec())
-                                    .addLast(new HttpObjectAggregator(5 * 1024 * 1024))
+                                    .addLast(new HttpObjectAggregator(nettyServer.getMaxContentLength()))
                                     .addLast(new NettyHttpServerHandler(snailDispatcherRequestHandler, snailJobProperties));
                         }
                     });
@@ -71,8 +79,8 @@ public class SnailNettyHttpServer implements Runnable, Lifecycle {
             // 在特定端口绑定并启动服务器 默认是1789
             ChannelFuture future = bootstrap.bind(snailJobProperties.getPort()).sync();
 
-            SnailJobLog.LOCAL.info("------> snail-job client remoting server start success, nettype = {}, port = {}",
-                    SnailNettyHttpServer.class.getName(), snailJobProperties.getPort());
+            SnailJobLog.LOCAL.info("------> snail-job client remoting server start success, nettype = {}, transport = {}, port = {}",
+                    SnailNettyHttpServer.class.getName(), transport, snailJobProperties.getPort());
 
             started = true;
             future.channel().closeFuture().sync();
@@ -0,0 +1,512 @@
+package com.aizuda.snailjob.client.common.window;
+
+import com.aizuda.snailjob.common.core.window.Listener;
+import com.aizuda.snailjob.common.log.SnailJobLog;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 批量缓冲区组件
+ * <p>
+ * 1. 生产者按线程散列到多个分段队列写入, 写入路径无锁 <br/>
+ * 2. 缓冲数据达到批次大小或者到达刷新间隔时, 由刷新线程批量取出数据通知监听器 <br/>
+ * 3. 缓冲区容量有上限, 超出容量时按照{@link OverflowPolicy}处理 <br/>
+ * 4. 关闭后写入的数据由写入线程直接通知监听器, 不再进入缓冲区 <br/>
+ * 注意: 监听器只会在刷新线程(或关闭后的调用线程)中串行调用, 溢出策略为SPILL时除外
+ *
+ * @since sj_1.0.0
+ */
+public class BatchBuffer<T> {
+
+    private static final int DROP_LOG_INTERVAL = 1000;
+
+    /**
+     * 分段队列
+     */
+    private final Queue<T>[] stripes;
+
+    /**
+     * 分段掩码
+     */
+    private final int mask;
+
+    /**
+     * 剩余容量
+     */
+    private final Semaphore permits;
+
+    /**
+     * 缓冲区容量
+     */
+    private final int capacity;
+
+    /**
+     * 批次大小
+     */
+    private final int batchSize;
+
+    /**
+     * 刷新间隔(毫秒)
+     */
+    private final long flushIntervalMillis;
+
+    /**
+     * 溢出策略
+     */
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * 监听器
+     */
+    private final List<Listener<T>> listeners;
+
+    /**
+     * 刷新线程
+     */
+    private final ScheduledExecutorService threadPoolExecutor;
+
+    /**
+     * 是否已提交按批次大小触发的刷新任务
+     */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    /**
+     * 保证同一时刻只有一个消费者
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * 溢出丢弃的数据量
+     */
+    private final LongAdder dropCount = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * 正在刷新的线程, 防止监听器内部再次写入缓冲区时阻塞自身
+     */
+    private volatile Thread flushThread;
+
+    /**
+     * 下一次取数据的分段
+     */
+    private int cursor;
+
+    @SuppressWarnings("unchecked")
+    public BatchBuffer(int capacity,
+                       int batchSize,
+                       int stripeCount,
+                       OverflowPolicy overflowPolicy,
+                       List<Listener<T>> listeners,
+                       ScheduledExecutorService threadPoolExecutor,
+                       long flushIntervalMillis) {
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.listeners = listeners;
+        this.threadPoolExecutor = threadPoolExecutor;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * 添加数据
+     *
+     * @param data 需要缓冲的数据
+     * @return true-已写入缓冲区或者已直接上报 false-溢出丢弃
+     */
+    public boolean add(T data) {
+
+        if (closed) {
+            reportDirectly(data);
+            return true;
+        }
+
+        if (!acquire()) {
+            return handleOverflow(data);
+        }
+
+        stripes[(int) Thread.currentThread().getId() & mask].offer(data);
+
+        // 写入期间缓冲区已关闭, 关闭时的刷新可能已结束, 由调用线程刷新剩余数据
+        if (closed) {
+            flush(false);
+            return true;
+        }
+
+        // 达到批次大小, 通知刷新线程
+        if (size() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            try {
+                threadPoolExecutor.execute(this::flushFullBatches);
+            } catch (Exception e) {
+                flushScheduled.set(false);
+                SnailJobLog.LOCAL.error("提交批量缓冲区刷新任务失败", e);
+            }
+        }
+
+        return true;
+    }
+
+    private boolean acquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+
+        if (overflowPolicy != OverflowPolicy.BLOCK || closed || Thread.currentThread() == flushThread) {
+            return false;
+        }
+
+        // 最多等待一个刷新周期, 仍无空闲容量则丢弃
+        try {
+            return permits.tryAcquire(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 缓冲区关闭后由调用线程直接通知监听器, 与刷新线程串行
+     *
+     * @param data 数据
+     */
+    private void reportDirectly(T data) {
+        flushLock.lock();
+        try {
+            notifyListeners(Collections.singletonList(data));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean handleOverflow(T data) {
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            // 由调用线程直接上报
+            notifyListeners(Collections.singletonList(data));
+            return true;
+        }
+
+        dropCount.increment();
+        // 每丢弃一定数量打印一次日志, 避免日志刷屏
+        long dropped = dropCount.sum();
+        if (dropped % DROP_LOG_INTERVAL == 1) {
+            SnailJobLog.LOCAL.warn("批量缓冲区已满, 丢弃数据 容量:[{}] 累计丢弃:[{}]", capacity, dropped);
+        }
+
+        return false;
+    }
+
+    /**
+     * 取出完整批次的数据通知监听器
+     */
+    private void flushFullBatches() {
+        flushScheduled.set(false);
+        flush(true);
+    }
+
+    /**
+     * 取出缓冲区数据通知监听器
+     *
+     * @param onlyFullBatch true-只处理完整批次 false-处理全部数据
+     */
+    private void flush(boolean onlyFullBatch) {
+        flushLock.lock();
+        flushThread = Thread.currentThread();
+        try {
+            while (onlyFullBatch ? size() >= batchSize : size() > 0) {
+                List<T> batch = drain();
+                if (CollectionUtils.isEmpty(batch)) {
+                    return;
+                }
+
+                notifyListeners(batch);
+            }
+        } finally {
+            flushThread = null;
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 依次从各个分段中取出至多一个批次的数据
+     *
+     * @return 批次数据
+     */
+    private List<T> drain() {
+        List<T> batch = new ArrayList<>(batchSize);
+        int emptyStripes = 0;
+        while (batch.size() < batchSize && emptyStripes <= mask) {
+            T data = stripes[cursor].poll();
+            if (Objects.isNull(data)) {
+                emptyStripes++;
+                cursor = (cursor + 1) & mask;
+                continue;
+            }
+
+            emptyStripes = 0;
+            batch.add(data);
+        }
+
+        permits.release(batch.size());
+        return batch;
+    }
+
+    private void notifyListeners(List<T> batch) {
+        for (Listener<T> listener : listeners) {
+            try {
+                listener.handler(batch);
+            } catch (Exception e) {
+                SnailJobLog.LOCAL.error("批量缓冲区监听器处理失败 size:[{}]", batch.size(), e);
+            }
+        }
+    }
+
+    /**
+     * 当前缓冲的数据量
+     *
+     * @return 数据量
+     */
+    public int size() {
+        return capacity - permits.availablePermits();
+    }
+
+    /**
+     * 溢出丢弃的数据量
+     *
+     * @return 数据量
+     */
+    public long getDropCount() {
+        return dropCount.sum();
+    }
+
+    /**
+     * 批量缓冲区启动
+     */
+    public void start() {
+
+        threadPoolExecutor.scheduleAtFixedRate(() -> {
+            try {
+                flush(false);
+            } catch (Exception e) {
+                SnailJobLog.LOCAL.error("批量缓冲区刷新异常", e);
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 批量缓冲区关闭, 将剩余数据全部通知监听器
+     */
+    public void end() {
+        closed = true;
+        flush(false);
+    }
+
+    /**
+     * 缓冲区溢出策略
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * 丢弃新写入的数据
+         */
+        DROP,
+
+        /**
+         * 阻塞写入线程, 最多等待一个刷新周期, 超时仍无空闲容量则丢弃
+         */
+        BLOCK,
+
+        /**
+         * 由写入线程直接通知监听器
+         */
+        SPILL
+    }
+
+    /**
+     * 批量缓冲区构建器
+     *
+     * @param <T>
+     */
+    public static class Builder<T> {
+
+        /**
+         * 缓冲区容量
+         */
+        private int capacity = 10000;
+
+        /**
+         * 批次大小
+         */
+        private int batchSize = 50;
+
+        /**
+         * 分段数量
+         */
+        private int stripeCount = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 溢出策略
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+        /**
+         * 监听器
+         */
+        private List<Listener<T>> listeners;
+
+        /**
+         * 刷新线程
+         */
+        private ScheduledExecutorService threadPoolExecutor;
+
+        /**
+         * 刷新间隔(毫秒)
+         */
+        private long flushIntervalMillis = TimeUnit.SECONDS.toMillis(10);
+
+        /**
+         * 创建一个新的构建器
+         *
+         * @param <T>
+         * @return this
+         */
+        public static <T> Builder<T> newBuilder() {
+            return new Builder<T>();
+        }
+
+        /**
+         * 缓冲区容量
+         *
+         * @param capacity 缓冲区容量
+         * @return this
+         */
+        public Builder<T> withCapacity(int capacity) {
+            Assert.isTrue(capacity > 0, "缓冲区容量不能小于0");
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * 批次大小
+         *
+         * @param batchSize 批次大小
+         * @return this
+         */
+        public Builder<T> withBatchSize(int batchSize) {
+            Assert.isTrue(batchSize > 0, "批次大小不能小于0");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * 分段数量, 会向上取整为2的幂
+         *
+         * @param stripeCount 分段数量
+         * @return this
+         */
+        public Builder<T> withStripeCount(int stripeCount) {
+            Assert.isTrue(stripeCount > 0, "分段数量不能小于0");
+            this.stripeCount = stripeCount;
+            return this;
+        }
+
+        /**
+         * 溢出策略
+         *
+         * @param overflowPolicy 溢出策略
+         * @return this
+         */
+        public Builder<T> withOverflowPolicy(OverflowPolicy overflowPolicy) {
+            Assert.notNull(overflowPolicy, "溢出策略不能为空");
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * 添加监听器
+         *
+         * @param listener 监听器
+         * @return this
+         */
+        public Builder<T> withListener(Listener<T> listener) {
+
+            if (CollectionUtils.isEmpty(listeners)) {
+                listeners = new ArrayList<>();
+            }
+
+            listeners.add(listener);
+            return this;
+        }
+
+        /**
+         * 刷新间隔
+         *
+         * @param duration   时长
+         * @param chronoUnit 单位
+         * @return this
+         */
+        public Builder<T> withFlushInterval(long duration, ChronoUnit chronoUnit) {
+            Assert.isTrue(duration > 0, "刷新间隔不能小于0");
+            this.flushIntervalMillis = Duration.of(duration, chronoUnit).toMillis();
+            return this;
+        }
+
+        /**
+         * 添加定时调度线程池
+         *
+         * @param threadPoolExecutor 线程池对象
+         * @return this
+         */
+        public Builder<T> withScheduledExecutorServiced(ScheduledExecutorService threadPoolExecutor) {
+            this.threadPoolExecutor = threadPoolExecutor;
+            return this;
+        }
+
+        /**
+         * 构建批量缓冲区对象
+         *
+         * @return {@link BatchBuffer} 批量缓冲区对象
+         */
+        public BatchBuffer<T> build() {
+            Assert.isTrue(batchSize <= capacity, "批次大小不能大于缓冲区容量");
+
+            if (Objects.isNull(threadPoolExecutor)) {
+                threadPoolExecutor = Executors
+                        .newSingleThreadScheduledExecutor(r -> new Thread(r, "batch-buffer-thread"));
+            }
+
+            if (CollectionUtils.isEmpty(listeners)) {
+                listeners = Collections.emptyList();
+            }
+
+            return new BatchBuffer<>(capacity, batchSize, stripeCount, overflowPolicy, listeners, threadPoolExecutor,
+                    flushIntervalMillis);
+        }
+
+    }
+}
@@ -0,0 +1,149 @@
+package com.aizuda.snailjob.client.common.window;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 批量缓冲区按批次大小和刷新间隔通知监听器, 容量上限、溢出丢弃以及关闭后的直接上报
+ *
+ * @since sj_1.0.0
+ */
+public class BatchBufferTest {
+
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final List<Thread> listenerThreads = Collections.synchronizedList(new ArrayList<>());
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void flushBySize() throws Exception {
+        BatchBuffer<Integer> buffer = newBuilder()
+                .withBatchSize(10)
+                .withFlushInterval(1, ChronoUnit.HOURS)
+                .build();
+        buffer.start();
+
+        for (int i = 0; i < 25; i++) {
+            Assert.assertTrue(buffer.add(i));
+        }
+
+        // 只刷新完整的批次, 不足一个批次的数据等待刷新间隔
+        await(() -> batches.size() == 2);
+        Assert.assertEquals(10, batches.get(0).size());
+        Assert.assertEquals(10, batches.get(1).size());
+        Assert.assertEquals(5, buffer.size());
+    }
+
+    @Test
+    public void flushByTime() throws Exception {
+        BatchBuffer<Integer> buffer = newBuilder()
+                .withBatchSize(100)
+                .withFlushInterval(100, ChronoUnit.MILLIS)
+                .build();
+        buffer.start();
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(buffer.add(i));
+        }
+
+        await(() -> count() == 3);
+        Assert.assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void dropWhenFull() throws Exception {
+        // 刷新线程被占用, 写入的数据只能留在缓冲区中
+        CountDownLatch blocked = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        BatchBuffer<Integer> buffer = newBuilder()
+                .withCapacity(20)
+                .withBatchSize(10)
+                .withFlushInterval(1, ChronoUnit.HOURS)
+                .build();
+        buffer.start();
+
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(buffer.add(i));
+        }
+        for (int i = 0; i < 5; i++) {
+            Assert.assertFalse(buffer.add(i));
+        }
+        Assert.assertEquals(20, buffer.size());
+        Assert.assertEquals(5, buffer.getDropCount());
+        Assert.assertEquals(0, count());
+
+        // 刷新后释放容量, 可以继续写入
+        blocked.countDown();
+        await(() -> count() == 20);
+        Assert.assertTrue(buffer.add(20));
+        Assert.assertEquals(5, buffer.getDropCount());
+    }
+
+    @Test
+    public void reportAfterClose() {
+        BatchBuffer<Integer> buffer = newBuilder()
+                .withBatchSize(10)
+                .withFlushInterval(1, ChronoUnit.HOURS)
+                .build();
+        buffer.start();
+
+        buffer.add(0);
+        buffer.add(1);
+        // 关闭时刷新剩余数据
+        buffer.end();
+        Assert.assertEquals(2, count());
+
+        // 关闭后写入的数据由调用线程直接上报
+        Assert.assertTrue(buffer.add(2));
+        Assert.assertEquals(3, count());
+        Assert.assertEquals(Collections.singletonList(2), batches.get(batches.size() - 1));
+        Assert.assertSame(Thread.currentThread(), listenerThreads.get(listenerThreads.size() - 1));
+        Assert.assertEquals(0, buffer.size());
+    }
+
+    private BatchBuffer.Builder<Integer> newBuilder() {
+        return BatchBuffer.Builder.<Integer>newBuilder()
+                .withStripeCount(4)
+                .withListener(list -> {
+                    batches.add(new ArrayList<>(list));
+                    listenerThreads.add(Thread.currentThread());
+                })
+                .withScheduledExecutorServiced(executor);
+    }
+
+    private int count() {
+        synchronized (batches) {
+            return batches.stream().mapToInt(List::size).sum();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}
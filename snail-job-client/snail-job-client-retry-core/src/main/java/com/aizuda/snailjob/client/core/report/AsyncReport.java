@@ -2,7 +2,7 @@ package com.aizuda.snailjob.client.core.report;
 
 import com.aizuda.snailjob.client.common.Lifecycle;
 import com.aizuda.snailjob.client.common.config.SnailJobProperties;
-import com.aizuda.snailjob.client.common.window.SlidingWindow;
+import com.aizuda.snailjob.client.common.window.BatchBuffer;
 import com.aizuda.snailjob.client.core.retryer.RetryerInfo;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.model.dto.RetryTaskDTO;
@@ -20,7 +20,7 @@ import java.util.concurrent.TimeUnit;
  */
 @Component
 public class AsyncReport extends AbstractReport implements Lifecycle {
-    private SlidingWindow<RetryTaskDTO> slidingWindow;
+    private BatchBuffer<RetryTaskDTO> batchBuffer;
 
     @Override
     public boolean supports(boolean async) {
@@ -40,7 +40,7 @@ public class AsyncReport extends AbstractReport implements Lifecycle {
     public Boolean syncReport(String scene, String targetClassName, Object[] args, long timeout, TimeUnit unit) {
 
         RetryTaskDTO retryTaskDTO = buildRetryTaskDTO(scene, targetClassName, args);
-        slidingWindow.add(retryTaskDTO);
+        batchBuffer.add(retryTaskDTO);
         return Boolean.TRUE;
     }
 
@@ -49,23 +49,24 @@ public class AsyncReport extends AbstractReport implements Lifecycle {
 
         SnailJobProperties.SlidingWindowConfig slidingWindowConfig = snailJobProperties.getRetry().getReportSlidingWindow();
 
-        slidingWindow = SlidingWindow
+        batchBuffer = BatchBuffer
                 .Builder
                 .<RetryTaskDTO>newBuilder()
-                .withTotalThreshold(slidingWindowConfig.getTotalThreshold())
-                .withWindowTotalThreshold(slidingWindowConfig.getWindowTotalThreshold())
-                .withDuration(slidingWindowConfig.getDuration(), slidingWindowConfig.getChronoUnit())
+                .withBatchSize(slidingWindowConfig.getTotalThreshold())
+                .withCapacity(slidingWindowConfig.getCapacity())
+                .withOverflowPolicy(slidingWindowConfig.getOverflowPolicy())
+                .withFlushInterval(slidingWindowConfig.getDuration(), slidingWindowConfig.getChronoUnit())
                 .withListener(new ReportListener())
                 .build();
 
-        slidingWindow.start();
+        batchBuffer.start();
     }
 
     @Override
     public void close() {
         SnailJobLog.LOCAL.info("AsyncReport about to shutdown");
-        if (Objects.nonNull(slidingWindow)) {
-            slidingWindow.end();
+        if (Objects.nonNull(batchBuffer)) {
+            batchBuffer.end();
         }
         SnailJobLog.LOCAL.info("AsyncReport has been shutdown");
     }
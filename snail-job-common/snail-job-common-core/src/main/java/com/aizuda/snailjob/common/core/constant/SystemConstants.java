@@ -55,6 +55,11 @@ public interface SystemConstants {
          */
         String BEAT = "/beat";
 
+        /**
+         * 服务端之间的心跳请求
+         */
+        String SERVER_BEAT = "/server/beat";
+
         /**
          * 批量上报
          */
@@ -4,6 +4,7 @@ import com.aizuda.snailjob.common.core.exception.SnailJobCommonException;
 import com.aizuda.snailjob.common.core.util.JsonUtil;
 import com.googlecode.aviator.AviatorEvaluator;
 import com.googlecode.aviator.AviatorEvaluatorInstance;
+import com.googlecode.aviator.Expression;
 
 import java.util.Map;
 
@@ -17,12 +18,13 @@ import java.util.Map;
 public class AviatorExpressionEngine extends AbstractExpressionEngine {
 
     private static final AviatorEvaluatorInstance ENGINE = AviatorEvaluator.getInstance();
+    private static final CompiledExpressionCache<Expression> CACHE = new CompiledExpressionCache<>();
 
     @Override
     protected Object doEval(String expression, Map<String, Object> context) {
 
         try {
-            return ENGINE.execute(expression, context);
+            return CACHE.get(expression, ENGINE::compile).execute(context);
         } catch (Exception e) {
             throw new SnailJobCommonException("Aviator表达式解析异常. expression:[{}] context:[{}]",
                     expression, JsonUtil.toJsonString(context), e);
@@ -0,0 +1,84 @@
+package com.aizuda.snailjob.common.core.expression.strategy;
+
+import cn.hutool.core.map.FixedLinkedHashMap;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 预编译表达式缓存
+ * 按表达式文本缓存各引擎编译后的表达式, 容量满时淘汰最近最少使用的表达式
+ * 注意: 缓存的编译结果为多个线程共享, 必须是线程安全的
+ *
+ * @param <T> 编译后的表达式类型
+ * @since sj_1.0.0
+ */
+public class CompiledExpressionCache<T> {
+
+    /**
+     * 默认缓存的表达式数量
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Map<String/*表达式*/, T> cache;
+
+    public CompiledExpressionCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CompiledExpressionCache(int capacity) {
+        this.cache = new FixedLinkedHashMap<>(capacity);
+    }
+
+    /**
+     * 获取编译后的表达式, 不存在则编译并放入缓存
+     *
+     * @param expression 表达式
+     * @param compiler   编译器
+     * @return 编译后的表达式
+     * @throws Exception 表达式编译失败
+     */
+    public T get(String expression, ExpressionCompiler<T> compiler) throws Exception {
+        T compiled;
+        synchronized (cache) {
+            compiled = cache.get(expression);
+        }
+
+        if (Objects.nonNull(compiled)) {
+            return compiled;
+        }
+
+        // 编译放在锁外, 并发编译同一表达式时结果等价, 后写入的覆盖先写入的即可
+        compiled = compiler.compile(expression);
+        synchronized (cache) {
+            cache.put(expression, compiled);
+        }
+
+        return compiled;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ExpressionCompiler<T> {
+
+        /**
+         * 编译表达式
+         *
+         * @param expression 表达式
+         * @return 编译后的表达式
+         * @throws Exception 表达式编译失败
+         */
+        T compile(String expression) throws Exception;
+    }
+}
@@ -4,6 +4,7 @@ import com.aizuda.snailjob.common.core.exception.SnailJobCommonException;
 import com.aizuda.snailjob.common.core.util.JsonUtil;
 import com.ql.util.express.DefaultContext;
 import com.ql.util.express.ExpressRunner;
+import com.ql.util.express.InstructionSet;
 
 import java.util.Map;
 
@@ -17,6 +18,7 @@ import java.util.Map;
 public class QLExpressEngine extends AbstractExpressionEngine {
 
     private static final ExpressRunner ENGINE = new ExpressRunner();
+    private static final CompiledExpressionCache<InstructionSet> CACHE = new CompiledExpressionCache<>();
 
     @Override
     protected Object doEval(String expression, Map<String, Object> context) {
@@ -24,7 +26,8 @@ public class QLExpressEngine extends AbstractExpressionEngine {
         final DefaultContext<String, Object> defaultContext = new DefaultContext<>();
         defaultContext.putAll(context);
         try {
-            return ENGINE.execute(expression, defaultContext, null, true, false);
+            InstructionSet instructionSet = CACHE.get(expression, ENGINE::parseInstructionSet);
+            return ENGINE.execute(instructionSet, defaultContext, null, false, false);
         } catch (Exception e) {
             throw new SnailJobCommonException("QL表达式解析异常. expression:[{}] context:[{}]",
                     expression, JsonUtil.toJsonString(context), e);
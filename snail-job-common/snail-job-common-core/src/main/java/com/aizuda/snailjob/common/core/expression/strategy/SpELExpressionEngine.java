@@ -3,6 +3,7 @@ package com.aizuda.snailjob.common.core.expression.strategy;
 import com.aizuda.snailjob.common.core.exception.SnailJobCommonException;
 import com.aizuda.snailjob.common.core.util.JsonUtil;
 import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
@@ -19,6 +20,7 @@ import java.util.Map;
 public class SpELExpressionEngine extends AbstractExpressionEngine {
 
     private static final ExpressionParser ENGINE = new SpelExpressionParser();
+    private static final CompiledExpressionCache<Expression> CACHE = new CompiledExpressionCache<>();
 
     @Override
     protected Object doEval(String expression, Map<String, Object> context) {
@@ -26,7 +28,7 @@ public class SpELExpressionEngine extends AbstractExpressionEngine {
         try {
             final EvaluationContext evaluationContext = new StandardEvaluationContext();
             context.forEach(evaluationContext::setVariable);
-            return ENGINE.parseExpression(expression).getValue(evaluationContext, Object.class);
+            return CACHE.get(expression, ENGINE::parseExpression).getValue(evaluationContext, Object.class);
         } catch (Exception e) {
             throw new SnailJobCommonException("SpEL表达式解析异常. expression:[{}] context:[{}]",
                     expression, JsonUtil.toJsonString(context), e);
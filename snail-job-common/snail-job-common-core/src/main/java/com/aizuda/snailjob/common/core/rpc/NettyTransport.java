@@ -0,0 +1,64 @@
+package com.aizuda.snailjob.common.core.rpc;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * netty传输方式
+ * 开启原生传输且epoll可用时使用epoll, 否则使用NIO; 客户端和服务端共用
+ *
+ * @since sj_1.0.0
+ */
+public enum NettyTransport {
+
+    EPOLL {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String threadPrefix) {
+            return new EpollEventLoopGroup(threads, new DefaultThreadFactory(threadPrefix));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+    },
+
+    NIO {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String threadPrefix) {
+            return new NioEventLoopGroup(threads, new DefaultThreadFactory(threadPrefix));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+    };
+
+    /**
+     * 选择传输方式
+     *
+     * @param nativeTransport 是否使用原生传输
+     * @return 传输方式
+     */
+    public static NettyTransport select(boolean nativeTransport) {
+        return nativeTransport && Epoll.isAvailable() ? EPOLL : NIO;
+    }
+
+    /**
+     * 创建事件循环线程组
+     *
+     * @param threads      线程数, 0表示使用netty默认值
+     * @param threadPrefix 线程名前缀
+     * @return 事件循环线程组
+     */
+    public abstract EventLoopGroup newEventLoopGroup(int threads, String threadPrefix);
+
+    public abstract Class<? extends ServerChannel> serverChannelClass();
+}
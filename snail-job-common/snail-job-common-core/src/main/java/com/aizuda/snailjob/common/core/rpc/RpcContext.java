@@ -60,6 +60,17 @@ public final class RpcContext {
         }
     }
 
+    /**
+     * 请求未能发送时移除future并以异常结束, 无需等待超时检测
+     *
+     * @param requestId 请求id
+     * @param cause     发送失败的原因
+     */
+    public static void fail(Long requestId, Throwable cause) {
+        Optional.ofNullable(COMPLETABLE_FUTURE.remove(requestId))
+                .ifPresent(future -> future.completeExceptionally(cause));
+    }
+
     public static <R extends Result<Object>> void setFuture(SnailJobFuture<R> future) {
         if (Objects.nonNull(future)) {
             COMPLETABLE_FUTURE.put(future.getRequestId(), future);
@@ -19,6 +19,13 @@ package com.aizuda.snailjob.common.core.util;
 
 import java.io.Serializable;
 import java.text.ParseException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
 import java.util.*;
 
 /**
@@ -248,6 +255,18 @@ public final class CronExpression implements Serializable, Cloneable {
     protected transient int lastdayOffset = 0;
     protected transient boolean expressionParsed = false;
 
+    // precomputed bitsets used by the allocation-light next fire time engine,
+    // bit n is set when value n is part of the field
+    private transient long secondsBits;
+    private transient long minutesBits;
+    private transient long hoursBits;
+    private transient long daysOfMonthBits;
+    private transient long monthsBits;
+    private transient long daysOfWeekBits;
+    private transient long[] yearsBits;
+    private transient boolean bitsSupported = false;
+    private transient volatile FixedOffsetRule fixedOffsetRule;
+
     public static final int MAX_YEAR = Calendar.getInstance().get(Calendar.YEAR) + 100;
 
     /**
@@ -505,6 +524,8 @@ public final class CronExpression implements Serializable, Cloneable {
                             "Support for specifying both a day-of-week AND a day-of-month parameter is not implemented.", 0);
                 }
             }
+
+            buildBits();
         } catch (ParseException pe) {
             throw pe;
         } catch (Exception e) {
@@ -1175,7 +1196,39 @@ public final class CronExpression implements Serializable, Cloneable {
     //
     ////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Returns the next date/time <I>after</I> the given date/time which
+     * satisfies the cron expression.
+     * <p>
+     * Expressions without the 'L', 'W' and '#' special characters that are
+     * resolved in a time zone whose offset no longer changes after the given
+     * time are computed on precomputed bitsets with plain field arithmetic.
+     * Everything else falls back to {@link #getTimeAfterByCalendar(Date)}.
+     *
+     * @param afterTime the date/time at which to begin the search
+     * @return the next valid date/time, or null if there is none
+     */
     public Date getTimeAfter(Date afterTime) {
+        if (bitsSupported) {
+            // move ahead one second and drop the milliseconds, same as the calendar engine
+            long startSecond = Math.floorDiv(afterTime.getTime(), 1000L) + 1;
+            FixedOffsetRule rule = getFixedOffsetRule();
+            if (rule.fixed && startSecond >= rule.fixedFromEpochSecond) {
+                return getTimeAfterByBits(startSecond, rule.offset);
+            }
+        }
+
+        return getTimeAfterByCalendar(afterTime);
+    }
+
+    /**
+     * Calendar based implementation of {@link #getTimeAfter(Date)}, supports
+     * every special character and daylight saving time transitions.
+     *
+     * @param afterTime the date/time at which to begin the search
+     * @return the next valid date/time, or null if there is none
+     */
+    public Date getTimeAfterByCalendar(Date afterTime) {
 
         // Computation is based on Gregorian year only.
         Calendar cl = new java.util.GregorianCalendar(getTimeZone());
@@ -1579,6 +1632,261 @@ public final class CronExpression implements Serializable, Cloneable {
         return cl.getTime();
     }
 
+    /**
+     * Computes the next fire time on the precomputed field bitsets. Every
+     * field is moved forward to its next allowed value, carrying into the
+     * next larger field on overflow and restarting from the year.
+     *
+     * @param startSecond first epoch second that may fire
+     * @param offset      the fixed offset of the time zone from startSecond on
+     * @return the next valid date/time, or null if there is none
+     */
+    private Date getTimeAfterByBits(long startSecond, ZoneOffset offset) {
+        LocalDateTime start = LocalDateTime.ofEpochSecond(startSecond, 0, offset);
+        int year = start.getYear();
+        int month = start.getMonthValue();
+        int day = start.getDayOfMonth();
+        int hour = start.getHour();
+        int minute = start.getMinute();
+        int second = start.getSecond();
+
+        while (true) {
+            int next = nextYear(year);
+            if (next == -1) {
+                return null;
+            }
+            if (next != year) {
+                year = next;
+                month = 1;
+                day = 1;
+                hour = 0;
+                minute = 0;
+                second = 0;
+            }
+
+            next = nextBit(monthsBits, month);
+            if (next == -1) {
+                year++;
+                month = 1;
+                day = 1;
+                hour = 0;
+                minute = 0;
+                second = 0;
+                continue;
+            }
+            if (next != month) {
+                month = next;
+                day = 1;
+                hour = 0;
+                minute = 0;
+                second = 0;
+            }
+
+            next = nextDay(year, month, day);
+            if (next == -1) {
+                month++;
+                day = 1;
+                hour = 0;
+                minute = 0;
+                second = 0;
+                continue;
+            }
+            if (next != day) {
+                day = next;
+                hour = 0;
+                minute = 0;
+                second = 0;
+            }
+
+            next = nextBit(hoursBits, hour);
+            if (next == -1) {
+                day++;
+                hour = 0;
+                minute = 0;
+                second = 0;
+                continue;
+            }
+            if (next != hour) {
+                hour = next;
+                minute = 0;
+                second = 0;
+            }
+
+            next = nextBit(minutesBits, minute);
+            if (next == -1) {
+                hour++;
+                minute = 0;
+                second = 0;
+                continue;
+            }
+            if (next != minute) {
+                minute = next;
+                second = 0;
+            }
+
+            next = nextBit(secondsBits, second);
+            if (next == -1) {
+                minute++;
+                second = 0;
+                continue;
+            }
+
+            long epochSecond = LocalDateTime.of(year, month, day, hour, minute, next).toEpochSecond(offset);
+            return new Date(epochSecond * 1000L);
+        }
+    }
+
+    /**
+     * Returns the first allowed day of the month that is not before the given
+     * day, or -1 if there is none left in this month.
+     */
+    private int nextDay(int year, int month, int day) {
+        int lastDay = getLastDayOfMonth(month, year);
+        if (day > lastDay) {
+            return -1;
+        }
+
+        if (daysOfMonthBits != 0) {
+            int next = nextBit(daysOfMonthBits, day);
+            return next > lastDay ? -1 : next;
+        }
+
+        // day of week rule, 1 = SUN ... 7 = SAT
+        DayOfWeek dayOfWeek = LocalDate.of(year, month, day).getDayOfWeek();
+        int dow = dayOfWeek.getValue() % 7 + 1;
+        for (int d = day; d <= lastDay; d++) {
+            if ((daysOfWeekBits & (1L << dow)) != 0) {
+                return d;
+            }
+            dow = dow == 7 ? 1 : dow + 1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the first allowed year that is not before the given year, or -1
+     * if there is none left.
+     */
+    private int nextYear(int year) {
+        if (year > MAX_YEAR) {
+            return -1;
+        }
+
+        int index = Math.max(year, 1970) - 1970;
+        int word = index >>> 6;
+        if (word >= yearsBits.length) {
+            return -1;
+        }
+
+        long bits = yearsBits[word] & (-1L << index);
+        while (bits == 0) {
+            if (++word == yearsBits.length) {
+                return -1;
+            }
+            bits = yearsBits[word];
+        }
+
+        return 1970 + (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Returns the lowest set bit that is not below the given value, or -1 if
+     * there is none.
+     */
+    private static int nextBit(long bits, int from) {
+        if (from > 63) {
+            return -1;
+        }
+
+        long masked = bits & (-1L << from);
+        return masked == 0 ? -1 : Long.numberOfTrailingZeros(masked);
+    }
+
+    /**
+     * Precomputes the field bitsets once the expression is parsed. Expressions
+     * using 'L', 'W' or '#' keep using the calendar engine.
+     */
+    private void buildBits() {
+        secondsBits = toBits(seconds);
+        minutesBits = toBits(minutes);
+        hoursBits = toBits(hours);
+        monthsBits = toBits(months);
+
+        boolean dayOfMSpec = !daysOfMonth.contains(NO_SPEC);
+        daysOfMonthBits = dayOfMSpec ? toBits(daysOfMonth) : 0;
+        daysOfWeekBits = dayOfMSpec ? 0 : toBits(daysOfWeek);
+
+        yearsBits = new long[((MAX_YEAR - 1970) >>> 6) + 1];
+        for (Integer year : years) {
+            if (year >= 1970 && year <= MAX_YEAR) {
+                yearsBits[(year - 1970) >>> 6] |= 1L << (year - 1970);
+            }
+        }
+
+        bitsSupported = !lastdayOfMonth && !nearestWeekday && !lastdayOfWeek && nthdayOfWeek == 0
+                && (daysOfMonthBits != 0 || daysOfWeekBits != 0);
+    }
+
+    private static long toBits(Set<Integer> values) {
+        long bits = 0;
+        for (Integer value : values) {
+            // skip the ALL_SPEC and NO_SPEC markers
+            if (value >= 0 && value < 64) {
+                bits |= 1L << value;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Returns the offset rule of the current time zone, recomputed when the
+     * time zone is changed.
+     */
+    private FixedOffsetRule getFixedOffsetRule() {
+        TimeZone zone = getTimeZone();
+        FixedOffsetRule rule = fixedOffsetRule;
+        if (rule == null || rule.timeZone != zone) {
+            rule = FixedOffsetRule.of(zone);
+            fixedOffsetRule = rule;
+        }
+        return rule;
+    }
+
+    /**
+     * Describes from which instant on a time zone keeps a constant offset.
+     * Zones with ongoing daylight saving time rules never do.
+     */
+    private static final class FixedOffsetRule {
+
+        private final TimeZone timeZone;
+        private final boolean fixed;
+        private final long fixedFromEpochSecond;
+        private final ZoneOffset offset;
+
+        private FixedOffsetRule(TimeZone timeZone, boolean fixed, long fixedFromEpochSecond, ZoneOffset offset) {
+            this.timeZone = timeZone;
+            this.fixed = fixed;
+            this.fixedFromEpochSecond = fixedFromEpochSecond;
+            this.offset = offset;
+        }
+
+        private static FixedOffsetRule of(TimeZone timeZone) {
+            ZoneRules rules = timeZone.toZoneId().getRules();
+            if (rules.isFixedOffset()) {
+                return new FixedOffsetRule(timeZone, true, Long.MIN_VALUE, rules.getOffset(Instant.EPOCH));
+            }
+
+            if (!rules.getTransitionRules().isEmpty()) {
+                return new FixedOffsetRule(timeZone, false, Long.MAX_VALUE, null);
+            }
+
+            List<ZoneOffsetTransition> transitions = rules.getTransitions();
+            ZoneOffsetTransition last = transitions.get(transitions.size() - 1);
+            return new FixedOffsetRule(timeZone, true, last.toEpochSecond(), last.getOffsetAfter());
+        }
+    }
+
     /**
      * Advance the calendar to the particular hour paying particular attention
      * to daylight saving problems.
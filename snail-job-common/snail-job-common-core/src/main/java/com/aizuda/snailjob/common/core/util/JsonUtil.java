@@ -11,6 +11,7 @@ import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -121,6 +122,16 @@ public class JsonUtil {
         return JsonMapper.toJson(jsonBytes);
     }
 
+    /**
+     * 创建流式解析器, 直接从输入流中读取JSON, 解析器需要由调用方关闭
+     *
+     * @param inputStream
+     * @return
+     */
+    public static JsonParser createParser(InputStream inputStream) {
+        return JsonMapper.createParser(inputStream);
+    }
+
     /**
      * 内部类，处理Json
      */
@@ -292,5 +303,19 @@ public class JsonUtil {
                 throw new SnailJobCommonException("Json转对象失败！", e);
             }
         }
+
+        /**
+         * 创建流式解析器
+         *
+         * @param inputStream
+         * @return
+         */
+        private static JsonParser createParser(InputStream inputStream) {
+            try {
+                return objectMapper.createParser(inputStream);
+            } catch (Exception e) {
+                throw new SnailJobCommonException("创建Json解析器失败！", e);
+            }
+        }
     }
 }
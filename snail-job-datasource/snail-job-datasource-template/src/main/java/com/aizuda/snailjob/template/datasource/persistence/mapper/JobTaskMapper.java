@@ -3,6 +3,9 @@ package com.aizuda.snailjob.template.datasource.persistence.mapper;
 import com.aizuda.snailjob.template.datasource.persistence.po.JobTask;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * <p>
@@ -15,4 +18,20 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface JobTaskMapper extends BaseMapper<JobTask> {
 
+    /**
+     * 批量新增任务实例并回填自增主键, MySQL、Postgres
+     *
+     * @param list 任务实例
+     * @return 新增的行数
+     */
+    int batchInsert(@Param("list") List<JobTask> list);
+
+    /**
+     * 批量新增任务实例, SQL Server
+     *
+     * @param list 任务实例
+     * @return 按照传入顺序返回的自增主键
+     */
+    List<Long> batchInsertReturningIds(@Param("list") List<JobTask> list);
+
 }
@@ -4,6 +4,7 @@ import com.aizuda.snailjob.template.datasource.persistence.po.RetryTask;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface RetryTaskMapper extends BaseMapper<RetryTask> {
@@ -11,4 +12,15 @@ public interface RetryTaskMapper extends BaseMapper<RetryTask> {
     int batchInsert(@Param("list") List<RetryTask> list);
 
     int updateBatchNextTriggerAtById(@Param("partition") Integer partition, @Param("list") List<RetryTask> list);
+
+    /**
+     * 批量更新下次触发时间, 仅更新查询之后未被修改的任务
+     *
+     * @param updateDt 更新后的update_dt
+     * @param list     id、下次触发时间以及查询时的update_dt
+     * @return 更新的条数
+     */
+    int updateBatchNextTriggerAtByIdAndUpdateDt(@Param("partition") Integer partition,
+                                                @Param("updateDt") LocalDateTime updateDt,
+                                                @Param("list") List<RetryTask> list);
 }
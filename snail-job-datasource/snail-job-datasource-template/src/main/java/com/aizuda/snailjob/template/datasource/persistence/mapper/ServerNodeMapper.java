@@ -13,10 +13,14 @@ import java.util.List;
 @Mapper
 public interface ServerNodeMapper extends BaseMapper<ServerNode> {
 
-    int batchUpdateExpireAt(@Param("list") List<ServerNode> list);
-
     int batchInsert(@Param("records") List<ServerNode> records);
 
+    /**
+     * 批量注册节点, 节点已存在时只刷新过期时间
+     * 同一批次中的节点(host_id, host_ip)不能重复
+     */
+    int batchUpsertExpireAt(@Param("records") List<ServerNode> records);
+
     List<ActivePodQuantityResponseDO> countActivePod(@Param("ew") Wrapper<ServerNode> wrapper);
 
 }
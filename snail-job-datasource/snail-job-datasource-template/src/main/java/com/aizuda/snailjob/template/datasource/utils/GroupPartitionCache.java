@@ -0,0 +1,167 @@
+package com.aizuda.snailjob.template.datasource.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * 组分区本地缓存
+ * 本节点修改分区时主动失效; 其他节点修改分区时, 由桶调度周期查询到的分区刷新, 兜底依赖过期时间失效
+ * 事务内加载的分区先记录在当前事务中, 同一事务再次查询时直接使用; 事务提交后才写入缓存, 回滚的分区变更不会残留在缓存中
+ *
+ * @since sj_1.0.0
+ */
+public class GroupPartitionCache {
+
+    /**
+     * 缓存过期时间, 作为集群内其他节点修改分区后的最大感知延迟
+     */
+    private static final long EXPIRE_AFTER_WRITE = TimeUnit.SECONDS.toMillis(60);
+
+    private static final Map<String/*namespaceId*/, Map<String/*groupName*/, PartitionEntry>> CACHE = new ConcurrentHashMap<>();
+    private static final LongAdder HIT_COUNT = new LongAdder();
+    private static final LongAdder MISS_COUNT = new LongAdder();
+    /**
+     * 事务内已加载分区的资源key
+     */
+    private static final Object TRANSACTION_RESOURCE_KEY = new Object();
+
+    private GroupPartitionCache() {
+    }
+
+    /**
+     * 获取组分区, 缓存未命中或者已过期时通过loader加载
+     *
+     * @param groupName   组名称
+     * @param namespaceId 命名空间
+     * @param loader      分区加载器, 返回null时不缓存
+     * @return 分区
+     */
+    public static Integer get(String groupName, String namespaceId, BiFunction<String, String, Integer> loader) {
+        Map<String, PartitionEntry> groupMap = CACHE.computeIfAbsent(namespaceId, k -> new ConcurrentHashMap<>());
+
+        long now = System.currentTimeMillis();
+        PartitionEntry entry = groupMap.get(groupName);
+        if (Objects.nonNull(entry) && entry.expireAt > now) {
+            HIT_COUNT.increment();
+            return entry.partition;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            MISS_COUNT.increment();
+            Integer partition = loader.apply(groupName, namespaceId);
+            if (Objects.nonNull(partition)) {
+                groupMap.put(groupName, new PartitionEntry(partition, now + EXPIRE_AFTER_WRITE));
+            }
+            return partition;
+        }
+
+        Map<String, Map<String, PartitionEntry>> transactionCache = getTransactionCache();
+        Map<String, PartitionEntry> transactionGroupMap = transactionCache.computeIfAbsent(namespaceId, k -> new ConcurrentHashMap<>());
+        entry = transactionGroupMap.get(groupName);
+        if (Objects.nonNull(entry)) {
+            HIT_COUNT.increment();
+            return entry.partition;
+        }
+
+        MISS_COUNT.increment();
+        Integer partition = loader.apply(groupName, namespaceId);
+        if (Objects.nonNull(partition)) {
+            transactionGroupMap.put(groupName, new PartitionEntry(partition, now + EXPIRE_AFTER_WRITE));
+        }
+        return partition;
+    }
+
+    /**
+     * 获取当前事务内已加载的分区, 首次获取时绑定到事务, 事务提交后写入缓存
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Map<String, PartitionEntry>> getTransactionCache() {
+        Map<String, Map<String, PartitionEntry>> transactionCache =
+                (Map<String, Map<String, PartitionEntry>>) TransactionSynchronizationManager.getResource(TRANSACTION_RESOURCE_KEY);
+        if (Objects.nonNull(transactionCache)) {
+            return transactionCache;
+        }
+
+        Map<String, Map<String, PartitionEntry>> newTransactionCache = new ConcurrentHashMap<>();
+        TransactionSynchronizationManager.bindResource(TRANSACTION_RESOURCE_KEY, newTransactionCache);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                newTransactionCache.forEach((namespaceId, groupMap) ->
+                        CACHE.computeIfAbsent(namespaceId, k -> new ConcurrentHashMap<>()).putAll(groupMap));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_RESOURCE_KEY);
+            }
+        });
+        return newTransactionCache;
+    }
+
+    /**
+     * 使用最新查询到的分区刷新缓存
+     *
+     * @param groupName   组名称
+     * @param namespaceId 命名空间
+     * @param partition   分区
+     */
+    public static void refresh(String groupName, String namespaceId, Integer partition) {
+        if (Objects.isNull(partition)) {
+            return;
+        }
+
+        CACHE.computeIfAbsent(namespaceId, k -> new ConcurrentHashMap<>())
+                .put(groupName, new PartitionEntry(partition, System.currentTimeMillis() + EXPIRE_AFTER_WRITE));
+    }
+
+    /**
+     * 失效组分区缓存, 同时失效当前事务内已加载的分区
+     *
+     * @param groupName   组名称
+     * @param namespaceId 命名空间
+     */
+    @SuppressWarnings("unchecked")
+    public static void invalidate(String groupName, String namespaceId) {
+        Map<String, PartitionEntry> groupMap = CACHE.get(namespaceId);
+        if (Objects.nonNull(groupMap)) {
+            groupMap.remove(groupName);
+        }
+
+        Map<String, Map<String, PartitionEntry>> transactionCache =
+                (Map<String, Map<String, PartitionEntry>>) TransactionSynchronizationManager.getResource(TRANSACTION_RESOURCE_KEY);
+        if (Objects.nonNull(transactionCache) && transactionCache.containsKey(namespaceId)) {
+            transactionCache.get(namespaceId).remove(groupName);
+        }
+    }
+
+    public static void invalidateAll() {
+        CACHE.clear();
+    }
+
+    public static long getHitCount() {
+        return HIT_COUNT.sum();
+    }
+
+    public static long getMissCount() {
+        return MISS_COUNT.sum();
+    }
+
+    private static final class PartitionEntry {
+
+        private final int partition;
+        private final long expireAt;
+
+        private PartitionEntry(int partition, long expireAt) {
+            this.partition = partition;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -65,6 +65,15 @@ public class RequestDataHelper {
             throw new SnailJobDatasourceException("组名称或者命名空间ID不能为空");
         }
 
+        Integer partition = GroupPartitionCache.get(groupName, namespaceId, RequestDataHelper::getGroupPartition);
+        if (Objects.isNull(partition)) {
+            throw new SnailJobDatasourceException("groupName:[{}]不存在", groupName);
+        }
+
+        setPartition(partition);
+    }
+
+    private static Integer getGroupPartition(String groupName, String namespaceId) {
         GroupConfigMapper groupConfigMapper = SpringContext.getBeanByType(GroupConfigMapper.class);
 
         GroupConfig groupConfig = groupConfigMapper.selectOne(
@@ -73,10 +82,10 @@ public class RequestDataHelper {
                         .eq(GroupConfig::getNamespaceId, namespaceId)
                         .eq(GroupConfig::getGroupName, groupName));
         if (Objects.isNull(groupConfig)) {
-            throw new SnailJobDatasourceException("groupName:[{}]不存在", groupName);
+            return null;
         }
 
-        setPartition(groupConfig.getGroupPartition());
+        return groupConfig.getGroupPartition();
     }
 
     /**
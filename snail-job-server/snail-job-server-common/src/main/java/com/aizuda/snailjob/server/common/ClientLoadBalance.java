@@ -1,5 +1,7 @@
 package com.aizuda.snailjob.server.common;
 
+import com.aizuda.snailjob.server.common.dto.RegisterNodeSnapshot;
+
 import java.util.TreeSet;
 
 /**
@@ -10,6 +12,18 @@ public interface ClientLoadBalance {
 
     String route(String key, TreeSet<String> clientAllAddressSet);
 
+    /**
+     * 基于注册表的快照路由, 快照中已按顺序排列好hostId, 不需要每次重新构建集合
+     *
+     * @param key      分配的key
+     * @param snapshot 组内节点的快照
+     * @return hostId
+     */
+    default String route(String key, RegisterNodeSnapshot snapshot) {
+        // 快照中的集合不可修改, 传入副本
+        return route(key, new TreeSet<>(snapshot.getHostIdSet()));
+    }
+
     int routeType();
 
 }
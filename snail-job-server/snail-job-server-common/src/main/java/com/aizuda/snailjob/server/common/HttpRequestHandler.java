@@ -1,8 +1,10 @@
 package com.aizuda.snailjob.server.common;
 
 import cn.hutool.core.net.url.UrlBuilder;
+import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.CharsetUtil;
 
 /**
  * 处理http请求
@@ -19,4 +21,17 @@ public interface HttpRequestHandler {
 
     String doHandler(String content, UrlBuilder urlBuilder, HttpHeaders headers);
 
+    /**
+     * 处理原始请求体, 默认解码为字符串后交给{@link #doHandler(String, UrlBuilder, HttpHeaders)}处理
+     * 请求体较大的处理器可以覆盖此方法直接从content中流式解析
+     *
+     * @param content    请求体, 仅在方法调用期间有效
+     * @param urlBuilder url
+     * @param headers    请求头
+     * @return 响应内容
+     */
+    default String doHandler(ByteBuf content, UrlBuilder urlBuilder, HttpHeaders headers) {
+        return doHandler(content.toString(CharsetUtil.UTF_8), urlBuilder, headers);
+    }
+
 }
@@ -1,8 +1,15 @@
 package com.aizuda.snailjob.server.common.akka;
 
+import akka.actor.ActorContext;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.routing.SmallestMailboxPool;
 import com.aizuda.snailjob.common.core.context.SpringContext;
+import com.aizuda.snailjob.server.common.config.SystemProperties;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 /**
@@ -60,6 +67,11 @@ public class ActorGenerator {
 
     /*----------------------------------------分布式任务调度 END----------------------------------------*/
 
+    /**
+     * 池化模式下常驻的路由actor, key: actor名称
+     */
+    private static final ConcurrentMap<String, ActorRef> POOLED_ACTOR_CACHE = new ConcurrentHashMap<>();
+
     private ActorGenerator() {
     }
 
@@ -69,7 +81,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef finishActor() {
-        return getRetryActorSystem().actorOf(getSpringExtension().props(FINISH_ACTOR).withDispatcher(RETRY_TASK_EXECUTOR_RESULT_DISPATCHER));
+        return actorOf(getRetryActorSystem(), FINISH_ACTOR, RETRY_TASK_EXECUTOR_RESULT_DISPATCHER);
     }
 
     /**
@@ -78,7 +90,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef failureActor() {
-        return getRetryActorSystem().actorOf(getSpringExtension().props(FAILURE_ACTOR).withDispatcher(RETRY_TASK_EXECUTOR_RESULT_DISPATCHER));
+        return actorOf(getRetryActorSystem(), FAILURE_ACTOR, RETRY_TASK_EXECUTOR_RESULT_DISPATCHER);
     }
 
     /**
@@ -87,7 +99,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef noRetryActor() {
-        return getRetryActorSystem().actorOf(getSpringExtension().props(NO_RETRY_ACTOR).withDispatcher(RETRY_TASK_EXECUTOR_RESULT_DISPATCHER));
+        return actorOf(getRetryActorSystem(), NO_RETRY_ACTOR, RETRY_TASK_EXECUTOR_RESULT_DISPATCHER);
     }
 
     /**
@@ -96,9 +108,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef execCallbackUnitActor() {
-        return getRetryActorSystem().actorOf(getSpringExtension()
-                .props(EXEC_CALLBACK_UNIT_ACTOR)
-                .withDispatcher(RETRY_TASK_EXECUTOR_DISPATCHER));
+        return actorOf(getRetryActorSystem(), EXEC_CALLBACK_UNIT_ACTOR, RETRY_TASK_EXECUTOR_DISPATCHER);
     }
 
     /**
@@ -107,9 +117,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef execUnitActor() {
-        return getRetryActorSystem().actorOf(getSpringExtension()
-                .props(EXEC_UNIT_ACTOR)
-                .withDispatcher(RETRY_TASK_EXECUTOR_DISPATCHER));
+        return actorOf(getRetryActorSystem(), EXEC_UNIT_ACTOR, RETRY_TASK_EXECUTOR_DISPATCHER);
     }
 
     /**
@@ -173,9 +181,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef logActor() {
-        return getCommonActorSystemSystem().actorOf(getSpringExtension()
-                .props(LOG_ACTOR)
-                .withDispatcher(COMMON_LOG_DISPATCHER));
+        return actorOf(getCommonActorSystemSystem(), LOG_ACTOR, COMMON_LOG_DISPATCHER);
     }
 
     /**
@@ -184,8 +190,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef requestHandlerActor() {
-        return getNettyActorSystem().actorOf(getSpringExtension().props(REQUEST_HANDLER_ACTOR)
-                .withDispatcher(NETTY_RECEIVE_REQUEST_DISPATCHER));
+        return actorOf(getNettyActorSystem(), REQUEST_HANDLER_ACTOR, NETTY_RECEIVE_REQUEST_DISPATCHER);
     }
 
 
@@ -195,8 +200,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef jobTaskPrepareActor() {
-        return getJobActorSystem().actorOf(getSpringExtension().props(JOB_TASK_PREPARE_ACTOR)
-                .withDispatcher(JOB_TASK_DISPATCHER));
+        return actorOf(getJobActorSystem(), JOB_TASK_PREPARE_ACTOR, JOB_TASK_DISPATCHER);
     }
 
     /**
@@ -205,8 +209,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef workflowTaskPrepareActor() {
-        return getJobActorSystem().actorOf(getSpringExtension().props(WORKFLOW_TASK_PREPARE_ACTOR)
-                .withDispatcher(WORKFLOW_TASK_DISPATCHER));
+        return actorOf(getJobActorSystem(), WORKFLOW_TASK_PREPARE_ACTOR, WORKFLOW_TASK_DISPATCHER);
     }
 
     /**
@@ -215,11 +218,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef jobTaskExecutorActor() {
-        return getJobActorSystem()
-                .actorOf(getSpringExtension()
-                        .props(JOB_EXECUTOR_ACTOR)
-                        .withDispatcher(JOB_TASK_EXECUTOR_DISPATCHER)
-                );
+        return actorOf(getJobActorSystem(), JOB_EXECUTOR_ACTOR, JOB_TASK_EXECUTOR_DISPATCHER);
     }
 
     /**
@@ -228,11 +227,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef workflowTaskExecutorActor() {
-        return getJobActorSystem()
-                .actorOf(getSpringExtension()
-                        .props(WORKFLOW_EXECUTOR_ACTOR)
-                        .withDispatcher(WORKFLOW_TASK_EXECUTOR_DISPATCHER)
-                );
+        return actorOf(getJobActorSystem(), WORKFLOW_EXECUTOR_ACTOR, WORKFLOW_TASK_EXECUTOR_DISPATCHER);
     }
 
     /**
@@ -241,9 +236,7 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef jobTaskExecutorResultActor() {
-        return getJobActorSystem().actorOf(getSpringExtension()
-                .props(JOB_EXECUTOR_RESULT_ACTOR)
-                .withDispatcher(JOB_TASK_EXECUTOR_RESULT_DISPATCHER));
+        return actorOf(getJobActorSystem(), JOB_EXECUTOR_RESULT_ACTOR, JOB_TASK_EXECUTOR_RESULT_DISPATCHER);
     }
 
     /**
@@ -273,8 +266,46 @@ public class ActorGenerator {
      * @return actor 引用
      */
     public static ActorRef jobLogActor() {
-        return getCommonActorSystemSystem().actorOf(getSpringExtension().props(JOB_LOG_ACTOR)
-                .withDispatcher(COMMON_LOG_DISPATCHER));
+        return actorOf(getCommonActorSystemSystem(), JOB_LOG_ACTOR, COMMON_LOG_DISPATCHER);
+    }
+
+    /**
+     * 生成actor
+     * 未开启池化: 每条消息创建一个actor, 处理完成后actor自行停止
+     * 开启池化: 使用固定数量的常驻actor, 由路由actor将消息分发给邮箱最空闲的actor
+     *
+     * @param actorSystem actor系统
+     * @param actorName   actor名称
+     * @param dispatcher  分发器
+     * @return actor 引用
+     */
+    private static ActorRef actorOf(ActorSystem actorSystem, String actorName, String dispatcher) {
+        int poolSize = getPoolSize(actorName);
+        if (poolSize <= 0) {
+            return actorSystem.actorOf(getSpringExtension().props(actorName).withDispatcher(dispatcher));
+        }
+
+        return POOLED_ACTOR_CACHE.computeIfAbsent(actorName, name -> {
+            Props props = getSpringExtension().props(name).withDispatcher(dispatcher);
+            return actorSystem.actorOf(new SmallestMailboxPool(poolSize).props(props), name);
+        });
+    }
+
+    /**
+     * 处理完消息后停止actor, 池化的actor为常驻actor不做停止
+     *
+     * @param context   actor上下文
+     * @param actorName actor名称
+     */
+    public static void stop(ActorContext context, String actorName) {
+        if (getPoolSize(actorName) <= 0) {
+            context.stop(context.self());
+        }
+    }
+
+    private static int getPoolSize(String actorName) {
+        SystemProperties systemProperties = SpringContext.getBeanByType(SystemProperties.class);
+        return systemProperties.getActorPool().getOrDefault(actorName, 0);
     }
 
     public static SpringExtension getSpringExtension() {
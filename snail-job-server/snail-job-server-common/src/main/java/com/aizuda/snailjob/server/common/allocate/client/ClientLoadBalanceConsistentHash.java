@@ -3,8 +3,14 @@ package com.aizuda.snailjob.server.common.allocate.client;
 import com.aizuda.snailjob.server.common.ClientLoadBalance;
 import com.aizuda.snailjob.server.common.allocate.client.ClientLoadBalanceManager.AllocationAlgorithmEnum;
 import com.aizuda.snailjob.server.common.allocate.common.ConsistentHashRouter;
+import com.aizuda.snailjob.server.common.allocate.common.HashFunction;
 import com.aizuda.snailjob.server.common.allocate.common.Node;
+import com.aizuda.snailjob.server.common.dto.RegisterNodeSnapshot;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.TreeSet;
@@ -15,7 +21,12 @@ import java.util.TreeSet;
  */
 public class ClientLoadBalanceConsistentHash implements ClientLoadBalance {
 
+    private static final HashFunction MD5_HASH = new ThreadLocalMD5Hash();
+
     private final int virtualNodeCnt;
+    private final Cache<RegisterNodeSnapshot, ConsistentHashRouter<ClientNode>> routerCache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
 
     public ClientLoadBalanceConsistentHash(int virtualNodeCnt) {
         this.virtualNodeCnt = virtualNodeCnt;
@@ -35,6 +46,20 @@ public class ClientLoadBalanceConsistentHash implements ClientLoadBalance {
         return clientNode.clientAddress;
     }
 
+    @Override
+    public String route(String allocKey, RegisterNodeSnapshot snapshot) {
+        // 快照不变时复用哈希环, 快照更新后旧的哈希环随快照一起回收
+        ConsistentHashRouter<ClientNode> consistentHashRouter = routerCache.asMap().computeIfAbsent(snapshot, key -> {
+            Collection<ClientNode> cidNodes = new ArrayList<>(key.size());
+            for (String hostId : key.getHostIds()) {
+                cidNodes.add(new ClientNode(hostId));
+            }
+            return new ConsistentHashRouter<>(cidNodes, virtualNodeCnt, MD5_HASH);
+        });
+
+        return consistentHashRouter.routeNode(allocKey).clientAddress;
+    }
+
     @Override
     public int routeType() {
         return AllocationAlgorithmEnum.CONSISTENT_HASH.getType();
@@ -52,4 +77,33 @@ public class ClientLoadBalanceConsistentHash implements ClientLoadBalance {
             return clientAddress;
         }
     }
+
+    /**
+     * 与{@link ConsistentHashRouter}默认的MD5哈希结果一致, 每个线程使用独立的MessageDigest, 哈希环可以在多个线程中共享
+     */
+    private static class ThreadLocalMD5Hash implements HashFunction {
+
+        private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        @Override
+        public long hash(String key) {
+            MessageDigest instance = MD5.get();
+            instance.reset();
+            instance.update(key.getBytes());
+            byte[] digest = instance.digest();
+
+            long h = 0;
+            for (int i = 0; i < 4; i++) {
+                h <<= 8;
+                h |= ((int) digest[i]) & 0xFF;
+            }
+            return h;
+        }
+    }
 }
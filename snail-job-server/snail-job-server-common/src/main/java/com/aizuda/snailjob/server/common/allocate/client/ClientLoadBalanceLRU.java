@@ -5,7 +5,6 @@ import com.aizuda.snailjob.server.common.allocate.client.ClientLoadBalanceManage
 
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -25,31 +24,25 @@ public class ClientLoadBalanceLRU implements ClientLoadBalance {
 
     @Override
     public String route(String allocKey, TreeSet<String> clientAllAddressSet) {
-        LinkedHashMap<String, String> lruItem = LRU_CACHE.get(allocKey);
-        if (Objects.isNull(lruItem)) {
-            lruItem = new LinkedHashMap<String, String>(16, 0.75f, true) {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry eldest) {
-                    return super.size() > size;
-                }
-            };
-
-            LRU_CACHE.put(allocKey, lruItem);
-        }
-
-        // 添加新数据
-        for (String address : clientAllAddressSet) {
-            lruItem.computeIfAbsent(address, key -> address);
-        }
+        LinkedHashMap<String, String> lruItem = LRU_CACHE.computeIfAbsent(allocKey, key -> new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                return super.size() > size;
+            }
+        });
 
-        // 删除已经下线的节点
-        for (String address : lruItem.keySet()) {
-            if (!clientAllAddressSet.contains(address)) {
-                lruItem.remove(address);
+        // 按访问顺序排列的LinkedHashMap读取时也会修改内部链表, 同一个key的路由需要串行
+        synchronized (lruItem) {
+            // 添加新数据
+            for (String address : clientAllAddressSet) {
+                lruItem.computeIfAbsent(address, key -> address);
             }
-        }
 
-        return lruItem.values().stream().findFirst().get();
+            // 删除已经下线的节点
+            lruItem.keySet().removeIf(address -> !clientAllAddressSet.contains(address));
+
+            return lruItem.values().stream().findFirst().get();
+        }
     }
 
     @Override
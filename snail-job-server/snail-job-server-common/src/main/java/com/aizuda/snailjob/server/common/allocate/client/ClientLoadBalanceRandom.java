@@ -2,7 +2,9 @@ package com.aizuda.snailjob.server.common.allocate.client;
 
 import com.aizuda.snailjob.server.common.ClientLoadBalance;
 import com.aizuda.snailjob.server.common.allocate.client.ClientLoadBalanceManager.AllocationAlgorithmEnum;
+import com.aizuda.snailjob.server.common.dto.RegisterNodeSnapshot;
 
+import java.util.List;
 import java.util.Random;
 import java.util.TreeSet;
 
@@ -20,6 +22,12 @@ public class ClientLoadBalanceRandom implements ClientLoadBalance {
         return addressArr[random.nextInt(clientAllAddressSet.size())];
     }
 
+    @Override
+    public String route(String allocKey, RegisterNodeSnapshot snapshot) {
+        List<String> hostIds = snapshot.getHostIds();
+        return hostIds.get(random.nextInt(hostIds.size()));
+    }
+
     @Override
     public int routeType() {
         return ClientLoadBalanceManager.AllocationAlgorithmEnum.RANDOM.getType();
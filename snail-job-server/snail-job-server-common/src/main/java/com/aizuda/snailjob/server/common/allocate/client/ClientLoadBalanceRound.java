@@ -2,7 +2,10 @@ package com.aizuda.snailjob.server.common.allocate.client;
 
 import com.aizuda.snailjob.server.common.ClientLoadBalance;
 import com.aizuda.snailjob.server.common.allocate.client.ClientLoadBalanceManager.AllocationAlgorithmEnum;
+import com.aizuda.snailjob.server.common.dto.RegisterNodeSnapshot;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -19,9 +22,17 @@ public class ClientLoadBalanceRound implements ClientLoadBalance {
 
     @Override
     public String route(final String allocKey, final TreeSet<String> clientAllAddressSet) {
-        String[] addressArr = clientAllAddressSet.toArray(new String[0]);
+        return route(allocKey, new ArrayList<>(clientAllAddressSet));
+    }
+
+    @Override
+    public String route(final String allocKey, final RegisterNodeSnapshot snapshot) {
+        return route(allocKey, snapshot.getHostIds());
+    }
+
+    private String route(final String allocKey, final List<String> addressList) {
         AtomicInteger next = COUNTER.getOrDefault(allocKey, new AtomicInteger(1));
-        String nextClientId = addressArr[next.get() % clientAllAddressSet.size()];
+        String nextClientId = addressList.get(next.get() % addressList.size());
         int nextIndex = next.incrementAndGet();
         if (nextIndex > THRESHOLD) {
             next = new AtomicInteger(1);
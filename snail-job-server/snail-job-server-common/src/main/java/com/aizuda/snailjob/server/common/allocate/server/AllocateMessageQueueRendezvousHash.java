@@ -0,0 +1,72 @@
+package com.aizuda.snailjob.server.common.allocate.server;
+
+import com.aizuda.snailjob.server.common.ServerLoadBalance;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 通过最高随机权重(rendezvous hash)分配bucketList
+ * 每个桶分配给与其hash值最大的节点, 节点加入或者离开时只有约1/N的桶会变更归属, 其余桶的消费节点保持不变
+ *
+ * @since sj_1.0.0
+ */
+public class AllocateMessageQueueRendezvousHash implements ServerLoadBalance<Integer, String> {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    @Override
+    public List<Integer> allocate(String currentCID, List<Integer> bucketList, List<String> serverList) {
+
+        List<Integer> consumerBucket = new ArrayList<>();
+        if (!serverList.contains(currentCID)) {
+            return consumerBucket;
+        }
+
+        for (Integer bucket : bucketList) {
+            if (currentCID.equals(route(bucket, serverList))) {
+                consumerBucket.add(bucket);
+            }
+        }
+
+        return consumerBucket;
+    }
+
+    /**
+     * 计算桶归属的节点
+     *
+     * @param bucket     桶
+     * @param serverList 节点信息
+     * @return 节点id
+     */
+    public String route(Integer bucket, List<String> serverList) {
+        String owner = null;
+        long maxWeight = Long.MIN_VALUE;
+        for (String server : serverList) {
+            long weight = weight(server, bucket);
+            // 权重相同时取id较小的节点, 保证所有节点计算的结果一致
+            if (owner == null || weight > maxWeight || (weight == maxWeight && server.compareTo(owner) < 0)) {
+                owner = server;
+                maxWeight = weight;
+            }
+        }
+
+        return owner;
+    }
+
+    private static long weight(String server, Integer bucket) {
+        return HASH_FUNCTION.newHasher()
+                .putString(server, StandardCharsets.UTF_8)
+                .putInt(bucket)
+                .hash()
+                .asLong();
+    }
+
+    @Override
+    public String getName() {
+        return "RENDEZVOUS_HASH";
+    }
+}
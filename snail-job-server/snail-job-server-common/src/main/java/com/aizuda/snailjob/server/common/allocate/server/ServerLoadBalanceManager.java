@@ -0,0 +1,36 @@
+package com.aizuda.snailjob.server.common.allocate.server;
+
+import com.aizuda.snailjob.server.common.ServerLoadBalance;
+import lombok.Getter;
+
+/**
+ * 服务端桶分配算法
+ *
+ * @since sj_1.0.0
+ */
+public class ServerLoadBalanceManager {
+
+    private ServerLoadBalanceManager() {
+    }
+
+    @Getter
+    public enum AllocationAlgorithmEnum {
+
+        /**
+         * 平均分配, 节点变化时大部分桶都会变更归属
+         */
+        AVG(new AllocateMessageQueueAveragely()),
+
+        /**
+         * 最高随机权重分配, 节点变化时只有约1/N的桶会变更归属
+         */
+        RENDEZVOUS_HASH(new AllocateMessageQueueRendezvousHash());
+
+        private final ServerLoadBalance<Integer, String> serverLoadBalance;
+
+        AllocationAlgorithmEnum(ServerLoadBalance<Integer, String> serverLoadBalance) {
+            this.serverLoadBalance = serverLoadBalance;
+        }
+    }
+
+}
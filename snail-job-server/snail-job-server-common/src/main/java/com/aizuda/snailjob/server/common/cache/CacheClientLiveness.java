@@ -0,0 +1,110 @@
+package com.aizuda.snailjob.server.common.cache;
+
+import com.aizuda.snailjob.common.core.context.SpringContext;
+import com.aizuda.snailjob.common.log.SnailJobLog;
+import com.aizuda.snailjob.server.common.Lifecycle;
+import com.aizuda.snailjob.server.common.config.SystemProperties;
+import com.aizuda.snailjob.server.common.handler.ClientLiveness;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.ServerNodeMapper;
+import com.aizuda.snailjob.template.datasource.persistence.po.ServerNode;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端存活状态缓存
+ * 由客户端注册(心跳)维护, 下发重试前判断客户端是否存活不再每次查询server_node表
+ *
+ * @since sj_1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheClientLiveness implements Lifecycle {
+
+    private static ClientLiveness LIVENESS;
+
+    private final SystemProperties systemProperties;
+    private final ServerNodeMapper serverNodeMapper;
+
+    /**
+     * 收到客户端的心跳
+     *
+     * @param hostId 客户端节点id
+     */
+    public static void onHeartbeat(String hostId) {
+        if (Objects.nonNull(LIVENESS)) {
+            LIVENESS.onHeartbeat(hostId);
+        }
+    }
+
+    /**
+     * 客户端是否存活, 内存中的状态过期或者被抽样时到DB中确认
+     *
+     * @param hostId 客户端节点id
+     * @return true-存活
+     */
+    public static boolean isAlive(String hostId) {
+        if (Objects.nonNull(LIVENESS)) {
+            return LIVENESS.isAlive(hostId);
+        }
+
+        // 此处为了降级，缓存未启动时直接查询DB
+        return existsInDb(SpringContext.getBeanByType(ServerNodeMapper.class), hostId);
+    }
+
+    /**
+     * 客户端下线
+     *
+     * @param hostId 客户端节点id
+     */
+    public static void remove(String hostId) {
+        if (Objects.nonNull(LIVENESS)) {
+            LIVENESS.remove(hostId);
+        }
+    }
+
+    /**
+     * 删除超过有效期的节点
+     */
+    public static void removeExpired() {
+        if (Objects.nonNull(LIVENESS)) {
+            LIVENESS.removeExpired();
+        }
+    }
+
+    /**
+     * 直接从内存判定存活的次数
+     */
+    public static long getHitCount() {
+        return Objects.nonNull(LIVENESS) ? LIVENESS.getHitCount() : 0;
+    }
+
+    /**
+     * 到DB中确认的次数
+     */
+    public static long getVerifyCount() {
+        return Objects.nonNull(LIVENESS) ? LIVENESS.getVerifyCount() : 0;
+    }
+
+    private static boolean existsInDb(ServerNodeMapper serverNodeMapper, String hostId) {
+        return 1 == serverNodeMapper.selectCount(new LambdaQueryWrapper<ServerNode>().eq(ServerNode::getHostId, hostId));
+    }
+
+    @Override
+    public void start() {
+        SnailJobLog.LOCAL.info("CacheClientLiveness start");
+        SystemProperties.ClientLiveness clientLiveness = systemProperties.getClientLiveness();
+        LIVENESS = new ClientLiveness(TimeUnit.SECONDS.toMillis(clientLiveness.getStaleness()),
+                clientLiveness.getVerifyRate(),
+                hostId -> existsInDb(serverNodeMapper, hostId),
+                System::currentTimeMillis);
+    }
+
+    @Override
+    public void close() {
+        SnailJobLog.LOCAL.info("CacheClientLiveness stop");
+    }
+}
@@ -0,0 +1,78 @@
+package com.aizuda.snailjob.server.common.cache;
+
+import com.aizuda.snailjob.common.core.util.CronExpression;
+import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
+import com.aizuda.snailjob.server.common.triple.Pair;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.text.ParseException;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存解析后的CRON表达式，避免每次计算下次触发时间都重新解析表达式
+ * 注意: 缓存的{@link CronExpression}为多个线程共享, 使用方不能修改其时区等属性
+ *
+ * @since sj_1.0.0
+ */
+public class CacheCronExpression {
+
+    private static final Cache<Pair<String/*cron*/, String/*timeZoneId*/>, CronExpression> CACHE;
+
+    static {
+        CACHE = CacheBuilder.newBuilder()
+                // 设置并发级别为cpu核心数
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                .maximumSize(10000)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+    }
+
+    private CacheCronExpression() {
+    }
+
+    /**
+     * 获取默认时区下解析后的CRON表达式
+     *
+     * @param cron CRON表达式
+     * @return {@link CronExpression}
+     * @throws ParseException CRON表达式不合法
+     */
+    public static CronExpression get(String cron) throws ParseException {
+        return get(cron, TimeZone.getDefault());
+    }
+
+    /**
+     * 获取指定时区下解析后的CRON表达式
+     *
+     * @param cron     CRON表达式
+     * @param timeZone 时区
+     * @return {@link CronExpression}
+     * @throws ParseException CRON表达式不合法
+     */
+    public static CronExpression get(String cron, TimeZone timeZone) throws ParseException {
+        try {
+            return CACHE.get(Pair.of(cron, timeZone.getID()), () -> {
+                CronExpression cronExpression = new CronExpression(cron);
+                cronExpression.setTimeZone(timeZone);
+                return cronExpression;
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ParseException parseException) {
+                throw parseException;
+            }
+
+            throw new SnailJobServerException("解析CRON表达式异常 [{}]", cron, e.getCause());
+        }
+    }
+
+    public static long size() {
+        return CACHE.size();
+    }
+
+    public static void clear() {
+        CACHE.invalidateAll();
+    }
+}
@@ -0,0 +1,118 @@
+package com.aizuda.snailjob.server.common.cache;
+
+import com.aizuda.snailjob.common.core.context.SpringContext;
+import com.aizuda.snailjob.common.core.enums.StatusEnum;
+import com.aizuda.snailjob.common.log.SnailJobLog;
+import com.aizuda.snailjob.server.common.event.GroupConfigChangeEvent;
+import com.aizuda.snailjob.server.common.triple.Pair;
+import com.aizuda.snailjob.template.datasource.access.AccessTemplate;
+import com.aizuda.snailjob.template.datasource.persistence.po.GroupConfig;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已开启的组缓存
+ * 本节点修改组配置时通过{@link GroupConfigChangeEvent}刷新; 其他节点修改组配置时, 依赖定期全量刷新感知
+ *
+ * @since sj_1.0.0
+ */
+@Component
+public class CacheEnabledGroup {
+
+    /**
+     * 全量刷新间隔, 作为集群内其他节点修改组状态后的最大感知延迟
+     */
+    private static final long REFRESH_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    private static volatile Set<Pair<String/*groupName*/, String/*namespaceId*/>> ENABLED_GROUPS = Collections.emptySet();
+    private static volatile long nextRefreshAt;
+
+    /**
+     * 组是否已开启
+     *
+     * @param groupName   组名称
+     * @param namespaceId 命名空间
+     * @return true-已开启
+     */
+    public static boolean isEnabled(String groupName, String namespaceId) {
+        if (nextRefreshAt <= System.currentTimeMillis()) {
+            refresh(false);
+        }
+
+        return ENABLED_GROUPS.contains(Pair.of(groupName, namespaceId));
+    }
+
+    /**
+     * 从DB全量加载已开启的组
+     *
+     * @param force true-忽略刷新间隔
+     */
+    public static synchronized void refresh(boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && nextRefreshAt > now) {
+            return;
+        }
+
+        AccessTemplate accessTemplate = SpringContext.getBean(AccessTemplate.class);
+        List<GroupConfig> groupConfigs = accessTemplate.getGroupConfigAccess().list(
+                new LambdaQueryWrapper<GroupConfig>()
+                        .select(GroupConfig::getGroupName, GroupConfig::getNamespaceId)
+                        .eq(GroupConfig::getGroupStatus, StatusEnum.YES.getStatus()));
+
+        Set<Pair<String, String>> enabledGroups = new HashSet<>(groupConfigs.size());
+        for (GroupConfig groupConfig : groupConfigs) {
+            enabledGroups.add(Pair.of(groupConfig.getGroupName(), groupConfig.getNamespaceId()));
+        }
+
+        ENABLED_GROUPS = enabledGroups;
+        nextRefreshAt = now + REFRESH_INTERVAL;
+    }
+
+    /**
+     * 组配置提交后刷新该组的状态
+     *
+     * @param event 组配置变更事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGroupConfigChange(GroupConfigChangeEvent event) {
+        try {
+            update(event.getGroupName(), event.getNamespaceId());
+        } catch (Exception e) {
+            SnailJobLog.LOCAL.error("刷新组状态缓存失败. groupName:[{}] namespaceId:[{}]",
+                    event.getGroupName(), event.getNamespaceId(), e);
+            // 下次访问时全量刷新
+            nextRefreshAt = 0;
+        }
+    }
+
+    private static synchronized void update(String groupName, String namespaceId) {
+        AccessTemplate accessTemplate = SpringContext.getBean(AccessTemplate.class);
+        GroupConfig groupConfig = accessTemplate.getGroupConfigAccess()
+                .getGroupConfigByGroupName(groupName, namespaceId);
+
+        Pair<String, String> key = Pair.of(groupName, namespaceId);
+        boolean enabled = Objects.nonNull(groupConfig)
+                && Objects.equals(StatusEnum.YES.getStatus(), groupConfig.getGroupStatus());
+        if (enabled == ENABLED_GROUPS.contains(key)) {
+            return;
+        }
+
+        // 写时复制, 读取方无需加锁
+        Set<Pair<String, String>> enabledGroups = new HashSet<>(ENABLED_GROUPS);
+        if (enabled) {
+            enabledGroups.add(key);
+        } else {
+            enabledGroups.remove(key);
+        }
+
+        ENABLED_GROUPS = enabledGroups;
+    }
+}
@@ -2,11 +2,11 @@ package com.aizuda.snailjob.server.common.cache;
 
 import com.aizuda.snailjob.common.core.context.SpringContext;
 import com.aizuda.snailjob.common.core.enums.NodeTypeEnum;
-import com.aizuda.snailjob.common.core.util.StreamUtils;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.Lifecycle;
 import com.aizuda.snailjob.server.common.RegisterNodeInfoConverter;
 import com.aizuda.snailjob.server.common.dto.RegisterNodeInfo;
+import com.aizuda.snailjob.server.common.dto.RegisterNodeSnapshot;
 import com.aizuda.snailjob.server.common.register.ServerRegister;
 import com.aizuda.snailjob.server.common.triple.Pair;
 import com.aizuda.snailjob.template.datasource.persistence.mapper.ServerNodeMapper;
@@ -30,6 +30,8 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * POD注册表
+ * 每个组维护一份按hostId排序的只读快照{@link RegisterNodeSnapshot}, 查询直接读取快照不加锁;
+ * 只有节点加入或离开时才在组内加锁重新生成快照, 刷新过期时间只修改节点信息本身
  *
  * @author opensnail
  * @date 2021-10-30
@@ -39,7 +41,7 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class CacheRegisterTable implements Lifecycle {
 
-    private static Cache<Pair<String/*groupName*/, String/*namespaceId*/>, ConcurrentMap<String, RegisterNodeInfo>> CACHE;
+    private static Cache<Pair<String/*groupName*/, String/*namespaceId*/>, RegisterTable> CACHE;
 
     /**
      * 获取所有缓存
@@ -47,27 +49,31 @@ public class CacheRegisterTable implements Lifecycle {
      * @return 缓存对象
      */
     public static Set<RegisterNodeInfo> getAllPods() {
-        ConcurrentMap<Pair<String, String>, ConcurrentMap<String, RegisterNodeInfo>> concurrentMap = CACHE.asMap();
+        ConcurrentMap<Pair<String, String>, RegisterTable> concurrentMap = CACHE.asMap();
         if (CollectionUtils.isEmpty(concurrentMap)) {
             return Sets.newHashSet();
         }
 
-        return concurrentMap.values().stream()
-                .map(stringServerNodeConcurrentMap -> new TreeSet(stringServerNodeConcurrentMap.values()))
-                .reduce((s, y) -> {
-                    s.addAll(y);
-                    return s;
-                }).orElse(new TreeSet<>());
+        Set<RegisterNodeInfo> allPods = new TreeSet<>();
+        for (RegisterTable registerTable : concurrentMap.values()) {
+            allPods.addAll(registerTable.snapshot.getNodeSet());
+        }
 
+        return allPods;
     }
 
     /**
-     * 获取所有缓存
+     * 获取所有缓存, 返回的Map只能读取, 修改请使用{@link #addOrUpdate(ServerNode)}和{@link #remove(String, String, String)}
      *
      * @return 缓存对象
      */
     public static ConcurrentMap<String, RegisterNodeInfo> get(String groupName, String namespaceId) {
-        return CACHE.getIfPresent(getKey(groupName, namespaceId));
+        RegisterTable registerTable = CACHE.getIfPresent(getKey(groupName, namespaceId));
+        if (Objects.isNull(registerTable)) {
+            return null;
+        }
+
+        return registerTable.nodes;
     }
 
     /**
@@ -76,8 +82,8 @@ public class CacheRegisterTable implements Lifecycle {
      * @return 缓存对象
      */
     public static RegisterNodeInfo getServerNode(String groupName, String namespaceId, String hostId) {
-        ConcurrentMap<String, RegisterNodeInfo> concurrentMap = CACHE.getIfPresent(getKey(groupName, namespaceId));
-        if (Objects.isNull(concurrentMap)) {
+        RegisterTable registerTable = CACHE.getIfPresent(getKey(groupName, namespaceId));
+        if (Objects.isNull(registerTable)) {
             // 此处为了降级，若缓存中没有则取DB中查询
             ServerNodeMapper serverNodeMapper = SpringContext.getBeanByType(ServerNodeMapper.class);
             List<ServerNode> serverNodes = serverNodeMapper.selectList(
@@ -93,43 +99,54 @@ public class CacheRegisterTable implements Lifecycle {
 
             CacheRegisterTable.addOrUpdate(serverNodes.get(0));
 
-            concurrentMap = CACHE.getIfPresent(getKey(groupName, namespaceId));
-            if (CollectionUtils.isEmpty(concurrentMap)) {
+            registerTable = CACHE.getIfPresent(getKey(groupName, namespaceId));
+            if (Objects.isNull(registerTable)) {
                 return null;
             }
         }
 
-        return concurrentMap.get(hostId);
+        return registerTable.nodes.get(hostId);
     }
 
     /**
      * 获取排序的ServerNode
      *
-     * @return 缓存对象
+     * @return 只读的节点集合
      */
     public static Set<RegisterNodeInfo> getServerNodeSet(String groupName, String namespaceId) {
-        ConcurrentMap<String, RegisterNodeInfo> concurrentMap = CACHE.getIfPresent(getKey(groupName, namespaceId));
-        if (CollectionUtils.isEmpty(concurrentMap)) {
+        return getSnapshot(groupName, namespaceId).getNodeSet();
+    }
 
-            // 此处为了降级，若缓存中没有则取DB中查询
-            ServerNodeMapper serverNodeMapper = SpringContext.getBeanByType(ServerNodeMapper.class);
-            List<ServerNode> serverNodes = serverNodeMapper.selectList(
-                    new LambdaQueryWrapper<ServerNode>()
-                            .eq(ServerNode::getNodeType, NodeTypeEnum.CLIENT.getType())
-                            .eq(ServerNode::getNamespaceId, namespaceId)
-                            .eq(ServerNode::getGroupName, groupName));
-            for (final ServerNode node : serverNodes) {
-                // 刷新全量本地缓存
-                CacheRegisterTable.addOrUpdate(node);
-            }
+    /**
+     * 获取组内节点的快照
+     * 组不在缓存中或者没有节点时从DB加载, DB中没有节点时不缓存, 避免客户端注册前一直取到空的快照
+     *
+     * @return 只读的快照
+     */
+    public static RegisterNodeSnapshot getSnapshot(String groupName, String namespaceId) {
+        RegisterTable registerTable = CACHE.getIfPresent(getKey(groupName, namespaceId));
+        if (Objects.nonNull(registerTable) && !registerTable.snapshot.isEmpty()) {
+            return registerTable.snapshot;
+        }
 
-            concurrentMap = CACHE.getIfPresent(getKey(groupName, namespaceId));
-            if (CollectionUtils.isEmpty(serverNodes) || CollectionUtils.isEmpty(concurrentMap)) {
-                return Sets.newHashSet();
-            }
+        // 此处为了降级，若缓存中没有则取DB中查询
+        ServerNodeMapper serverNodeMapper = SpringContext.getBeanByType(ServerNodeMapper.class);
+        List<ServerNode> serverNodes = serverNodeMapper.selectList(
+                new LambdaQueryWrapper<ServerNode>()
+                        .eq(ServerNode::getNodeType, NodeTypeEnum.CLIENT.getType())
+                        .eq(ServerNode::getNamespaceId, namespaceId)
+                        .eq(ServerNode::getGroupName, groupName));
+        if (CollectionUtils.isEmpty(serverNodes)) {
+            return RegisterNodeSnapshot.EMPTY;
+        }
+
+        registerTable = getOrCreateTable(groupName, namespaceId);
+        for (final ServerNode node : serverNodes) {
+            // 刷新全量本地缓存
+            registerTable.addOrUpdate(node);
         }
 
-        return new TreeSet<>(concurrentMap.values());
+        return registerTable.snapshot;
     }
 
     private static Pair<String, String> getKey(final String groupName, final String namespaceId) {
@@ -142,7 +159,7 @@ public class CacheRegisterTable implements Lifecycle {
      * @return 缓存对象
      */
     public static Set<String> getPodIdSet(String groupName, String namespaceId) {
-        return StreamUtils.toSet(getServerNodeSet(groupName, namespaceId), RegisterNodeInfo::getHostId);
+        return getSnapshot(groupName, namespaceId).getHostIdSet();
     }
 
 
@@ -151,13 +168,12 @@ public class CacheRegisterTable implements Lifecycle {
      *
      * @param serverNode 服务节点
      */
-    public static synchronized void refreshExpireAt(ServerNode serverNode) {
-        RegisterNodeInfo registerNodeInfo = getServerNode(serverNode.getGroupName(), serverNode.getNamespaceId(),
-                serverNode.getHostId());
-        // 不存在则初始化
+    public static void refreshExpireAt(ServerNode serverNode) {
+        RegisterTable registerTable = getOrCreateTable(serverNode.getGroupName(), serverNode.getNamespaceId());
+        RegisterNodeInfo registerNodeInfo = registerTable.nodes.get(serverNode.getHostId());
         if (Objects.isNull(registerNodeInfo)) {
-            SnailJobLog.LOCAL.warn("node not exists. groupName:[{}] hostId:[{}]", serverNode.getGroupName(),
-                    serverNode.getHostId());
+            // 不存在则初始化
+            registerTable.addOrUpdate(serverNode);
         } else {
             // 存在则刷新过期时间
             registerNodeInfo.setExpireAt(serverNode.getExpireAt());
@@ -169,45 +185,24 @@ public class CacheRegisterTable implements Lifecycle {
      *
      * @return 缓存对象
      */
-    public static synchronized void addOrUpdate(ServerNode serverNode) {
-        ConcurrentMap<String, RegisterNodeInfo> concurrentMap = CACHE.getIfPresent(
-                getKey(serverNode.getGroupName(), serverNode.getNamespaceId()));
-        RegisterNodeInfo registerNodeInfo;
-        if (Objects.isNull(concurrentMap)) {
-            SnailJobLog.LOCAL.info("Add cache. groupName:[{}] namespaceId:[{}] hostId:[{}]", serverNode.getGroupName(),
-                    serverNode.getNamespaceId(), serverNode.getHostId());
-            concurrentMap = new ConcurrentHashMap<>();
-            registerNodeInfo = RegisterNodeInfoConverter.INSTANCE.toRegisterNodeInfo(serverNode);
-
-        } else {
-            // 复用缓存中的对象
-            registerNodeInfo = concurrentMap.getOrDefault(serverNode.getHostId(),
-                    RegisterNodeInfoConverter.INSTANCE.toRegisterNodeInfo(serverNode));
-            registerNodeInfo.setExpireAt(serverNode.getExpireAt());
-
-            // 删除过期的节点信息
-            delExpireNode(concurrentMap);
-        }
-
-        concurrentMap.put(serverNode.getHostId(), registerNodeInfo);
-        // 此缓存设置了60秒没有写入即过期，因此这次刷新缓存防止过期
-        CACHE.put(getKey(serverNode.getGroupName(), serverNode.getNamespaceId()), concurrentMap);
+    public static void addOrUpdate(ServerNode serverNode) {
+        getOrCreateTable(serverNode.getGroupName(), serverNode.getNamespaceId()).addOrUpdate(serverNode);
     }
 
     /**
-     * 删除过期的节点信息
-     *
-     * @param concurrentMap 并发映射的节点信息
+     * 获取组的注册表, 不存在时创建
+     * 此缓存设置了60秒没有写入即过期，因此每次获取都重新写入防止过期
      */
-    private static void delExpireNode(final ConcurrentMap<String, RegisterNodeInfo> concurrentMap) {
-        concurrentMap.values().stream()
-                .filter(registerNodeInfo -> registerNodeInfo.getExpireAt().isBefore(
-                        LocalDateTime.now().minusSeconds(ServerRegister.DELAY_TIME + (ServerRegister.DELAY_TIME / 3))))
-                .forEach(registerNodeInfo -> remove(registerNodeInfo.getGroupName(),
-                        registerNodeInfo.getNamespaceId(), registerNodeInfo.getHostId()));
+    private static RegisterTable getOrCreateTable(String groupName, String namespaceId) {
+        Pair<String, String> key = getKey(groupName, namespaceId);
+        RegisterTable registerTable = CACHE.asMap().computeIfAbsent(key, k -> {
+            SnailJobLog.LOCAL.info("Add cache. groupName:[{}] namespaceId:[{}]", groupName, namespaceId);
+            return new RegisterTable();
+        });
+        CACHE.put(key, registerTable);
+        return registerTable;
     }
 
-
     /**
      * 删除缓存
      *
@@ -215,13 +210,16 @@ public class CacheRegisterTable implements Lifecycle {
      * @param hostId    机器id
      */
     public static void remove(String groupName, String namespaceId, String hostId) {
-        ConcurrentMap<String, RegisterNodeInfo> concurrentMap = CACHE.getIfPresent(getKey(groupName, namespaceId));
-        if (Objects.isNull(concurrentMap)) {
+        CacheClientLiveness.remove(hostId);
+
+        RegisterTable registerTable = CACHE.getIfPresent(getKey(groupName, namespaceId));
+        if (Objects.isNull(registerTable)) {
             return;
         }
 
-        SnailJobLog.LOCAL.info("Remove cache. groupName:[{}] hostId:[{}]", groupName, hostId);
-        concurrentMap.remove(hostId);
+        if (registerTable.remove(hostId)) {
+            SnailJobLog.LOCAL.info("Remove cache. groupName:[{}] hostId:[{}]", groupName, hostId);
+        }
     }
 
     @Override
@@ -241,4 +239,53 @@ public class CacheRegisterTable implements Lifecycle {
         SnailJobLog.LOCAL.info("CacheRegisterTable stop");
         CACHE.invalidateAll();
     }
+
+    /**
+     * 组的注册表
+     */
+    private static class RegisterTable {
+
+        private final ConcurrentMap<String/*hostId*/, RegisterNodeInfo> nodes = new ConcurrentHashMap<>();
+        private volatile RegisterNodeSnapshot snapshot = RegisterNodeSnapshot.EMPTY;
+
+        private synchronized void addOrUpdate(ServerNode serverNode) {
+            // 复用缓存中的对象
+            RegisterNodeInfo registerNodeInfo = nodes.get(serverNode.getHostId());
+            boolean changed = Objects.isNull(registerNodeInfo);
+            if (changed) {
+                registerNodeInfo = RegisterNodeInfoConverter.INSTANCE.toRegisterNodeInfo(serverNode);
+                nodes.put(serverNode.getHostId(), registerNodeInfo);
+            } else {
+                registerNodeInfo.setExpireAt(serverNode.getExpireAt());
+            }
+
+            // 删除过期的节点信息
+            changed |= delExpireNode();
+
+            if (changed) {
+                rebuildSnapshot();
+            }
+        }
+
+        private synchronized boolean remove(String hostId) {
+            if (Objects.isNull(nodes.remove(hostId))) {
+                return false;
+            }
+
+            rebuildSnapshot();
+            return true;
+        }
+
+        /**
+         * 删除过期的节点信息
+         */
+        private boolean delExpireNode() {
+            LocalDateTime expireAt = LocalDateTime.now().minusSeconds(ServerRegister.DELAY_TIME + (ServerRegister.DELAY_TIME / 3));
+            return nodes.values().removeIf(registerNodeInfo -> registerNodeInfo.getExpireAt().isBefore(expireAt));
+        }
+
+        private void rebuildSnapshot() {
+            snapshot = new RegisterNodeSnapshot(snapshot.getVersion() + 1, nodes.values());
+        }
+    }
 }
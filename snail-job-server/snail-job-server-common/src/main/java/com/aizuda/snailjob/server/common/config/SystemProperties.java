@@ -1,12 +1,16 @@
 package com.aizuda.snailjob.server.common.config;
 
 import com.aizuda.snailjob.common.core.alarm.email.MailProperties;
+import com.aizuda.snailjob.server.common.allocate.server.ServerLoadBalanceManager;
 import com.aizuda.snailjob.server.common.enums.SystemModeEnum;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 系统配置
  *
@@ -33,6 +37,12 @@ public class SystemProperties {
      */
     private int retryMaxPullCount = 10;
 
+    /**
+     * 重试任务进入时间轮时是否携带任务数据
+     * 开启后触发时通过条件更新确认任务在此期间未被修改, 不再按uniqueId重新查询; 确认失败时仍重新查询
+     */
+    private boolean retryTimerPayload = false;
+
     /**
      * netty 端口
      */
@@ -64,7 +74,7 @@ public class SystemProperties {
     private int mergeLogNum = 500;
 
     /**
-     * 负载均衡周期时间
+     * 负载均衡周期时间, 与server_node表对账的周期(秒); 节点变化通过服务端之间的心跳感知, 不依赖此周期
      */
     private int loadBalanceCycleTime = 10;
 
@@ -73,6 +83,11 @@ public class SystemProperties {
      */
     private int bucketTotal = 128;
 
+    /**
+     * 桶的分配算法, 集群内所有节点的配置必须一致
+     */
+    private ServerLoadBalanceManager.AllocationAlgorithmEnum bucketAllocation = ServerLoadBalanceManager.AllocationAlgorithmEnum.AVG;
+
     /**
      * 回调配置
      */
@@ -101,11 +116,228 @@ public class SystemProperties {
 
     }
 
+    /**
+     * 服务端调用客户端的RPC配置
+     */
+    private RpcClient rpcClient = new RpcClient();
+
+    /**
+     * 服务端调用客户端的RPC配置
+     */
+    @Data
+    public static class RpcClient {
+
+        /**
+         * 每个客户端节点的长连接数量
+         */
+        private int channelPoolSize = 2;
+
+        /**
+         * 每个客户端节点最多未完成的异步请求数, 超出后异步请求直接失败
+         */
+        private int maxInflightRequests = 256;
+
+    }
+
+    /**
+     * 服务端netty配置
+     */
+    private NettyServer nettyServer = new NettyServer();
+
+    /**
+     * 服务端netty配置
+     */
+    @Data
+    public static class NettyServer {
+
+        /**
+         * 是否使用epoll原生传输, 仅在Linux且epoll可用时生效, 否则仍使用NIO
+         */
+        private boolean nativeTransport = false;
+
+        /**
+         * 接收连接的线程数
+         */
+        private int bossThreads = 1;
+
+        /**
+         * 处理读写的线程数, 小于等于0时使用netty默认值(cpu核数 * 2)
+         */
+        private int workerThreads = 0;
+
+        /**
+         * 等待接收的连接队列长度
+         */
+        private int soBacklog = 128;
+
+        /**
+         * 写缓冲区低水位(字节)
+         */
+        private int writeBufferLowWaterMark = 32 * 1024;
+
+        /**
+         * 写缓冲区高水位(字节), 超过后暂停读取该连接, 直到写缓冲区低于低水位
+         */
+        private int writeBufferHighWaterMark = 64 * 1024;
+
+        /**
+         * 请求体的最大长度(字节)
+         */
+        private int maxContentLength = 5 * 1024 * 1024;
+
+        /**
+         * 最多未处理完成的请求数, 超出后暂停读取新的请求, 降到一半以下后恢复; 小于等于0时不限制
+         */
+        private int maxPendingRequests = 2048;
+
+    }
+
+    /**
+     * 服务端节点间心跳配置
+     */
+    private ServerHeartbeat serverHeartbeat = new ServerHeartbeat();
+
+    /**
+     * 服务端节点间心跳配置
+     */
+    @Data
+    public static class ServerHeartbeat {
+
+        /**
+         * 心跳间隔(毫秒)
+         */
+        private long interval = 1000;
+
+        /**
+         * 心跳超时时间(秒)
+         */
+        private int timeout = 2;
+
+        /**
+         * 连续失败多少次后将节点移出集群, 重新收到该节点的心跳后加入
+         */
+        private int maxFailures = 2;
+
+    }
+
+    /**
+     * 客户端存活状态配置
+     */
+    private ClientLiveness clientLiveness = new ClientLiveness();
+
+    /**
+     * 客户端存活状态配置
+     */
+    @Data
+    public static class ClientLiveness {
+
+        /**
+         * 收到心跳或者DB确认后在内存中判定为存活的时间(秒), 超过后到DB中重新确认
+         */
+        private int staleness = 40;
+
+        /**
+         * 内存中判定为存活时仍到DB中确认的抽样比例 [0, 1], 0表示不抽样
+         */
+        private double verifyRate = 0;
+
+    }
+
+    /**
+     * 常驻分布式锁(定时清理、统计等)的租约配置
+     */
+    private LockLease lockLease = new LockLease();
+
+    /**
+     * 常驻分布式锁(定时清理、统计等)的租约配置
+     */
+    @Data
+    public static class LockLease {
+
+        /**
+         * 是否开启租约, 开启后持有锁的节点在租约内再次加锁和释放锁不访问DB, 节点宕机时其他节点需要等待租约到期
+         */
+        private boolean enabled = false;
+
+        /**
+         * 租约时长(秒), 每1/3租约时长批量续期一次
+         */
+        private int duration = 30;
+
+    }
+
+    /**
+     * 任务日志合并配置, 合并的条数见mergeLogNum
+     */
+    private LogMerge logMerge = new LogMerge();
+
+    /**
+     * 任务日志合并配置, 合并的条数见mergeLogNum
+     */
+    @Data
+    public static class LogMerge {
+
+        /**
+         * 每次按游标查询的日志行数
+         */
+        private int pageSize = 1000;
+
+        /**
+         * 合并后单行日志的最大字符数
+         */
+        private int maxMessageLength = 256 * 1024;
+
+        /**
+         * 每个事务删除和写入的日志最大字符数, 达到后提交事务
+         */
+        private int chunkLength = 1024 * 1024;
+
+        /**
+         * 每个事务提交后休眠的时间与事务耗时的比例, DB负载高时事务耗时变长, 合并随之放慢; 小于等于0时不休眠
+         */
+        private double throttleRatio = 1;
+
+    }
+
+    /**
+     * 任务调度和重试的时间轮配置
+     */
+    private TimerWheel timerWheel = new TimerWheel();
+
+    /**
+     * 任务调度和重试的时间轮配置
+     */
+    @Data
+    public static class TimerWheel {
+
+        /**
+         * 每个时间轮最多未到期的任务数, 超出后本次扫描不再加入时间轮, 等待下次扫描; 小于等于0时不限制
+         */
+        private long maxPendingTimeouts = 1000000;
+
+        /**
+         * 执行到期任务的线程池队列长度, 队列满时由时间轮线程执行
+         */
+        private int executorQueueCapacity = 10000;
+
+        /**
+         * 同一个tick到期的任务每多少个作为一批提交到线程池
+         */
+        private int batchSize = 32;
+
+    }
+
     /**
      * Dashboard 任务容错天数
      */
     private int summaryDay = 7;
 
+    /**
+     * Actor池化配置 key: actor名称(参考ActorGenerator) value: 池大小
+     * 未配置或池大小小于等于0的actor仍然按每条消息创建一个actor的方式处理
+     */
+    private Map<String, Integer> actorPool = new HashMap<>();
+
     /**
      * 邮件配置
      */
@@ -26,7 +26,13 @@ public class DistributeInstance {
         return CONSUMER_BUCKETS;
     }
 
+    /**
+     * 覆盖消费的桶, 分配前后都属于当前节点的桶在覆盖期间不会被移除
+     *
+     * @param buckets 当前节点消费的桶
+     */
     public void setConsumerBucket(List<Integer> buckets) {
+        CONSUMER_BUCKETS.retainAll(buckets);
         CONSUMER_BUCKETS.addAll(buckets);
     }
 
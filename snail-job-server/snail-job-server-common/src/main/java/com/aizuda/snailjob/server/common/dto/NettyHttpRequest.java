@@ -1,5 +1,6 @@
 package com.aizuda.snailjob.server.common.dto;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.HttpHeaders;
 import lombok.Builder;
@@ -18,7 +19,10 @@ public class NettyHttpRequest {
 
     private ChannelHandlerContext channelHandlerContext;
 
-    private String content;
+    /**
+     * 请求体, 由处理请求的actor负责释放
+     */
+    private ByteBuf content;
 
     private boolean keepAlive;
 
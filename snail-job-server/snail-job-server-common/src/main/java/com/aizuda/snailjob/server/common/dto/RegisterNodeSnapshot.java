@@ -0,0 +1,104 @@
+package com.aizuda.snailjob.server.common.dto;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * 组内注册节点的只读快照
+ * 节点按hostId排序, 只在节点加入或离开时重新生成, 刷新过期时间不会生成新的快照
+ * 对外只提供不可修改的视图, 供路由直接使用, 不需要复制
+ *
+ * @since sj_1.0.0
+ */
+public final class RegisterNodeSnapshot {
+
+    public static final RegisterNodeSnapshot EMPTY = new RegisterNodeSnapshot(0, Collections.emptyList());
+
+    /**
+     * 版本号, 每次节点变化后递增
+     */
+    private final long version;
+
+    /**
+     * 按hostId排序的节点
+     */
+    private final RegisterNodeInfo[] nodes;
+
+    /**
+     * 按顺序排列的hostId
+     */
+    private final List<String> hostIds;
+
+    /**
+     * 按顺序排列的hostId
+     */
+    private final SortedSet<String> hostIdSet;
+
+    /**
+     * 按hostId排序的节点
+     */
+    private final SortedSet<RegisterNodeInfo> nodeSet;
+
+    private final Map<String/*hostId*/, RegisterNodeInfo> nodeMap;
+
+    public RegisterNodeSnapshot(long version, Collection<RegisterNodeInfo> registerNodeInfos) {
+        this.version = version;
+        this.nodes = registerNodeInfos.toArray(new RegisterNodeInfo[0]);
+        Arrays.sort(this.nodes);
+
+        String[] hostIds = new String[nodes.length];
+        Map<String, RegisterNodeInfo> nodeMap = new HashMap<>(nodes.length * 2);
+        for (int i = 0; i < nodes.length; i++) {
+            hostIds[i] = nodes[i].getHostId();
+            nodeMap.put(hostIds[i], nodes[i]);
+        }
+
+        this.hostIds = Collections.unmodifiableList(Arrays.asList(hostIds));
+        this.hostIdSet = Collections.unmodifiableSortedSet(new TreeSet<>(this.hostIds));
+        this.nodeSet = Collections.unmodifiableSortedSet(new TreeSet<>(Arrays.asList(nodes)));
+        this.nodeMap = Collections.unmodifiableMap(nodeMap);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return 按顺序排列的hostId, 不可修改
+     */
+    public List<String> getHostIds() {
+        return hostIds;
+    }
+
+    /**
+     * @return 按顺序排列的hostId, 不可修改
+     */
+    public SortedSet<String> getHostIdSet() {
+        return hostIdSet;
+    }
+
+    /**
+     * @return 按hostId排序的节点, 不可修改
+     */
+    public SortedSet<RegisterNodeInfo> getNodeSet() {
+        return nodeSet;
+    }
+
+    public RegisterNodeInfo getNode(String hostId) {
+        return nodeMap.get(hostId);
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public boolean isEmpty() {
+        return nodes.length == 0;
+    }
+}
@@ -0,0 +1,24 @@
+package com.aizuda.snailjob.server.common.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 组配置变更事件
+ *
+ * @since sj_1.0.0
+ */
+@Getter
+public class GroupConfigChangeEvent extends ApplicationEvent {
+
+    private final String groupName;
+
+    private final String namespaceId;
+
+    public GroupConfigChangeEvent(String groupName, String namespaceId) {
+        super(groupName);
+        this.groupName = groupName;
+        this.namespaceId = namespaceId;
+    }
+
+}
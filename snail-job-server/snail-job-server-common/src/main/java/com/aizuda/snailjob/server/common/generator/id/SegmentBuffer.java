@@ -3,11 +3,7 @@ package com.aizuda.snailjob.server.common.generator.id;
 import cn.hutool.core.lang.Pair;
 import lombok.Data;
 
-import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * 特别声明: 此算法来自美团的leaf号段模式
@@ -16,24 +12,20 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 @Data
 public class SegmentBuffer {
     private Pair<String/*groupName*/, String/*namespaceId*/> key;
-    private Segment[] segments; //双buffer
-    private volatile int currentPos; //当前的使用的segment的index
-    private volatile boolean nextReady; //下一个segment是否处于可切换状态
+    private volatile Segment current; //当前的使用的segment
+    private volatile Segment next; //预加载的下一个segment, 为null时表示未加载完成
     private volatile boolean initOk; //是否初始化完成
     private final AtomicBoolean threadRunning; //线程是否在运行中
-    private final ReadWriteLock lock;
 
     private volatile int step;
     private volatile int minStep;
     private volatile long updateTimestamp;
 
     public SegmentBuffer() {
-        segments = new Segment[]{new Segment(this), new Segment(this)};
-        currentPos = 0;
-        nextReady = false;
+        current = new Segment(this);
+        next = null;
         initOk = false;
         threadRunning = new AtomicBoolean(false);
-        lock = new ReentrantReadWriteLock();
     }
 
     public Pair<String, String> getKey() {
@@ -44,24 +36,20 @@ public class SegmentBuffer {
         this.key = key;
     }
 
-    public Segment[] getSegments() {
-        return segments;
-    }
-
     public Segment getCurrent() {
-        return segments[currentPos];
+        return current;
     }
 
-    public int getCurrentPos() {
-        return currentPos;
+    public void setCurrent(Segment current) {
+        this.current = current;
     }
 
-    public int nextPos() {
-        return (currentPos + 1) % 2;
+    public Segment getNext() {
+        return next;
     }
 
-    public void switchPos() {
-        currentPos = nextPos();
+    public void setNext(Segment next) {
+        this.next = next;
     }
 
     public boolean isInitOk() {
@@ -72,26 +60,10 @@ public class SegmentBuffer {
         this.initOk = initOk;
     }
 
-    public boolean isNextReady() {
-        return nextReady;
-    }
-
-    public void setNextReady(boolean nextReady) {
-        this.nextReady = nextReady;
-    }
-
     public AtomicBoolean getThreadRunning() {
         return threadRunning;
     }
 
-    public Lock rLock() {
-        return lock.readLock();
-    }
-
-    public Lock wLock() {
-        return lock.writeLock();
-    }
-
     public int getStep() {
         return step;
     }
@@ -120,9 +92,8 @@ public class SegmentBuffer {
     public String toString() {
         final StringBuilder sb = new StringBuilder("SegmentBuffer{");
         sb.append("key='").append(key).append('\'');
-        sb.append(", segments=").append(Arrays.toString(segments));
-        sb.append(", currentPos=").append(currentPos);
-        sb.append(", nextReady=").append(nextReady);
+        sb.append(", current=").append(current);
+        sb.append(", next=").append(next);
         sb.append(", initOk=").append(initOk);
         sb.append(", threadRunning=").append(threadRunning);
         sb.append(", step=").append(step);
@@ -15,6 +15,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
@@ -51,12 +54,24 @@ public class SegmentIdGenerator implements IdGenerator, Lifecycle {
      * 一个Segment维持时间为15分钟
      */
     private static final long SEGMENT_DURATION = 15 * 60 * 1000L;
+    /**
+     * 按消耗速度调整步长时每次最多扩大的倍数
+     */
+    private static final int MAX_STEP_GROWTH = 8;
+    /**
+     * 当前Segment用完时等待预加载完成的最长时间
+     */
+    private static final long WAIT_SEGMENT_MILLIS = 1000;
 
     private final ThreadPoolExecutor service = new ThreadPoolExecutor(5, 10, 60L, TimeUnit.SECONDS,
             new LinkedBlockingDeque<>(5000), new UpdateThreadFactory());
 
     private volatile boolean initOK = false;
     private final Map<Pair<String, String>, SegmentBuffer> cache = new ConcurrentHashMap<>();
+    /**
+     * 最近一次格式化的时间前缀, 同一毫秒内生成的id复用
+     */
+    private volatile TimePrefix timePrefix = new TimePrefix(0, "");
 
     @Autowired
     private SequenceAllocMapper sequenceAllocMapper;
@@ -131,29 +146,42 @@ public class SegmentIdGenerator implements IdGenerator, Lifecycle {
     }
 
     public String get(final String groupName, String namespaceId) {
+        return Long.toString(nextId(groupName, namespaceId));
+    }
+
+    /**
+     * 获取号段中的下一个id, 当前Segment未用完时只有一次原子自增
+     *
+     * @param groupName   组
+     * @param namespaceId 命名空间
+     * @return id, 小于0时为异常码
+     */
+    public long nextId(final String groupName, String namespaceId) {
         if (!initOK) {
-            return Long.toString(EXCEPTION_ID_IDCACHE_INIT_FALSE);
+            return EXCEPTION_ID_IDCACHE_INIT_FALSE;
         }
 
-        Pair<String, String> key = Pair.of(groupName, namespaceId);
-        if (cache.containsKey(key)) {
-            SegmentBuffer buffer = cache.get(key);
-            if (!buffer.isInitOk()) {
-                synchronized (buffer) {
-                    if (!buffer.isInitOk()) {
-                        try {
-                            updateSegmentFromDb(key, buffer.getCurrent());
-                            SnailJobLog.LOCAL.debug("Init buffer. Update key {} {} from db", key, buffer.getCurrent());
-                            buffer.setInitOk(true);
-                        } catch (Exception e) {
-                            SnailJobLog.LOCAL.error("Init buffer {} exception", buffer.getCurrent(), e);
-                        }
+        SegmentBuffer buffer = cache.get(Pair.of(groupName, namespaceId));
+        if (Objects.isNull(buffer)) {
+            return EXCEPTION_ID_KEY_NOT_EXISTS;
+        }
+
+        if (!buffer.isInitOk()) {
+            synchronized (buffer) {
+                if (!buffer.isInitOk()) {
+                    try {
+                        Segment segment = new Segment(buffer);
+                        updateSegmentFromDb(buffer.getKey(), segment);
+                        buffer.setCurrent(segment);
+                        SnailJobLog.LOCAL.debug("Init buffer. Update key {} {} from db", buffer.getKey(), segment);
+                        buffer.setInitOk(true);
+                    } catch (Exception e) {
+                        SnailJobLog.LOCAL.error("Init buffer {} exception", buffer.getCurrent(), e);
                     }
                 }
             }
-            return getIdFromSegmentBuffer(cache.get(key));
         }
-        return Long.toString(EXCEPTION_ID_KEY_NOT_EXISTS);
+        return getIdFromSegmentBuffer(buffer);
     }
 
     public void updateSegmentFromDb(Pair<String, String> key, Segment segment) {
@@ -185,10 +213,13 @@ public class SegmentIdGenerator implements IdGenerator, Lifecycle {
             long duration = System.currentTimeMillis() - buffer.getUpdateTimestamp();
             int nextStep = buffer.getStep();
             if (duration < SEGMENT_DURATION) {
-                if (nextStep * 2 > MAX_STEP) {
-                    //do nothing
-                } else {
-                    nextStep = nextStep * 2;
+                // 按消耗速度估算维持SEGMENT_DURATION需要的步长, 至少扩大一倍, 最多扩大MAX_STEP_GROWTH倍
+                long expectStep = nextStep * SEGMENT_DURATION / Math.max(duration, 1);
+                expectStep = Math.min(Math.max(expectStep, nextStep * 2L), (long) nextStep * MAX_STEP_GROWTH);
+                if (expectStep <= MAX_STEP) {
+                    nextStep = (int) expectStep;
+                } else if (nextStep < MAX_STEP) {
+                    nextStep = MAX_STEP;
                 }
             } else if (duration < SEGMENT_DURATION * 2) {
                 //do nothing with nextStep
@@ -217,74 +248,103 @@ public class SegmentIdGenerator implements IdGenerator, Lifecycle {
         segment.setStep(buffer.getStep());
     }
 
-    public String getIdFromSegmentBuffer(final SegmentBuffer buffer) {
+    public long getIdFromSegmentBuffer(final SegmentBuffer buffer) {
         while (true) {
-            buffer.rLock().lock();
-            try {
-                final Segment segment = buffer.getCurrent();
-                if (!buffer.isNextReady() && (segment.getIdle() < 0.9 * segment.getStep()) && buffer.getThreadRunning().compareAndSet(false, true)) {
-                    service.execute(() -> {
-                        Segment next = buffer.getSegments()[buffer.nextPos()];
-                        boolean updateOk = false;
-                        try {
-                            updateSegmentFromDb(buffer.getKey(), next);
-                            updateOk = true;
-                            SnailJobLog.LOCAL.debug("update segment {} from db {}", buffer.getKey(), next);
-                        } catch (Exception e) {
-                            SnailJobLog.LOCAL.warn(buffer.getKey() + " updateSegmentFromDb exception", e);
-                        } finally {
-                            if (updateOk) {
-                                buffer.wLock().lock();
-                                buffer.setNextReady(true);
-                                buffer.getThreadRunning().set(false);
-                                buffer.wLock().unlock();
-                            } else {
-                                buffer.getThreadRunning().set(false);
-                            }
-                        }
-                    });
+            final Segment segment = buffer.getCurrent();
+            long value = segment.getValue().getAndIncrement();
+            if (value < segment.getMax()) {
+                // 当前Segment已经消耗10%时异步加载下一个Segment
+                if (segment.getMax() - value < 0.9 * segment.getStep() && Objects.isNull(buffer.getNext())
+                        && buffer.getThreadRunning().compareAndSet(false, true)) {
+                    preload(buffer);
                 }
-                long value = segment.getValue().getAndIncrement();
-                if (value < segment.getMax()) {
-                    return Long.toString(value);
-                }
-            } finally {
-                buffer.rLock().unlock();
+                return value;
             }
-            waitAndSleep(buffer);
-            buffer.wLock().lock();
-            try {
-                final Segment segment = buffer.getCurrent();
-                long value = segment.getValue().getAndIncrement();
-                if (value < segment.getMax()) {
-                    return Long.toString(value);
-                }
-                if (buffer.isNextReady()) {
-                    buffer.switchPos();
-                    buffer.setNextReady(false);
-                } else {
-                    SnailJobLog.LOCAL.error("Both two segments in {} are not ready!", buffer);
-                    return Long.toString(EXCEPTION_ID_TWO_SEGMENTS_ARE_NULL);
-                }
-            } finally {
-                buffer.wLock().unlock();
+
+            if (!switchSegment(buffer, segment)) {
+                SnailJobLog.LOCAL.error("Both two segments in {} are not ready!", buffer);
+                return EXCEPTION_ID_TWO_SEGMENTS_ARE_NULL;
             }
         }
     }
 
-    private void waitAndSleep(SegmentBuffer buffer) {
-        int roll = 0;
-        while (buffer.getThreadRunning().get()) {
-            roll += 1;
-            if (roll > 10000) {
+    private void preload(SegmentBuffer buffer) {
+        try {
+            service.execute(() -> {
+                Segment next = new Segment(buffer);
+                boolean updateOk = false;
                 try {
-                    TimeUnit.MILLISECONDS.sleep(20);
-                    break;
-                } catch (InterruptedException e) {
-                    SnailJobLog.LOCAL.warn("Thread {} Interrupted", Thread.currentThread().getName());
-                    break;
+                    updateSegmentFromDb(buffer.getKey(), next);
+                    updateOk = true;
+                    SnailJobLog.LOCAL.debug("update segment {} from db {}", buffer.getKey(), next);
+                } catch (Exception e) {
+                    SnailJobLog.LOCAL.warn(buffer.getKey() + " updateSegmentFromDb exception", e);
+                } finally {
+                    synchronized (buffer) {
+                        if (updateOk) {
+                            buffer.setNext(next);
+                        }
+                        buffer.getThreadRunning().set(false);
+                        buffer.notifyAll();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            buffer.getThreadRunning().set(false);
+            SnailJobLog.LOCAL.warn("{} preload segment rejected", buffer.getKey());
+        }
+    }
+
+    /**
+     * 当前Segment用完后切换到下一个Segment, 预加载未完成时等待, 预加载失败时由当前线程加载
+     *
+     * @param buffer    SegmentBuffer
+     * @param exhausted 已经用完的Segment
+     * @return 是否切换成功
+     */
+    private boolean switchSegment(SegmentBuffer buffer, Segment exhausted) {
+        synchronized (buffer) {
+            long deadline = System.currentTimeMillis() + WAIT_SEGMENT_MILLIS;
+            while (buffer.getCurrent() == exhausted) {
+                Segment next = buffer.getNext();
+                if (Objects.nonNull(next)) {
+                    buffer.setCurrent(next);
+                    buffer.setNext(null);
+                    return true;
+                }
+
+                if (buffer.getThreadRunning().get()) {
+                    long waitMillis = deadline - System.currentTimeMillis();
+                    if (waitMillis <= 0) {
+                        return false;
+                    }
+                    try {
+                        buffer.wait(waitMillis);
+                    } catch (InterruptedException e) {
+                        SnailJobLog.LOCAL.warn("Thread {} Interrupted", Thread.currentThread().getName());
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                    continue;
+                }
+
+                // 预加载失败或者被拒绝, 由当前线程加载
+                if (!buffer.isInitOk() || !buffer.getThreadRunning().compareAndSet(false, true)) {
+                    return false;
+                }
+                try {
+                    Segment segment = new Segment(buffer);
+                    updateSegmentFromDb(buffer.getKey(), segment);
+                    buffer.setCurrent(segment);
+                    SnailJobLog.LOCAL.debug("update segment {} from db {}", buffer.getKey(), segment);
+                } catch (Exception e) {
+                    SnailJobLog.LOCAL.warn(buffer.getKey() + " updateSegmentFromDb exception", e);
+                    return false;
+                } finally {
+                    buffer.getThreadRunning().set(false);
                 }
             }
+            return true;
         }
     }
 
@@ -295,8 +355,18 @@ public class SegmentIdGenerator implements IdGenerator, Lifecycle {
 
     @Override
     public String idGenerator(String groupName, String namespaceId) {
-        String time = DateUtils.format(DateUtils.toNowLocalDateTime(), DateUtils.PURE_DATETIME_MS_PATTERN);
-        return time.concat(get(groupName, namespaceId));
+        long now = System.currentTimeMillis();
+        TimePrefix prefix = timePrefix;
+        if (prefix.millis != now) {
+            String time = DateUtils.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault()),
+                    DateUtils.PURE_DATETIME_MS_PATTERN);
+            prefix = new TimePrefix(now, time);
+            timePrefix = prefix;
+        }
+        return prefix.time.concat(get(groupName, namespaceId));
+    }
+
+    private record TimePrefix(long millis, String time) {
     }
 
     public static class UpdateThreadFactory implements ThreadFactory {
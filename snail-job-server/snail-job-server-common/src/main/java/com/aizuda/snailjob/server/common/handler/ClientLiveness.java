@@ -0,0 +1,110 @@
+package com.aizuda.snailjob.server.common.handler;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * 客户端存活状态
+ * 每个节点记录最近一次确认存活(收到心跳或者DB中查询到)的有效期, 有效期内直接判定为存活,
+ * 因此判定为存活的节点最多在staleness时间之前被确认过; 有效期外或者未知的节点到DB中确认
+ * 可配置抽样比例, 在有效期内也按比例到DB中确认, 用于发现被其他服务端节点下线的客户端
+ *
+ * @since sj_1.0.0
+ */
+public class ClientLiveness {
+
+    private final long staleness;
+    private final double verifyRate;
+    private final Predicate<String/*hostId*/> dbChecker;
+    private final LongSupplier clock;
+
+    private final ConcurrentMap<String/*hostId*/, Long/*有效期*/> aliveUntil = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder verifyCount = new LongAdder();
+
+    /**
+     * @param staleness  确认存活后的有效期(毫秒)
+     * @param verifyRate 有效期内到DB中确认的抽样比例 [0, 1], 0表示不抽样
+     * @param dbChecker  DB中是否存在该客户端节点
+     * @param clock      当前时间(毫秒)
+     */
+    public ClientLiveness(long staleness, double verifyRate, Predicate<String> dbChecker, LongSupplier clock) {
+        this.staleness = staleness;
+        this.verifyRate = Math.min(Math.max(verifyRate, 0), 1);
+        this.dbChecker = dbChecker;
+        this.clock = clock;
+    }
+
+    /**
+     * 收到客户端的心跳
+     *
+     * @param hostId 客户端节点id
+     */
+    public void onHeartbeat(String hostId) {
+        aliveUntil.put(hostId, clock.getAsLong() + staleness);
+    }
+
+    /**
+     * 客户端是否存活
+     *
+     * @param hostId 客户端节点id
+     * @return true-存活
+     */
+    public boolean isAlive(String hostId) {
+        Long until = aliveUntil.get(hostId);
+        if (Objects.nonNull(until) && until > clock.getAsLong()
+                && (verifyRate == 0 || ThreadLocalRandom.current().nextDouble() >= verifyRate)) {
+            hitCount.increment();
+            return true;
+        }
+
+        verifyCount.increment();
+        if (dbChecker.test(hostId)) {
+            aliveUntil.put(hostId, clock.getAsLong() + staleness);
+            return true;
+        }
+
+        aliveUntil.remove(hostId);
+        return false;
+    }
+
+    /**
+     * 客户端下线
+     *
+     * @param hostId 客户端节点id
+     */
+    public void remove(String hostId) {
+        aliveUntil.remove(hostId);
+    }
+
+    /**
+     * 删除超过有效期的节点
+     */
+    public void removeExpired() {
+        long now = clock.getAsLong();
+        aliveUntil.values().removeIf(until -> until <= now);
+    }
+
+    public int size() {
+        return aliveUntil.size();
+    }
+
+    /**
+     * 直接从内存判定存活的次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 到DB中确认的次数
+     */
+    public long getVerifyCount() {
+        return verifyCount.sum();
+    }
+}
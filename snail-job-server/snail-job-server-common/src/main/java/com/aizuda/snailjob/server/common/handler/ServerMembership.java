@@ -0,0 +1,240 @@
+package com.aizuda.snailjob.server.common.handler;
+
+import com.aizuda.snailjob.common.log.SnailJobLog;
+import com.aizuda.snailjob.server.common.RegisterNodeInfoConverter;
+import com.aizuda.snailjob.server.common.dto.RegisterNodeInfo;
+import com.aizuda.snailjob.template.datasource.persistence.po.ServerNode;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 服务端集群成员
+ * 每个节点各自维护集群成员, 通过服务端之间的心跳感知节点加入和下线, server_node表只用于确认节点存活:
+ * 1. 收到未知节点的心跳时到DB中确认该节点已注册, 确认后加入集群, 未注册的节点在下次对账前不再查询DB
+ * 2. 双向心跳连续失败达到阈值时立即对账, 将该节点移出集群; 只要还能收到对方的心跳就不会移出, 单向网络故障不会导致集群成员反复变化
+ * 3. 因心跳失败移出的节点, 重新收到其心跳或者其在DB中的过期时间被刷新后重新加入集群;
+ * GC停顿等短暂不可用时节点会被移出后重新加入, 期间其他节点会短暂接管它的桶
+ *
+ * @since sj_1.0.0
+ */
+public class ServerMembership {
+
+    private final String currentCid;
+    private final int maxFailures;
+    private final Function<String/*hostId*/, ServerNode> nodeLoader;
+
+    private final ConcurrentMap<String/*hostId*/, Member> members = new ConcurrentHashMap<>();
+    /**
+     * 因心跳失败移出集群的节点, 以及移出时DB中的过期时间
+     */
+    private final Map<String/*hostId*/, LocalDateTime/*expireAt*/> evicted = new HashMap<>();
+    /**
+     * DB中未注册的节点, 下次对账前不再查询
+     */
+    private final Set<String/*hostId*/> unregistered = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param currentCid  当前节点id
+     * @param maxFailures 连续心跳失败多少次后移出集群
+     * @param nodeLoader  从DB中查询未过期的服务端节点
+     */
+    public ServerMembership(String currentCid, int maxFailures, Function<String, ServerNode> nodeLoader) {
+        this.currentCid = currentCid;
+        this.maxFailures = Math.max(maxFailures, 1);
+        this.nodeLoader = nodeLoader;
+    }
+
+    /**
+     * 与DB中未过期的服务端节点对账
+     * 心跳连续失败的节点移出集群; 已移出的节点在DB中的过期时间被刷新前不会重新加入
+     *
+     * @param aliveNodes DB中未过期的服务端节点
+     * @return true-集群成员发生变化
+     */
+    public synchronized boolean reconcile(List<ServerNode> aliveNodes) {
+        unregistered.clear();
+
+        Map<String, ServerNode> aliveNodeMap = new HashMap<>();
+        for (ServerNode node : aliveNodes) {
+            aliveNodeMap.put(node.getHostId(), node);
+        }
+
+        boolean changed = members.keySet().retainAll(aliveNodeMap.keySet());
+        evicted.keySet().retainAll(aliveNodeMap.keySet());
+
+        for (Map.Entry<String, Member> entry : new ArrayList<>(members.entrySet())) {
+            if (entry.getValue().failures.get() >= maxFailures) {
+                members.remove(entry.getKey());
+                evicted.put(entry.getKey(), aliveNodeMap.get(entry.getKey()).getExpireAt());
+                SnailJobLog.LOCAL.warn("server leave after heartbeat failed. hostId:[{}] address:[{}]",
+                        entry.getKey(), entry.getValue().node.address());
+                changed = true;
+            }
+        }
+
+        for (ServerNode node : aliveNodeMap.values()) {
+            LocalDateTime evictedExpireAt = evicted.get(node.getHostId());
+            if (Objects.nonNull(evictedExpireAt) && !node.getExpireAt().isAfter(evictedExpireAt)) {
+                continue;
+            }
+
+            evicted.remove(node.getHostId());
+            Member member = members.get(node.getHostId());
+            if (Objects.isNull(member)) {
+                members.put(node.getHostId(), new Member(RegisterNodeInfoConverter.INSTANCE.toRegisterNodeInfo(node)));
+                changed = true;
+            } else {
+                member.node = RegisterNodeInfoConverter.INSTANCE.toRegisterNodeInfo(node);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * 收到其他节点的心跳
+     *
+     * @param hostId 发送心跳的节点
+     * @return true-集群成员发生变化
+     */
+    public boolean onPeerBeat(String hostId) {
+        if (members.containsKey(hostId)) {
+            members.get(hostId).failures.set(0);
+            return false;
+        }
+
+        if (unregistered.contains(hostId)) {
+            return false;
+        }
+
+        // 未知节点以DB中的注册信息为准, 防止加入未注册的节点
+        ServerNode node = nodeLoader.apply(hostId);
+        if (Objects.isNull(node)) {
+            unregistered.add(hostId);
+            SnailJobLog.LOCAL.warn("receive beat from unregistered server. hostId:[{}]", hostId);
+            return false;
+        }
+
+        return join(node);
+    }
+
+    /**
+     * 向其他节点发送心跳成功
+     *
+     * @param hostId 接收心跳的节点
+     */
+    public void onBeatSuccess(String hostId) {
+        Member member = members.get(hostId);
+        if (Objects.nonNull(member)) {
+            member.failures.set(0);
+        }
+    }
+
+    /**
+     * 向其他节点发送心跳失败
+     *
+     * @param hostId 接收心跳的节点
+     * @return true-需要立即对账将节点移出集群, 每次连续失败只返回一次
+     */
+    public boolean onBeatFailure(String hostId) {
+        Member member = members.get(hostId);
+        if (Objects.isNull(member) || member.failures.incrementAndGet() != maxFailures) {
+            return false;
+        }
+
+        SnailJobLog.LOCAL.warn("server heartbeat failed continuously. hostId:[{}] address:[{}] failures:[{}]",
+                hostId, member.node.address(), maxFailures);
+        return true;
+    }
+
+    /**
+     * 需要发送心跳的节点
+     *
+     * @return 除当前节点以外的节点
+     */
+    public List<RegisterNodeInfo> getPeers() {
+        List<RegisterNodeInfo> peers = new ArrayList<>(members.size());
+        for (Member member : members.values()) {
+            if (!currentCid.equals(member.node.getHostId())) {
+                peers.add(member.node);
+            }
+        }
+
+        return peers;
+    }
+
+    /**
+     * 标记开始向节点发送心跳, 同一个节点同时只会有一个未完成的心跳
+     *
+     * @param hostId 节点id
+     * @return true-可以发送
+     */
+    public boolean tryBeginBeat(String hostId) {
+        Member member = members.get(hostId);
+        return Objects.nonNull(member) && member.beating.compareAndSet(false, true);
+    }
+
+    /**
+     * 标记心跳完成
+     *
+     * @param hostId 节点id
+     */
+    public void endBeat(String hostId) {
+        Member member = members.get(hostId);
+        if (Objects.nonNull(member)) {
+            member.beating.set(false);
+        }
+    }
+
+    /**
+     * 集群成员
+     *
+     * @return 按hostId排序的节点
+     */
+    public Set<RegisterNodeInfo> getMembers() {
+        Set<RegisterNodeInfo> nodes = new TreeSet<>();
+        for (Member member : members.values()) {
+            nodes.add(member.node);
+        }
+        return nodes;
+    }
+
+    public boolean isMember(String hostId) {
+        return members.containsKey(hostId);
+    }
+
+    private synchronized boolean join(ServerNode node) {
+        if (members.containsKey(node.getHostId())) {
+            return false;
+        }
+
+        evicted.remove(node.getHostId());
+        members.put(node.getHostId(), new Member(RegisterNodeInfoConverter.INSTANCE.toRegisterNodeInfo(node)));
+        SnailJobLog.LOCAL.info("server join. hostId:[{}] address:[{}:{}]", node.getHostId(), node.getHostIp(),
+                node.getHostPort());
+        return true;
+    }
+
+    private static class Member {
+
+        private volatile RegisterNodeInfo node;
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicBoolean beating = new AtomicBoolean();
+
+        private Member(RegisterNodeInfo node) {
+            this.node = node;
+        }
+    }
+}
@@ -1,20 +1,31 @@
 package com.aizuda.snailjob.server.common.handler;
 
+import cn.hutool.core.util.StrUtil;
+import com.aizuda.snailjob.common.core.constant.SystemConstants.HTTP_PATH;
+import com.aizuda.snailjob.common.core.enums.HeadersEnum;
 import com.aizuda.snailjob.common.core.enums.NodeTypeEnum;
+import com.aizuda.snailjob.common.core.model.Result;
+import com.aizuda.snailjob.common.core.model.SnailJobRequest;
+import com.aizuda.snailjob.common.core.rpc.RpcContext;
+import com.aizuda.snailjob.common.core.rpc.SnailJobFuture;
+import com.aizuda.snailjob.common.core.util.NetUtil;
 import com.aizuda.snailjob.common.core.util.StreamUtils;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.Lifecycle;
-import com.aizuda.snailjob.server.common.allocate.server.AllocateMessageQueueAveragely;
+import com.aizuda.snailjob.server.common.allocate.server.ServerLoadBalanceManager;
 import com.aizuda.snailjob.server.common.cache.CacheRegisterTable;
 import com.aizuda.snailjob.server.common.config.SystemProperties;
 import com.aizuda.snailjob.server.common.dto.DistributeInstance;
 import com.aizuda.snailjob.server.common.dto.RegisterNodeInfo;
 import com.aizuda.snailjob.server.common.register.ServerRegister;
+import com.aizuda.snailjob.server.common.rpc.client.NettyChannel;
 import com.aizuda.snailjob.template.datasource.access.AccessTemplate;
 import com.aizuda.snailjob.template.datasource.persistence.mapper.ServerNodeMapper;
-import com.aizuda.snailjob.template.datasource.persistence.po.GroupConfig;
 import com.aizuda.snailjob.template.datasource.persistence.po.ServerNode;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -23,15 +34,21 @@ import org.springframework.util.CollectionUtils;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 负责处理组或者节点变化时，重新分配组在不同的节点上消费
+ * 节点加入和下线通过服务端之间的心跳感知, 发现后立即触发rebalance; 心跳连续失败时立即对账将节点移出集群,
+ * 并按loadBalanceCycleTime周期与server_node表对账
  *
  * @author: opensnail
  * @date : 2023-06-08 15:58
@@ -46,9 +63,15 @@ public class ServerNodeBalance implements Lifecycle, Runnable {
      */
     public static final Long INITIAL_DELAY = 10L;
 
+    /**
+     * 收到变化通知后等待合并的时间(毫秒), 避免多个节点同时变化时连续rebalance
+     */
+    private static final long COALESCE_TIME = 200;
+
     @Autowired
     protected AccessTemplate accessTemplate;
     private Thread thread = null;
+    private ScheduledExecutorService heartbeatExecutor;
 
     @Autowired
     protected ServerNodeMapper serverNodeMapper;
@@ -56,6 +79,10 @@ public class ServerNodeBalance implements Lifecycle, Runnable {
     protected SystemProperties systemProperties;
 
     private List<Integer> bucketList;
+    private ServerMembership serverMembership;
+    private final Semaphore rebalanceSignal = new Semaphore(0);
+    private final AtomicBoolean memberChanged = new AtomicBoolean();
+    private final AtomicBoolean reconcileRequested = new AtomicBoolean();
 
     public void doBalance() {
         SnailJobLog.LOCAL.info("rebalance start");
@@ -63,26 +90,24 @@ public class ServerNodeBalance implements Lifecycle, Runnable {
 
         try {
 
-            // 为了保证客户端分配算法的一致性,serverNodes 从数据库从数据获取
-            Set<String> podIpSet = CacheRegisterTable.getPodIdSet(ServerRegister.GROUP_NAME, ServerRegister.NAMESPACE_ID);
+            // 为了保证客户端分配算法的一致性,serverNodes 从集群成员中获取
+            Set<String> podIpSet = StreamUtils.toSet(serverMembership.getMembers(), RegisterNodeInfo::getHostId);
 
             if (CollectionUtils.isEmpty(podIpSet)) {
                 SnailJobLog.LOCAL.error("server node is empty");
-            }
-
-            // 删除本地缓存的消费桶的信息
-            DistributeInstance.INSTANCE.clearConsumerBucket();
-            if (CollectionUtils.isEmpty(podIpSet)) {
+                // 删除本地缓存的消费桶的信息
+                DistributeInstance.INSTANCE.clearConsumerBucket();
                 return;
             }
 
-            List<Integer> allocate = new AllocateMessageQueueAveragely()
+            ServerLoadBalanceManager.AllocationAlgorithmEnum bucketAllocation = systemProperties.getBucketAllocation();
+            List<Integer> allocate = bucketAllocation.getServerLoadBalance()
                     .allocate(ServerRegister.CURRENT_CID, bucketList, new ArrayList<>(podIpSet));
 
-            // 重新覆盖本地分配的组信息
+            // 重新覆盖本地分配的组信息, 未变更归属的桶不会中断消费
             DistributeInstance.INSTANCE.setConsumerBucket(allocate);
 
-            SnailJobLog.LOCAL.info("rebalance complete. allocate:[{}]", allocate);
+            SnailJobLog.LOCAL.info("rebalance complete. algorithm:[{}] allocate:[{}]", bucketAllocation, allocate);
         } catch (Exception e) {
             SnailJobLog.LOCAL.error("rebalance error. ", e);
         } finally {
@@ -91,6 +116,21 @@ public class ServerNodeBalance implements Lifecycle, Runnable {
 
     }
 
+    /**
+     * 收到其他服务端节点的心跳
+     *
+     * @param hostId 发送心跳的节点
+     */
+    public void onPeerBeat(String hostId) {
+        if (Objects.isNull(serverMembership) || StrUtil.isBlank(hostId)) {
+            return;
+        }
+
+        if (serverMembership.onPeerBeat(hostId)) {
+            signalRebalance();
+        }
+    }
+
     @Override
     public void start() {
 
@@ -100,6 +140,10 @@ public class ServerNodeBalance implements Lifecycle, Runnable {
             bucketList.add(i);
         }
 
+        SystemProperties.ServerHeartbeat serverHeartbeat = systemProperties.getServerHeartbeat();
+        serverMembership = new ServerMembership(ServerRegister.CURRENT_CID, serverHeartbeat.getMaxFailures(),
+                this::getAliveServerNode);
+
         SnailJobLog.LOCAL.info("ServerNodeBalance start");
         thread = new Thread(this, "server-node-balance");
         thread.start();
@@ -115,11 +159,6 @@ public class ServerNodeBalance implements Lifecycle, Runnable {
         }
     }
 
-    private void refreshExpireAtCache(List<ServerNode> remotePods) {
-        // 重新刷新缓存
-        refreshCache(remotePods);
-    }
-
     private void refreshCache(List<ServerNode> remotePods) {
 
         // 刷新最新的节点注册信息
@@ -133,6 +172,9 @@ public class ServerNodeBalance implements Lifecycle, Runnable {
 
         // 停止定时任务
         thread.interrupt();
+        if (Objects.nonNull(heartbeatExecutor)) {
+            heartbeatExecutor.shutdownNow();
+        }
 
         SnailJobLog.LOCAL.info("ServerNodeBalance start. ");
         int i = serverNodeMapper
@@ -152,60 +194,33 @@ public class ServerNodeBalance implements Lifecycle, Runnable {
             TimeUnit.SECONDS.sleep(INITIAL_DELAY);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            return;
         }
 
+        // 以DB中的节点作为初始的集群成员, 之后由心跳感知节点变化
+        reconcile();
+        doBalance();
+        startHeartbeat();
+
+        long nextReconcileTime = System.currentTimeMillis() + getReconcileInterval();
         while (!Thread.currentThread().isInterrupted()) {
             try {
 
-                List<ServerNode> remotePods = serverNodeMapper.selectList(new LambdaQueryWrapper<ServerNode>()
-                        .ge(ServerNode::getExpireAt, LocalDateTime.now())
-                        .eq(ServerNode::getNodeType, NodeTypeEnum.SERVER.getType()));
-
-                // 获取缓存中的节点
-                ConcurrentMap<String/*hostId*/, RegisterNodeInfo> concurrentMap = Optional.ofNullable(CacheRegisterTable
-                        .get(ServerRegister.GROUP_NAME, ServerRegister.NAMESPACE_ID)).orElse(new ConcurrentHashMap<>());
-
-                Set<String> remoteHostIds = StreamUtils.toSet(remotePods, ServerNode::getHostId);
-
-                Set<String> localHostIds = StreamUtils.toSet(concurrentMap.values(), RegisterNodeInfo::getHostId);
-
-                // 无缓存的节点触发refreshCache
-                if (CollectionUtils.isEmpty(concurrentMap)
-                        // 节点数量不一致触发
-                        || isNodeSizeNotEqual(concurrentMap.size(), remotePods.size())
-                        // 判断远程节点是不是和本地节点一致的，如果不一致则重新分配
-                        || isNodeNotMatch(remoteHostIds, localHostIds)) {
-
-                    // 删除本地缓存以下线的节点信息
-                    removeNode(concurrentMap, remoteHostIds, localHostIds);
+                if (rebalanceSignal.tryAcquire(
+                        Math.max(nextReconcileTime - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS)) {
+                    // 合并短时间内的多次变化
+                    TimeUnit.MILLISECONDS.sleep(COALESCE_TIME);
+                    rebalanceSignal.drainPermits();
+                }
 
-                    // 重新获取DB中最新的服务信息
-                    refreshCache(remotePods);
+                boolean changed = memberChanged.getAndSet(false);
+                if (reconcileRequested.getAndSet(false) || System.currentTimeMillis() >= nextReconcileTime) {
+                    changed |= reconcile();
+                    nextReconcileTime = System.currentTimeMillis() + getReconcileInterval();
+                }
 
-                    // 触发rebalance
+                if (changed) {
                     doBalance();
-
-                    // 每次rebalance之后给10秒作为空闲时间，等待其他的节点也完成rebalance
-                    TimeUnit.SECONDS.sleep(INITIAL_DELAY);
-
-                } else {
-
-                    // 刷新过期时间
-                    refreshExpireAtCache(remotePods);
-
-                    // 再次获取最新的节点信息
-                    concurrentMap = CacheRegisterTable
-                            .get(ServerRegister.GROUP_NAME, ServerRegister.NAMESPACE_ID);
-
-                    // 找出过期的节点
-                    Set<RegisterNodeInfo> expireNodeSet = concurrentMap.values().stream()
-                            .filter(registerNodeInfo -> registerNodeInfo.getExpireAt().isBefore(LocalDateTime.now()))
-                            .collect(Collectors.toSet());
-                    for (final RegisterNodeInfo registerNodeInfo : expireNodeSet) {
-                        // 删除过期的节点信息
-                        CacheRegisterTable.remove(registerNodeInfo.getGroupName(), registerNodeInfo.getNamespaceId(), registerNodeInfo.getHostId());
-                    }
-
                 }
 
             } catch (InterruptedException e) {
@@ -213,46 +228,110 @@ public class ServerNodeBalance implements Lifecycle, Runnable {
                 Thread.currentThread().interrupt();
             } catch (Exception e) {
                 SnailJobLog.LOCAL.error("check balance error", e);
-            } finally {
-                try {
-                    TimeUnit.SECONDS.sleep(systemProperties.getLoadBalanceCycleTime());
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
+                nextReconcileTime = System.currentTimeMillis() + getReconcileInterval();
             }
         }
 
     }
 
-    private boolean isNodeNotMatch(Set<String> remoteHostIds, Set<String> localHostIds) {
-        boolean b = !remoteHostIds.containsAll(localHostIds);
-        if (b) {
-            SnailJobLog.LOCAL.info("判断远程节点是不是和本地节点一致. remoteHostIds:[{}] localHostIds:[{}]",
-                    localHostIds,
-                    remoteHostIds);
+    /**
+     * 与server_node表对账
+     *
+     * @return true-集群成员发生变化
+     */
+    private boolean reconcile() {
+        List<ServerNode> remotePods = serverNodeMapper.selectList(new LambdaQueryWrapper<ServerNode>()
+                .ge(ServerNode::getExpireAt, LocalDateTime.now())
+                .eq(ServerNode::getNodeType, NodeTypeEnum.SERVER.getType()));
+
+        boolean changed = serverMembership.reconcile(remotePods);
+
+        // 同步本地缓存中的服务端节点
+        ConcurrentMap<String/*hostId*/, RegisterNodeInfo> concurrentMap = Optional.ofNullable(CacheRegisterTable
+                .get(ServerRegister.GROUP_NAME, ServerRegister.NAMESPACE_ID)).orElse(new ConcurrentHashMap<>());
+        Set<String> remoteHostIds = StreamUtils.toSet(remotePods, ServerNode::getHostId);
+        Set<String> localHostIds = StreamUtils.toSet(concurrentMap.values(), RegisterNodeInfo::getHostId);
+        removeNode(concurrentMap, remoteHostIds, localHostIds);
+        refreshCache(remotePods);
+
+        if (changed) {
+            SnailJobLog.LOCAL.info("server node changed. remoteHostIds:[{}]", remoteHostIds);
         }
-        return b;
+
+        return changed;
     }
 
-    private boolean isNodeSizeNotEqual(int localNodeSize, int remoteNodeSize) {
-        boolean b = localNodeSize != remoteNodeSize;
-        if (b) {
-            SnailJobLog.LOCAL.info("存在远程和本地缓存的节点的数量不一致则触发rebalance. localNodeSize:[{}] remoteNodeSize:[{}]",
-                    localNodeSize,
-                    remoteNodeSize);
-        }
-        return b;
+    private void startHeartbeat() {
+        SystemProperties.ServerHeartbeat serverHeartbeat = systemProperties.getServerHeartbeat();
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "server-heartbeat"));
+        heartbeatExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                for (RegisterNodeInfo peer : serverMembership.getPeers()) {
+                    beat(peer, serverHeartbeat.getTimeout());
+                }
+            } catch (Exception e) {
+                SnailJobLog.LOCAL.error("server heartbeat error", e);
+            }
+        }, 0, Math.max(serverHeartbeat.getInterval(), 100), TimeUnit.MILLISECONDS);
     }
 
-    private boolean isGroupSizeNotEqual(List<GroupConfig> removeGroupConfig, Set<String> allGroup) {
-        boolean b = allGroup.size() != removeGroupConfig.size();
-        if (b) {
-            SnailJobLog.LOCAL.info("若存在远程和本地缓存的组的数量不一致则触发rebalance. localGroupSize:[{}] remoteGroupSize:[{}]",
-                    allGroup.size(),
-                    removeGroupConfig.size());
+    private void beat(RegisterNodeInfo peer, int timeout) {
+        String hostId = peer.getHostId();
+        // 上一次心跳未完成时跳过, 由超时决定结果
+        if (!serverMembership.tryBeginBeat(hostId)) {
+            return;
         }
-        return b;
+
+        SnailJobRequest snailJobRequest = new SnailJobRequest(ServerRegister.CURRENT_CID);
+        SnailJobFuture<Result<Object>> future = SnailJobFuture.newFuture(snailJobRequest.getReqId(),
+                Math.max(timeout, 1), TimeUnit.SECONDS);
+        RpcContext.setFuture(future);
+        future.whenComplete((result, throwable) -> {
+            serverMembership.endBeat(hostId);
+            if (Objects.isNull(throwable)) {
+                serverMembership.onBeatSuccess(hostId);
+                return;
+            }
+
+            SnailJobLog.LOCAL.debug("server heartbeat failed. hostId:[{}] address:[{}]", hostId, peer.address(),
+                    throwable);
+            // 心跳连续失败时立即对账, 将节点移出集群
+            if (serverMembership.onBeatFailure(hostId)) {
+                reconcileRequested.set(true);
+                rebalanceSignal.release();
+            }
+        });
+
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.set(HeadersEnum.HOST_ID.getKey(), ServerRegister.CURRENT_CID);
+        headers.set(HeadersEnum.HOST_IP.getKey(), NetUtil.getLocalIpStr());
+        headers.set(HeadersEnum.HOST_PORT.getKey(), systemProperties.getNettyPort());
+        headers.set(HeadersEnum.GROUP_NAME.getKey(), ServerRegister.GROUP_NAME);
+        headers.set(HeadersEnum.NAMESPACE.getKey(), ServerRegister.NAMESPACE_ID);
+        headers.set(HeadersEnum.TOKEN.getKey(), ServerRegister.TOKEN);
+        NettyChannel.sendAsync(hostId, peer.getHostIp(), peer.getHostPort(), HttpMethod.POST,
+                        HTTP_PATH.SERVER_BEAT, snailJobRequest.toString(), headers)
+                .whenComplete((unused, throwable) -> {
+                    if (Objects.nonNull(throwable)) {
+                        future.completeExceptionally(throwable);
+                    }
+                });
+    }
+
+    private void signalRebalance() {
+        memberChanged.set(true);
+        rebalanceSignal.release();
     }
 
+    private ServerNode getAliveServerNode(String hostId) {
+        return serverNodeMapper.selectOne(new LambdaQueryWrapper<ServerNode>()
+                .eq(ServerNode::getHostId, hostId)
+                .eq(ServerNode::getNodeType, NodeTypeEnum.SERVER.getType())
+                .ge(ServerNode::getExpireAt, LocalDateTime.now()));
+    }
+
+    private long getReconcileInterval() {
+        return TimeUnit.SECONDS.toMillis(systemProperties.getLoadBalanceCycleTime());
+    }
 
 }
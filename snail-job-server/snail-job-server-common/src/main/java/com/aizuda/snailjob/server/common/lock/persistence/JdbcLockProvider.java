@@ -3,6 +3,7 @@ package com.aizuda.snailjob.server.common.lock.persistence;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.Lifecycle;
 import com.aizuda.snailjob.server.common.cache.CacheLockRecord;
+import com.aizuda.snailjob.server.common.config.SystemProperties;
 import com.aizuda.snailjob.server.common.dto.LockConfig;
 import com.aizuda.snailjob.server.common.register.ServerRegister;
 import com.aizuda.snailjob.template.datasource.enums.DbTypeEnum;
@@ -24,12 +25,18 @@ import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 基于DB实现的分布式锁
+ * 开启租约模式(snail-job.lock-lease.enabled)后, 常驻锁通过DB获取一次后在租约内由本地判断, 见 {@link LockLeases}
  *
  * @author: opensnail
  * @date : 2023-07-21 08:34
@@ -49,6 +56,14 @@ public class JdbcLockProvider implements LockStorage, Lifecycle {
 
     private final DistributedLockMapper distributedLockMapper;
     private final PlatformTransactionManager platformTransactionManager;
+    private final SystemProperties systemProperties;
+    /**
+     * 当前节点
+     */
+    private final String lockedBy = ServerRegister.CURRENT_CID;
+    private TransactionTemplate notSupportedTemplate;
+    private LockLeases lockLeases;
+    private ScheduledExecutorService renewalExecutor;
 
     @Override
     public boolean supports(final String storageMedium) {
@@ -62,7 +77,7 @@ public class JdbcLockProvider implements LockStorage, Lifecycle {
                 LocalDateTime now = lockConfig.getCreateDt();
                 DistributedLock distributedLock = new DistributedLock();
                 distributedLock.setName(lockConfig.getLockName());
-                distributedLock.setLockedBy(ServerRegister.CURRENT_CID);
+                distributedLock.setLockedBy(lockedBy);
                 distributedLock.setLockedAt(now);
                 distributedLock.setLockUntil(lockConfig.getLockAtMost());
                 distributedLock.setCreateDt(now);
@@ -80,17 +95,30 @@ public class JdbcLockProvider implements LockStorage, Lifecycle {
 
     @Override
     public boolean renewal(LockConfig lockConfig) {
+        LocalDateTime now = lockConfig.getCreateDt();
+        if (Objects.nonNull(lockLeases)) {
+            Boolean acquired = lockLeases.tryAcquire(lockConfig.getLockName(), now, lockConfig.getLockAtMost());
+            if (Objects.nonNull(acquired)) {
+                return acquired;
+            }
+        }
+
         return Boolean.TRUE.equals(notSupportedTransaction(status -> {
-            LocalDateTime now = lockConfig.getCreateDt();
+            LocalDateTime lockUntil = Objects.isNull(lockLeases) ? lockConfig.getLockAtMost()
+                    : lockLeases.lockUntil(now, lockConfig.getLockAtMost());
             DistributedLock distributedLock = new DistributedLock();
-            distributedLock.setLockedBy(ServerRegister.CURRENT_CID);
+            distributedLock.setLockedBy(lockedBy);
             distributedLock.setLockedAt(now);
-            distributedLock.setLockUntil(lockConfig.getLockAtMost());
+            distributedLock.setLockUntil(lockUntil);
             distributedLock.setName(lockConfig.getLockName());
             try {
-                return distributedLockMapper.update(distributedLock, new LambdaUpdateWrapper<DistributedLock>()
+                boolean lock = distributedLockMapper.update(distributedLock, new LambdaUpdateWrapper<DistributedLock>()
                         .eq(DistributedLock::getName, lockConfig.getLockName())
                         .le(DistributedLock::getLockUntil, now)) > 0;
+                if (lock && Objects.nonNull(lockLeases)) {
+                    lockLeases.acquired(lockConfig.getLockName(), now, lockConfig.getLockAtMost(), lockUntil);
+                }
+                return lock;
             } catch (ConcurrencyFailureException | DataIntegrityViolationException | TransactionSystemException |
                      UncategorizedSQLException e) {
                 return false;
@@ -109,6 +137,9 @@ public class JdbcLockProvider implements LockStorage, Lifecycle {
                     SnailJobLog.LOCAL.error("unlock error. retrying attempt [{}] ", i, e);
                 } finally {
                     CacheLockRecord.remove(lockName);
+                    if (Objects.nonNull(lockLeases)) {
+                        lockLeases.remove(lockName);
+                    }
                 }
             }
             return false;
@@ -118,12 +149,17 @@ public class JdbcLockProvider implements LockStorage, Lifecycle {
 
     @Override
     public boolean releaseLockWithUpdate(String lockName, LocalDateTime lockAtLeast) {
+        // 租约覆盖了最少锁定时间, DB中的锁定时间已经足够
+        if (Objects.nonNull(lockLeases) && lockLeases.release(lockName, lockAtLeast)) {
+            return true;
+        }
+
         LocalDateTime now = LocalDateTime.now();
         return Boolean.TRUE.equals(notSupportedTransaction(status -> {
             for (int i = 0; i < 10; i++) {
                 try {
                     DistributedLock distributedLock = new DistributedLock();
-                    distributedLock.setLockedBy(ServerRegister.CURRENT_CID);
+                    distributedLock.setLockedBy(lockedBy);
                     distributedLock.setLockUntil(now.isBefore(lockAtLeast) ? lockAtLeast : now);
                     return distributedLockMapper.update(distributedLock, new LambdaUpdateWrapper<DistributedLock>()
                             .eq(DistributedLock::getName, lockName)) > 0;
@@ -138,19 +174,47 @@ public class JdbcLockProvider implements LockStorage, Lifecycle {
 
     @Override
     public void start() {
+        notSupportedTemplate = new TransactionTemplate(platformTransactionManager);
+        notSupportedTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+
+        SystemProperties.LockLease lockLease = systemProperties.getLockLease();
+        if (lockLease.isEnabled()) {
+            Duration lease = Duration.ofSeconds(lockLease.getDuration());
+            lockLeases = new LockLeases(distributedLockMapper, lockedBy, lease);
+            renewalExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r);
+                t.setName("lock-lease-renewal-thread");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = lease.dividedBy(3).toMillis();
+            renewalExecutor.scheduleWithFixedDelay(this::renewLeases, period, period, TimeUnit.MILLISECONDS);
+        }
+
         LockStorageFactory.registerLockStorage(this);
     }
 
+    private void renewLeases() {
+        try {
+            lockLeases.renew(LocalDateTime.now());
+        } catch (Exception e) {
+            SnailJobLog.LOCAL.error("renew lock leases error", e);
+        }
+    }
+
     @Override
     public void close() {
+        if (Objects.nonNull(renewalExecutor)) {
+            renewalExecutor.shutdownNow();
+            lockLeases.clear();
+        }
+
         // 删除当前节点获取的锁记录
         distributedLockMapper.delete(new LambdaUpdateWrapper<DistributedLock>()
-                .eq(DistributedLock::getLockedBy, ServerRegister.CURRENT_CID));
+                .eq(DistributedLock::getLockedBy, lockedBy));
     }
 
     private Boolean notSupportedTransaction(TransactionCallback<Boolean> action) {
-        TransactionTemplate template = new TransactionTemplate(platformTransactionManager);
-        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
-        return template.execute(action);
+        return notSupportedTemplate.execute(action);
     }
 }
@@ -0,0 +1,278 @@
+package com.aizuda.snailjob.server.common.lock.persistence;
+
+import com.aizuda.snailjob.template.datasource.persistence.mapper.DistributedLockMapper;
+import com.aizuda.snailjob.template.datasource.persistence.po.DistributedLock;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.google.common.collect.Lists;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 常驻锁的本地租约
+ * 节点通过DB获取常驻锁后, 锁记录的锁定时间延长为租约时间, 并由续期任务按批延长当前节点持有的所有锁;
+ * 租约有效期间其他节点无法获取该锁, 当前节点再次加锁和释放锁只在本地判断, 不再访问DB.
+ * 租约临近到期(剩余不足1/3)、续期失败或者长时间未使用时放弃本地租约, 重新通过DB竞争
+ *
+ * @since sj_1.0.0
+ */
+public class LockLeases {
+
+    /**
+     * 超过多少个租约周期未使用不再续期
+     */
+    private static final int IDLE_LEASES = 4;
+
+    /**
+     * 每次续期语句最多包含的锁数量
+     */
+    private static final int RENEWAL_BATCH_SIZE = 500;
+
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private final DistributedLockMapper distributedLockMapper;
+    private final String lockedBy;
+    private final Duration lease;
+    private final Duration margin;
+
+    /**
+     * @param distributedLockMapper 锁记录
+     * @param lockedBy              当前节点
+     * @param lease                 租约时长
+     */
+    public LockLeases(DistributedLockMapper distributedLockMapper, String lockedBy, Duration lease) {
+        this.distributedLockMapper = distributedLockMapper;
+        this.lockedBy = lockedBy;
+        this.lease = lease;
+        this.margin = lease.dividedBy(3);
+    }
+
+    /**
+     * 通过DB获取锁时写入的锁定时间, 不小于租约时长
+     */
+    public LocalDateTime lockUntil(LocalDateTime now, LocalDateTime lockAtMost) {
+        LocalDateTime leaseUntil = now.plus(lease);
+        return lockAtMost.isAfter(leaseUntil) ? lockAtMost : leaseUntil;
+    }
+
+    /**
+     * 在本地租约中加锁
+     *
+     * @param lockName   锁名称
+     * @param now        当前时间
+     * @param lockAtMost 最长锁定时间, 超过后不再续期
+     * @return TRUE-加锁成功 FALSE-租约有效但是锁正在使用或者未到最少锁定时间 null-没有有效的租约, 需要通过DB加锁
+     */
+    public Boolean tryAcquire(String lockName, LocalDateTime now, LocalDateTime lockAtMost) {
+        Lease l = leases.get(lockName);
+        if (Objects.isNull(l)) {
+            return null;
+        }
+
+        synchronized (l) {
+            if (l.removed) {
+                return null;
+            }
+            if (now.isAfter(l.leaseUntil.minus(margin))) {
+                if (!l.inUse) {
+                    remove(lockName, l);
+                }
+                return null;
+            }
+            if (l.inUse || now.isBefore(l.availableAt)) {
+                return Boolean.FALSE;
+            }
+
+            l.inUse = true;
+            l.acquiredAt = now;
+            l.lockAtMost = lockAtMost;
+            return Boolean.TRUE;
+        }
+    }
+
+    /**
+     * 通过DB获取锁后建立租约
+     *
+     * @param lockName   锁名称
+     * @param now        当前时间
+     * @param lockAtMost 最长锁定时间
+     * @param lockUntil  DB中的锁定时间
+     */
+    public void acquired(String lockName, LocalDateTime now, LocalDateTime lockAtMost, LocalDateTime lockUntil) {
+        Lease l = new Lease();
+        l.inUse = true;
+        l.acquiredAt = now;
+        l.availableAt = now;
+        l.lockAtMost = lockAtMost;
+        l.leaseUntil = lockUntil;
+        Lease old = leases.put(lockName, l);
+        if (Objects.nonNull(old)) {
+            synchronized (old) {
+                old.removed = true;
+            }
+        }
+    }
+
+    /**
+     * 释放本地租约中的锁
+     *
+     * @param lockName    锁名称
+     * @param lockAtLeast 最少锁定到的时间, 在此之前不能再次加锁
+     * @return true-租约覆盖了最少锁定时间, 不需要更新DB
+     */
+    public boolean release(String lockName, LocalDateTime lockAtLeast) {
+        Lease l = leases.get(lockName);
+        if (Objects.isNull(l)) {
+            return false;
+        }
+
+        synchronized (l) {
+            if (l.removed) {
+                return false;
+            }
+            l.inUse = false;
+            l.availableAt = lockAtLeast;
+            return !lockAtLeast.isAfter(l.leaseUntil);
+        }
+    }
+
+    /**
+     * 按批延长当前节点持有的租约
+     *
+     * @param now 当前时间
+     */
+    public void renew(LocalDateTime now) {
+        List<String> lockNames = new ArrayList<>();
+        leases.forEach((lockName, l) -> {
+            synchronized (l) {
+                if (!l.leaseUntil.isAfter(now)) {
+                    // 已经到期, 其他节点可能已经获取了锁
+                    if (!l.inUse) {
+                        remove(lockName, l);
+                    }
+                } else if (l.inUse ? now.isAfter(l.lockAtMost)
+                        : now.isAfter(l.acquiredAt.plus(lease.multipliedBy(IDLE_LEASES)))) {
+                    // 超过最长锁定时间或者长时间未使用, 不再续期
+                    if (!l.inUse) {
+                        remove(lockName, l);
+                    }
+                } else {
+                    lockNames.add(lockName);
+                }
+            }
+        });
+
+        LocalDateTime leaseUntil = now.plus(lease);
+        for (List<String> partition : Lists.partition(lockNames, RENEWAL_BATCH_SIZE)) {
+            DistributedLock distributedLock = new DistributedLock();
+            distributedLock.setLockUntil(leaseUntil);
+            distributedLock.setUpdateDt(now);
+            int rows = distributedLockMapper.update(distributedLock, new LambdaUpdateWrapper<DistributedLock>()
+                    .eq(DistributedLock::getLockedBy, lockedBy)
+                    .in(DistributedLock::getName, partition)
+                    .lt(DistributedLock::getLockUntil, leaseUntil));
+            if (rows == partition.size()) {
+                for (String lockName : partition) {
+                    extend(lockName, leaseUntil);
+                }
+                continue;
+            }
+
+            // 部分锁记录的锁定时间更长(释放时写入了最少锁定时间)或者已经不属于当前节点
+            Map<String, LocalDateTime> held = distributedLockMapper.selectList(
+                            new LambdaQueryWrapper<DistributedLock>()
+                                    .select(DistributedLock::getName, DistributedLock::getLockUntil)
+                                    .eq(DistributedLock::getLockedBy, lockedBy)
+                                    .in(DistributedLock::getName, partition))
+                    .stream()
+                    .collect(Collectors.toMap(DistributedLock::getName, DistributedLock::getLockUntil));
+            for (String lockName : partition) {
+                LocalDateTime lockUntil = held.get(lockName);
+                if (Objects.nonNull(lockUntil)) {
+                    extend(lockName, lockUntil);
+                } else {
+                    Lease l = leases.get(lockName);
+                    if (Objects.nonNull(l)) {
+                        synchronized (l) {
+                            remove(lockName, l);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除租约, 例如锁记录被删除
+     */
+    public void remove(String lockName) {
+        Lease l = leases.get(lockName);
+        if (Objects.nonNull(l)) {
+            synchronized (l) {
+                remove(lockName, l);
+            }
+        }
+    }
+
+    public void clear() {
+        leases.keySet().forEach(this::remove);
+    }
+
+    public int size() {
+        return leases.size();
+    }
+
+    private void extend(String lockName, LocalDateTime lockUntil) {
+        Lease l = leases.get(lockName);
+        if (Objects.isNull(l)) {
+            return;
+        }
+
+        synchronized (l) {
+            if (!l.removed && lockUntil.isAfter(l.leaseUntil)) {
+                l.leaseUntil = lockUntil;
+            }
+        }
+    }
+
+    private void remove(String lockName, Lease l) {
+        l.removed = true;
+        leases.remove(lockName, l);
+    }
+
+    /**
+     * 租约, 字段在租约对象的锁内访问
+     */
+    private static final class Lease {
+
+        /**
+         * DB中锁记录的锁定时间
+         */
+        private LocalDateTime leaseUntil;
+
+        /**
+         * 最少锁定时间, 之前不能再次加锁
+         */
+        private LocalDateTime availableAt;
+
+        /**
+         * 最近一次加锁的时间
+         */
+        private LocalDateTime acquiredAt;
+
+        /**
+         * 本次加锁的最长锁定时间
+         */
+        private LocalDateTime lockAtMost;
+
+        private boolean inUse;
+
+        private boolean removed;
+    }
+}
@@ -1,6 +1,5 @@
 package com.aizuda.snailjob.server.common.register;
 
-import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.Lifecycle;
 import com.aizuda.snailjob.server.common.Register;
 import com.aizuda.snailjob.server.common.cache.CacheRegisterTable;
@@ -46,14 +45,12 @@ public abstract class AbstractRegister implements Register, Lifecycle {
             serverNode.setExpireAt(getExpireAt());
         }
 
-        // 批量更新
-        if (serverNodes.size() != serverNodeMapper.batchUpdateExpireAt(serverNodes)) {
-            try {
-                serverNodeMapper.batchInsert(serverNodes);
-            } catch (DuplicateKeyException ignored) {
-            } catch (Exception e) {
-                SnailJobLog.LOCAL.error("注册节点失败", e);
-            }
+        // 批量新增或更新过期时间
+        try {
+            serverNodeMapper.batchUpsertExpireAt(serverNodes);
+        } catch (DuplicateKeyException e) {
+            // Oracle的MERGE在并发新增同一节点时仍可能违反唯一索引, 此时节点已存在, 重试只会刷新过期时间
+            serverNodeMapper.batchUpsertExpireAt(serverNodes);
         }
 
         for (final ServerNode serverNode : serverNodes) {
@@ -1,8 +1,8 @@
 package com.aizuda.snailjob.server.common.register;
 
-import com.aizuda.snailjob.common.core.constant.SystemConstants.HTTP_PATH;
 import com.aizuda.snailjob.common.core.enums.NodeTypeEnum;
 import com.aizuda.snailjob.common.log.SnailJobLog;
+import com.aizuda.snailjob.server.common.cache.CacheClientLiveness;
 import com.aizuda.snailjob.template.datasource.persistence.po.ServerNode;
 import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
@@ -11,13 +11,16 @@ import org.springframework.stereotype.Component;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 客户端注册
+ * 心跳按hostId合并到内存中, 只保留每个节点最新的一次注册, 按固定周期批量刷新到DB
+ * 每个周期写入的行数等于期间上报过心跳的节点数, 与请求数无关
  *
  * @author opensnail
  * @date 2023-06-07
@@ -30,8 +33,28 @@ public class ClientRegister extends AbstractRegister implements Runnable {
     public static final String BEAN_NAME = "clientRegister";
 
     public static final int DELAY_TIME = 30;
+
+    /**
+     * 刷新周期(毫秒)
+     */
+    private static final long FLUSH_INTERVAL = 5000;
+
+    /**
+     * 单条SQL最多写入的节点数, 避免超出数据库的参数个数限制(SQLServer最多2100个参数)
+     */
+    private static final int FLUSH_BATCH_SIZE = 200;
+
+    /**
+     * 最多等待刷新的节点数
+     */
+    private static final int MAX_PENDING_NODES = 100000;
+
+    private static final ConcurrentHashMap<String/*hostId*/, ServerNode> PENDING_NODES = new ConcurrentHashMap<>();
+    private static final LongAdder DROP_COUNT = new LongAdder();
+    private static final LongAdder FLUSH_NODE_COUNT = new LongAdder();
+    private static volatile long lastFlushCost;
+    private static volatile long maxFlushCost;
     private Thread THREAD = null;
-    protected static final LinkedBlockingDeque<ServerNode> QUEUE = new LinkedBlockingDeque<>(1000);
 
     @Override
     public boolean supports(int type) {
@@ -49,11 +72,17 @@ public class ClientRegister extends AbstractRegister implements Runnable {
 
     @Override
     protected boolean doRegister(RegisterContext context, ServerNode serverNode) {
-        if (HTTP_PATH.BEAT.equals(context.getUri())) {
-            return QUEUE.offerFirst(serverNode);
+        // 收到请求即可确认客户端存活, 不需要等待刷新到DB
+        CacheClientLiveness.onHeartbeat(serverNode.getHostId());
+
+        // 已在等待刷新的节点直接覆盖, 不占用额外的容量
+        if (PENDING_NODES.size() >= MAX_PENDING_NODES && !PENDING_NODES.containsKey(serverNode.getHostId())) {
+            DROP_COUNT.increment();
+            return false;
         }
 
-        return QUEUE.offerLast(serverNode);
+        PENDING_NODES.put(serverNode.getHostId(), serverNode);
+        return true;
     }
 
     @Override
@@ -84,31 +113,88 @@ public class ClientRegister extends AbstractRegister implements Runnable {
     public void run() {
         while (!Thread.currentThread().isInterrupted()) {
             try {
-                ServerNode serverNode = QUEUE.poll(5L, TimeUnit.SECONDS);
-                if (Objects.nonNull(serverNode)) {
-                    List<ServerNode> lists = Lists.newArrayList(serverNode);
-                    QUEUE.drainTo(lists, 100);
-
-                    // 去重
-                    lists = new ArrayList<>(lists.stream()
-                            .collect(
-                                    Collectors.toMap(ServerNode::getHostId, node -> node, (existing, replacement) -> existing))
-                            .values());
-
-                    refreshExpireAt(lists);
-                }
+                TimeUnit.MILLISECONDS.sleep(FLUSH_INTERVAL);
+                flush();
             } catch (InterruptedException ignored) {
                 Thread.currentThread().interrupt();
             } catch (Exception e) {
-                SnailJobLog.LOCAL.error("client refresh expireAt error.");
-            } finally {
-                // 防止刷的过快
-                try {
-                    TimeUnit.MILLISECONDS.sleep(5000);
-                } catch (InterruptedException ignored) {
-                    Thread.currentThread().interrupt();
-                }
+                SnailJobLog.LOCAL.error("client refresh expireAt error.", e);
+            }
+        }
+    }
+
+    /**
+     * 将等待刷新的节点批量写入DB
+     */
+    private void flush() {
+        // 删除超过有效期的客户端存活状态
+        CacheClientLiveness.removeExpired();
+
+        if (PENDING_NODES.isEmpty()) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<ServerNode> serverNodes = new ArrayList<>(PENDING_NODES.size());
+        for (Map.Entry<String, ServerNode> entry : PENDING_NODES.entrySet()) {
+            // 只移除已取出的值, 期间收到的新心跳留到下个周期
+            if (PENDING_NODES.remove(entry.getKey(), entry.getValue())) {
+                serverNodes.add(entry.getValue());
+            }
+        }
+
+        for (List<ServerNode> partition : Lists.partition(serverNodes, FLUSH_BATCH_SIZE)) {
+            try {
+                refreshExpireAt(partition);
+            } catch (Exception e) {
+                // 写入失败的节点放回等待队列, 下个周期重试; 期间收到的新心跳优先
+                partition.forEach(serverNode -> PENDING_NODES.putIfAbsent(serverNode.getHostId(), serverNode));
+                SnailJobLog.LOCAL.error("client refresh expireAt error. size:[{}]", partition.size(), e);
             }
         }
+
+        long cost = System.currentTimeMillis() - startTime;
+        lastFlushCost = cost;
+        maxFlushCost = Math.max(maxFlushCost, cost);
+        FLUSH_NODE_COUNT.add(serverNodes.size());
+        if (cost > FLUSH_INTERVAL) {
+            SnailJobLog.LOCAL.warn("client register flush is slow. size:[{}] cost:[{}]ms pending:[{}]",
+                    serverNodes.size(), cost, PENDING_NODES.size());
+        }
+    }
+
+    /**
+     * 等待刷新的节点数
+     */
+    public static int getPendingCount() {
+        return PENDING_NODES.size();
+    }
+
+    /**
+     * 等待刷新的节点数超限后丢弃的心跳数
+     */
+    public static long getDropCount() {
+        return DROP_COUNT.sum();
+    }
+
+    /**
+     * 累计刷新的节点数
+     */
+    public static long getFlushNodeCount() {
+        return FLUSH_NODE_COUNT.sum();
+    }
+
+    /**
+     * 最近一次刷新的耗时(毫秒)
+     */
+    public static long getLastFlushCost() {
+        return lastFlushCost;
+    }
+
+    /**
+     * 刷新的最大耗时(毫秒)
+     */
+    public static long getMaxFlushCost() {
+        return maxFlushCost;
     }
 }
@@ -2,6 +2,7 @@ package com.aizuda.snailjob.server.common.register;
 
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
+import com.aizuda.snailjob.common.core.constant.SystemConstants;
 import com.aizuda.snailjob.common.core.enums.NodeTypeEnum;
 import com.aizuda.snailjob.common.core.util.JsonUtil;
 import com.aizuda.snailjob.common.core.util.NetUtil;
@@ -9,6 +10,7 @@ import com.aizuda.snailjob.common.core.util.StreamUtils;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.cache.CacheConsumerGroup;
 import com.aizuda.snailjob.server.common.cache.CacheRegisterTable;
+import com.aizuda.snailjob.server.common.cache.CacheToken;
 import com.aizuda.snailjob.server.common.config.SystemProperties;
 import com.aizuda.snailjob.server.common.dto.ServerNodeExtAttrs;
 import com.aizuda.snailjob.template.datasource.persistence.po.ServerNode;
@@ -44,6 +46,10 @@ public class ServerRegister extends AbstractRegister {
     public static final String CURRENT_CID;
     public static final String GROUP_NAME = "DEFAULT_SERVER";
     public static final String NAMESPACE_ID = "DEFAULT_SERVER_NAMESPACE_ID";
+    /**
+     * 服务端之间请求使用的token, 服务端的组不存在组配置, 与{@link CacheToken}未配置组时的默认值一致
+     */
+    public static final String TOKEN = SystemConstants.DEFAULT_TOKEN;
 
     private final SystemProperties systemProperties;
     private final ServerProperties serverProperties;
@@ -1,6 +1,7 @@
 package com.aizuda.snailjob.server.common.rpc.client;
 
 import com.aizuda.snailjob.common.log.SnailJobLog;
+import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
 import com.aizuda.snailjob.server.common.triple.Pair;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.Unpooled;
@@ -19,10 +20,19 @@ import java.net.ConnectException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
+ * 每个客户端节点维护一个小的长连接池, 请求通过请求id匹配响应, 同一个连接上可以同时存在多个未完成的请求
+ *
  * @author opensnail
  * @date 2023-05-13
  * @since 1.3.0
@@ -32,18 +42,18 @@ public class NettyChannel {
     private NettyChannel() {
     }
 
-    private static Bootstrap bootstrap;
-    private static ConcurrentHashMap<Pair<String, String>, Channel> CHANNEL_MAP = new ConcurrentHashMap<>(16);
-
+    private static final int CONNECT_TIMEOUT_SECONDS = 30;
 
-    public static void setChannel(String hostId, String ip, Channel channel) {
-        CHANNEL_MAP.put(Pair.of(hostId, ip), channel);
-    }
+    private static Bootstrap bootstrap;
+    private static int channelPoolSize = 2;
+    private static int maxInflightRequests = 256;
+    private static final ConcurrentHashMap<Pair<String/*hostId*/, String/*ip*/>, NodeChannelPool> CHANNEL_MAP = new ConcurrentHashMap<>(16);
 
     public static void removeChannel(Channel channel) {
-        CHANNEL_MAP.forEach((key, value) -> {
-            if (value.equals(channel)) {
-                CHANNEL_MAP.remove(key);
+        CHANNEL_MAP.forEach((key, pool) -> {
+            pool.remove(channel);
+            if (pool.isIdle()) {
+                CHANNEL_MAP.remove(key, pool);
             }
         });
     }
@@ -53,7 +63,18 @@ public class NettyChannel {
     }
 
     /**
-     * 发送数据
+     * 设置连接池配置
+     *
+     * @param channelPoolSize     每个客户端节点的连接数
+     * @param maxInflightRequests 每个客户端节点最多未完成的异步请求数
+     */
+    public static void setPoolConfig(int channelPoolSize, int maxInflightRequests) {
+        NettyChannel.channelPoolSize = Math.max(channelPoolSize, 1);
+        NettyChannel.maxInflightRequests = Math.max(maxInflightRequests, 1);
+    }
+
+    /**
+     * 发送数据, 等待数据写出后返回
      *
      * @param method 请求方式
      * @param url    url地址
@@ -62,15 +83,69 @@ public class NettyChannel {
      */
     public static void send(String hostId, String hostIp, Integer port, HttpMethod method, String url, String body, HttpHeaders requestHeaders) throws InterruptedException {
 
-        Channel channel = CHANNEL_MAP.get(Pair.of(hostId, hostIp));
-        if (Objects.isNull(channel) || !channel.isActive()) {
-            channel = connect(hostId, hostIp, port);
-            if (Objects.isNull(channel)) {
-                SnailJobLog.LOCAL.error("send message but channel is null url:[{}] method:[{}] body:[{}] ", url, method, body);
+        Channel channel = null;
+        try {
+            channel = getPool(hostId, hostIp).acquire(hostIp, port).get(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException ignored) {
+            // 连接失败的原因已在connect中打印
+        } catch (TimeoutException e) {
+            SnailJobLog.LOCAL.warn("connect remote host[{}:{}] timeout {}s", hostIp, port, CONNECT_TIMEOUT_SECONDS);
+        }
+
+        if (Objects.isNull(channel)) {
+            SnailJobLog.LOCAL.error("send message but channel is null url:[{}] method:[{}] body:[{}] ", url, method, body);
+            return;
+        }
+
+        //发送数据
+        channel.writeAndFlush(buildRequest(method, url, body, requestHeaders)).sync();
+    }
+
+    /**
+     * 异步发送数据, 连接和写出都不会阻塞调用线程
+     *
+     * @param method 请求方式
+     * @param url    url地址
+     * @param body   请求的消息体
+     * @return 数据写出后完成的future
+     */
+    public static CompletableFuture<Void> sendAsync(String hostId, String hostIp, Integer port, HttpMethod method,
+                                                    String url, String body, HttpHeaders requestHeaders) {
+        CompletableFuture<Void> writeFuture = new CompletableFuture<>();
+        getPool(hostId, hostIp).acquire(hostIp, port).whenComplete((channel, throwable) -> {
+            if (Objects.nonNull(throwable)) {
+                writeFuture.completeExceptionally(throwable);
                 return;
             }
-        }
 
+            channel.writeAndFlush(buildRequest(method, url, body, requestHeaders)).addListener(future -> {
+                if (future.isSuccess()) {
+                    writeFuture.complete(null);
+                } else {
+                    writeFuture.completeExceptionally(future.cause());
+                }
+            });
+        });
+
+        return writeFuture;
+    }
+
+    /**
+     * 占用客户端节点的一个异步请求名额
+     *
+     * @return 占用的名额, null-未完成的请求数已达上限
+     */
+    public static InflightPermit tryAcquireInflight(String hostId, String hostIp) {
+        NodeChannelPool pool = getPool(hostId, hostIp);
+        return pool.inflight.tryAcquire() ? new InflightPermit(pool) : null;
+    }
+
+    private static NodeChannelPool getPool(String hostId, String hostIp) {
+        return CHANNEL_MAP.computeIfAbsent(Pair.of(hostId, hostIp),
+                key -> new NodeChannelPool(channelPoolSize, maxInflightRequests));
+    }
+
+    private static FullHttpRequest buildRequest(HttpMethod method, String url, String body, HttpHeaders requestHeaders) {
         // 配置HttpRequest的请求数据和一些配置信息
         FullHttpRequest request = new DefaultFullHttpRequest(
                 HttpVersion.HTTP_1_1, method, url, Unpooled.wrappedBuffer(body.getBytes(StandardCharsets.UTF_8)));
@@ -83,45 +158,37 @@ public class NettyChannel {
                 .set(HttpHeaderNames.CONTENT_LENGTH, request.content().readableBytes())
         ;
         request.headers().setAll(requestHeaders);
-
-        //发送数据
-        channel.writeAndFlush(request).sync();
+        return request;
     }
 
     /**
      * 连接客户端
      *
-     * @return
+     * @return 连接成功后完成的future
      */
-    public static Channel connect(String hostId, String ip, Integer port) {
-
+    private static CompletableFuture<Channel> connect(String ip, Integer port) {
+        CompletableFuture<Channel> connectFuture = new CompletableFuture<>();
         try {
-            ChannelFuture channelFuture = bootstrap
-                    .remoteAddress(ip, port)
-                    .connect();
-
-            boolean notTimeout = channelFuture.awaitUninterruptibly(30, TimeUnit.SECONDS);
-            Channel channel = channelFuture.channel();
-            if (notTimeout) {
-                // 连接成功
-                if (channel != null && channel.isActive()) {
+            ChannelFuture channelFuture = bootstrap.connect(ip, port);
+            channelFuture.addListener(future -> {
+                Channel channel = channelFuture.channel();
+                if (future.isSuccess() && channel.isActive()) {
+                    // 连接成功
                     SnailJobLog.LOCAL.info("netty client started {} connect to server", channel.localAddress());
-                    NettyChannel.setChannel(hostId, ip, channel);
-                    return channel;
-                }
-
-                Throwable cause = channelFuture.cause();
-                if (cause != null) {
+                    connectFuture.complete(channel);
+                } else {
+                    Throwable cause = Objects.nonNull(future.cause()) ? future.cause()
+                            : new SnailJobServerException("connect remote host[{}:{}] failed", ip, port);
                     exceptionHandler(cause);
+                    connectFuture.completeExceptionally(cause);
                 }
-            } else {
-                SnailJobLog.LOCAL.warn("connect remote host[{}] timeout {}s", channel.remoteAddress(), 30);
-            }
+            });
         } catch (Exception e) {
             exceptionHandler(e);
+            connectFuture.completeExceptionally(e);
         }
 
-        return null;
+        return connectFuture;
     }
 
     /**
@@ -139,4 +206,102 @@ public class NettyChannel {
         }
     }
 
+    /**
+     * 异步请求名额, 释放到占用时的连接池, 连接池被移除后重新创建的连接池不受影响
+     */
+    public static final class InflightPermit {
+
+        private final NodeChannelPool pool;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private InflightPermit(NodeChannelPool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * 释放名额, 重复调用只释放一次
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                pool.inflight.release();
+            }
+        }
+    }
+
+    /**
+     * 单个客户端节点的连接池
+     */
+    private static final class NodeChannelPool {
+
+        /**
+         * 连接槽位, 槽位中保存正在建立或者已建立的连接
+         */
+        private final AtomicReferenceArray<CompletableFuture<Channel>> slots;
+        private final AtomicInteger next = new AtomicInteger();
+        private final Semaphore inflight;
+        private final int maxInflightRequests;
+
+        private NodeChannelPool(int size, int maxInflightRequests) {
+            this.slots = new AtomicReferenceArray<>(size);
+            this.inflight = new Semaphore(maxInflightRequests);
+            this.maxInflightRequests = maxInflightRequests;
+        }
+
+        /**
+         * 轮询选择一个连接, 槽位中的连接不可用时重新建立连接
+         */
+        private CompletableFuture<Channel> acquire(String ip, Integer port) {
+            int index = (next.getAndIncrement() & Integer.MAX_VALUE) % slots.length();
+            CompletableFuture<Channel> slot = slots.get(index);
+            if (Objects.nonNull(slot) && (!slot.isDone() || isActive(slot))) {
+                return slot;
+            }
+
+            CompletableFuture<Channel> connecting = new CompletableFuture<>();
+            if (!slots.compareAndSet(index, slot, connecting)) {
+                // 其他线程正在重新建立连接
+                return Objects.requireNonNull(slots.get(index));
+            }
+
+            connect(ip, port).whenComplete((channel, throwable) -> {
+                if (Objects.isNull(throwable)) {
+                    connecting.complete(channel);
+                } else {
+                    // 连接失败时清空槽位, 下次请求重新建立连接
+                    slots.compareAndSet(index, connecting, null);
+                    connecting.completeExceptionally(throwable);
+                }
+            });
+
+            return connecting;
+        }
+
+        private void remove(Channel channel) {
+            for (int i = 0; i < slots.length(); i++) {
+                CompletableFuture<Channel> slot = slots.get(i);
+                if (Objects.nonNull(slot) && slot.isDone() && !slot.isCompletedExceptionally()
+                        && slot.join().equals(channel)) {
+                    slots.compareAndSet(i, slot, null);
+                }
+            }
+        }
+
+        /**
+         * 没有连接且没有未完成的请求
+         */
+        private boolean isIdle() {
+            for (int i = 0; i < slots.length(); i++) {
+                if (Objects.nonNull(slots.get(i))) {
+                    return false;
+                }
+            }
+
+            return inflight.availablePermits() >= maxInflightRequests;
+        }
+
+        private static boolean isActive(CompletableFuture<Channel> slot) {
+            return !slot.isCompletedExceptionally() && slot.join().isActive();
+        }
+    }
+
 }
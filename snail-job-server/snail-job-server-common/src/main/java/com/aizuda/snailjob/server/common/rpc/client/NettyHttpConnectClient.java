@@ -2,6 +2,7 @@ package com.aizuda.snailjob.server.common.rpc.client;
 
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.Lifecycle;
+import com.aizuda.snailjob.server.common.config.SystemProperties;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
@@ -12,6 +13,7 @@ import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.timeout.IdleStateHandler;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -28,10 +30,12 @@ import java.util.concurrent.TimeUnit;
 @Getter
 @Component
 @Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
 public class NettyHttpConnectClient implements Lifecycle {
 
     private static final NioEventLoopGroup nioEventLoopGroup = new NioEventLoopGroup();
     private static final Bootstrap bootstrap = new Bootstrap();
+    private final SystemProperties systemProperties;
 
     @Override
     public void start() {
@@ -52,6 +56,8 @@ public class NettyHttpConnectClient implements Lifecycle {
                     .option(ChannelOption.SO_KEEPALIVE, true)
                     .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10000);
             NettyChannel.setBootstrap(bootstrap);
+            SystemProperties.RpcClient rpcClient = systemProperties.getRpcClient();
+            NettyChannel.setPoolConfig(rpcClient.getChannelPoolSize(), rpcClient.getMaxInflightRequests());
         } catch (Exception e) {
             SnailJobLog.LOCAL.error("Client start exception", e);
         }
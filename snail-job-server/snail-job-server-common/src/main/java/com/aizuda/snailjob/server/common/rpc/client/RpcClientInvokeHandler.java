@@ -23,6 +23,7 @@ import com.aizuda.snailjob.server.common.rpc.client.annotation.Mapping;
 import com.aizuda.snailjob.server.common.rpc.client.annotation.Param;
 import com.aizuda.snailjob.server.common.dto.RegisterNodeInfo;
 import com.aizuda.snailjob.server.common.handler.ClientNodeAllocateHandler;
+import com.github.rholder.retry.Attempt;
 import com.github.rholder.retry.RetryException;
 import com.github.rholder.retry.RetryListener;
 import com.github.rholder.retry.Retryer;
@@ -35,6 +36,7 @@ import io.netty.handler.codec.http.HttpMethod;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 
@@ -47,7 +49,10 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -74,7 +79,18 @@ public class RpcClientInvokeHandler implements InvocationHandler {
     private final String allocKey;
     private final Integer executorTimeout;
     private final String namespaceId;
-    private final boolean async;
+
+    /**
+     * 异步调用的回调线程池, 避免在netty的IO线程中执行调用方的回调逻辑
+     * 队列无界, 核心线程数与最大线程数一致, 空闲时核心线程超时回收
+     */
+    private static final ThreadPoolExecutor CALLBACK_EXECUTOR = new ThreadPoolExecutor(
+            Runtime.getRuntime().availableProcessors() * 2, Runtime.getRuntime().availableProcessors() * 2,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new CustomizableThreadFactory("snail-job-rpc-callback-"));
+
+    static {
+        CALLBACK_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
 
     public RpcClientInvokeHandler(final String groupName, final RegisterNodeInfo registerNodeInfo,
                                   final boolean failRetry, final int retryTimes,
@@ -93,14 +109,19 @@ public class RpcClientInvokeHandler implements InvocationHandler {
         this.allocKey = allocKey;
         this.executorTimeout = executorTimeout;
         this.namespaceId = namespaceId;
-        this.async = false;
     }
 
     @Override
-    public Result invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
         Mapping annotation = method.getAnnotation(Mapping.class);
         Assert.notNull(annotation, () -> new SnailJobServerException("@Mapping cannot be null"));
 
+        // 返回值为CompletableFuture的接口使用异步调用
+        if (CompletableFuture.class.isAssignableFrom(method.getReturnType())) {
+            Assert.isFalse(failover, () -> new SnailJobServerException("async request does not support failover"));
+            return requestRemoteAsync(method, args, annotation);
+        }
+
         if (failover) {
             return doFailoverHandler(method, args, annotation);
         }
@@ -167,13 +188,8 @@ public class RpcClientInvokeHandler implements InvocationHandler {
 
                 SnailJobLog.LOCAL.debug("request complete requestId:[{}] 耗时:[{}ms]", snailJobRequest.getReqId(),
                         sw.getTotalTimeMillis());
-                if (async) {
-                    // 暂时不支持异步调用
-                    return null;
-                } else {
-                    Assert.notNull(newFuture, () -> new SnailJobServerException("completableFuture is null"));
-                    return (Result) newFuture.get(Integer.MAX_VALUE, TimeUnit.MILLISECONDS);
-                }
+                Assert.notNull(newFuture, () -> new SnailJobServerException("completableFuture is null"));
+                return (Result) newFuture.get(Integer.MAX_VALUE, TimeUnit.MILLISECONDS);
 
             });
 
@@ -230,6 +246,94 @@ public class RpcClientInvokeHandler implements InvocationHandler {
         return null;
     }
 
+    /**
+     * 异步请求客户端, 调用线程不会等待连接建立和客户端响应
+     * 失败重试由回调线程池延迟触发, 每次重试都会通知{@link RetryListener}
+     */
+    private CompletableFuture<Result> requestRemoteAsync(Method method, Object[] args, Mapping mapping) {
+        CompletableFuture<Result> resultFuture = new CompletableFuture<>();
+        try {
+            // 参数解析
+            ParseParasResult parasResult = doParseParams(method, args);
+
+            // 若是POST请求，请求体不能是null
+            if (RequestMethod.POST.name().equals(mapping.method().name())) {
+                Assert.notNull(parasResult.body, () -> new SnailJobServerException("body cannot be null"));
+            }
+
+            HttpHeaders requestHeaders = parasResult.requestHeaders;
+            // 统一设置Token
+            requestHeaders.set(SystemConstants.SNAIL_JOB_AUTH_TOKEN, CacheToken.get(groupName, namespaceId));
+
+            doRequestRemoteAsync(args, mapping, requestHeaders, 1, System.currentTimeMillis(), resultFuture);
+        } catch (Exception e) {
+            resultFuture.completeExceptionally(e);
+        }
+
+        return resultFuture;
+    }
+
+    private void doRequestRemoteAsync(Object[] args, Mapping mapping, HttpHeaders requestHeaders, int attemptNumber,
+                                      long startTime, CompletableFuture<Result> resultFuture) {
+        sendAsync(args, mapping, requestHeaders).whenCompleteAsync((result, throwable) -> {
+            Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+            try {
+                retryListener.onRetry(new AsyncAttempt(result, cause, attemptNumber, startTime));
+            } catch (Exception e) {
+                log.error("retry listener error. clientId:[{}] clientAddr:[{}:{}]", hostId, hostIp, hostPort, e);
+            }
+
+            if (Objects.isNull(cause)) {
+                resultFuture.complete(result);
+                return;
+            }
+
+            int maxAttempts = retryTimes <= 0 ? 1 : retryTimes;
+            if (failRetry && attemptNumber < maxAttempts) {
+                CompletableFuture.delayedExecutor(Math.max(retryInterval, 0), TimeUnit.SECONDS, CALLBACK_EXECUTOR)
+                        .execute(() -> doRequestRemoteAsync(args, mapping, requestHeaders, attemptNumber + 1,
+                                startTime, resultFuture));
+                return;
+            }
+
+            if (failRetry && cause instanceof SnailJobRemotingTimeOutException) {
+                // 若重试之后该接口仍然有问题，进行路由剔除处理
+                CacheRegisterTable.remove(groupName, namespaceId, hostId);
+            }
+
+            log.error("async request client error. count:[{}] clientId:[{}] clientAddr:[{}:{}] serverIp:[{}]",
+                    attemptNumber, hostId, hostIp, hostPort, NetUtil.getLocalIpStr(), cause);
+            resultFuture.completeExceptionally(cause);
+        }, CALLBACK_EXECUTOR);
+    }
+
+    private CompletableFuture<Result> sendAsync(Object[] args, Mapping mapping, HttpHeaders requestHeaders) {
+        // 限制单个客户端节点未完成的请求数, 避免一个响应慢的客户端堆积大量请求
+        NettyChannel.InflightPermit permit = NettyChannel.tryAcquireInflight(hostId, hostIp);
+        if (Objects.isNull(permit)) {
+            return CompletableFuture.failedFuture(new SnailJobServerException(
+                    "too many in-flight requests. clientId:[{}] clientAddr:[{}:{}]", hostId, hostIp, hostPort));
+        }
+
+        // 每次请求使用新的请求id, 避免上一次请求的超时检测影响本次请求
+        SnailJobRequest snailJobRequest = new SnailJobRequest(args);
+        SnailJobFuture<Result<Object>> newFuture = SnailJobFuture.newFuture(snailJobRequest.getReqId(),
+                Optional.ofNullable(executorTimeout).orElse(20), TimeUnit.SECONDS);
+        newFuture.whenComplete((result, throwable) -> permit.release());
+        RpcContext.setFuture(newFuture);
+
+        NettyChannel.sendAsync(hostId, hostIp, hostPort, HttpMethod.valueOf(mapping.method().name()),
+                        mapping.path(), snailJobRequest.toString(), requestHeaders)
+                .whenComplete((unused, throwable) -> {
+                    if (Objects.nonNull(throwable)) {
+                        // 请求未写出, 不会再收到响应
+                        RpcContext.fail(snailJobRequest.getReqId(), throwable);
+                    }
+                });
+
+        return newFuture.thenApply(result -> result);
+    }
+
     private Retryer<Result> buildResultRetryer() {
         Retryer<Result> retryer = RetryerBuilder.<Result>newBuilder()
                 .retryIfException(throwable -> failRetry)
@@ -267,6 +371,65 @@ public class RpcClientInvokeHandler implements InvocationHandler {
         return parseParasResult;
     }
 
+    /**
+     * 异步请求的单次调用结果
+     */
+    private static class AsyncAttempt implements Attempt<Result> {
+
+        private final Result result;
+        private final Throwable exceptionCause;
+        private final long attemptNumber;
+        private final long delaySinceFirstAttempt;
+
+        private AsyncAttempt(Result result, Throwable exceptionCause, long attemptNumber, long startTime) {
+            this.result = result;
+            this.exceptionCause = exceptionCause;
+            this.attemptNumber = attemptNumber;
+            this.delaySinceFirstAttempt = System.currentTimeMillis() - startTime;
+        }
+
+        @Override
+        public Result get() throws ExecutionException {
+            if (hasException()) {
+                throw new ExecutionException(exceptionCause);
+            }
+
+            return result;
+        }
+
+        @Override
+        public boolean hasResult() {
+            return !hasException();
+        }
+
+        @Override
+        public boolean hasException() {
+            return Objects.nonNull(exceptionCause);
+        }
+
+        @Override
+        public Result getResult() throws IllegalStateException {
+            Assert.isTrue(hasResult(), () -> new IllegalStateException("The attempt resulted in an exception"));
+            return result;
+        }
+
+        @Override
+        public Throwable getExceptionCause() throws IllegalStateException {
+            Assert.isTrue(hasException(), () -> new IllegalStateException("The attempt resulted in a result"));
+            return exceptionCause;
+        }
+
+        @Override
+        public long getAttemptNumber() {
+            return attemptNumber;
+        }
+
+        @Override
+        public long getDelaySinceFirstAttempt() {
+            return delaySinceFirstAttempt;
+        }
+    }
+
     @Data
     private static class ParseParasResult {
 
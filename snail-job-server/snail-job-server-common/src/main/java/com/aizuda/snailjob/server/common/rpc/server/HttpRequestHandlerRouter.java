@@ -0,0 +1,56 @@
+package com.aizuda.snailjob.server.common.rpc.server;
+
+import com.aizuda.snailjob.server.common.HttpRequestHandler;
+import com.aizuda.snailjob.server.common.triple.Pair;
+import io.netty.handler.codec.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 客户端请求路由
+ * 启动时收集所有的{@link HttpRequestHandler}, 请求方式和路径首次匹配成功后缓存, 之后的请求直接命中路由表
+ *
+ * @since sj_1.0.0
+ */
+@Component
+public class HttpRequestHandlerRouter {
+
+    private final List<HttpRequestHandler> httpRequestHandlers;
+
+    /**
+     * 路由表, 只缓存匹配成功的路由, 避免未知的路径无限增长
+     */
+    private final ConcurrentMap<Pair<String/*method*/, String/*path*/>, HttpRequestHandler> routeTable = new ConcurrentHashMap<>();
+
+    public HttpRequestHandlerRouter(List<HttpRequestHandler> httpRequestHandlers) {
+        this.httpRequestHandlers = List.copyOf(httpRequestHandlers);
+    }
+
+    /**
+     * 查找处理请求的处理器
+     *
+     * @param method 请求方式
+     * @param path   请求路径, 不包含查询参数
+     * @return 处理器, 不存在返回null
+     */
+    public HttpRequestHandler route(HttpMethod method, String path) {
+        Pair<String, String> key = Pair.of(method.name(), path);
+        HttpRequestHandler httpRequestHandler = routeTable.get(key);
+        if (Objects.nonNull(httpRequestHandler)) {
+            return httpRequestHandler;
+        }
+
+        for (HttpRequestHandler handler : httpRequestHandlers) {
+            if (handler.supports(path) && method.name().equals(handler.method().name())) {
+                routeTable.putIfAbsent(key, handler);
+                return handler;
+            }
+        }
+
+        return null;
+    }
+}
@@ -1,17 +1,18 @@
 package com.aizuda.snailjob.server.common.rpc.server;
 
+import com.aizuda.snailjob.common.core.rpc.NettyTransport;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.config.SystemProperties;
 import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
 import com.aizuda.snailjob.server.common.Lifecycle;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import lombok.Getter;
@@ -43,22 +44,29 @@ public class NettyHttpServer implements Runnable, Lifecycle {
             return;
         }
 
-        EventLoopGroup bossGroup = new NioEventLoopGroup();
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        SystemProperties.NettyServer nettyServer = systemProperties.getNettyServer();
+        NettyTransport transport = NettyTransport.select(nettyServer.isNativeTransport());
+        EventLoopGroup bossGroup = transport.newEventLoopGroup(nettyServer.getBossThreads(), "snail-netty-server-boss");
+        EventLoopGroup workerGroup = transport.newEventLoopGroup(Math.max(nettyServer.getWorkerThreads(), 0),
+                "snail-netty-server-worker");
+        PendingRequestLimiter.setMaxPendingRequests(nettyServer.getMaxPendingRequests());
 
         try {
             // start server
             ServerBootstrap bootstrap = new ServerBootstrap();
             bootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .option(ChannelOption.SO_BACKLOG, 128)
+                    .channel(transport.serverChannelClass())
+                    .option(ChannelOption.SO_BACKLOG, nettyServer.getSoBacklog())
                     .childOption(ChannelOption.SO_KEEPALIVE, true)
+                    .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                            nettyServer.getWriteBufferLowWaterMark(), nettyServer.getWriteBufferHighWaterMark()))
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         public void initChannel(SocketChannel channel) throws Exception {
                             channel.pipeline()
                                     .addLast(new HttpServerCodec())
-                                    .addLast(new HttpObjectAggregator(5 * 1024 * 1024))
+                                    .addLast(new HttpObjectAggregator(nettyServer.getMaxContentLength()))
                                     .addLast(new NettyHttpServerHandler());
                         }
                     });
@@ -66,8 +74,8 @@ public class NettyHttpServer implements Runnable, Lifecycle {
             // 在特定端口绑定并启动服务器 默认是1788
             ChannelFuture future = bootstrap.bind(systemProperties.getNettyPort()).sync();
 
-            SnailJobLog.LOCAL.info("------> snail-job remoting server start success, nettype = {}, port = {}",
-                    NettyHttpServer.class.getName(), systemProperties.getNettyPort());
+            SnailJobLog.LOCAL.info("------> snail-job remoting server start success, nettype = {}, transport = {}, port = {}",
+                    NettyHttpServer.class.getName(), transport, systemProperties.getNettyPort());
 
             started = true;
             future.channel().closeFuture().sync();
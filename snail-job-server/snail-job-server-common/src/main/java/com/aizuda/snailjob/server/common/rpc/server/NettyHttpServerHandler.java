@@ -3,11 +3,12 @@ package com.aizuda.snailjob.server.common.rpc.server;
 import akka.actor.ActorRef;
 import com.aizuda.snailjob.server.common.akka.ActorGenerator;
 import com.aizuda.snailjob.server.common.dto.NettyHttpRequest;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpUtil;
-import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
 
 /**
  * @author: opensnail
@@ -22,17 +23,38 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
     protected void channelRead0(ChannelHandlerContext channelHandlerContext, FullHttpRequest fullHttpRequest)
             throws Exception {
 
+        // 请求体不再解码为字符串, 由处理器直接从ByteBuf中解析, 处理完成后由RequestHandlerActor释放
+        ByteBuf content = fullHttpRequest.content().retain();
         NettyHttpRequest nettyHttpRequest = NettyHttpRequest.builder()
                 .keepAlive(HttpUtil.isKeepAlive(fullHttpRequest))
                 .uri(fullHttpRequest.uri())
                 .channelHandlerContext(channelHandlerContext)
                 .method(fullHttpRequest.method())
                 .headers(fullHttpRequest.headers())
-                .content(fullHttpRequest.content().toString(CharsetUtil.UTF_8))
+                .content(content)
                 .build();
 
-        ActorRef actorRef = ActorGenerator.requestHandlerActor();
-        actorRef.tell(nettyHttpRequest, actorRef);
+        PendingRequestLimiter.acquire(channelHandlerContext.channel());
+        try {
+            ActorRef actorRef = ActorGenerator.requestHandlerActor();
+            actorRef.tell(nettyHttpRequest, actorRef);
+        } catch (Exception e) {
+            ReferenceCountUtil.release(content);
+            PendingRequestLimiter.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        PendingRequestLimiter.writabilityChanged(ctx.channel());
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        PendingRequestLimiter.remove(ctx.channel());
+        super.channelInactive(ctx);
     }
 
 
@@ -0,0 +1,93 @@
+package com.aizuda.snailjob.server.common.rpc.server;
+
+import io.netty.channel.Channel;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 限制服务端未处理完成的请求数
+ * 请求交给actor处理后计数, 响应写出后释放; 超过上限时暂停读取收到请求的连接, 降到上限的一半以下后恢复读取
+ *
+ * @since sj_1.0.0
+ */
+public final class PendingRequestLimiter {
+
+    private static final AtomicInteger PENDING = new AtomicInteger();
+    private static final Set<Channel> PAUSED_CHANNELS = ConcurrentHashMap.newKeySet();
+    private static volatile int highWaterMark = 0;
+    private static volatile int lowWaterMark = 0;
+
+    private PendingRequestLimiter() {
+    }
+
+    /**
+     * 设置最多未处理完成的请求数
+     *
+     * @param maxPendingRequests 最多未处理完成的请求数, 小于等于0时不限制
+     */
+    public static void setMaxPendingRequests(int maxPendingRequests) {
+        highWaterMark = Math.max(maxPendingRequests, 0);
+        lowWaterMark = highWaterMark / 2;
+    }
+
+    /**
+     * 收到请求
+     *
+     * @param channel 收到请求的连接
+     */
+    public static void acquire(Channel channel) {
+        int pending = PENDING.incrementAndGet();
+        if (highWaterMark <= 0 || pending < highWaterMark) {
+            return;
+        }
+
+        channel.config().setAutoRead(false);
+        PAUSED_CHANNELS.add(channel);
+
+        // 暂停期间请求可能已经全部处理完成, 再检查一次防止连接无法恢复
+        if (PENDING.get() <= lowWaterMark) {
+            resumeAll();
+        }
+    }
+
+    /**
+     * 请求处理完成
+     */
+    public static void release() {
+        int pending = PENDING.decrementAndGet();
+        if (pending <= lowWaterMark && !PAUSED_CHANNELS.isEmpty()) {
+            resumeAll();
+        }
+    }
+
+    /**
+     * 连接的写缓冲区超过高水位时暂停读取, 低于低水位且未处理的请求未超限时恢复
+     *
+     * @param channel 连接
+     */
+    public static void writabilityChanged(Channel channel) {
+        if (!channel.isWritable()) {
+            channel.config().setAutoRead(false);
+        } else if (!PAUSED_CHANNELS.contains(channel)) {
+            channel.config().setAutoRead(true);
+        }
+    }
+
+    public static void remove(Channel channel) {
+        PAUSED_CHANNELS.remove(channel);
+    }
+
+    public static int getPendingCount() {
+        return PENDING.get();
+    }
+
+    private static void resumeAll() {
+        for (Channel channel : PAUSED_CHANNELS) {
+            if (PAUSED_CHANNELS.remove(channel) && channel.isWritable()) {
+                channel.config().setAutoRead(true);
+            }
+        }
+    }
+}
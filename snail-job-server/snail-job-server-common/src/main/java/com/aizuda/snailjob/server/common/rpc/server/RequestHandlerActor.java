@@ -18,7 +18,10 @@ import com.aizuda.snailjob.server.common.cache.CacheToken;
 import com.aizuda.snailjob.server.common.dto.NettyHttpRequest;
 import com.aizuda.snailjob.server.common.register.ClientRegister;
 import com.aizuda.snailjob.server.common.register.RegisterContext;
+import com.aizuda.snailjob.server.common.register.ServerRegister;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
@@ -29,12 +32,14 @@ import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
-import java.util.Collection;
+import java.util.Objects;
 
 /**
  * 处理netty客户端请求
@@ -46,8 +51,11 @@ import java.util.Collection;
 @Component(ActorGenerator.REQUEST_HANDLER_ACTOR)
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 @Slf4j
+@RequiredArgsConstructor
 public class RequestHandlerActor extends AbstractActor {
 
+    private final HttpRequestHandlerRouter httpRequestHandlerRouter;
+
     @Override
     public Receive createReceive() {
         return receiveBuilder().match(NettyHttpRequest.class, nettyHttpRequest -> {
@@ -55,6 +63,8 @@ public class RequestHandlerActor extends AbstractActor {
             final String uri = nettyHttpRequest.getUri();
             if (StrUtil.isBlank(uri)) {
                 SnailJobLog.LOCAL.error("uri can not be null");
+                ReferenceCountUtil.release(nettyHttpRequest.getContent());
+                PendingRequestLimiter.release();
                 return;
             }
 
@@ -62,30 +72,30 @@ public class RequestHandlerActor extends AbstractActor {
 
             final boolean keepAlive = nettyHttpRequest.isKeepAlive();
             final HttpMethod method = nettyHttpRequest.getMethod();
-            final String content = nettyHttpRequest.getContent();
+            final ByteBuf content = nettyHttpRequest.getContent();
             final HttpHeaders headers = nettyHttpRequest.getHeaders();
 
             String result = "";
             try {
                 result = doProcess(uri, content, method, headers);
             } catch (Exception e) {
-                SnailJobLog.LOCAL.error("http request error. [{}]", nettyHttpRequest.getContent(), e);
-                SnailJobRequest retryRequest = JsonUtil.parseObject(content, SnailJobRequest.class);
+                String contentStr = content.toString(CharsetUtil.UTF_8);
+                SnailJobLog.LOCAL.error("http request error. [{}]", contentStr, e);
+                SnailJobRequest retryRequest = JsonUtil.parseObject(contentStr, SnailJobRequest.class);
                 result = JsonUtil.toJsonString(new NettyResult(StatusEnum.NO.getStatus(), e.getMessage(), null, retryRequest.getReqId()));
             } finally {
+                ReferenceCountUtil.release(content);
                 writeResponse(channelHandlerContext, keepAlive, result);
-                getContext().stop(getSelf());
+                ActorGenerator.stop(getContext(), ActorGenerator.REQUEST_HANDLER_ACTOR);
             }
 
 
         }).build();
     }
 
-    private String doProcess(String uri, String content, HttpMethod method,
+    private String doProcess(String uri, ByteBuf content, HttpMethod method,
                              HttpHeaders headers) {
 
-        Register register = SpringContext.getBean(ClientRegister.BEAN_NAME, Register.class);
-
         String hostId = headers.get(HeadersEnum.HOST_ID.getKey());
         String hostIp = headers.get(HeadersEnum.HOST_IP.getKey());
         Integer hostPort = headers.getInt(HeadersEnum.HOST_PORT.getKey());
@@ -93,11 +103,31 @@ public class RequestHandlerActor extends AbstractActor {
         String namespace = headers.get(HeadersEnum.NAMESPACE.getKey());
         String token = headers.get(HeadersEnum.TOKEN.getKey());
 
-        if (!CacheToken.get(groupName, namespace).equals(token)) {
+        // 服务端之间的请求不需要注册为客户端
+        boolean fromServer = ServerRegister.GROUP_NAME.equals(groupName) && ServerRegister.NAMESPACE_ID.equals(namespace);
+        String expectToken = fromServer ? ServerRegister.TOKEN : CacheToken.get(groupName, namespace);
+        if (!expectToken.equals(token)) {
             SnailJobLog.LOCAL.error("Token authentication failed. [{}]", token);
             return JsonUtil.toJsonString(new Result<>(0, "Token authentication failed"));
         }
 
+        if (!fromServer) {
+            register(uri, hostId, hostIp, hostPort, groupName, namespace);
+        }
+
+        UrlBuilder builder = UrlBuilder.ofHttp(uri);
+        HttpRequestHandler httpRequestHandler = httpRequestHandlerRouter.route(method, builder.getPathStr());
+        if (Objects.nonNull(httpRequestHandler)) {
+            return httpRequestHandler.doHandler(content, builder, headers);
+        }
+
+        return JsonUtil.toJsonString(new Result<>());
+    }
+
+    private void register(String uri, String hostId, String hostIp, Integer hostPort, String groupName,
+                          String namespace) {
+        Register register = SpringContext.getBean(ClientRegister.BEAN_NAME, Register.class);
+
         // 注册版本
         RegisterContext registerContext = new RegisterContext();
         registerContext.setGroupName(groupName);
@@ -110,33 +140,30 @@ public class RequestHandlerActor extends AbstractActor {
         if (!result) {
             SnailJobLog.LOCAL.warn("client register error. groupName:[{}]", groupName);
         }
-
-        UrlBuilder builder = UrlBuilder.ofHttp(uri);
-        Collection<HttpRequestHandler> httpRequestHandlers = SpringContext.getContext()
-                .getBeansOfType(HttpRequestHandler.class).values();
-        for (HttpRequestHandler httpRequestHandler : httpRequestHandlers) {
-            if (httpRequestHandler.supports(builder.getPathStr()) && method.name()
-                    .equals(httpRequestHandler.method().name())) {
-                return httpRequestHandler.doHandler(content, builder, headers);
-            }
-        }
-
-        return JsonUtil.toJsonString(new Result<>());
     }
 
     /**
      * write response
      */
     private void writeResponse(ChannelHandlerContext ctx, boolean keepAlive, String responseJson) {
-        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
-                Unpooled.copiedBuffer(responseJson, CharsetUtil.UTF_8));
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE,
-                HttpHeaderValues.APPLICATION_JSON);
-        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
-        if (keepAlive) {
-            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        ChannelFuture writeFuture;
+        try {
+            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                    Unpooled.copiedBuffer(responseJson, CharsetUtil.UTF_8));
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE,
+                    HttpHeaderValues.APPLICATION_JSON);
+            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+            if (keepAlive) {
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            }
+            writeFuture = ctx.writeAndFlush(response);
+        } catch (Exception e) {
+            PendingRequestLimiter.release();
+            throw e;
         }
-        ctx.writeAndFlush(response);
+
+        // 响应写出(或写出失败)后释放未处理完成的请求计数
+        writeFuture.addListener(future -> PendingRequestLimiter.release());
     }
 
 }
@@ -0,0 +1,96 @@
+package com.aizuda.snailjob.server.common.rpc.server;
+
+import com.aizuda.snailjob.common.core.model.SnailJobRequest;
+import com.aizuda.snailjob.common.core.util.JsonUtil;
+import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+
+import java.io.IOException;
+
+/**
+ * 流式读取请求体中的{@link SnailJobRequest}
+ * 直接从{@link ByteBuf}解析, 第一个参数中的元素逐个交给调用方转换为目标类型, 不经过字符串和中间对象
+ *
+ * @since sj_1.0.0
+ */
+public final class SnailJobRequestReader {
+
+    private static final String REQ_ID = "reqId";
+    private static final String ARGS = "args";
+
+    private SnailJobRequestReader() {
+    }
+
+    /**
+     * 读取请求, 第一个参数为数组时逐个元素回调, 为对象时只回调一次
+     * 不会改变content的读索引, 请求中没有参数时抛出异常
+     *
+     * @param content       请求体
+     * @param elementReader 元素读取器, 回调时解析器指向元素的起始位置, 需要完整读取该元素
+     * @return 请求id
+     */
+    public static long read(ByteBuf content, ElementReader elementReader) {
+        long reqId = 0;
+        boolean hasArgs = false;
+        try (JsonParser parser = JsonUtil.createParser(new ByteBufInputStream(content.duplicate()))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new SnailJobServerException("请求体格式错误");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (REQ_ID.equals(fieldName) && token.isNumeric()) {
+                    reqId = parser.getLongValue();
+                } else if (ARGS.equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    hasArgs = readArgs(parser, elementReader);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new SnailJobServerException("解析请求体失败", e);
+        }
+
+        if (!hasArgs) {
+            throw new SnailJobServerException("请求参数不能为空. reqId:[{}]", reqId);
+        }
+
+        return reqId;
+    }
+
+    private static boolean readArgs(JsonParser parser, ElementReader elementReader) throws IOException {
+        // 只读取第一个参数
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            return false;
+        }
+
+        if (token == JsonToken.START_ARRAY) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                elementReader.read(parser);
+            }
+        } else if (token != JsonToken.VALUE_NULL) {
+            elementReader.read(parser);
+        }
+
+        // 跳过剩余的参数
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+        }
+
+        return true;
+    }
+
+    /**
+     * 元素读取器
+     */
+    @FunctionalInterface
+    public interface ElementReader {
+
+        void read(JsonParser parser) throws IOException;
+    }
+}
@@ -1,30 +1,32 @@
 package com.aizuda.snailjob.server.common.rpc.server.handler;
 
 import akka.actor.ActorRef;
-import cn.hutool.core.lang.Assert;
+import cn.hutool.core.net.url.UrlBuilder;
 import cn.hutool.core.net.url.UrlQuery;
 import com.aizuda.snailjob.common.core.constant.SystemConstants;
 import com.aizuda.snailjob.common.core.enums.HeadersEnum;
 import com.aizuda.snailjob.common.core.enums.StatusEnum;
-import com.aizuda.snailjob.common.core.model.SnailJobRequest;
 import com.aizuda.snailjob.common.core.model.NettyResult;
 import com.aizuda.snailjob.common.core.util.JsonUtil;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.common.log.enums.LogTypeEnum;
 import com.aizuda.snailjob.server.common.akka.ActorGenerator;
 import com.aizuda.snailjob.server.common.dto.RegisterNodeInfo;
-import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
 import com.aizuda.snailjob.server.common.handler.PostHttpRequestHandler;
+import com.aizuda.snailjob.server.common.rpc.server.SnailJobRequestReader;
 import com.aizuda.snailjob.server.common.util.ClientInfoUtils;
 import com.aizuda.snailjob.server.model.dto.JobLogTaskDTO;
 import com.aizuda.snailjob.server.model.dto.RetryLogTaskDTO;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
 
@@ -51,27 +53,33 @@ public class ReportLogHttpRequestHandler extends PostHttpRequestHandler {
 
     @Override
     public String doHandler(String content, UrlQuery urlQuery, HttpHeaders headers) {
+        return doHandler(Unpooled.wrappedBuffer(content.getBytes(StandardCharsets.UTF_8)));
+    }
 
-        SnailJobLog.LOCAL.debug("Begin Handler Log Report Data. [{}]", content);
-        SnailJobRequest retryRequest = JsonUtil.parseObject(content, SnailJobRequest.class);
-        Object[] args = retryRequest.getArgs();
+    @Override
+    public String doHandler(ByteBuf content, UrlBuilder urlBuilder, HttpHeaders headers) {
+        return doHandler(content);
+    }
 
-        Assert.notEmpty(args, () -> new SnailJobServerException("日志上报的数据不能为空. ReqId:[{}]", retryRequest.getReqId()));
+    private String doHandler(ByteBuf content) {
+
+        SnailJobLog.LOCAL.debug("Begin Handler Log Report Data. size:[{}]", content.readableBytes());
 
-        JsonNode jsonNode = JsonUtil.toJson(args[0]);
         List<RetryLogTaskDTO> retryTasks = Lists.newArrayList();
         List<JobLogTaskDTO> jobTasks = Lists.newArrayList();
-        for (final JsonNode node : jsonNode) {
+        // 每条日志只解析一次, 按日志类型直接转换为对应的DTO
+        long reqId = SnailJobRequestReader.read(content, parser -> {
+            JsonNode node = parser.readValueAsTree();
             JsonNode value = node.findValue(SystemConstants.JSON_FILED_LOG_TYPE);
             if (Objects.isNull(value) || value.asText().equals(LogTypeEnum.JOB.name())) {
-                jobTasks.add(JsonUtil.parseObject(node.toPrettyString(), JobLogTaskDTO.class));
-                continue;
+                jobTasks.add(parser.getCodec().treeToValue(node, JobLogTaskDTO.class));
+                return;
             }
 
             if (value.asText().equals(LogTypeEnum.RETRY.name())) {
-                retryTasks.add(JsonUtil.parseObject(node.toPrettyString(), RetryLogTaskDTO.class));
+                retryTasks.add(parser.getCodec().treeToValue(node, RetryLogTaskDTO.class));
             }
-        }
+        });
 
         // 批量新增日志数据
         if (!CollectionUtils.isEmpty(jobTasks)) {
@@ -84,7 +92,7 @@ public class ReportLogHttpRequestHandler extends PostHttpRequestHandler {
             actorRef.tell(retryTasks, actorRef);
         }
 
-        return JsonUtil.toJsonString(new NettyResult(StatusEnum.YES.getStatus(), "Batch Log Retry Data Upload Processed Successfully", Boolean.TRUE, retryRequest.getReqId()));
+        return JsonUtil.toJsonString(new NettyResult(StatusEnum.YES.getStatus(), "Batch Log Retry Data Upload Processed Successfully", Boolean.TRUE, reqId));
     }
 
     private String getClientInfo(final HttpHeaders headers) {
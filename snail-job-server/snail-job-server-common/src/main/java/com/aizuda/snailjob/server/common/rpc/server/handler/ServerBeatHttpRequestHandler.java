@@ -0,0 +1,53 @@
+package com.aizuda.snailjob.server.common.rpc.server.handler;
+
+import cn.hutool.core.net.url.UrlQuery;
+import com.aizuda.snailjob.common.core.constant.SystemConstants.HTTP_PATH;
+import com.aizuda.snailjob.common.core.enums.HeadersEnum;
+import com.aizuda.snailjob.common.core.model.NettyResult;
+import com.aizuda.snailjob.common.core.model.SnailJobRequest;
+import com.aizuda.snailjob.common.core.util.JsonUtil;
+import com.aizuda.snailjob.common.log.SnailJobLog;
+import com.aizuda.snailjob.server.common.handler.PostHttpRequestHandler;
+import com.aizuda.snailjob.server.common.handler.ServerNodeBalance;
+import com.aizuda.snailjob.server.common.register.ServerRegister;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import static com.aizuda.snailjob.common.core.constant.SystemConstants.BEAT.PONG;
+
+/**
+ * 接收其他服务端节点的心跳请求
+ *
+ * @since sj_1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class ServerBeatHttpRequestHandler extends PostHttpRequestHandler {
+
+    private final ServerNodeBalance serverNodeBalance;
+
+    @Override
+    public boolean supports(String path) {
+        return HTTP_PATH.SERVER_BEAT.equals(path);
+    }
+
+    @Override
+    public HttpMethod method() {
+        return HttpMethod.POST;
+    }
+
+    @Override
+    public String doHandler(String content, UrlQuery query, HttpHeaders headers) {
+        SnailJobLog.LOCAL.debug("Server beat content:[{}]", content);
+        SnailJobRequest retryRequest = JsonUtil.parseObject(content, SnailJobRequest.class);
+
+        // 只接收服务端发出的心跳
+        if (ServerRegister.GROUP_NAME.equals(headers.get(HeadersEnum.GROUP_NAME.getKey()))) {
+            serverNodeBalance.onPeerBeat(headers.get(HeadersEnum.HOST_ID.getKey()));
+        }
+
+        return JsonUtil.toJsonString(new NettyResult(PONG, retryRequest.getReqId()));
+    }
+}
@@ -1,8 +1,8 @@
 package com.aizuda.snailjob.server.common.strategy;
 
 import com.aizuda.snailjob.common.core.exception.SnailJobCommonException;
-import com.aizuda.snailjob.common.core.util.CronExpression;
 import com.aizuda.snailjob.server.common.WaitStrategy;
+import com.aizuda.snailjob.server.common.cache.CacheCronExpression;
 import com.aizuda.snailjob.server.common.enums.DelayLevelEnum;
 import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
 import com.aizuda.snailjob.server.common.util.DateUtils;
@@ -181,7 +181,7 @@ public class WaitStrategies {
         public Long computeTriggerTime(WaitStrategyContext context) {
 
             try {
-                Date nextValidTime = new CronExpression(context.getTriggerInterval()).getNextValidTimeAfter(new Date(context.getNextTriggerAt()));
+                Date nextValidTime = CacheCronExpression.get(context.getTriggerInterval()).getNextValidTimeAfter(new Date(context.getNextTriggerAt()));
                 return DateUtils.toEpochMilli(nextValidTime);
             } catch (ParseException e) {
                 throw new SnailJobServerException("解析CRON表达式异常 [{}]", context.getTriggerInterval(), e);
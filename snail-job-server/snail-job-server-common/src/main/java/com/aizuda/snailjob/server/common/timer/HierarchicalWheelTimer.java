@@ -0,0 +1,502 @@
+package com.aizuda.snailjob.server.common.timer;
+
+import com.aizuda.snailjob.common.log.SnailJobLog;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * 分层时间轮
+ * 按 tick/秒/分/时 分为四层, 任务按到期时间放入能容纳它的最低一层, 上层的槽到期后把其中的任务降到下层;
+ * 超过一天的任务放在最上层的最后一个槽, 到期后重新放入. 单层的HashedWheelTimer每一轮都要遍历远期任务, 这里远期任务只在降层时移动几次
+ * 同一个tick到期的任务按批提交到线程池执行, 线程池队列满时由提交者执行, 延迟通过 {@link #getFireLagMillis()} 观察
+ *
+ * @since sj_1.0.0
+ */
+public class HierarchicalWheelTimer implements Timer {
+
+    private static final int WORKER_STATE_INIT = 0;
+    private static final int WORKER_STATE_STARTED = 1;
+    private static final int WORKER_STATE_SHUTDOWN = 2;
+
+    /**
+     * 最多每个tick转移的新任务数, 避免大量注册时长时间不推进时间轮
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100000;
+
+    private final AtomicInteger workerState = new AtomicInteger(WORKER_STATE_INIT);
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+    private final Queue<HierarchicalTimeout> timeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<HierarchicalTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Set<Timeout> unprocessedTimeouts = new HashSet<>();
+    private final AtomicLong pendingTimeouts = new AtomicLong();
+    private final LongAccumulator maxFireLag = new LongAccumulator(Long::max, 0);
+
+    private final long tickDuration;
+    /**
+     * 每一层的槽, wheels[0]为tick层
+     */
+    private final Bucket[][] wheels;
+    /**
+     * 每一层一个槽覆盖的tick数
+     */
+    private final long[] spans;
+    private final long maxPendingTimeouts;
+    private final Executor taskExecutor;
+    private final int batchSize;
+    private final Thread workerThread;
+
+    private volatile long startTime;
+    private volatile long fireLag;
+
+    /**
+     * 时间轮线程已经处理到的tick, 只在时间轮线程中访问
+     */
+    private long tick;
+    private List<HierarchicalTimeout> batch;
+
+    /**
+     * @param threadFactory      时间轮线程工厂
+     * @param tickDuration       tick时长
+     * @param unit               tick时长单位
+     * @param maxPendingTimeouts 最多未到期的任务数, 超出后注册时抛出 {@link RejectedExecutionException}; 小于等于0时不限制
+     * @param taskExecutor       执行到期任务的线程池
+     * @param batchSize          每次提交到线程池的任务数
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit,
+                                  long maxPendingTimeouts, Executor taskExecutor, int batchSize) {
+        this.tickDuration = Math.max(unit.toNanos(tickDuration), TimeUnit.MILLISECONDS.toNanos(1));
+        this.maxPendingTimeouts = maxPendingTimeouts;
+        this.taskExecutor = taskExecutor;
+        this.batchSize = Math.max(batchSize, 1);
+
+        // tick层覆盖1秒, 之后依次为60秒、60分、24时
+        int ticksPerSecond = (int) Math.max(1, (TimeUnit.SECONDS.toNanos(1) + this.tickDuration - 1) / this.tickDuration);
+        int[] sizes = {ticksPerSecond, 60, 60, 24};
+        wheels = new Bucket[sizes.length][];
+        spans = new long[sizes.length];
+        long span = 1;
+        for (int level = 0; level < sizes.length; level++) {
+            wheels[level] = new Bucket[sizes[level]];
+            for (int i = 0; i < sizes[level]; i++) {
+                wheels[level][i] = new Bucket();
+            }
+            spans[level] = span;
+            span *= sizes[level];
+        }
+
+        workerThread = threadFactory.newThread(this::work);
+    }
+
+    public void start() {
+        switch (workerState.get()) {
+            case WORKER_STATE_INIT:
+                if (workerState.compareAndSet(WORKER_STATE_INIT, WORKER_STATE_STARTED)) {
+                    workerThread.start();
+                }
+                break;
+            case WORKER_STATE_STARTED:
+                break;
+            case WORKER_STATE_SHUTDOWN:
+                throw new IllegalStateException("cannot be started once stopped");
+            default:
+                throw new Error("Invalid WorkerState");
+        }
+
+        while (startTime == 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException ignore) {
+                // 等待时间轮线程初始化完成
+            }
+        }
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        long pending = pendingTimeouts.incrementAndGet();
+        if (maxPendingTimeouts > 0 && pending > maxPendingTimeouts) {
+            pendingTimeouts.decrementAndGet();
+            throw new RejectedExecutionException("Number of pending timeouts ("
+                    + pending + ") is greater than or equal to maximum allowed pending "
+                    + "timeouts (" + maxPendingTimeouts + ")");
+        }
+
+        start();
+
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+        // 防止溢出
+        if (delay > 0 && deadline < 0) {
+            deadline = Long.MAX_VALUE;
+        }
+        HierarchicalTimeout timeout = new HierarchicalTimeout(this, task, deadline);
+        timeouts.add(timeout);
+        return timeout;
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        if (Thread.currentThread() == workerThread) {
+            throw new IllegalStateException(HierarchicalWheelTimer.class.getSimpleName()
+                    + ".stop() cannot be called from " + TimerTask.class.getSimpleName());
+        }
+
+        if (!workerState.compareAndSet(WORKER_STATE_STARTED, WORKER_STATE_SHUTDOWN)) {
+            workerState.set(WORKER_STATE_SHUTDOWN);
+            return Collections.emptySet();
+        }
+
+        boolean interrupted = false;
+        while (workerThread.isAlive()) {
+            workerThread.interrupt();
+            try {
+                workerThread.join(100);
+            } catch (InterruptedException ignored) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        return Collections.unmodifiableSet(unprocessedTimeouts);
+    }
+
+    /**
+     * 未到期且未取消的任务数
+     */
+    public long getPendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * 最近一次执行的任务实际执行时间与到期时间的差(毫秒), 包含在线程池中排队的时间
+     */
+    public long getFireLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(fireLag);
+    }
+
+    /**
+     * 启动以来最大的触发延迟(毫秒)
+     */
+    public long getMaxFireLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxFireLag.get());
+    }
+
+    private void work() {
+        startTime = System.nanoTime();
+        if (startTime == 0) {
+            // 0表示未初始化
+            startTime = 1;
+        }
+        startTimeInitialized.countDown();
+
+        batch = new ArrayList<>(batchSize);
+        while (workerState.get() == WORKER_STATE_STARTED) {
+            long currentTick = waitForNextTick();
+            if (currentTick < 0) {
+                continue;
+            }
+
+            processCancelledTimeouts();
+            transferTimeouts();
+            while (tick < currentTick) {
+                advance(++tick);
+            }
+            flush();
+        }
+
+        // 收集未处理的任务
+        for (Bucket[] wheel : wheels) {
+            for (Bucket bucket : wheel) {
+                for (HierarchicalTimeout timeout = bucket.clear(); timeout != null; timeout = timeout.next) {
+                    if (!timeout.isCancelled() && !timeout.isExpired()) {
+                        unprocessedTimeouts.add(timeout);
+                    }
+                }
+            }
+        }
+        for (HierarchicalTimeout timeout; (timeout = timeouts.poll()) != null; ) {
+            if (!timeout.isCancelled()) {
+                unprocessedTimeouts.add(timeout);
+            }
+        }
+        processCancelledTimeouts();
+    }
+
+    /**
+     * 等待下一个tick
+     *
+     * @return 当前时间对应的tick, 时间轮停止时返回-1
+     */
+    private long waitForNextTick() {
+        long deadline = tickDuration * (tick + 1);
+        for (; ; ) {
+            long currentTime = System.nanoTime() - startTime;
+            long sleepTimeMs = (deadline - currentTime + 999999) / 1000000;
+            if (sleepTimeMs <= 0) {
+                return currentTime / tickDuration;
+            }
+
+            try {
+                Thread.sleep(sleepTimeMs);
+            } catch (InterruptedException ignored) {
+                if (workerState.get() == WORKER_STATE_SHUTDOWN) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void processCancelledTimeouts() {
+        for (HierarchicalTimeout timeout; (timeout = cancelledTimeouts.poll()) != null; ) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferTimeouts() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            HierarchicalTimeout timeout = timeouts.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (!timeout.isCancelled()) {
+                place(timeout);
+            }
+        }
+    }
+
+    /**
+     * 推进到指定的tick: 从上到下把当前槽中的任务降层, 然后执行tick层当前槽中的任务
+     */
+    private void advance(long currentTick) {
+        for (int level = wheels.length - 1; level > 0; level--) {
+            if (currentTick % spans[level] == 0) {
+                Bucket bucket = wheels[level][(int) ((currentTick / spans[level]) % wheels[level].length)];
+                HierarchicalTimeout timeout = bucket.clear();
+                while (timeout != null) {
+                    HierarchicalTimeout next = timeout.next;
+                    timeout.next = null;
+                    if (!timeout.isCancelled()) {
+                        place(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+        }
+
+        Bucket bucket = wheels[0][(int) (currentTick % wheels[0].length)];
+        for (HierarchicalTimeout timeout = bucket.clear(); timeout != null; timeout = timeout.next) {
+            expire(timeout);
+        }
+    }
+
+    /**
+     * 放入能容纳到期时间的最低一层, 已到期的直接执行
+     */
+    private void place(HierarchicalTimeout timeout) {
+        long deadlineTick = timeout.deadlineTick;
+        if (deadlineTick <= tick) {
+            expire(timeout);
+            return;
+        }
+
+        for (int level = 0; level < wheels.length; level++) {
+            long span = spans[level];
+            int size = wheels[level].length;
+            if (deadlineTick / span - tick / span < size) {
+                wheels[level][(int) ((deadlineTick / span) % size)].add(timeout);
+                return;
+            }
+        }
+
+        // 超出最上层的范围, 放在最后一个槽, 到期后重新放入
+        int top = wheels.length - 1;
+        int size = wheels[top].length;
+        wheels[top][(int) ((tick / spans[top] + size - 1) % size)].add(timeout);
+    }
+
+    private void expire(HierarchicalTimeout timeout) {
+        if (!timeout.markExpired()) {
+            return;
+        }
+
+        batch.add(timeout);
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 提交到期的任务
+     */
+    private void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<HierarchicalTimeout> expired = batch;
+        batch = new ArrayList<>(batchSize);
+        try {
+            taskExecutor.execute(() -> {
+                for (HierarchicalTimeout timeout : expired) {
+                    timeout.run();
+                }
+            });
+        } catch (Throwable t) {
+            SnailJobLog.LOCAL.warn("An exception was thrown while submit {} for execution.",
+                    TimerTask.class.getSimpleName(), t);
+        }
+    }
+
+    private static final class HierarchicalTimeout implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<HierarchicalTimeout> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(HierarchicalTimeout.class, "state");
+
+        private final HierarchicalWheelTimer timer;
+        private final TimerTask task;
+        private final long deadline;
+        private final long deadlineTick;
+
+        @SuppressWarnings({"unused", "FieldMayBeFinal"})
+        private volatile int state = ST_INIT;
+
+        // 以下字段只在时间轮线程中访问
+        private HierarchicalTimeout next;
+        private HierarchicalTimeout prev;
+        private Bucket bucket;
+
+        private HierarchicalTimeout(HierarchicalWheelTimer timer, TimerTask task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+            // 向上取整, 不会提前执行
+            this.deadlineTick = deadline <= 0 ? 0 :
+                    deadline / timer.tickDuration + (deadline % timer.tickDuration == 0 ? 0 : 1);
+        }
+
+        @Override
+        public Timer timer() {
+            return timer;
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+
+            timer.pendingTimeouts.decrementAndGet();
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        private boolean markExpired() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return false;
+            }
+
+            timer.pendingTimeouts.decrementAndGet();
+            return true;
+        }
+
+        private void run() {
+            long lag = System.nanoTime() - timer.startTime - deadline;
+            timer.fireLag = lag;
+            timer.maxFireLag.accumulate(lag);
+            try {
+                task.run(this);
+            } catch (Throwable t) {
+                SnailJobLog.LOCAL.warn("An exception was thrown by {}.", TimerTask.class.getSimpleName(), t);
+            }
+        }
+    }
+
+    /**
+     * 时间轮中的一个槽, 双向链表, 只在时间轮线程中访问
+     */
+    private static final class Bucket {
+
+        private HierarchicalTimeout head;
+        private HierarchicalTimeout tail;
+
+        private void add(HierarchicalTimeout timeout) {
+            timeout.bucket = this;
+            timeout.next = null;
+            timeout.prev = tail;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                tail = timeout;
+            }
+        }
+
+        private void remove(HierarchicalTimeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * 清空槽, 返回原来的链表头, 通过next遍历
+         */
+        private HierarchicalTimeout clear() {
+            HierarchicalTimeout timeout = head;
+            for (HierarchicalTimeout t = head; t != null; t = t.next) {
+                t.bucket = null;
+                t.prev = null;
+            }
+            head = tail = null;
+            return timeout;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.aizuda.snailjob.server.common.util;
 
 import com.aizuda.snailjob.common.core.util.CronExpression;
+import com.aizuda.snailjob.server.common.cache.CacheCronExpression;
 
 import java.text.ParseException;
 import java.time.Duration;
@@ -21,16 +22,19 @@ public class CronUtils {
     public static List<String> getExecuteTimeByCron(String cron, int nums) {
 
         List<String> list = new ArrayList<>();
+        CronExpression cronExpression;
+        try {
+            cronExpression = CacheCronExpression.get(cron);
+        } catch (ParseException ignored) {
+            return list;
+        }
+
         LocalDateTime now = LocalDateTime.now();
         for (int i = 0; i < nums; i++) {
-            Date nextValidTime;
-            try {
-                ZonedDateTime zdt = now.atZone(ZoneOffset.ofHours(8));
-                nextValidTime = new CronExpression(cron).getNextValidTimeAfter(Date.from(zdt.toInstant()));
-                now = LocalDateTime.ofEpochSecond(nextValidTime.getTime() / 1000, 0, ZoneOffset.ofHours(8));
-                list.add(DateUtils.format(now, DateUtils.NORM_DATETIME_PATTERN));
-            } catch (ParseException ignored) {
-            }
+            ZonedDateTime zdt = now.atZone(ZoneOffset.ofHours(8));
+            Date nextValidTime = cronExpression.getNextValidTimeAfter(Date.from(zdt.toInstant()));
+            now = LocalDateTime.ofEpochSecond(nextValidTime.getTime() / 1000, 0, ZoneOffset.ofHours(8));
+            list.add(DateUtils.format(now, DateUtils.NORM_DATETIME_PATTERN));
         }
 
         return list;
@@ -0,0 +1,248 @@
+package com.aizuda.snailjob.server.common.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 带过期时间的long集合
+ * 按key分段加锁, 每段由两代开放寻址的long哈希表组成, 新增写入当前代, 查询和删除同时检查两代;
+ * 每经过一个过期时间当前代变为上一代, 原来的上一代被清空, 因此未删除的key会在写入后的[expire, 2 * expire)内过期
+ * 相比以字符串为key的缓存, 新增和查询不需要创建对象, 每个key只占用一个long
+ *
+ * @since sj_1.0.0
+ */
+public class ExpiringLongSet {
+
+    private static final int SEGMENT_COUNT = 16;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final long expireMillis;
+    private final LongSupplier clock;
+
+    public ExpiringLongSet(long expire, TimeUnit unit) {
+        this(unit.toMillis(expire), System::currentTimeMillis);
+    }
+
+    /**
+     * @param expireMillis 过期时间(毫秒)
+     * @param clock        当前时间(毫秒)
+     */
+    public ExpiringLongSet(long expireMillis, LongSupplier clock) {
+        this.expireMillis = expireMillis;
+        this.clock = clock;
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    public void add(long key) {
+        long hash = mix(key);
+        segment(hash).add(key, hash, clock.getAsLong());
+    }
+
+    public boolean contains(long key) {
+        long hash = mix(key);
+        return segment(hash).contains(key, hash, clock.getAsLong());
+    }
+
+    public void remove(long key) {
+        long hash = mix(key);
+        segment(hash).remove(key, hash, clock.getAsLong());
+    }
+
+    /**
+     * 未过期的key数量, 包含上一代中的key
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size(clock.getAsLong());
+        }
+        return size;
+    }
+
+    /**
+     * 哈希表占用的槽位数, 每个槽位8个字节
+     */
+    public long capacity() {
+        long capacity = 0;
+        for (Segment segment : segments) {
+            capacity += segment.capacity();
+        }
+        return capacity;
+    }
+
+    private Segment segment(long hash) {
+        // 高位选择分段, 低位用于哈希表内寻址
+        return segments[(int) (hash >>> 60) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static long mix(long key) {
+        key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+        key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+        return key ^ (key >>> 31);
+    }
+
+    private final class Segment {
+
+        private LongHashSet current = new LongHashSet(INITIAL_CAPACITY);
+        private LongHashSet previous = new LongHashSet(INITIAL_CAPACITY);
+        private long rotateAt = clock.getAsLong() + expireMillis;
+
+        private synchronized void add(long key, long hash, long now) {
+            rotate(now);
+            // 重复写入时重新计算过期时间
+            previous.remove(key, hash);
+            current.add(key, hash);
+        }
+
+        private synchronized boolean contains(long key, long hash, long now) {
+            rotate(now);
+            return current.contains(key, hash) || previous.contains(key, hash);
+        }
+
+        private synchronized void remove(long key, long hash, long now) {
+            rotate(now);
+            current.remove(key, hash);
+            previous.remove(key, hash);
+        }
+
+        private synchronized int size(long now) {
+            rotate(now);
+            return current.size + previous.size;
+        }
+
+        private synchronized long capacity() {
+            return current.table.length + previous.table.length;
+        }
+
+        private void rotate(long now) {
+            if (now < rotateAt) {
+                return;
+            }
+
+            if (now >= rotateAt + expireMillis) {
+                // 超过两个周期没有访问, 两代都已过期
+                current = new LongHashSet(INITIAL_CAPACITY);
+            }
+            LongHashSet expired = previous;
+            previous = current;
+            current = expired.emptyCopy();
+            rotateAt = now + expireMillis;
+        }
+    }
+
+    /**
+     * 线性探测的long哈希表, 0作为空槽位, key为0时单独记录; 删除时向前移动后续的key, 不使用墓碑
+     */
+    private static final class LongHashSet {
+
+        private long[] table;
+        private int mask;
+        private int size;
+        private boolean containsZero;
+
+        private LongHashSet(int capacity) {
+            table = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        /**
+         * 与当前数据量匹配的空表, 突发写入后释放多余的内存
+         */
+        private LongHashSet emptyCopy() {
+            int capacity = INITIAL_CAPACITY;
+            while (capacity < size * 2) {
+                capacity <<= 1;
+            }
+            return new LongHashSet(capacity);
+        }
+
+        private boolean contains(long key, long hash) {
+            if (key == 0) {
+                return containsZero;
+            }
+
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                long k = table[i];
+                if (k == key) {
+                    return true;
+                }
+                if (k == 0) {
+                    return false;
+                }
+            }
+        }
+
+        private void add(long key, long hash) {
+            if (key == 0) {
+                if (!containsZero) {
+                    containsZero = true;
+                    size++;
+                }
+                return;
+            }
+
+            int i = (int) hash & mask;
+            for (long k = table[i]; k != 0; k = table[i]) {
+                if (k == key) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+
+            table[i] = key;
+            // 负载因子0.5
+            if (++size * 2 > table.length) {
+                resize(table.length << 1);
+            }
+        }
+
+        private void remove(long key, long hash) {
+            if (key == 0) {
+                if (containsZero) {
+                    containsZero = false;
+                    size--;
+                }
+                return;
+            }
+
+            int i = (int) hash & mask;
+            for (long k = table[i]; k != key; k = table[i]) {
+                if (k == 0) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+
+            table[i] = 0;
+            size--;
+
+            // 后续的key如果不能通过空出的槽位之后的位置找到, 则移动到空出的槽位
+            for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+                int ideal = (int) mix(table[j]) & mask;
+                if (((j - ideal) & mask) >= ((j - i) & mask)) {
+                    table[i] = table[j];
+                    table[j] = 0;
+                    i = j;
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldTable = table;
+            table = new long[capacity];
+            mask = capacity - 1;
+            for (long k : oldTable) {
+                if (k != 0) {
+                    int i = (int) mix(k) & mask;
+                    while (table[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = k;
+                }
+            }
+        }
+    }
+}
@@ -4,6 +4,9 @@ import com.aizuda.snailjob.server.common.dto.PartitionTask;
 import org.springframework.util.CollectionUtils;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.LongConsumer;
 import java.util.function.LongFunction;
@@ -47,7 +50,7 @@ public class PartitionTaskUtils {
             LongConsumer stopAfterProcessor,
             Predicate<List<? extends PartitionTask>> stopCondition,
             long startId) {
-        int total = 0;
+        long total = 0;
         do {
             List<? extends PartitionTask> products = dataSource.apply(startId);
             if (stopCondition.test(products)) {
@@ -65,6 +68,46 @@ public class PartitionTaskUtils {
         return total;
     }
 
+    /**
+     * 流水线方式分页处理数据, 处理当前页的同时预取下一页
+     * 注意: 数据源会在executor中执行, 必须是线程安全的
+     *
+     * @param dataSource 数据源, 需按照id正序返回
+     * @param task       数据处理
+     * @param executor   预取下一页的线程池
+     * @param startId    起始id
+     * @return 处理的数据总量
+     */
+    public static long pipelineProcess(LongFunction<List<? extends PartitionTask>> dataSource,
+                                       Consumer<List<? extends PartitionTask>> task,
+                                       Executor executor,
+                                       long startId) {
+        long total = 0;
+        List<? extends PartitionTask> products = dataSource.apply(startId);
+        while (!CollectionUtils.isEmpty(products)) {
+            total += products.size();
+
+            // 下一页的起始id在当前页查询完成后即可确定, 无需等待当前页处理完成
+            long nextStartId = maxId(products);
+            CompletableFuture<List<? extends PartitionTask>> nextProducts =
+                    CompletableFuture.supplyAsync(() -> dataSource.apply(nextStartId), executor);
+
+            task.accept(products);
+
+            try {
+                products = nextProducts.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+
+                throw e;
+            }
+        }
+
+        return total;
+    }
+
     private static long maxId(List<? extends PartitionTask> products) {
         // 使用的地方必须按照id正序排序
         return products.get(products.size() - 1).getId() + 1;
@@ -7,6 +7,8 @@ import com.aizuda.snailjob.server.common.rpc.client.RequestMethod;
 import com.aizuda.snailjob.server.common.rpc.client.annotation.Body;
 import com.aizuda.snailjob.server.common.rpc.client.annotation.Mapping;
 
+import java.util.concurrent.CompletableFuture;
+
 import static com.aizuda.snailjob.common.core.constant.SystemConstants.HTTP_PATH.JOB_DISPATCH;
 import static com.aizuda.snailjob.common.core.constant.SystemConstants.HTTP_PATH.JOB_STOP;
 
@@ -25,4 +27,7 @@ public interface JobRpcClient {
     @Mapping(path = JOB_DISPATCH, method = RequestMethod.POST)
     Result<Boolean> dispatch(@Body DispatchJobRequest dispatchJobRequest);
 
+    @Mapping(path = JOB_DISPATCH, method = RequestMethod.POST)
+    CompletableFuture<Result<Boolean>> dispatchAsync(@Body DispatchJobRequest dispatchJobRequest);
+
 }
@@ -0,0 +1,17 @@
+package com.aizuda.snailjob.server.job.task.dto;
+
+import lombok.Data;
+
+/**
+ * 工作流批次扩展参数
+ *
+ * @since sj_1.0.0
+ */
+@Data
+public class WorkflowTaskBatchExtAttrs {
+
+    /**
+     * 生成批次时的工作流版本号
+     */
+    private Integer version;
+}
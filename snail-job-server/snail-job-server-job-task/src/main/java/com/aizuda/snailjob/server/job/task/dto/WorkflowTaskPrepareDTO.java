@@ -59,6 +59,11 @@ public class WorkflowTaskPrepareDTO {
      */
     private String flowInfo;
 
+    /**
+     * 工作流版本号
+     */
+    private Integer version;
+
     /**
      * 下次触发时间
      */
@@ -28,4 +28,9 @@ public class WorkflowBlockStrategyContext extends BlockStrategyContext {
      */
     private String flowInfo;
 
+    /**
+     * 工作流版本号
+     */
+    private Integer version;
+
 }
@@ -0,0 +1,119 @@
+package com.aizuda.snailjob.server.job.task.support.cache;
+
+import com.aizuda.snailjob.common.core.enums.JobTaskStatusEnum;
+import com.aizuda.snailjob.template.datasource.persistence.po.JobTask;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 任务批次完成情况缓存
+ * 生成任务的节点记录批次下的任务数量, 每收到一个任务的执行结果只需要更新计数即可判断批次是否完成, 无需回表查询批次下的所有任务
+ * 缓存不存在(节点重启、缓存过期、批次由其他节点生成)时由调用方回退到数据库查询;
+ * 结果上报到其他节点时由该节点查询数据库完成批次, 仍未完成的批次由下次调度时的运行中批次检查兜底
+ *
+ * @since sj_1.0.0
+ */
+public class JobTaskBatchCompletionCache {
+
+    private static final Cache<Long/*任务批次ID*/, BatchCompletion> cache;
+
+    static {
+        cache = CacheBuilder.newBuilder()
+                .concurrencyLevel(8) // 并发级别
+                .maximumSize(100000) // 最多跟踪的批次数量
+                .expireAfterAccess(1, TimeUnit.HOURS) // 访问后的过期时间
+                .build();
+    }
+
+    private JobTaskBatchCompletionCache() {
+    }
+
+    /**
+     * 登记批次下生成的任务
+     *
+     * @param taskBatchId 任务批次ID
+     * @param jobTasks    任务实例
+     */
+    public static void register(Long taskBatchId, List<JobTask> jobTasks) {
+        cache.put(taskBatchId, new BatchCompletion(jobTasks.size()));
+    }
+
+    public static BatchCompletion get(Long taskBatchId) {
+        return cache.getIfPresent(taskBatchId);
+    }
+
+    public static void invalidate(Long taskBatchId) {
+        cache.invalidate(taskBatchId);
+    }
+
+    public static long size() {
+        return cache.size();
+    }
+
+    /**
+     * 批次完成计数
+     */
+    public static class BatchCompletion {
+
+        private final int total;
+        private final Map<Long/*任务ID*/, Integer/*任务状态*/> taskStatusMap;
+        private final AtomicInteger completedCount = new AtomicInteger();
+        private final AtomicInteger failCount = new AtomicInteger();
+        private final AtomicInteger stopCount = new AtomicInteger();
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        private BatchCompletion(int total) {
+            this.total = total;
+            this.taskStatusMap = new ConcurrentHashMap<>(total);
+        }
+
+        /**
+         * 记录任务的执行结果
+         *
+         * @param taskId     任务ID
+         * @param taskStatus 任务状态
+         * @return true-批次下所有任务均已完成, 且只会返回一次
+         */
+        public boolean finish(Long taskId, Integer taskStatus) {
+            if (Objects.isNull(taskId) || Objects.isNull(taskStatus)
+                    || JobTaskStatusEnum.NOT_COMPLETE.contains(taskStatus)) {
+                return false;
+            }
+
+            Integer oldStatus = taskStatusMap.put(taskId, taskStatus);
+            if (Objects.isNull(oldStatus)) {
+                completedCount.incrementAndGet();
+            } else {
+                // 同一个任务重复上报, 以最新的状态为准
+                count(oldStatus, -1);
+            }
+            count(taskStatus, 1);
+
+            return completedCount.get() >= total && completed.compareAndSet(false, true);
+        }
+
+        private void count(Integer taskStatus, int delta) {
+            if (JobTaskStatusEnum.FAIL.getStatus() == taskStatus) {
+                failCount.addAndGet(delta);
+            } else if (JobTaskStatusEnum.STOP.getStatus() == taskStatus) {
+                stopCount.addAndGet(delta);
+            }
+        }
+
+        public long getFailCount() {
+            return failCount.get();
+        }
+
+        public long getStopCount() {
+            return stopCount.get();
+        }
+    }
+}
@@ -1,69 +1,100 @@
 package com.aizuda.snailjob.server.job.task.support.cache;
 
+import cn.hutool.core.util.StrUtil;
+import com.aizuda.snailjob.common.core.util.JsonUtil;
+import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
+import com.aizuda.snailjob.server.common.triple.Pair;
 import com.aizuda.snailjob.server.common.util.GraphUtils;
+import com.aizuda.snailjob.server.job.task.dto.WorkflowTaskBatchExtAttrs;
+import com.aizuda.snailjob.template.datasource.persistence.po.WorkflowTaskBatch;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import com.google.common.graph.MutableGraph;
+import com.google.common.graph.Graph;
+import com.google.common.graph.ImmutableGraph;
 import org.springframework.util.CollectionUtils;
 
 import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * 工作流DAG图缓存
+ * 同一个工作流版本的flowInfo是不变的, 因此以工作流ID + 版本号作为缓存key, 同一版本的多个批次共享同一个不可变图对象,
+ * 工作流更新后版本号递增对应新的缓存项, 旧版本的批次执行完成后不再访问, 由过期策略淘汰;
+ * 版本号记录在批次的扩展参数中, 没有版本号的批次(升级前生成)不使用缓存
+ *
  * @author xiaowoniu
  * @date 2023-12-30 13:18:07
  * @since 2.6.0
  */
 public class MutableGraphCache {
 
-    private static final Cache<Long/*工作流批次*/, MutableGraph<Long>> cache;
+    private static final Cache<Pair<Long/*工作流ID*/, Integer/*版本号*/>, ImmutableGraph<Long>> cache;
+
+    private static final LongAdder HIT_COUNT = new LongAdder();
+    private static final LongAdder MISS_COUNT = new LongAdder();
 
     static {
         cache = CacheBuilder.newBuilder()
                 .concurrencyLevel(8) // 并发级别
-                .expireAfterWrite(5, TimeUnit.MINUTES) // 写入后的过期时间
+                .maximumSize(1000) // 最多缓存的工作流版本数
+                .expireAfterAccess(30, TimeUnit.MINUTES) // 访问后的过期时间
                 .build();
     }
 
     /**
-     * 获取指定workflowBatchId的可变图对象，若图对象不存在则使用给定的jsonGraph反序列化生成新的图对象并返回
+     * 获取批次对应工作流版本的图对象，若缓存中不存在则使用批次的flowInfo反序列化生成新的图对象并放入缓存
+     * 注意: 返回的图对象为多个批次共享的不可变对象, 使用方不能修改
      *
-     * @param workflowBatchId 工作流批次ID
-     * @param jsonGraph       JSON格式的图对象字符串
-     * @return {@link MutableGraph} 图对象
+     * @param workflowTaskBatch 工作流批次
+     * @return {@link Graph} 图对象, flowInfo为空时返回null
      */
-    public static MutableGraph<Long> getOrDefault(Long workflowBatchId, String jsonGraph) {
-        return Optional.ofNullable(cache.getIfPresent(workflowBatchId)).orElse(GraphUtils.deserializeJsonToGraph(jsonGraph));
-    }
+    public static Graph<Long> getOrDefault(WorkflowTaskBatch workflowTaskBatch) {
+        String jsonGraph = workflowTaskBatch.getFlowInfo();
+        if (StrUtil.isBlank(jsonGraph)) {
+            return null;
+        }
 
-    /**
-     * 根据给定的workflowBatchId获取图对象。
-     *
-     * @param workflowBatchId 工作流批次ID
-     * @return {@link MutableGraph} 返回对应的图对象，如果不存在则返回空图
-     */
-    public static MutableGraph<Long> get(Long workflowBatchId) {
-        return getOrDefault(workflowBatchId, "");
+        Integer version = getVersion(workflowTaskBatch);
+        if (Objects.isNull(version)) {
+            MISS_COUNT.increment();
+            return ImmutableGraph.copyOf(GraphUtils.deserializeJsonToGraph(jsonGraph));
+        }
+
+        Pair<Long, Integer> key = Pair.of(workflowTaskBatch.getWorkflowId(), version);
+        ImmutableGraph<Long> graph = cache.getIfPresent(key);
+        if (Objects.nonNull(graph)) {
+            HIT_COUNT.increment();
+            return graph;
+        }
+
+        MISS_COUNT.increment();
+        try {
+            return cache.get(key, () -> ImmutableGraph.copyOf(GraphUtils.deserializeJsonToGraph(jsonGraph)));
+        } catch (ExecutionException e) {
+            throw new SnailJobServerException("解析工作流图异常. workflowId:[{}] version:[{}]",
+                    workflowTaskBatch.getWorkflowId(), version, e.getCause());
+        }
     }
 
     /**
      * 获取所有的叶子节点
      *
-     * @param workflowBatchId 工作流批次ID
-     * @param jsonGraph       JSON格式的图对象字符串
+     * @param workflowTaskBatch 工作流批次
      * @return 叶子节点
      */
-    public static List<Long> getLeaves(Long workflowBatchId, String jsonGraph) {
+    public static List<Long> getLeaves(WorkflowTaskBatch workflowTaskBatch) {
 
-        MutableGraph<Long> graph = getOrDefault(workflowBatchId, jsonGraph);
+        Graph<Long> graph = getOrDefault(workflowTaskBatch);
         List<Long> leaves = Lists.newArrayList();
         for (Long node : graph.nodes()) {
-            if (CollectionUtils.isEmpty(graph.successors(node))) {
+            if (graph.outDegree(node) == 0) {
                 leaves.add(node);
             }
         }
@@ -71,13 +102,13 @@ public class MutableGraphCache {
         return leaves;
     }
 
-    public static Set<Long> getAllDescendants(MutableGraph<Long> graph, Long parentId) {
+    public static Set<Long> getAllDescendants(Graph<Long> graph, Long parentId) {
         Set<Long> descendants = new HashSet<>();
         getAllDescendantsHelper(graph, parentId, descendants);
         return descendants;
     }
 
-    public static Set<Long> getBrotherNode(MutableGraph<Long> graph, Long nodeId) {
+    public static Set<Long> getBrotherNode(Graph<Long> graph, Long nodeId) {
         Set<Long> predecessors = graph.predecessors(nodeId);
         if (CollectionUtils.isEmpty(predecessors)) {
             return Sets.newHashSet();
@@ -85,7 +116,24 @@ public class MutableGraphCache {
         return graph.successors(predecessors.stream().findFirst().get());
     }
 
-    private static void getAllDescendantsHelper(MutableGraph<Long> graph, Long parentId, Set<Long> descendants) {
+    public static long getHitCount() {
+        return HIT_COUNT.sum();
+    }
+
+    public static long getMissCount() {
+        return MISS_COUNT.sum();
+    }
+
+    private static Integer getVersion(WorkflowTaskBatch workflowTaskBatch) {
+        String extAttrs = workflowTaskBatch.getExtAttrs();
+        if (StrUtil.isBlank(extAttrs)) {
+            return null;
+        }
+
+        return JsonUtil.parseObject(extAttrs, WorkflowTaskBatchExtAttrs.class).getVersion();
+    }
+
+    private static void getAllDescendantsHelper(Graph<Long> graph, Long parentId, Set<Long> descendants) {
         Set<Long> successors = graph.successors(parentId);
         descendants.addAll(successors);
 
@@ -22,6 +22,7 @@ import com.aizuda.snailjob.server.job.task.dto.TaskExecuteDTO;
 import com.aizuda.snailjob.server.job.task.dto.WorkflowNodeTaskExecuteDTO;
 import com.aizuda.snailjob.server.job.task.support.JobExecutor;
 import com.aizuda.snailjob.server.job.task.support.JobTaskConverter;
+import com.aizuda.snailjob.server.job.task.support.cache.JobTaskBatchCompletionCache;
 import com.aizuda.snailjob.server.job.task.support.cache.ResidentTaskCache;
 import com.aizuda.snailjob.server.job.task.support.alarm.event.JobTaskFailAlarmEvent;
 import com.aizuda.snailjob.server.job.task.support.executor.job.JobExecutorContext;
@@ -91,7 +92,7 @@ public class JobExecutorActor extends AbstractActor {
                 handlerTaskBatch(taskExecute, JobTaskBatchStatusEnum.FAIL.getStatus(), JobOperationReasonEnum.TASK_EXECUTION_ERROR.getReason());
                 SpringContext.getContext().publishEvent(new JobTaskFailAlarmEvent(taskExecute.getTaskBatchId()));
             } finally {
-                getContext().stop(getSelf());
+                ActorGenerator.stop(getContext(), ActorGenerator.JOB_EXECUTOR_ACTOR);
             }
         }).build();
     }
@@ -143,6 +144,9 @@ public class JobExecutorActor extends AbstractActor {
                 return;
             }
 
+            // 登记批次下的任务, 执行结果上报时通过计数判断批次是否完成
+            JobTaskBatchCompletionCache.register(taskExecute.getTaskBatchId(), taskList);
+
             // 执行任务
             JobExecutor jobExecutor = JobExecutorFactory.getJobExecutor(job.getTaskType());
             jobExecutor.execute(buildJobExecutorContext(taskExecute, job, taskList));
@@ -11,6 +11,8 @@ import com.aizuda.snailjob.server.job.task.dto.CompleteJobBatchDTO;
 import com.aizuda.snailjob.server.job.task.support.JobTaskConverter;
 import com.aizuda.snailjob.server.job.task.dto.JobExecutorResultDTO;
 import com.aizuda.snailjob.server.job.task.support.JobTaskStopHandler;
+import com.aizuda.snailjob.server.job.task.support.cache.JobTaskBatchCompletionCache;
+import com.aizuda.snailjob.server.job.task.support.cache.JobTaskBatchCompletionCache.BatchCompletion;
 import com.aizuda.snailjob.server.job.task.support.handler.DistributedLockHandler;
 import com.aizuda.snailjob.server.job.task.support.handler.JobTaskBatchHandler;
 import com.aizuda.snailjob.server.job.task.support.stop.JobTaskStopFactory;
@@ -59,6 +61,17 @@ public class JobExecutorResultActor extends AbstractActor {
                 Assert.isTrue(1 == jobTaskMapper.update(jobTask,
                                 new LambdaUpdateWrapper<JobTask>().eq(JobTask::getId, result.getTaskId())),
                         () -> new SnailJobServerException("更新任务实例失败"));
+                // 本节点生成的批次通过完成计数判断, 无需回表查询批次下的所有任务
+                BatchCompletion batchCompletion = JobTaskBatchCompletionCache.get(result.getTaskBatchId());
+                if (Objects.nonNull(batchCompletion)) {
+                    if (batchCompletion.finish(result.getTaskId(), result.getTaskStatus())) {
+                        JobTaskBatchCompletionCache.invalidate(result.getTaskBatchId());
+                        completeAndStop(result, batchCompletion);
+                    }
+                    return;
+                }
+
+                // 本节点没有计数(节点重启、批次由其他节点生成)时查询数据库
                 // 先尝试完成，若已完成则不需要通过获取分布式锁来完成
                 boolean tryCompleteAndStop = tryCompleteAndStop(result);
                 if (!tryCompleteAndStop) {
@@ -71,28 +84,40 @@ public class JobExecutorResultActor extends AbstractActor {
             } catch (Exception e) {
                 SnailJobLog.LOCAL.error(" job executor result exception. [{}]", result, e);
             } finally {
-                getContext().stop(getSelf());
+                ActorGenerator.stop(getContext(), ActorGenerator.JOB_EXECUTOR_RESULT_ACTOR);
             }
 
         }).build();
 
     }
 
+    private void completeAndStop(JobExecutorResultDTO result, BatchCompletion batchCompletion) {
+        CompleteJobBatchDTO completeJobBatchDTO = JobTaskConverter.INSTANCE.toCompleteJobBatchDTO(result);
+        if (jobTaskBatchHandler.complete(completeJobBatchDTO, batchCompletion.getFailCount(),
+                batchCompletion.getStopCount())) {
+            stop(result);
+        }
+    }
+
     private boolean tryCompleteAndStop(JobExecutorResultDTO result) {
         CompleteJobBatchDTO completeJobBatchDTO = JobTaskConverter.INSTANCE.toCompleteJobBatchDTO(result);
         boolean complete = jobTaskBatchHandler.complete(completeJobBatchDTO);
         if (complete) {
-            // 尝试停止任务
-            // 若是集群任务则客户端会主动关闭
-            if (result.getTaskType() != JobTaskTypeEnum.CLUSTER.getType()) {
-                JobTaskStopHandler instanceInterrupt = JobTaskStopFactory.getJobTaskStop(result.getTaskType());
-                TaskStopJobContext stopJobContext = JobTaskConverter.INSTANCE.toStopJobContext(result);
-                stopJobContext.setNeedUpdateTaskStatus(Boolean.FALSE);
-                stopJobContext.setForceStop(Boolean.TRUE);
-                instanceInterrupt.stop(stopJobContext);
-            }
+            stop(result);
         }
 
         return complete;
     }
+
+    private void stop(JobExecutorResultDTO result) {
+        // 尝试停止任务
+        // 若是集群任务则客户端会主动关闭
+        if (result.getTaskType() != JobTaskTypeEnum.CLUSTER.getType()) {
+            JobTaskStopHandler instanceInterrupt = JobTaskStopFactory.getJobTaskStop(result.getTaskType());
+            TaskStopJobContext stopJobContext = JobTaskConverter.INSTANCE.toStopJobContext(result);
+            stopJobContext.setNeedUpdateTaskStatus(Boolean.FALSE);
+            stopJobContext.setForceStop(Boolean.TRUE);
+            instanceInterrupt.stop(stopJobContext);
+        }
+    }
 }
@@ -65,7 +65,7 @@ public class JobLogActor extends AbstractActor {
                     } catch (Exception e) {
                         log.error("保存客户端日志异常.", e);
                     } finally {
-                        getContext().stop(getSelf());
+                        ActorGenerator.stop(getContext(), ActorGenerator.JOB_LOG_ACTOR);
                     }
                 }))
                 .match(JobLogDTO.class, (jobLogDTO -> {
@@ -74,7 +74,7 @@ public class JobLogActor extends AbstractActor {
                     } catch (Exception e) {
                         log.error("保存日志异常.", e);
                     } finally {
-                        getContext().stop(getSelf());
+                        ActorGenerator.stop(getContext(), ActorGenerator.JOB_LOG_ACTOR);
                     }
                 })).build();
 
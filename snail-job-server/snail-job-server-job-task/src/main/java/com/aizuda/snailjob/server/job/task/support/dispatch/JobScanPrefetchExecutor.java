@@ -0,0 +1,53 @@
+package com.aizuda.snailjob.server.job.task.support.dispatch;
+
+import com.aizuda.snailjob.common.log.SnailJobLog;
+import com.aizuda.snailjob.server.common.Lifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JOB任务扫描时预取下一页任务的线程池
+ * 线程池满、未启动或者已关闭时由扫描线程自己查询
+ *
+ * @since sj_1.0.0
+ */
+@Component
+public class JobScanPrefetchExecutor implements Executor, Lifecycle {
+
+    private volatile ThreadPoolExecutor executor;
+
+    @Override
+    public void execute(Runnable command) {
+        ThreadPoolExecutor threadPoolExecutor = executor;
+        if (Objects.isNull(threadPoolExecutor) || threadPoolExecutor.isShutdown()) {
+            command.run();
+            return;
+        }
+
+        threadPoolExecutor.execute(command);
+    }
+
+    @Override
+    public void start() {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(64), new CustomizableThreadFactory("job-scan-prefetch-"),
+                (r, e) -> r.run());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        executor = threadPoolExecutor;
+    }
+
+    @Override
+    public void close() {
+        SnailJobLog.LOCAL.info("JobScanPrefetchExecutor close");
+        ThreadPoolExecutor threadPoolExecutor = executor;
+        if (Objects.nonNull(threadPoolExecutor)) {
+            threadPoolExecutor.shutdown();
+        }
+    }
+}
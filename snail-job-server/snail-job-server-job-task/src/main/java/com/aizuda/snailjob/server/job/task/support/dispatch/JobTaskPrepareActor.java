@@ -47,7 +47,7 @@ public class JobTaskPrepareActor extends AbstractActor {
             } catch (Exception e) {
                 log.error("预处理节点异常", e);
             } finally {
-                getContext().stop(getSelf());
+                ActorGenerator.stop(getContext(), ActorGenerator.JOB_TASK_PREPARE_ACTOR);
             }
         }).build();
     }
@@ -4,11 +4,11 @@ import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
 import com.aizuda.snailjob.common.core.constant.SystemConstants;
 import com.aizuda.snailjob.common.core.enums.StatusEnum;
-import com.aizuda.snailjob.common.core.util.StreamUtils;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.WaitStrategy;
 import com.aizuda.snailjob.server.common.akka.ActorGenerator;
 import com.aizuda.snailjob.server.common.cache.CacheConsumerGroup;
+import com.aizuda.snailjob.server.common.cache.CacheEnabledGroup;
 import com.aizuda.snailjob.server.common.config.SystemProperties;
 import com.aizuda.snailjob.server.common.dto.PartitionTask;
 import com.aizuda.snailjob.server.common.dto.ScanTask;
@@ -20,9 +20,7 @@ import com.aizuda.snailjob.server.job.task.dto.JobPartitionTaskDTO;
 import com.aizuda.snailjob.server.job.task.dto.JobTaskPrepareDTO;
 import com.aizuda.snailjob.server.job.task.support.JobTaskConverter;
 import com.aizuda.snailjob.server.job.task.support.cache.ResidentTaskCache;
-import com.aizuda.snailjob.template.datasource.persistence.mapper.GroupConfigMapper;
 import com.aizuda.snailjob.template.datasource.persistence.mapper.JobMapper;
-import com.aizuda.snailjob.template.datasource.persistence.po.GroupConfig;
 import com.aizuda.snailjob.template.datasource.persistence.po.Job;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.PageDTO;
@@ -37,7 +35,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 
 /**
@@ -55,7 +52,7 @@ public class ScanJobTaskActor extends AbstractActor {
 
     private final JobMapper jobMapper;
     private final SystemProperties systemProperties;
-    private final GroupConfigMapper groupConfigMapper;
+    private final JobScanPrefetchExecutor jobScanPrefetchExecutor;
 
     @Override
     public Receive createReceive() {
@@ -76,10 +73,17 @@ public class ScanJobTaskActor extends AbstractActor {
             return;
         }
 
-        long total = PartitionTaskUtils.process(startId -> listAvailableJobs(startId, scanTask),
-                this::processJobPartitionTasks, 0);
+        long startTime = System.currentTimeMillis();
+        long total = PartitionTaskUtils.pipelineProcess(startId -> listAvailableJobs(startId, scanTask),
+                this::processJobPartitionTasks, jobScanPrefetchExecutor, 0);
 
-        log.debug("job scan end. total:[{}]", total);
+        long cost = System.currentTimeMillis() - startTime;
+        if (cost > DateUtils.toEpochMilli(SystemConstants.SCHEDULE_PERIOD)) {
+            SnailJobLog.LOCAL.warn("job scan cost exceeds the schedule period. buckets:[{}] total:[{}] cost:[{}]ms",
+                    scanTask.getBuckets(), total, cost);
+        } else {
+            log.debug("job scan end. buckets:[{}] total:[{}] cost:[{}]ms", scanTask.getBuckets(), total, cost);
+        }
     }
 
     private void processJobPartitionTasks(List<? extends PartitionTask> partitionTasks) {
@@ -88,7 +92,17 @@ public class ScanJobTaskActor extends AbstractActor {
         List<JobTaskPrepareDTO> waitExecJobs = new ArrayList<>();
         long now = DateUtils.toNowMilli();
         for (PartitionTask partitionTask : partitionTasks) {
-            processJob((JobPartitionTaskDTO) partitionTask, waitUpdateJobs, waitExecJobs, now);
+            JobPartitionTaskDTO jobPartitionTask = (JobPartitionTaskDTO) partitionTask;
+            // 过滤已关闭的组, 分页查询仍返回这些任务以保证下一页的起始id正确
+            if (!CacheEnabledGroup.isEnabled(jobPartitionTask.getGroupName(), jobPartitionTask.getNamespaceId())) {
+                continue;
+            }
+
+            processJob(jobPartitionTask, waitUpdateJobs, waitExecJobs, now);
+        }
+
+        if (CollectionUtils.isEmpty(waitUpdateJobs)) {
+            return;
         }
 
         // 批量更新
@@ -178,16 +192,6 @@ public class ScanJobTaskActor extends AbstractActor {
                         .orderByAsc(Job::getId)
         ).getRecords();
 
-        // 过滤已关闭的组
-        if (!CollectionUtils.isEmpty(jobs)) {
-            List<String> groupConfigs = StreamUtils.toList(groupConfigMapper.selectList(new LambdaQueryWrapper<GroupConfig>()
-                            .select(GroupConfig::getGroupName)
-                            .eq(GroupConfig::getGroupStatus, StatusEnum.YES.getStatus())
-                            .in(GroupConfig::getGroupName, StreamUtils.toSet(jobs, Job::getGroupName))),
-                    GroupConfig::getGroupName);
-            jobs = jobs.stream().filter(job -> groupConfigs.contains(job.getGroupName())).collect(Collectors.toList());
-        }
-
         return JobTaskConverter.INSTANCE.toJobPartitionTasks(jobs);
     }
 }
@@ -31,7 +31,7 @@ import com.aizuda.snailjob.template.datasource.persistence.po.WorkflowNode;
 import com.aizuda.snailjob.template.datasource.persistence.po.WorkflowTaskBatch;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.google.common.collect.Sets;
-import com.google.common.graph.MutableGraph;
+import com.google.common.graph.Graph;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -77,7 +77,7 @@ public class WorkflowExecutorActor extends AbstractActor {
                         JobOperationReasonEnum.TASK_EXECUTION_ERROR.getReason());
                 SpringContext.getContext().publishEvent(new WorkflowTaskFailAlarmEvent(taskExecute.getWorkflowTaskBatchId()));
             } finally {
-                getContext().stop(getSelf());
+                ActorGenerator.stop(getContext(), ActorGenerator.WORKFLOW_EXECUTOR_ACTOR);
             }
         }).build();
     }
@@ -91,8 +91,7 @@ public class WorkflowExecutorActor extends AbstractActor {
         }
 
         // 获取DAG图
-        String flowInfo = workflowTaskBatch.getFlowInfo();
-        MutableGraph<Long> graph = MutableGraphCache.getOrDefault(workflowTaskBatch.getId(), flowInfo);
+        Graph<Long> graph = MutableGraphCache.getOrDefault(workflowTaskBatch);
 
         Set<Long> successors = graph.successors(taskExecute.getParentId());
         if (CollectionUtils.isEmpty(successors)) {
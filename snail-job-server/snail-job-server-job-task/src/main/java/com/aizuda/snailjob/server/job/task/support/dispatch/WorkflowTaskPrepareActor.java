@@ -39,7 +39,7 @@ public class WorkflowTaskPrepareActor extends AbstractActor {
             } catch (Exception e) {
                 log.error("预处理节点异常", e);
             } finally {
-                getContext().stop(getSelf());
+                ActorGenerator.stop(getContext(), ActorGenerator.WORKFLOW_TASK_PREPARE_ACTOR);
             }
         }).build();
     }
@@ -33,6 +33,7 @@ import org.springframework.stereotype.Component;
 
 import java.lang.reflect.UndeclaredThrowableException;
 import java.util.Objects;
+import java.util.concurrent.CompletionException;
 
 /**
  * @author opensnail
@@ -81,44 +82,61 @@ public class RequestClientActor extends AbstractActor {
         try {
             // 构建请求客户端对象
             JobRpcClient rpcClient = buildRpcClient(registerNodeInfo, realJobExecutorDTO);
-            Result<Boolean> dispatch = rpcClient.dispatch(dispatchJobRequest);
-            if (dispatch.getStatus() == StatusEnum.YES.getStatus() && Objects.equals(dispatch.getData(), Boolean.TRUE)) {
-                SnailJobLog.LOCAL.info("taskId:[{}] 任务调度成功.", realJobExecutorDTO.getTaskId());
-            } else {
-                // 客户端返回失败，则认为任务执行失败
-                ClientCallbackHandler clientCallback = ClientCallbackFactory.getClientCallback(realJobExecutorDTO.getTaskType());
-                ClientCallbackContext context = JobTaskConverter.INSTANCE.toClientCallbackContext(realJobExecutorDTO);
-                context.setTaskStatus(JobTaskStatusEnum.FAIL.getStatus());
-                context.setExecuteResult(ExecuteResult.failure(null, dispatch.getMessage()));
-                clientCallback.callback(context);
-            }
-
+            // 异步调用, 不阻塞actor线程等待客户端响应
+            rpcClient.dispatchAsync(dispatchJobRequest).whenComplete((dispatch, throwable) -> {
+                if (Objects.nonNull(throwable)) {
+                    dispatchFailure(realJobExecutorDTO, dispatchJobRequest, nowMilli, throwable);
+                    return;
+                }
+
+                dispatchComplete(realJobExecutorDTO, dispatch);
+            });
         } catch (Exception e) {
-            Throwable throwable;
-            if (e.getClass().isAssignableFrom(RetryException.class)) {
-                RetryException re = (RetryException) e;
-                throwable = re.getLastFailedAttempt().getExceptionCause();
-            } else if (e.getClass().isAssignableFrom(UndeclaredThrowableException.class)) {
-                UndeclaredThrowableException re = (UndeclaredThrowableException) e;
-                throwable = re.getUndeclaredThrowable();
-            } else {
-                throwable = e;
-            }
+            dispatchFailure(realJobExecutorDTO, dispatchJobRequest, nowMilli, e);
+        }
 
-            JobLogMetaDTO jobLogMetaDTO = JobTaskConverter.INSTANCE.toJobLogDTO(realJobExecutorDTO);
-            jobLogMetaDTO.setTimestamp(nowMilli);
-            if (realJobExecutorDTO.isRetry()) {
-                SnailJobLog.REMOTE.error("taskId:[{}] 任务调度失败执行重试 重试次数:[{}]. <|>{}<|>", jobLogMetaDTO.getTaskId(),
-                        realJobExecutorDTO.getRetryCount(), jobLogMetaDTO, throwable);
-            } else {
-                SnailJobLog.REMOTE.error("taskId:[{}] 任务调度失败. <|>{}<|>", jobLogMetaDTO.getTaskId(),
-                        jobLogMetaDTO, throwable);
-            }
+    }
+
+    private static void dispatchComplete(RealJobExecutorDTO realJobExecutorDTO, Result<Boolean> dispatch) {
+        if (dispatch.getStatus() == StatusEnum.YES.getStatus() && Objects.equals(dispatch.getData(), Boolean.TRUE)) {
+            SnailJobLog.LOCAL.info("taskId:[{}] 任务调度成功.", realJobExecutorDTO.getTaskId());
+        } else {
+            // 客户端返回失败，则认为任务执行失败
+            ClientCallbackHandler clientCallback = ClientCallbackFactory.getClientCallback(realJobExecutorDTO.getTaskType());
+            ClientCallbackContext context = JobTaskConverter.INSTANCE.toClientCallbackContext(realJobExecutorDTO);
+            context.setTaskStatus(JobTaskStatusEnum.FAIL.getStatus());
+            context.setExecuteResult(ExecuteResult.failure(null, dispatch.getMessage()));
+            clientCallback.callback(context);
+        }
+    }
+
+    private static void dispatchFailure(RealJobExecutorDTO realJobExecutorDTO, DispatchJobRequest dispatchJobRequest,
+                                        long nowMilli, Throwable e) {
+        Throwable throwable;
+        if (e.getClass().isAssignableFrom(RetryException.class)) {
+            RetryException re = (RetryException) e;
+            throwable = re.getLastFailedAttempt().getExceptionCause();
+        } else if (e.getClass().isAssignableFrom(UndeclaredThrowableException.class)) {
+            UndeclaredThrowableException re = (UndeclaredThrowableException) e;
+            throwable = re.getUndeclaredThrowable();
+        } else if (e instanceof CompletionException && Objects.nonNull(e.getCause())) {
+            throwable = e.getCause();
+        } else {
+            throwable = e;
+        }
 
-            taskExecuteFailure(realJobExecutorDTO, throwable.getMessage());
-            SpringContext.getContext().publishEvent(new JobTaskFailAlarmEvent(dispatchJobRequest.getTaskBatchId()));
+        JobLogMetaDTO jobLogMetaDTO = JobTaskConverter.INSTANCE.toJobLogDTO(realJobExecutorDTO);
+        jobLogMetaDTO.setTimestamp(nowMilli);
+        if (realJobExecutorDTO.isRetry()) {
+            SnailJobLog.REMOTE.error("taskId:[{}] 任务调度失败执行重试 重试次数:[{}]. <|>{}<|>", jobLogMetaDTO.getTaskId(),
+                    realJobExecutorDTO.getRetryCount(), jobLogMetaDTO, throwable);
+        } else {
+            SnailJobLog.REMOTE.error("taskId:[{}] 任务调度失败. <|>{}<|>", jobLogMetaDTO.getTaskId(),
+                    jobLogMetaDTO, throwable);
         }
 
+        taskExecuteFailure(realJobExecutorDTO, throwable.getMessage());
+        SpringContext.getContext().publishEvent(new JobTaskFailAlarmEvent(dispatchJobRequest.getTaskBatchId()));
     }
 
     public static class JobExecutorRetryListener implements RetryListener {
@@ -2,9 +2,11 @@ package com.aizuda.snailjob.server.job.task.support.generator.batch;
 
 import cn.hutool.core.lang.Assert;
 import com.aizuda.snailjob.common.core.enums.JobTaskBatchStatusEnum;
+import com.aizuda.snailjob.common.core.util.JsonUtil;
 import com.aizuda.snailjob.server.common.enums.SyetemTaskTypeEnum;
 import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
 import com.aizuda.snailjob.server.common.util.DateUtils;
+import com.aizuda.snailjob.server.job.task.dto.WorkflowTaskBatchExtAttrs;
 import com.aizuda.snailjob.server.job.task.dto.WorkflowTimerTaskDTO;
 import com.aizuda.snailjob.server.job.task.support.WorkflowTaskConverter;
 import com.aizuda.snailjob.server.job.task.support.timer.JobTimerWheel;
@@ -37,6 +39,10 @@ public class WorkflowBatchGenerator {
         WorkflowTaskBatch workflowTaskBatch = WorkflowTaskConverter.INSTANCE.toWorkflowTaskBatch(context);
         workflowTaskBatch.setTaskBatchStatus(Optional.ofNullable(context.getTaskBatchStatus()).orElse(JobTaskBatchStatusEnum.WAITING.getStatus()));
         workflowTaskBatch.setOperationReason(context.getOperationReason());
+        // 记录工作流版本号, 同一版本的批次共享缓存的DAG图
+        WorkflowTaskBatchExtAttrs extAttrs = new WorkflowTaskBatchExtAttrs();
+        extAttrs.setVersion(context.getVersion());
+        workflowTaskBatch.setExtAttrs(JsonUtil.toJsonString(extAttrs));
 
         Assert.isTrue(1 == workflowTaskBatchMapper.insert(workflowTaskBatch), () -> new SnailJobServerException("新增调度任务失败. [{}]", context.getWorkflowId()));
 
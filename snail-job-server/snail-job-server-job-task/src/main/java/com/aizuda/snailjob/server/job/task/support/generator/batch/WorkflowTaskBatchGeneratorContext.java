@@ -47,5 +47,10 @@ public class WorkflowTaskBatchGeneratorContext {
      */
     private String flowInfo;
 
+    /**
+     * 工作流版本号
+     */
+    private Integer version;
+
 
 }
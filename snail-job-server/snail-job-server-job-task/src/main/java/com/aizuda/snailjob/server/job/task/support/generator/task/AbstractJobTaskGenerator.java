@@ -1,9 +1,19 @@
 package com.aizuda.snailjob.server.job.task.support.generator.task;
 
+import cn.hutool.core.lang.Assert;
+import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
+import com.aizuda.snailjob.template.datasource.enums.DbTypeEnum;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.JobTaskMapper;
 import com.aizuda.snailjob.template.datasource.persistence.po.JobTask;
+import com.aizuda.snailjob.template.datasource.utils.DbUtils;
+import com.google.common.collect.Lists;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.CollectionUtils;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * @author opensnail
@@ -12,6 +22,25 @@ import java.util.List;
  */
 public abstract class AbstractJobTaskGenerator implements JobTaskGenerator, InitializingBean {
 
+    /**
+     * 每批次新增的任务实例数量
+     */
+    private static final int BATCH_INSERT_SIZE = 500;
+
+    /**
+     * SQL Server每批次新增的任务实例数量, 单条语句最多2100个参数
+     */
+    private static final int SQLSERVER_BATCH_INSERT_SIZE = 200;
+
+    /**
+     * 批量新增时可以回填自增主键的数据库
+     * MariaDB驱动默认只返回多行插入的第一个自增主键, 因此逐条新增
+     */
+    private static final Set<DbTypeEnum> BATCH_INSERT_DB_TYPES = EnumSet.of(DbTypeEnum.MYSQL, DbTypeEnum.POSTGRES);
+
+    @Autowired
+    protected JobTaskMapper jobTaskMapper;
+
     @Override
     public List<JobTask> generate(JobTaskGenerateContext context) {
         return doGenerate(context);
@@ -19,6 +48,42 @@ public abstract class AbstractJobTaskGenerator implements JobTaskGenerator, Init
 
     protected abstract List<JobTask> doGenerate(JobTaskGenerateContext context);
 
+    /**
+     * 新增任务实例并回填主键
+     * 支持批量回填主键的数据库按批次新增, SQL Server按批次新增后按顺序回填返回的主键, 其余数据库逐条新增
+     *
+     * @param jobTasks 任务实例
+     */
+    protected void batchSaveJobTasks(List<JobTask> jobTasks) {
+        if (CollectionUtils.isEmpty(jobTasks)) {
+            return;
+        }
+
+        DbTypeEnum dbType = DbUtils.getDbType();
+        if (jobTasks.size() > 1 && BATCH_INSERT_DB_TYPES.contains(dbType)) {
+            for (List<JobTask> partition : Lists.partition(jobTasks, BATCH_INSERT_SIZE)) {
+                Assert.isTrue(partition.size() == jobTaskMapper.batchInsert(partition),
+                        () -> new SnailJobServerException("批量新增任务实例失败"));
+            }
+            return;
+        }
+
+        if (jobTasks.size() > 1 && DbTypeEnum.SQLSERVER == dbType) {
+            for (List<JobTask> partition : Lists.partition(jobTasks, SQLSERVER_BATCH_INSERT_SIZE)) {
+                List<Long> ids = jobTaskMapper.batchInsertReturningIds(partition);
+                Assert.isTrue(partition.size() == ids.size(), () -> new SnailJobServerException("批量新增任务实例失败"));
+                for (int i = 0; i < partition.size(); i++) {
+                    partition.get(i).setId(ids.get(i));
+                }
+            }
+            return;
+        }
+
+        for (JobTask jobTask : jobTasks) {
+            Assert.isTrue(1 == jobTaskMapper.insert(jobTask), () -> new SnailJobServerException("新增任务实例失败"));
+        }
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         JobTaskGeneratorFactory.registerTaskInstance(getTaskInstanceType(), this);
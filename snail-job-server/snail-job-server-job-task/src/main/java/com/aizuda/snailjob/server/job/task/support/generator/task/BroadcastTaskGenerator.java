@@ -1,19 +1,15 @@
 package com.aizuda.snailjob.server.job.task.support.generator.task;
 
-import cn.hutool.core.lang.Assert;
 import cn.hutool.core.util.StrUtil;
 import com.aizuda.snailjob.common.core.enums.JobTaskStatusEnum;
 import com.aizuda.snailjob.common.core.enums.JobTaskTypeEnum;
 import com.aizuda.snailjob.server.common.cache.CacheRegisterTable;
 import com.aizuda.snailjob.server.common.dto.RegisterNodeInfo;
-import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
 import com.aizuda.snailjob.server.common.util.ClientInfoUtils;
 import com.aizuda.snailjob.server.job.task.support.JobTaskConverter;
-import com.aizuda.snailjob.template.datasource.persistence.mapper.JobTaskMapper;
 import com.aizuda.snailjob.template.datasource.persistence.po.JobTask;
 import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
@@ -29,9 +25,6 @@ import java.util.*;
 @Slf4j
 public class BroadcastTaskGenerator extends AbstractJobTaskGenerator {
 
-    @Autowired
-    private JobTaskMapper jobTaskMapper;
-
     @Override
     public JobTaskTypeEnum getTaskInstanceType() {
         return JobTaskTypeEnum.BROADCAST;
@@ -61,11 +54,11 @@ public class BroadcastTaskGenerator extends AbstractJobTaskGenerator {
             jobTask.setArgsStr(context.getArgsStr());
             jobTask.setTaskStatus(JobTaskStatusEnum.RUNNING.getStatus());
             jobTask.setResultMessage(Optional.ofNullable(jobTask.getResultMessage()).orElse(StrUtil.EMPTY));
-            Assert.isTrue(1 == jobTaskMapper.insert(jobTask), () -> new SnailJobServerException("新增任务实例失败"));
             clientInfoSet.add(address);
             jobTasks.add(jobTask);
         }
 
+        batchSaveJobTasks(jobTasks);
         return jobTasks;
     }
 
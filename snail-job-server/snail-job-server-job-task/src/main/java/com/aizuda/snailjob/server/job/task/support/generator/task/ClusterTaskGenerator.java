@@ -1,15 +1,12 @@
 package com.aizuda.snailjob.server.job.task.support.generator.task;
 
-import cn.hutool.core.lang.Assert;
 import cn.hutool.core.util.StrUtil;
 import com.aizuda.snailjob.common.core.enums.JobTaskStatusEnum;
 import com.aizuda.snailjob.server.common.dto.RegisterNodeInfo;
-import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
 import com.aizuda.snailjob.server.common.handler.ClientNodeAllocateHandler;
 import com.aizuda.snailjob.server.common.util.ClientInfoUtils;
 import com.aizuda.snailjob.server.job.task.support.JobTaskConverter;
 import com.aizuda.snailjob.common.core.enums.JobTaskTypeEnum;
-import com.aizuda.snailjob.template.datasource.persistence.mapper.JobTaskMapper;
 import com.aizuda.snailjob.template.datasource.persistence.po.JobTask;
 import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
@@ -31,8 +28,6 @@ public class ClusterTaskGenerator extends AbstractJobTaskGenerator {
 
     @Autowired
     protected ClientNodeAllocateHandler clientNodeAllocateHandler;
-    @Autowired
-    private JobTaskMapper jobTaskMapper;
 
     @Override
     public JobTaskTypeEnum getTaskInstanceType() {
@@ -56,9 +51,10 @@ public class ClusterTaskGenerator extends AbstractJobTaskGenerator {
         jobTask.setArgsStr(context.getArgsStr());
         jobTask.setTaskStatus(JobTaskStatusEnum.RUNNING.getStatus());
         jobTask.setResultMessage(Optional.ofNullable(jobTask.getResultMessage()).orElse(StrUtil.EMPTY));
-        Assert.isTrue(1 == jobTaskMapper.insert(jobTask), () -> new SnailJobServerException("新增任务实例失败"));
+        List<JobTask> jobTasks = Lists.newArrayList(jobTask);
+        batchSaveJobTasks(jobTasks);
 
-        return Lists.newArrayList(jobTask);
+        return jobTasks;
     }
 
 }
@@ -43,12 +43,9 @@ public class JobTaskBatchHandler {
 
         List<JobTask> jobTasks = jobTaskMapper.selectList(
                 new LambdaQueryWrapper<JobTask>()
-                        .select(JobTask::getTaskStatus, JobTask::getResultMessage)
+                        .select(JobTask::getTaskStatus)
                         .eq(JobTask::getTaskBatchId, completeJobBatchDTO.getTaskBatchId()));
 
-        JobTaskBatch jobTaskBatch = new JobTaskBatch();
-        jobTaskBatch.setId(completeJobBatchDTO.getTaskBatchId());
-
         if (CollectionUtils.isEmpty(jobTasks)) {
             return false;
         }
@@ -63,6 +60,27 @@ public class JobTaskBatchHandler {
         long failCount = statusCountMap.getOrDefault(JobTaskBatchStatusEnum.FAIL.getStatus(), 0L);
         long stopCount = statusCountMap.getOrDefault(JobTaskBatchStatusEnum.STOP.getStatus(), 0L);
 
+        return doComplete(completeJobBatchDTO, failCount, stopCount);
+    }
+
+    /**
+     * 使用本节点统计的任务完成计数完成批次, 调用方需保证批次下的所有任务均已完成
+     *
+     * @param completeJobBatchDTO 批次信息
+     * @param failCount           失败的任务数
+     * @param stopCount           停止的任务数
+     * @return true-批次状态更新成功
+     */
+    @Transactional
+    public boolean complete(CompleteJobBatchDTO completeJobBatchDTO, long failCount, long stopCount) {
+        return doComplete(completeJobBatchDTO, failCount, stopCount);
+    }
+
+    private boolean doComplete(CompleteJobBatchDTO completeJobBatchDTO, long failCount, long stopCount) {
+
+        JobTaskBatch jobTaskBatch = new JobTaskBatch();
+        jobTaskBatch.setId(completeJobBatchDTO.getTaskBatchId());
+
         if (failCount > 0) {
             jobTaskBatch.setTaskBatchStatus(JobTaskBatchStatusEnum.FAIL.getStatus());
             SpringContext.getContext().publishEvent(new JobTaskFailAlarmEvent(completeJobBatchDTO.getTaskBatchId()));
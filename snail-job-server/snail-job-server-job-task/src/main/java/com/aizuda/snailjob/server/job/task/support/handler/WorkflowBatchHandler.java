@@ -29,7 +29,7 @@ import com.aizuda.snailjob.template.datasource.persistence.po.JobTaskBatch;
 import com.aizuda.snailjob.template.datasource.persistence.po.WorkflowTaskBatch;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.google.common.collect.Lists;
-import com.google.common.graph.MutableGraph;
+import com.google.common.graph.Graph;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionSynchronization;
@@ -55,7 +55,7 @@ public class WorkflowBatchHandler {
     private final JobMapper jobMapper;
     private final JobTaskBatchMapper jobTaskBatchMapper;
 
-    private static boolean checkLeafCompleted(MutableGraph<Long> graph, Map<Long,
+    private static boolean checkLeafCompleted(Graph<Long> graph, Map<Long,
             List<JobTaskBatch>> currentWorkflowNodeMap, Set<Long> parentIds) {
 
         // 判定子节点是否需要处理
@@ -92,8 +92,7 @@ public class WorkflowBatchHandler {
                 .orElseGet(() -> workflowTaskBatchMapper.selectById(workflowTaskBatchId));
         Assert.notNull(workflowTaskBatch, () -> new SnailJobServerException("任务不存在"));
 
-        String flowInfo = workflowTaskBatch.getFlowInfo();
-        MutableGraph<Long> graph = MutableGraphCache.getOrDefault(workflowTaskBatchId, flowInfo);
+        Graph<Long> graph = MutableGraphCache.getOrDefault(workflowTaskBatch);
 
         // 说明没有后继节点了, 此时需要判断整个DAG是否全部执行完成
         List<JobTaskBatch> jobTaskBatches = jobTaskBatchMapper.selectList(new LambdaQueryWrapper<JobTaskBatch>()
@@ -118,7 +117,7 @@ public class WorkflowBatchHandler {
         int operationReason = JobOperationReasonEnum.NONE.getReason();
 
         // 判定所有的叶子节点是否完成
-        List<Long> leaves = MutableGraphCache.getLeaves(workflowTaskBatchId, flowInfo);
+        List<Long> leaves = MutableGraphCache.getLeaves(workflowTaskBatch);
         for (Long leaf : leaves) {
             List<JobTaskBatch> jobTaskBatchList = currentWorkflowNodeMap.getOrDefault(leaf, Lists.newArrayList());
             if (CollectionUtils.isEmpty(jobTaskBatchList)) {
@@ -212,8 +211,7 @@ public class WorkflowBatchHandler {
         workflowTaskBatch = Optional.ofNullable(workflowTaskBatch)
                 .orElseGet(() -> workflowTaskBatchMapper.selectById(workflowTaskBatchId));
         Assert.notNull(workflowTaskBatch, () -> new SnailJobServerException("任务不存在"));
-        String flowInfo = workflowTaskBatch.getFlowInfo();
-        MutableGraph<Long> graph = MutableGraphCache.getOrDefault(workflowTaskBatchId, flowInfo);
+        Graph<Long> graph = MutableGraphCache.getOrDefault(workflowTaskBatch);
         Set<Long> successors = graph.successors(SystemConstants.ROOT);
         if (CollectionUtils.isEmpty(successors)) {
             return;
@@ -230,7 +228,7 @@ public class WorkflowBatchHandler {
         checkWorkflowExecutor(SystemConstants.ROOT, workflowTaskBatchId, graph, jobTaskBatchMap);
     }
 
-    private void checkWorkflowExecutor(Long parentId, Long workflowTaskBatchId, MutableGraph<Long> graph, Map<Long, JobTaskBatch> jobTaskBatchMap) {
+    private void checkWorkflowExecutor(Long parentId, Long workflowTaskBatchId, Graph<Long> graph, Map<Long, JobTaskBatch> jobTaskBatchMap) {
 
         // 判定条件节点是否已经执行完成
         JobTaskBatch parentJobTaskBatch = jobTaskBatchMap.get(parentId);
@@ -1,33 +1,26 @@
 package com.aizuda.snailjob.server.job.task.support.idempotent;
 
 import com.aizuda.snailjob.server.common.IdempotentStrategy;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.aizuda.snailjob.server.common.util.ExpiringLongSet;
 
-import java.text.MessageFormat;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * 时间轮幂等
+ * key为任务类型, value为批次id, 任务类型放在高8位与批次id合并为一个long
+ *
  * @author opensnail
  * @date 2023-10-19 21:54:57
  * @since 2.4.0
  */
 public class TimerIdempotent implements IdempotentStrategy<Long, Long> {
-    private static final String KEY_FORMAT = "{0}_{1}_{2}";
 
-    private static final Cache<String, Long> cache;
-
-    static {
-        cache = CacheBuilder.newBuilder()
-                .concurrencyLevel(8) // 并发级别
-                // 设置过期时间避免由于异常情况导致时间轮的缓存没有删除
-                .expireAfterWrite(20, TimeUnit.SECONDS)
-                .build();
-    }
+    // 设置过期时间避免由于异常情况导致时间轮的缓存没有删除
+    private static final ExpiringLongSet cache = new ExpiringLongSet(20, TimeUnit.SECONDS);
 
     @Override
     public boolean set(Long key, Long value) {
-        cache.put(getKey(key, value), value);
+        cache.add(getKey(key, value));
         return Boolean.TRUE;
     }
 
@@ -38,16 +31,16 @@ public class TimerIdempotent implements IdempotentStrategy<Long, Long> {
 
     @Override
     public boolean isExist(Long key, Long value) {
-        return cache.asMap().containsKey(getKey(key, value));
+        return cache.contains(getKey(key, value));
     }
 
     @Override
     public boolean clear(Long key, Long value) {
-        cache.invalidate(getKey(key, value));
+        cache.remove(getKey(key, value));
         return Boolean.TRUE;
     }
 
-    private static String getKey(Long key, Long value) {
-        return MessageFormat.format(KEY_FORMAT, key, value);
+    private static long getKey(Long key, Long value) {
+        return key << 56 ^ value;
     }
 }
@@ -1,8 +1,6 @@
 package com.aizuda.snailjob.server.job.task.support.schedule;
 
-import cn.hutool.core.collection.CollectionUtil;
 import com.aizuda.snailjob.common.core.enums.JobTaskBatchStatusEnum;
-import com.aizuda.snailjob.common.core.util.JsonUtil;
 import com.aizuda.snailjob.common.core.util.StreamUtils;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.Lifecycle;
@@ -17,8 +15,8 @@ import com.aizuda.snailjob.template.datasource.persistence.mapper.JobTaskBatchMa
 import com.aizuda.snailjob.template.datasource.persistence.po.JobLogMessage;
 import com.aizuda.snailjob.template.datasource.persistence.po.JobTaskBatch;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.plugins.pagination.PageDTO;
 import com.google.common.collect.Lists;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -31,11 +29,11 @@ import org.springframework.util.CollectionUtils;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toList;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * jogLogMessage 日志合并归档
@@ -54,9 +52,25 @@ public class JobLogMergeSchedule extends AbstractSchedule implements Lifecycle {
     private final JobLogMessageMapper jobLogMessageMapper;
     private final TransactionTemplate transactionTemplate;
 
+    /**
+     * 每次删除的日志id数量
+     */
+    private static final int DELETE_BATCH_SIZE = 500;
+
     // last merge log time
     private static Long lastMergeLogTime = 0L;
 
+    /**
+     * 已经合并完成的最大批次id, 合并超时后下次调度从其后继续; 全部合并完成后重置
+     * 只保存在当前节点的内存中, jobLogMerge锁由其他节点获取时, 该节点从头开始合并
+     */
+    private volatile long lastMergedTaskBatchId = 0L;
+
+    /**
+     * 本次合并的截止时间, 超过后停止合并
+     */
+    private volatile long mergeDeadline = Long.MAX_VALUE;
+
     @Override
     public String lockName() {
         return "jobLogMerge";
@@ -81,17 +95,33 @@ public class JobLogMergeSchedule extends AbstractSchedule implements Lifecycle {
             }
             // merge job log
             long total;
+            mergeDeadline = System.currentTimeMillis() + maxMergeDuration().toMillis();
             LocalDateTime endTime = LocalDateTime.now().minusDays(systemProperties.getMergeLogDays());
             total = PartitionTaskUtils.process(startId -> jobTaskBatchList(startId, endTime),
-                    this::processJobLogPartitionTasks, 0);
+                    this::processJobLogPartitionTasks, lastMergedTaskBatchId + 1);
+
+            if (System.currentTimeMillis() >= mergeDeadline) {
+                // 未合并完成, 下次调度时从已经合并完成的批次之后继续
+                SnailJobLog.LOCAL.info("job merge timeout, continue next time. total:[{}] lastMergedTaskBatchId:[{}]",
+                        total, lastMergedTaskBatchId);
+                return;
+            }
 
             SnailJobLog.LOCAL.debug("job merge success total:[{}]", total);
         } catch (Exception e) {
             SnailJobLog.LOCAL.error("job merge log error", e);
-        } finally {
-            // update merge time
-            lastMergeLogTime = System.currentTimeMillis();
         }
+
+        // update merge time
+        lastMergeLogTime = System.currentTimeMillis();
+        lastMergedTaskBatchId = 0L;
+    }
+
+    /**
+     * 单次合并的最长时间, 取锁的最长时间的5/6, 留出提交最后一个块和释放锁的时间
+     */
+    private Duration maxMergeDuration() {
+        return Duration.parse(lockAtMost()).multipliedBy(5).dividedBy(6);
     }
 
     /**
@@ -102,17 +132,24 @@ public class JobLogMergeSchedule extends AbstractSchedule implements Lifecycle {
      * @return
      */
     private List<JobPartitionTaskDTO> jobTaskBatchList(Long startId, LocalDateTime endTime) {
+        if (System.currentTimeMillis() >= mergeDeadline) {
+            return Collections.emptyList();
+        }
 
         List<JobTaskBatch> jobTaskBatchList = jobTaskBatchMapper.selectPage(
                 new Page<>(0, 1000),
-                new LambdaUpdateWrapper<JobTaskBatch>().ge(JobTaskBatch::getId, startId)
+                new LambdaQueryWrapper<JobTaskBatch>().ge(JobTaskBatch::getId, startId)
                         .in(JobTaskBatch::getTaskBatchStatus, JobTaskBatchStatusEnum.COMPLETED)
-                        .le(JobTaskBatch::getCreateDt, endTime)).getRecords();
+                        .le(JobTaskBatch::getCreateDt, endTime)
+                        .orderByAsc(JobTaskBatch::getId)).getRecords();
         return JobTaskConverter.INSTANCE.toJobTaskBatchPartitionTasks(jobTaskBatchList);
     }
 
     /**
      * merge job_log_message
+     * 按(taskBatchId, taskId, id)游标分页读取日志, 同一个任务中相邻的日志直接拼接JSON数组合并, 不解析日志内容;
+     * 合并结果写回每组的第一条日志, 其余日志删除, 日志的展示顺序不变. 合并后的日志按字符数分块提交事务,
+     * 内存占用与批次中的日志总量无关
      *
      * @param partitionTasks
      */
@@ -124,61 +161,174 @@ public class JobLogMergeSchedule extends AbstractSchedule implements Lifecycle {
             return;
         }
 
-        // Waiting for deletion JobLogMessageList
-        List<JobLogMessage> jobLogMessageList = jobLogMessageMapper.selectList(
-                new LambdaQueryWrapper<JobLogMessage>().in(JobLogMessage::getTaskBatchId, ids));
-        if (CollectionUtils.isEmpty(jobLogMessageList)) {
-            return;
+        SystemProperties.LogMerge logMerge = systemProperties.getLogMerge();
+        LogMerger logMerger = new LogMerger(logMerge);
+        JobLogMessage cursor = null;
+        while (System.currentTimeMillis() < mergeDeadline) {
+            List<JobLogMessage> jobLogMessageList = jobLogMessageMapper.selectPage(
+                    new PageDTO<>(1, logMerge.getPageSize(), false), cursorQuery(ids, cursor)).getRecords();
+            if (CollectionUtils.isEmpty(jobLogMessageList)) {
+                logMerger.finish();
+                lastMergedTaskBatchId = ids.get(ids.size() - 1);
+                return;
+            }
+
+            for (JobLogMessage jobLogMessage : jobLogMessageList) {
+                logMerger.add(jobLogMessage);
+            }
+            cursor = jobLogMessageList.get(jobLogMessageList.size() - 1);
+        }
+
+        // 超过本次合并的时间, 正在合并的日志保持不变, 下次合并时处理
+        logMerger.flush();
+        if (Objects.nonNull(cursor)) {
+            // 游标所在批次之前的日志均已提交
+            lastMergedTaskBatchId = cursor.getTaskBatchId() - 1;
+        }
+    }
+
+    private LambdaQueryWrapper<JobLogMessage> cursorQuery(List<Long> taskBatchIds, JobLogMessage cursor) {
+        LambdaQueryWrapper<JobLogMessage> query = new LambdaQueryWrapper<JobLogMessage>()
+                .in(JobLogMessage::getTaskBatchId, taskBatchIds);
+        if (Objects.nonNull(cursor)) {
+            query.and(wrapper -> wrapper.gt(JobLogMessage::getTaskBatchId, cursor.getTaskBatchId())
+                    .or(w -> w.eq(JobLogMessage::getTaskBatchId, cursor.getTaskBatchId())
+                            .gt(JobLogMessage::getTaskId, cursor.getTaskId()))
+                    .or(w -> w.eq(JobLogMessage::getTaskBatchId, cursor.getTaskBatchId())
+                            .eq(JobLogMessage::getTaskId, cursor.getTaskId())
+                            .gt(JobLogMessage::getId, cursor.getId())));
+        }
+
+        return query.orderByAsc(JobLogMessage::getTaskBatchId)
+                .orderByAsc(JobLogMessage::getTaskId)
+                .orderByAsc(JobLogMessage::getId);
+    }
+
+    /**
+     * 按游标顺序接收日志, 合并同一个任务中相邻的日志
+     */
+    private final class LogMerger {
+
+        private final SystemProperties.LogMerge logMerge;
+
+        /**
+         * 待提交的块
+         */
+        private final List<Long> deleteIds = new ArrayList<>();
+        private final List<JobLogMessage> updates = new ArrayList<>();
+        private long chunkLength;
+
+        /**
+         * 正在合并的日志
+         */
+        private final List<Long> groupIds = new ArrayList<>();
+        private final StringBuilder groupMessage = new StringBuilder();
+        private JobLogMessage groupFirst;
+        private int groupLogNum;
+
+        private LogMerger(SystemProperties.LogMerge logMerge) {
+            this.logMerge = logMerge;
+        }
+
+        private void add(JobLogMessage jobLogMessage) {
+            String message = jobLogMessage.getMessage();
+            if (!isJsonArray(message)) {
+                // 无法拼接的日志保持不变, 前后的日志分别合并
+                closeGroup();
+                return;
+            }
+
+            int logNum = Optional.ofNullable(jobLogMessage.getLogNum()).orElse(0);
+            if (Objects.nonNull(groupFirst) && !fits(jobLogMessage, logNum)) {
+                closeGroup();
+            }
+
+            if (Objects.isNull(groupFirst)) {
+                groupFirst = jobLogMessage;
+                groupMessage.append('[');
+            }
+            if (message.length() > 2) {
+                if (groupMessage.length() > 1) {
+                    groupMessage.append(',');
+                }
+                groupMessage.append(message, 1, message.length() - 1);
+            }
+            groupIds.add(jobLogMessage.getId());
+            groupLogNum += logNum;
+        }
+
+        private boolean fits(JobLogMessage jobLogMessage, int logNum) {
+            return Objects.equals(groupFirst.getTaskBatchId(), jobLogMessage.getTaskBatchId())
+                    && Objects.equals(groupFirst.getTaskId(), jobLogMessage.getTaskId())
+                    && groupLogNum + logNum <= systemProperties.getMergeLogNum()
+                    && groupMessage.length() + jobLogMessage.getMessage().length() <= logMerge.getMaxMessageLength();
+        }
+
+        private void closeGroup() {
+            if (groupIds.size() > 1) {
+                JobLogMessage merged = new JobLogMessage();
+                merged.setId(groupFirst.getId());
+                merged.setLogNum(groupLogNum);
+                merged.setMessage(groupMessage.append(']').toString());
+                updates.add(merged);
+                deleteIds.addAll(groupIds.subList(1, groupIds.size()));
+                chunkLength += merged.getMessage().length();
+            }
+
+            groupIds.clear();
+            groupMessage.setLength(0);
+            groupFirst = null;
+            groupLogNum = 0;
+            if (chunkLength >= logMerge.getChunkLength()) {
+                flush();
+            }
         }
 
-        List<Map.Entry<Long, List<JobLogMessage>>> jobLogMessageGroupList = jobLogMessageList.stream().collect(
-                        groupingBy(JobLogMessage::getTaskId)).entrySet().stream()
-                .filter(entry -> entry.getValue().size() >= 2).collect(toList());
-
-        for (Map.Entry<Long/*taskId*/, List<JobLogMessage>> jobLogMessageMap : jobLogMessageGroupList) {
-            List<Long> jobLogMessageDeleteBatchIds = new ArrayList<>();
-            List<JobLogMessage> jobLogMessageInsertBatchIds = new ArrayList<>();
-
-            List<String> mergeMessages = jobLogMessageMap.getValue().stream().map(k -> {
-                        jobLogMessageDeleteBatchIds.add(k.getId());
-                        return JsonUtil.parseObject(k.getMessage(), List.class);
-                    })
-                    .reduce((a, b) -> {
-                        // 合并日志信息
-                        List<String> list = new ArrayList<>();
-                        list.addAll(a);
-                        list.addAll(b);
-                        return list;
-                    }).get();
-
-            // 500条数据为一个批次
-            List<List<String>> partitionMessages = Lists.partition(mergeMessages, systemProperties.getMergeLogNum());
-
-            for (List<String> partitionMessage : partitionMessages) {
-                // 深拷贝
-                JobLogMessage jobLogMessage = JobTaskConverter.INSTANCE.toJobLogMessage(
-                        jobLogMessageMap.getValue().get(0));
-
-                jobLogMessage.setLogNum(partitionMessage.size());
-                jobLogMessage.setMessage(JsonUtil.toJsonString(partitionMessage));
-                jobLogMessageInsertBatchIds.add(jobLogMessage);
+        private void finish() {
+            closeGroup();
+            flush();
+        }
+
+        /**
+         * 提交当前块, 之后按照事务耗时(不含读取和合并日志的耗时)休眠
+         */
+        private void flush() {
+            if (updates.isEmpty()) {
+                return;
             }
 
+            long transactionStartAt = System.nanoTime();
             transactionTemplate.execute(new TransactionCallbackWithoutResult() {
                 @Override
                 protected void doInTransactionWithoutResult(final TransactionStatus status) {
-
                     // 批量删除、更新日志
-                    if (CollectionUtil.isNotEmpty(jobLogMessageDeleteBatchIds)) {
-                        jobLogMessageMapper.deleteBatchIds(jobLogMessageDeleteBatchIds);
+                    for (JobLogMessage jobLogMessage : updates) {
+                        jobLogMessageMapper.updateById(jobLogMessage);
                     }
-                    if (CollectionUtil.isNotEmpty(jobLogMessageInsertBatchIds)) {
-                        jobLogMessageMapper.batchInsert(jobLogMessageInsertBatchIds);
+                    for (List<Long> partition : Lists.partition(deleteIds, DELETE_BATCH_SIZE)) {
+                        jobLogMessageMapper.deleteBatchIds(partition);
                     }
                 }
             });
+            long elapsed = System.nanoTime() - transactionStartAt;
+            deleteIds.clear();
+            updates.clear();
+            chunkLength = 0;
+
+            if (logMerge.getThrottleRatio() > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep((long) (elapsed * logMerge.getThrottleRatio()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    mergeDeadline = 0;
+                }
+            }
         }
 
+        private boolean isJsonArray(String message) {
+            return Objects.nonNull(message) && message.length() >= 2
+                    && message.charAt(0) == '[' && message.charAt(message.length() - 1) == ']';
+        }
     }
 
     @Override
@@ -2,15 +2,17 @@ package com.aizuda.snailjob.server.job.task.support.timer;
 
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.Lifecycle;
+import com.aizuda.snailjob.server.common.config.SystemProperties;
+import com.aizuda.snailjob.server.common.timer.HierarchicalWheelTimer;
 import com.aizuda.snailjob.server.job.task.support.idempotent.TimerIdempotent;
-import com.aizuda.snailjob.server.job.task.support.idempotent.TimerIdempotent;
-import io.netty.util.HashedWheelTimer;
 import io.netty.util.TimerTask;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -21,22 +23,28 @@ import java.util.concurrent.TimeUnit;
  */
 @Component
 @Slf4j
+@RequiredArgsConstructor
 public class JobTimerWheel implements Lifecycle {
 
     private static final int TICK_DURATION = 100;
     private static final String THREAD_NAME_PREFIX = "job-task-timer-wheel-";
-    private static HashedWheelTimer timer = null;
-    private static final ThreadPoolExecutor executor =
-            new ThreadPoolExecutor(32, 32, 10, TimeUnit.SECONDS,
-                    new LinkedBlockingQueue<>(), new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+    private static HierarchicalWheelTimer timer = null;
+    private static ThreadPoolExecutor executor = null;
 
     private static final TimerIdempotent idempotent = new TimerIdempotent();
 
+    private final SystemProperties systemProperties;
+
     @Override
     public void start() {
-        timer = new HashedWheelTimer(
-                new CustomizableThreadFactory(THREAD_NAME_PREFIX), TICK_DURATION,
-                TimeUnit.MILLISECONDS, 512, true, -1, executor);
+        SystemProperties.TimerWheel timerWheel = systemProperties.getTimerWheel();
+        // 有界队列, 队列满时由时间轮线程执行, 延迟体现在触发延迟指标中
+        executor = new ThreadPoolExecutor(32, 32, 10, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(timerWheel.getExecutorQueueCapacity()),
+                new CustomizableThreadFactory(THREAD_NAME_PREFIX), new ThreadPoolExecutor.CallerRunsPolicy());
+        timer = new HierarchicalWheelTimer(
+                new CustomizableThreadFactory(THREAD_NAME_PREFIX), TICK_DURATION, TimeUnit.MILLISECONDS,
+                timerWheel.getMaxPendingTimeouts(), executor, timerWheel.getBatchSize());
         timer.start();
     }
 
@@ -47,7 +55,7 @@ public class JobTimerWheel implements Lifecycle {
             delay = delay < 0 ? 0 : delay;
             try {
                 timer.newTimeout(task, delay, unit);
-                idempotent.set(uniqueId, uniqueId);
+                idempotent.set(Long.valueOf(taskType), uniqueId);
             } catch (Exception e) {
                 SnailJobLog.LOCAL.error("加入时间轮失败. uniqueId:[{}]", uniqueId, e);
             }
@@ -62,6 +70,20 @@ public class JobTimerWheel implements Lifecycle {
         idempotent.clear(Long.valueOf(taskType), uniqueId);
     }
 
+    /**
+     * 时间轮中未到期的任务数
+     */
+    public static long pendingTimeouts() {
+        return Objects.isNull(timer) ? 0 : timer.getPendingTimeouts();
+    }
+
+    /**
+     * 最近一次触发的延迟(毫秒)
+     */
+    public static long fireLagMillis() {
+        return Objects.isNull(timer) ? 0 : timer.getFireLagMillis();
+    }
+
     @Override
     public void close() {
         timer.stop();
@@ -3,6 +3,7 @@ package com.aizuda.snailjob.server.job.task.support.timer;
 import akka.actor.ActorRef;
 import com.aizuda.snailjob.common.core.constant.SystemConstants;
 import com.aizuda.snailjob.server.common.akka.ActorGenerator;
+import com.aizuda.snailjob.server.common.enums.SyetemTaskTypeEnum;
 import com.aizuda.snailjob.server.job.task.dto.WorkflowNodeTaskExecuteDTO;
 import com.aizuda.snailjob.server.job.task.dto.WorkflowTimerTaskDTO;
 import io.netty.util.Timeout;
@@ -39,6 +40,9 @@ public class WorkflowTimerTask implements TimerTask {
 
         } catch (Exception e) {
             log.error("任务调度执行失败", e);
+        } finally {
+            // 清除时间轮的缓存
+            JobTimerWheel.clearCache(SyetemTaskTypeEnum.WORKFLOW.getType(), workflowTimerTaskDTO.getWorkflowTaskBatchId());
         }
     }
 
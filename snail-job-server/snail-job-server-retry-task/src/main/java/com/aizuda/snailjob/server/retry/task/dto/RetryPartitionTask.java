@@ -1,6 +1,7 @@
 package com.aizuda.snailjob.server.retry.task.dto;
 
 import com.aizuda.snailjob.server.common.dto.PartitionTask;
+import com.aizuda.snailjob.template.datasource.persistence.po.RetryTask;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -28,4 +29,9 @@ public class RetryPartitionTask extends PartitionTask {
 
     private Integer retryCount;
 
+    /**
+     * 进入时间轮时携带的任务快照, 未开启retryTimerPayload时为空
+     */
+    private RetryTask retryTask;
+
 }
@@ -50,8 +50,18 @@ public interface RetryTaskConverter {
 
     List<RetryPartitionTask> toRetryPartitionTasks(List<RetryTask> retryTasks);
 
+    @Mappings({
+            @Mapping(target = "retryTask", ignore = true),
+    })
+    RetryPartitionTask toRetryPartitionTask(RetryTask retryTask);
+
     List<RetryPartitionTask> toRetryTaskLogPartitionTasks(List<RetryTaskLog> retryTaskLogList);
 
+    @Mappings({
+            @Mapping(target = "retryTask", ignore = true),
+    })
+    RetryPartitionTask toRetryPartitionTask(RetryTaskLog retryTaskLog);
+
     RetryTimerContext toRetryTimerContext(RetryPartitionTask retryPartitionTask);
 
     List<NotifyConfigPartitionTask> toNotifyConfigPartitionTask(List<NotifyConfig> notifyConfigs);
@@ -74,7 +74,7 @@ public class ExecCallbackUnitActor extends AbstractActor {
                 retryLogMetaDTO.setTimestamp(DateUtils.toNowMilli());
                 SnailJobLog.REMOTE.error("请求客户端异常. <|>{}<|>", retryTask.getUniqueId(), retryLogMetaDTO, e);
             } finally {
-                getContext().stop(getSelf());
+                ActorGenerator.stop(getContext(), ActorGenerator.EXEC_CALLBACK_UNIT_ACTOR);
 
             }
 
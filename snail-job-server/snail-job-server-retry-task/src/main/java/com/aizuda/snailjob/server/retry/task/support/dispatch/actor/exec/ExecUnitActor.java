@@ -72,7 +72,7 @@ public class ExecUnitActor extends AbstractActor {
                 retryLogMetaDTO.setTimestamp(DateUtils.toNowMilli());
                 SnailJobLog.REMOTE.error("请求客户端异常. <|>{}<|>", retryTask.getUniqueId(), retryLogMetaDTO, e);
             } finally {
-                getContext().stop(getSelf());
+                ActorGenerator.stop(getContext(), ActorGenerator.EXEC_UNIT_ACTOR);
 
             }
 
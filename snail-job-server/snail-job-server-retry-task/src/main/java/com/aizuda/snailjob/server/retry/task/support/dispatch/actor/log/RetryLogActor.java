@@ -44,11 +44,11 @@ public class RetryLogActor extends AbstractActor {
                         return;
                     }
                     saveRetryTaskLogMessage((List<RetryLogTaskDTO>) list);
-                    getContext().stop(getSelf());
+                    ActorGenerator.stop(getContext(), ActorGenerator.LOG_ACTOR);
                 }).match(RetryTaskLogDTO.class,
                 retryTaskLogDTO -> {
                     saveRetryTaskLogMessage(retryTaskLogDTO);
-                    getContext().stop(getSelf());
+                    ActorGenerator.stop(getContext(), ActorGenerator.LOG_ACTOR);
                 }).build();
     }
 
@@ -108,7 +108,7 @@ public class FailureActor extends AbstractActor {
             } finally {
                 // 清除幂等标识位
                 idempotentStrategy.clear(Pair.of(retryTask.getGroupName(), retryTask.getNamespaceId()), retryTask.getId());
-                getContext().stop(getSelf());
+                ActorGenerator.stop(getContext(), ActorGenerator.FAILURE_ACTOR);
             }
 
         }).build();
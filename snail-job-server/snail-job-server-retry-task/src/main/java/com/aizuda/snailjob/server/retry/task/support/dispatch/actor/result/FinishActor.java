@@ -91,7 +91,7 @@ public class FinishActor extends AbstractActor {
                 // 清除幂等标识位
                 idempotentStrategy.clear(Pair.of(retryTask.getGroupName(), retryTask.getNamespaceId()), retryTask.getId());
 
-                getContext().stop(getSelf());
+                ActorGenerator.stop(getContext(), ActorGenerator.FINISH_ACTOR);
 
             }
 
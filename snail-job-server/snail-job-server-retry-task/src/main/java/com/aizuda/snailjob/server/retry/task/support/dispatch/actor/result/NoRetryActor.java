@@ -60,7 +60,7 @@ public class NoRetryActor extends AbstractActor {
                 idempotentStrategy.clear(Pair.of(retryTask.getGroupName(), retryTask.getNamespaceId()), retryTask.getId());
 
                 // 更新DB状态
-                getContext().stop(getSelf());
+                ActorGenerator.stop(getContext(), ActorGenerator.NO_RETRY_ACTOR);
             }
 
         }).build();
@@ -16,6 +16,7 @@ import com.aizuda.snailjob.server.retry.task.dto.RetryPartitionTask;
 import com.aizuda.snailjob.server.retry.task.support.RetryTaskConverter;
 import com.aizuda.snailjob.server.retry.task.support.dispatch.task.TaskExecutor;
 import com.aizuda.snailjob.server.retry.task.support.dispatch.task.TaskExecutorSceneEnum;
+import com.aizuda.snailjob.server.retry.task.support.timer.RetryTimerTaskLoader;
 import com.aizuda.snailjob.server.retry.task.support.timer.RetryTimerWheel;
 import com.aizuda.snailjob.template.datasource.access.AccessTemplate;
 import com.aizuda.snailjob.template.datasource.persistence.mapper.RetryTaskMapper;
@@ -130,19 +131,33 @@ public abstract class AbstractScanGroup extends AbstractActor {
             waitUpdateRetryTasks.add(retryTask);
         }
 
-        // 批量更新
-        retryTaskMapper.updateBatchNextTriggerAtById(scanTask.getGroupPartition(), waitUpdateRetryTasks);
+        // 批量更新, 携带快照时仅在任务查询之后未被修改时保留快照
+        RetryTimerTaskLoader.updateNextTriggerAt(retryTaskMapper, scanTask.getGroupPartition(),
+                partitionTasks, waitUpdateRetryTasks);
 
         long nowMilli = DateUtils.toNowMilli();
+        Set<Long> waitUpdateIds = StreamUtils.toSet(waitUpdateRetryTasks, RetryTask::getId);
+        List<RetryTask> rejectedRetryTasks = new ArrayList<>();
         for (PartitionTask partitionTask : partitionTasks) {
             RetryPartitionTask retryPartitionTask = (RetryPartitionTask) partitionTask;
             long delay = DateUtils.toEpochMilli(retryPartitionTask.getNextTriggerAt()) - nowMilli - nowMilli % 100;
-            RetryTimerWheel.register(
+            boolean registered = RetryTimerWheel.register(
                     Pair.of(retryPartitionTask.getGroupName(), retryPartitionTask.getNamespaceId()),
                     retryPartitionTask.getUniqueId(),
                     timerTask(retryPartitionTask),
                     delay,
                     TimeUnit.MILLISECONDS);
+            if (!registered && waitUpdateIds.contains(retryPartitionTask.getId())) {
+                RetryTask retryTask = new RetryTask();
+                retryTask.setId(retryPartitionTask.getId());
+                retryTask.setNextTriggerAt(retryPartitionTask.getNextTriggerAt());
+                rejectedRetryTasks.add(retryTask);
+            }
+        }
+
+        // 未能加入时间轮的任务恢复原来的下次触发时间, 由下次扫描重新加入, 避免错过本轮重试
+        if (!CollectionUtils.isEmpty(rejectedRetryTasks)) {
+            retryTaskMapper.updateBatchNextTriggerAtById(scanTask.getGroupPartition(), rejectedRetryTasks);
         }
 
     }
@@ -182,22 +197,34 @@ public abstract class AbstractScanGroup extends AbstractActor {
     protected abstract AtomicLong prePullCount();
 
     public List<RetryPartitionTask> listAvailableTasks(String groupName, String namespaceId, Long lastId, Integer taskType) {
+        boolean payload = systemProperties.isRetryTimerPayload();
+        LambdaQueryWrapper<RetryTask> query = new LambdaQueryWrapper<RetryTask>()
+                .eq(RetryTask::getRetryStatus, RetryStatusEnum.RUNNING.getStatus())
+                .eq(RetryTask::getGroupName, groupName)
+                .eq(RetryTask::getNamespaceId, namespaceId)
+                .eq(RetryTask::getTaskType, taskType)
+                .le(RetryTask::getNextTriggerAt, LocalDateTime.now().plusSeconds(SystemConstants.SCHEDULE_PERIOD))
+                .gt(RetryTask::getId, lastId)
+                .orderByAsc(RetryTask::getId);
+        if (!payload) {
+            query.select(RetryTask::getId, RetryTask::getNextTriggerAt, RetryTask::getUniqueId,
+                    RetryTask::getGroupName, RetryTask::getRetryCount, RetryTask::getSceneName,
+                    RetryTask::getNamespaceId);
+        }
+
         List<RetryTask> retryTasks = accessTemplate.getRetryTaskAccess()
-                .listPage(groupName, namespaceId, new PageDTO<>(0, systemProperties.getRetryPullPageSize()),
-                        new LambdaQueryWrapper<RetryTask>()
-                                .select(RetryTask::getId, RetryTask::getNextTriggerAt, RetryTask::getUniqueId,
-                                        RetryTask::getGroupName, RetryTask::getRetryCount, RetryTask::getSceneName,
-                                        RetryTask::getNamespaceId)
-                                .eq(RetryTask::getRetryStatus, RetryStatusEnum.RUNNING.getStatus())
-                                .eq(RetryTask::getGroupName, groupName)
-                                .eq(RetryTask::getNamespaceId, namespaceId)
-                                .eq(RetryTask::getTaskType, taskType)
-                                .le(RetryTask::getNextTriggerAt, LocalDateTime.now().plusSeconds(SystemConstants.SCHEDULE_PERIOD))
-                                .gt(RetryTask::getId, lastId)
-                                .orderByAsc(RetryTask::getId))
+                .listPage(groupName, namespaceId, new PageDTO<>(0, systemProperties.getRetryPullPageSize()), query)
                 .getRecords();
 
-        return RetryTaskConverter.INSTANCE.toRetryPartitionTasks(retryTasks);
+        List<RetryPartitionTask> partitionTasks = RetryTaskConverter.INSTANCE.toRetryPartitionTasks(retryTasks);
+        if (payload) {
+            // 携带完整的任务数据进入时间轮, 触发时不再重新查询
+            for (int i = 0; i < partitionTasks.size(); i++) {
+                partitionTasks.get(i).setRetryTask(retryTasks.get(i));
+            }
+        }
+
+        return partitionTasks;
     }
 
 }
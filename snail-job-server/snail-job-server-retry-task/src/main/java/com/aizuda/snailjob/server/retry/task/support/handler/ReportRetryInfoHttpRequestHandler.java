@@ -1,22 +1,25 @@
 package com.aizuda.snailjob.server.retry.task.support.handler;
 
 import cn.hutool.core.lang.Assert;
+import cn.hutool.core.net.url.UrlBuilder;
 import cn.hutool.core.net.url.UrlQuery;
 import com.aizuda.snailjob.common.core.enums.HeadersEnum;
 import com.aizuda.snailjob.common.core.enums.StatusEnum;
 import com.aizuda.snailjob.common.core.model.NettyResult;
-import com.aizuda.snailjob.common.core.model.SnailJobRequest;
 import com.aizuda.snailjob.common.core.util.JsonUtil;
 import com.aizuda.snailjob.common.core.util.StreamUtils;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.enums.TaskGeneratorSceneEnum;
 import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
 import com.aizuda.snailjob.server.common.handler.PostHttpRequestHandler;
+import com.aizuda.snailjob.server.common.rpc.server.SnailJobRequestReader;
 import com.aizuda.snailjob.server.model.dto.RetryTaskDTO;
 import com.aizuda.snailjob.server.retry.task.generator.task.TaskContext;
 import com.aizuda.snailjob.server.retry.task.generator.task.TaskGenerator;
 import com.aizuda.snailjob.server.retry.task.service.TaskContextConverter;
 import com.github.rholder.retry.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import lombok.extern.slf4j.Slf4j;
@@ -25,9 +28,10 @@ import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.TransactionSystemException;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -60,12 +64,22 @@ public class ReportRetryInfoHttpRequestHandler extends PostHttpRequestHandler {
     }
 
     @Override
-    @Transactional
     public String doHandler(String content, UrlQuery urlQuery, HttpHeaders headers) {
-        SnailJobLog.LOCAL.debug("Batch Report Retry Data. content:[{}]", content);
+        return doHandler(Unpooled.wrappedBuffer(content.getBytes(StandardCharsets.UTF_8)), headers);
+    }
+
+    @Override
+    public String doHandler(ByteBuf content, UrlBuilder urlBuilder, HttpHeaders headers) {
+        return doHandler(content, headers);
+    }
+
+    private String doHandler(ByteBuf content, HttpHeaders headers) {
+        SnailJobLog.LOCAL.debug("Batch Report Retry Data. size:[{}]", content.readableBytes());
 
-        SnailJobRequest retryRequest = JsonUtil.parseObject(content, SnailJobRequest.class);
-        Object[] args = retryRequest.getArgs();
+        // 直接从请求体中解析上报的数据
+        List<RetryTaskDTO> retryTaskList = new ArrayList<>();
+        long reqId = SnailJobRequestReader.read(content,
+                parser -> retryTaskList.add(parser.readValueAs(RetryTaskDTO.class)));
 
         try {
 
@@ -73,13 +87,10 @@ public class ReportRetryInfoHttpRequestHandler extends PostHttpRequestHandler {
                     .filter(t -> t.supports(TaskGeneratorSceneEnum.CLIENT_REPORT.getScene()))
                     .findFirst().orElseThrow(() -> new SnailJobServerException("没有匹配的任务生成器"));
 
-            Assert.notEmpty(args, () -> new SnailJobServerException("上报的数据不能为空. reqId:[{}]", retryRequest.getReqId()));
-            List<RetryTaskDTO> retryTaskList = JsonUtil.parseList(JsonUtil.toJsonString(args[0]), RetryTaskDTO.class);
-
             SnailJobLog.LOCAL.info("begin handler report data. <|>{}<|>", JsonUtil.toJsonString(retryTaskList));
 
             Set<String> set = StreamUtils.toSet(retryTaskList, RetryTaskDTO::getGroupName);
-            Assert.isTrue(set.size() <= 1, () -> new SnailJobServerException("批量上报数据,同一批次只能是相同的组. reqId:[{}]", retryRequest.getReqId()));
+            Assert.isTrue(set.size() <= 1, () -> new SnailJobServerException("批量上报数据,同一批次只能是相同的组. reqId:[{}]", reqId));
 
             Map<String, List<RetryTaskDTO>> map = StreamUtils.groupByKey(retryTaskList, RetryTaskDTO::getSceneName);
 
@@ -98,7 +109,7 @@ public class ReportRetryInfoHttpRequestHandler extends PostHttpRequestHandler {
                         public <V> void onRetry(final Attempt<V> attempt) {
                             if (attempt.hasException()) {
                                 SnailJobLog.LOCAL.error("数据上报发生异常执行重试. reqId:[{}] count:[{}]",
-                                        retryRequest.getReqId(), attempt.getAttemptNumber(), attempt.getExceptionCause());
+                                        reqId, attempt.getAttemptNumber(), attempt.getExceptionCause());
                             }
                         }
                     })
@@ -121,7 +132,7 @@ public class ReportRetryInfoHttpRequestHandler extends PostHttpRequestHandler {
                 return null;
             });
 
-            return JsonUtil.toJsonString(new NettyResult(StatusEnum.YES.getStatus(), "Batch Retry Data Upload Processed Successfully", Boolean.TRUE, retryRequest.getReqId()));
+            return JsonUtil.toJsonString(new NettyResult(StatusEnum.YES.getStatus(), "Batch Retry Data Upload Processed Successfully", Boolean.TRUE, reqId));
         } catch (Exception e) {
 
             Throwable throwable = e;
@@ -130,8 +141,8 @@ public class ReportRetryInfoHttpRequestHandler extends PostHttpRequestHandler {
                 throwable = re.getLastFailedAttempt().getExceptionCause();
             }
 
-            SnailJobLog.LOCAL.error("Batch Report Retry Data Error. <|>{}<|>", args[0], throwable);
-            return JsonUtil.toJsonString(new NettyResult(StatusEnum.YES.getStatus(), throwable.getMessage(), Boolean.FALSE, retryRequest.getReqId()));
+            SnailJobLog.LOCAL.error("Batch Report Retry Data Error. <|>{}<|>", JsonUtil.toJsonString(retryTaskList), throwable);
+            return JsonUtil.toJsonString(new NettyResult(StatusEnum.YES.getStatus(), throwable.getMessage(), Boolean.FALSE, reqId));
         }
     }
 
@@ -2,14 +2,16 @@ package com.aizuda.snailjob.server.retry.task.support.idempotent;
 
 import cn.hutool.core.lang.Pair;
 import com.aizuda.snailjob.server.common.IdempotentStrategy;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.aizuda.snailjob.server.common.util.ExpiringLongSet;
 import lombok.extern.slf4j.Slf4j;
 
-import java.text.MessageFormat;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * 时间轮幂等
+ * groupName、namespaceId和uniqueId计算为64位的哈希值, 1百万个key发生碰撞的概率约为2.7e-8,
+ * 碰撞的任务被视为已在时间轮中, 本次扫描不会加入时间轮, 也不会恢复已更新的下次触发时间, 因此推迟一个退避周期后才会触发
+ *
  * @author opensnail
  * @date 2023-10-19 21:54:57
  * @since 2.4.0
@@ -17,24 +19,28 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class TimerIdempotent implements IdempotentStrategy<Pair<String/*groupName*/, String/*namespaceId*/>, String> {
 
-    private static final String KEY_FORMAT = "{0}_{1}_{2}";
-    private static final Cache<String, String> cache;
-
-    static {
-        cache = CacheBuilder.newBuilder()
-                .concurrencyLevel(16) // 并发级别
-                .expireAfterWrite(20, TimeUnit.SECONDS)
-                .build();
-    }
+    private static final ExpiringLongSet cache = new ExpiringLongSet(20, TimeUnit.SECONDS);
 
     @Override
     public boolean set(Pair<String/*groupName*/, String/*namespaceId*/> pair, String value) {
-        cache.put(getKey(pair, value), value);
+        cache.add(getKey(pair, value));
         return Boolean.TRUE;
     }
 
-    private static String getKey(Pair<String/*groupName*/, String/*namespaceId*/> pair, final String value) {
-        return MessageFormat.format(KEY_FORMAT, pair.getKey(), pair.getValue(), value);
+    private static long getKey(Pair<String/*groupName*/, String/*namespaceId*/> pair, final String value) {
+        long hash = hash(0x9e3779b97f4a7c15L, pair.getKey());
+        hash = hash(hash, pair.getValue());
+        return hash(hash, value);
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+
+        // 分隔各个字段, 避免不同的拆分得到相同的哈希值
+        hash = (hash ^ value.length()) * 0xff51afd7ed558ccdL;
+        return hash ^ (hash >>> 33);
     }
 
     @Override
@@ -44,12 +50,12 @@ public class TimerIdempotent implements IdempotentStrategy<Pair<String/*groupNam
 
     @Override
     public boolean isExist(Pair<String/*groupName*/, String/*namespaceId*/> pair, String value) {
-        return cache.asMap().containsKey(getKey(pair, value));
+        return cache.contains(getKey(pair, value));
     }
 
     @Override
     public boolean clear(Pair<String/*groupName*/, String/*namespaceId*/> pair, String value) {
-        cache.invalidate(getKey(pair, value));
+        cache.remove(getKey(pair, value));
         return Boolean.TRUE;
     }
 }
@@ -1,7 +1,6 @@
 package com.aizuda.snailjob.server.retry.task.support.timer;
 
 import com.aizuda.snailjob.common.core.context.SpringContext;
-import com.aizuda.snailjob.common.core.enums.RetryStatusEnum;
 import com.aizuda.snailjob.server.retry.task.support.dispatch.task.TaskActuatorFactory;
 import com.aizuda.snailjob.server.retry.task.support.dispatch.task.TaskExecutor;
 import com.aizuda.snailjob.template.datasource.access.AccessTemplate;
@@ -9,7 +8,6 @@ import com.aizuda.snailjob.template.datasource.access.TaskAccess;
 import com.aizuda.snailjob.template.datasource.persistence.po.RetryTask;
 import com.aizuda.snailjob.server.retry.task.support.dispatch.task.TaskActuatorFactory;
 import com.aizuda.snailjob.server.retry.task.support.dispatch.task.TaskExecutor;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import io.netty.util.Timeout;
 import lombok.extern.slf4j.Slf4j;
 
@@ -37,12 +35,7 @@ public class CallbackTimerTask extends AbstractTimerTask {
         log.debug("回调任务执行 {}", LocalDateTime.now());
         AccessTemplate accessTemplate = SpringContext.getBeanByType(AccessTemplate.class);
         TaskAccess<RetryTask> retryTaskAccess = accessTemplate.getRetryTaskAccess();
-        RetryTask retryTask = retryTaskAccess.one(context.getGroupName(), context.getNamespaceId(),
-                new LambdaQueryWrapper<RetryTask>()
-                        .eq(RetryTask::getNamespaceId, context.getNamespaceId())
-                        .eq(RetryTask::getGroupName, context.getGroupName())
-                        .eq(RetryTask::getUniqueId, context.getUniqueId())
-                        .eq(RetryTask::getRetryStatus, RetryStatusEnum.RUNNING.getStatus()));
+        RetryTask retryTask = RetryTimerTaskLoader.load(retryTaskAccess, context);
         if (Objects.isNull(retryTask)) {
             return;
         }
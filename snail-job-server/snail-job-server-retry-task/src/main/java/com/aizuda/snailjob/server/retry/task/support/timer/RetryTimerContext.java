@@ -1,7 +1,7 @@
 package com.aizuda.snailjob.server.retry.task.support.timer;
 
 import com.aizuda.snailjob.server.retry.task.support.dispatch.task.TaskExecutorSceneEnum;
-import com.aizuda.snailjob.server.retry.task.support.dispatch.task.TaskExecutorSceneEnum;
+import com.aizuda.snailjob.template.datasource.persistence.po.RetryTask;
 import lombok.Data;
 
 /**
@@ -20,4 +20,9 @@ public class RetryTimerContext {
 
     private TaskExecutorSceneEnum scene;
 
+    /**
+     * 任务快照, 为空时触发时按uniqueId重新查询
+     */
+    private RetryTask retryTask;
+
 }
@@ -0,0 +1,127 @@
+package com.aizuda.snailjob.server.retry.task.support.timer;
+
+import com.aizuda.snailjob.common.core.enums.RetryStatusEnum;
+import com.aizuda.snailjob.server.common.dto.PartitionTask;
+import com.aizuda.snailjob.server.retry.task.dto.RetryPartitionTask;
+import com.aizuda.snailjob.server.retry.task.support.RetryTaskConverter;
+import com.aizuda.snailjob.template.datasource.access.TaskAccess;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.RetryTaskMapper;
+import com.aizuda.snailjob.template.datasource.persistence.po.RetryTask;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 获取时间轮触发时需要执行的重试任务
+ * 扫描时仅在任务查询之后未被修改(更新时间未变化)时保留快照, 否则作废快照;
+ * 携带快照时通过条件更新确认任务进入时间轮之后未被修改(状态、重试次数、执行器、更新时间均未变化), 确认成功直接使用快照;
+ * 未携带快照或者确认失败(例如在控制台修改、暂停或删除了任务)时按uniqueId重新查询
+ *
+ * @since sj_1.0.0
+ */
+public final class RetryTimerTaskLoader {
+
+    private RetryTimerTaskLoader() {
+    }
+
+    /**
+     * 扫描后批量更新下次触发时间
+     * 携带快照时按查询时的update_dt条件更新并写入新的update_dt, 全部更新成功时快照与DB保持一致;
+     * 否则说明有任务在查询之后被修改, 作废本批次的快照并按id更新下次触发时间
+     *
+     * @param retryTaskMapper 重试任务mapper
+     * @param partition       分区
+     * @param partitionTasks  扫描到的任务
+     * @param retryTasks      需要更新的任务(id和下次触发时间)
+     */
+    public static void updateNextTriggerAt(RetryTaskMapper retryTaskMapper, Integer partition,
+                                           List<? extends PartitionTask> partitionTasks, List<RetryTask> retryTasks) {
+        Map<Long, RetryTask> snapshotMap = new HashMap<>();
+        for (PartitionTask partitionTask : partitionTasks) {
+            RetryTask snapshot = ((RetryPartitionTask) partitionTask).getRetryTask();
+            if (Objects.nonNull(snapshot)) {
+                snapshotMap.put(partitionTask.getId(), snapshot);
+            }
+        }
+
+        if (!snapshotMap.isEmpty() && updateWithSnapshot(retryTaskMapper, partition, snapshotMap, retryTasks)) {
+            return;
+        }
+
+        for (PartitionTask partitionTask : partitionTasks) {
+            ((RetryPartitionTask) partitionTask).setRetryTask(null);
+        }
+        retryTaskMapper.updateBatchNextTriggerAtById(partition, retryTasks);
+    }
+
+    private static boolean updateWithSnapshot(RetryTaskMapper retryTaskMapper, Integer partition,
+                                              Map<Long, RetryTask> snapshotMap, List<RetryTask> retryTasks) {
+        List<RetryTask> guardTasks = new ArrayList<>(retryTasks.size());
+        for (RetryTask retryTask : retryTasks) {
+            RetryTask snapshot = snapshotMap.get(retryTask.getId());
+            if (Objects.isNull(snapshot)) {
+                return false;
+            }
+
+            RetryTask guardTask = new RetryTask();
+            guardTask.setId(retryTask.getId());
+            guardTask.setNextTriggerAt(retryTask.getNextTriggerAt());
+            guardTask.setUpdateDt(snapshot.getUpdateDt());
+            guardTasks.add(guardTask);
+        }
+
+        // 精确到秒保证各数据库中存储的值与快照一致
+        LocalDateTime updateDt = LocalDateTime.now().withNano(0);
+        if (guardTasks.size() != retryTaskMapper.updateBatchNextTriggerAtByIdAndUpdateDt(partition, updateDt, guardTasks)) {
+            return false;
+        }
+
+        for (RetryTask retryTask : retryTasks) {
+            RetryTask snapshot = snapshotMap.get(retryTask.getId());
+            snapshot.setNextTriggerAt(retryTask.getNextTriggerAt());
+            snapshot.setUpdateDt(updateDt);
+        }
+        return true;
+    }
+
+    /**
+     * @param retryTaskAccess 重试任务操作类
+     * @param context         时间轮任务上下文
+     * @return 需要执行的重试任务, 任务不存在或者不是重试中状态时返回null
+     */
+    public static RetryTask load(TaskAccess<RetryTask> retryTaskAccess, RetryTimerContext context) {
+        RetryTask snapshot = context.getRetryTask();
+        if (Objects.nonNull(snapshot) && confirm(retryTaskAccess, snapshot)) {
+            // 执行过程中会修改任务数据, 快照本身保持不变
+            return RetryTaskConverter.INSTANCE.toRetryTask(snapshot);
+        }
+
+        return retryTaskAccess.one(context.getGroupName(), context.getNamespaceId(),
+                new LambdaQueryWrapper<RetryTask>()
+                        .eq(RetryTask::getNamespaceId, context.getNamespaceId())
+                        .eq(RetryTask::getGroupName, context.getGroupName())
+                        .eq(RetryTask::getUniqueId, context.getUniqueId())
+                        .eq(RetryTask::getRetryStatus, RetryStatusEnum.RUNNING.getStatus()));
+    }
+
+    /**
+     * 确认快照与DB中的数据一致, 同时刷新更新时间
+     */
+    private static boolean confirm(TaskAccess<RetryTask> retryTaskAccess, RetryTask snapshot) {
+        RetryTask retryTask = new RetryTask();
+        retryTask.setUpdateDt(LocalDateTime.now().withNano(0));
+        return 1 == retryTaskAccess.update(snapshot.getGroupName(), snapshot.getNamespaceId(), retryTask,
+                new LambdaUpdateWrapper<RetryTask>()
+                        .eq(RetryTask::getId, snapshot.getId())
+                        .eq(RetryTask::getRetryStatus, RetryStatusEnum.RUNNING.getStatus())
+                        .eq(RetryTask::getRetryCount, snapshot.getRetryCount())
+                        .eq(RetryTask::getExecutorName, snapshot.getExecutorName())
+                        .eq(RetryTask::getUpdateDt, snapshot.getUpdateDt()));
+    }
+}
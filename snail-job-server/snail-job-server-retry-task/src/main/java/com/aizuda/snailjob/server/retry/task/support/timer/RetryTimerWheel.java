@@ -3,15 +3,17 @@ package com.aizuda.snailjob.server.retry.task.support.timer;
 import cn.hutool.core.lang.Pair;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.Lifecycle;
+import com.aizuda.snailjob.server.common.config.SystemProperties;
+import com.aizuda.snailjob.server.common.timer.HierarchicalWheelTimer;
 import com.aizuda.snailjob.server.retry.task.support.idempotent.TimerIdempotent;
-import com.aizuda.snailjob.server.retry.task.support.idempotent.TimerIdempotent;
-import io.netty.util.HashedWheelTimer;
 import io.netty.util.TimerTask;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -21,26 +23,38 @@ import java.util.concurrent.TimeUnit;
  */
 @Component
 @Slf4j
+@RequiredArgsConstructor
 public class RetryTimerWheel implements Lifecycle {
 
     private static final int TICK_DURATION = 500;
     private static final String THREAD_NAME_PREFIX = "retry-task-timer-wheel-";
-    private static HashedWheelTimer timer = null;
-    private static final ThreadPoolExecutor executor =
-            new ThreadPoolExecutor(16, 16, 10, TimeUnit.SECONDS,
-                    new LinkedBlockingQueue<>(), new CustomizableThreadFactory(THREAD_NAME_PREFIX));
+    private static HierarchicalWheelTimer timer = null;
+    private static ThreadPoolExecutor executor = null;
 
     private static final TimerIdempotent idempotent = new TimerIdempotent();
 
+    private final SystemProperties systemProperties;
+
     @Override
     public void start() {
-        timer = new HashedWheelTimer(
-                new CustomizableThreadFactory(THREAD_NAME_PREFIX), TICK_DURATION, TimeUnit.MILLISECONDS, 512,
-                true, -1, executor);
+        SystemProperties.TimerWheel timerWheel = systemProperties.getTimerWheel();
+        // 有界队列, 队列满时由时间轮线程执行, 延迟体现在触发延迟指标中
+        executor = new ThreadPoolExecutor(16, 16, 10, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(timerWheel.getExecutorQueueCapacity()),
+                new CustomizableThreadFactory(THREAD_NAME_PREFIX), new ThreadPoolExecutor.CallerRunsPolicy());
+        timer = new HierarchicalWheelTimer(
+                new CustomizableThreadFactory(THREAD_NAME_PREFIX), TICK_DURATION, TimeUnit.MILLISECONDS,
+                timerWheel.getMaxPendingTimeouts(), executor, timerWheel.getBatchSize());
         timer.start();
     }
 
-    public static void register(Pair<String/*groupName*/, String/*namespaceId*/> pair, String uniqueId, TimerTask task, long delay, TimeUnit unit) {
+    /**
+     * 加入时间轮
+     * 幂等key已存在时视为已在时间轮中并返回true, 包括哈希碰撞的情况, 见{@link TimerIdempotent}
+     *
+     * @return false-加入失败(例如未到期的任务数超过maxPendingTimeouts)
+     */
+    public static boolean register(Pair<String/*groupName*/, String/*namespaceId*/> pair, String uniqueId, TimerTask task, long delay, TimeUnit unit) {
 
         if (!isExisted(pair, uniqueId)) {
             delay = delay < 0 ? 0 : delay;
@@ -49,8 +63,11 @@ public class RetryTimerWheel implements Lifecycle {
                 idempotent.set(pair, uniqueId);
             } catch (Exception e) {
                 SnailJobLog.LOCAL.error("加入时间轮失败. uniqueId:[{}]", uniqueId, e);
+                return false;
             }
         }
+
+        return true;
     }
 
     public static boolean isExisted(Pair<String/*groupName*/, String/*namespaceId*/> pair, String uniqueId) {
@@ -61,6 +78,20 @@ public class RetryTimerWheel implements Lifecycle {
         idempotent.clear(pair, uniqueId);
     }
 
+    /**
+     * 时间轮中未到期的任务数
+     */
+    public static long pendingTimeouts() {
+        return Objects.isNull(timer) ? 0 : timer.getPendingTimeouts();
+    }
+
+    /**
+     * 最近一次触发的延迟(毫秒)
+     */
+    public static long fireLagMillis() {
+        return Objects.isNull(timer) ? 0 : timer.getFireLagMillis();
+    }
+
     @Override
     public void close() {
         timer.stop();
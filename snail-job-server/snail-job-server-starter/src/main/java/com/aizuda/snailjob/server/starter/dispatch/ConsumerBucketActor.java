@@ -16,6 +16,7 @@ import com.aizuda.snailjob.template.datasource.access.AccessTemplate;
 import com.aizuda.snailjob.template.datasource.persistence.mapper.ServerNodeMapper;
 import com.aizuda.snailjob.template.datasource.persistence.po.GroupConfig;
 import com.aizuda.snailjob.template.datasource.persistence.po.ServerNode;
+import com.aizuda.snailjob.template.datasource.utils.GroupPartitionCache;
 import com.aizuda.snailjob.server.retry.task.support.cache.CacheGroupRateLimiter;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.google.common.cache.Cache;
@@ -89,6 +90,8 @@ public class ConsumerBucketActor extends AbstractActor {
         if (!CollectionUtils.isEmpty(groupConfigs)) {
             for (final GroupConfig groupConfig : groupConfigs) {
                 CacheConsumerGroup.addOrUpdate(groupConfig.getGroupName(), groupConfig.getNamespaceId());
+                GroupPartitionCache.refresh(groupConfig.getGroupName(), groupConfig.getNamespaceId(),
+                        groupConfig.getGroupPartition());
                 ScanTask scanTask = new ScanTask();
                 scanTask.setNamespaceId(groupConfig.getNamespaceId());
                 scanTask.setGroupName(groupConfig.getGroupName());
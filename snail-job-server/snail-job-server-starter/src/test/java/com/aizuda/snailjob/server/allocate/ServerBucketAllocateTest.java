@@ -0,0 +1,130 @@
+package com.aizuda.snailjob.server.allocate;
+
+import com.aizuda.snailjob.server.common.ServerLoadBalance;
+import com.aizuda.snailjob.server.common.allocate.server.ServerLoadBalanceManager.AllocationAlgorithmEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 模拟服务端节点加入和离开, 统计不同分配算法下桶的迁移数量以及逐个节点重平衡期间无人消费的桶
+ *
+ * @since sj_1.0.0
+ */
+@Slf4j
+public class ServerBucketAllocateTest {
+
+    private static final int BUCKET_TOTAL = 128;
+    private static final List<Integer> BUCKET_LIST = IntStream.range(0, BUCKET_TOTAL).boxed().collect(Collectors.toList());
+
+    @Test
+    public void rendezvousHashMovesOnlyChangedNodeBuckets() {
+        List<String> serverList = servers(4);
+        List<String> joinList = new ArrayList<>(serverList);
+        joinList.add("server-new");
+
+        Stat avgJoin = simulate(AllocationAlgorithmEnum.AVG, serverList, joinList);
+        Stat hashJoin = simulate(AllocationAlgorithmEnum.RENDEZVOUS_HASH, serverList, joinList);
+        log.info("join avg:{} rendezvous:{}", avgJoin, hashJoin);
+
+        // 新节点加入时只有分配给新节点的桶会迁移, 约为1/N
+        Assert.assertTrue(hashJoin.moved <= BUCKET_TOTAL * 2 / joinList.size());
+        Assert.assertTrue(hashJoin.moved < avgJoin.moved);
+        Assert.assertTrue(hashJoin.maxGap <= hashJoin.moved);
+
+        List<String> leaveList = new ArrayList<>(serverList);
+        leaveList.remove(1);
+        Stat avgLeave = simulate(AllocationAlgorithmEnum.AVG, serverList, leaveList);
+        Stat hashLeave = simulate(AllocationAlgorithmEnum.RENDEZVOUS_HASH, serverList, leaveList);
+        log.info("leave avg:{} rendezvous:{}", avgLeave, hashLeave);
+
+        // 节点离开时只有离开节点的桶会迁移
+        Assert.assertTrue(hashLeave.moved <= BUCKET_TOTAL * 2 / serverList.size());
+        Assert.assertTrue(hashLeave.moved < avgLeave.moved);
+    }
+
+    @Test
+    public void allocateCoversAllBuckets() {
+        for (AllocationAlgorithmEnum algorithm : AllocationAlgorithmEnum.values()) {
+            for (int size = 1; size <= 16; size++) {
+                Map<Integer, String> owner = owner(algorithm.getServerLoadBalance(), servers(size));
+                Assert.assertEquals(algorithm.name(), BUCKET_TOTAL, owner.size());
+            }
+        }
+    }
+
+    /**
+     * 节点列表从before变成after, 存活的节点以随机顺序逐个重平衡
+     */
+    private Stat simulate(AllocationAlgorithmEnum algorithm, List<String> before, List<String> after) {
+        ServerLoadBalance<Integer, String> loadBalance = algorithm.getServerLoadBalance();
+        Map<Integer, String> beforeOwner = owner(loadBalance, before);
+        Map<Integer, String> afterOwner = owner(loadBalance, after);
+
+        Stat stat = new Stat();
+        stat.moved = (int) BUCKET_LIST.stream().filter(bucket -> !beforeOwner.get(bucket).equals(afterOwner.get(bucket))).count();
+
+        Random random = new Random(after.size());
+        for (int round = 0; round < 100; round++) {
+            // 每个节点本地持有的桶, 离开的节点不再消费
+            Map<String, Set<Integer>> consumerBuckets = new HashMap<>();
+            for (String server : after) {
+                consumerBuckets.put(server, before.contains(server)
+                        ? new HashSet<>(loadBalance.allocate(server, BUCKET_LIST, before)) : new HashSet<>());
+            }
+
+            List<String> order = new ArrayList<>(after);
+            Collections.shuffle(order, random);
+            for (String server : order) {
+                Set<Integer> buckets = consumerBuckets.get(server);
+                List<Integer> allocate = loadBalance.allocate(server, BUCKET_LIST, after);
+                buckets.retainAll(allocate);
+                buckets.addAll(allocate);
+
+                int gap = 0;
+                int duplicate = 0;
+                for (Integer bucket : BUCKET_LIST) {
+                    long count = consumerBuckets.values().stream().filter(set -> set.contains(bucket)).count();
+                    if (count == 0) {
+                        gap++;
+                    } else if (count > 1) {
+                        duplicate++;
+                    }
+                }
+                stat.maxGap = Math.max(stat.maxGap, gap);
+                stat.maxDuplicate = Math.max(stat.maxDuplicate, duplicate);
+            }
+        }
+
+        return stat;
+    }
+
+    private static Map<Integer, String> owner(ServerLoadBalance<Integer, String> loadBalance, List<String> serverList) {
+        Map<Integer, String> owner = new HashMap<>();
+        for (String server : serverList) {
+            for (Integer bucket : loadBalance.allocate(server, BUCKET_LIST, serverList)) {
+                Assert.assertNull("bucket allocated twice: " + bucket, owner.put(bucket, server));
+            }
+        }
+        return owner;
+    }
+
+    private static List<String> servers(int size) {
+        return IntStream.range(0, size).mapToObj(i -> "server-" + i).collect(Collectors.toList());
+    }
+
+    private static class Stat {
+        private int moved;
+        private int maxGap;
+        private int maxDuplicate;
+
+        @Override
+        public String toString() {
+            return "moved=" + moved + ", maxGap=" + maxGap + ", maxDuplicate=" + maxDuplicate;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.aizuda.snailjob.server.cache;
+
+import com.aizuda.snailjob.common.core.context.SpringContext;
+import com.aizuda.snailjob.common.core.enums.NodeTypeEnum;
+import com.aizuda.snailjob.server.common.allocate.client.ClientLoadBalanceManager;
+import com.aizuda.snailjob.server.common.cache.CacheRegisterTable;
+import com.aizuda.snailjob.server.common.dto.RegisterNodeInfo;
+import com.aizuda.snailjob.server.common.dto.RegisterNodeSnapshot;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.ServerNodeMapper;
+import com.aizuda.snailjob.template.datasource.persistence.po.ServerNode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 注册表快照测试
+ * 并发刷新过期时间和路由查询, 验证只有节点变化时才生成新的快照, 查询始终看到完整且有序的节点
+ *
+ * @since sj_1.0.0
+ */
+@Slf4j
+public class CacheRegisterTableTest {
+
+    private static final String GROUP_NAME = "test_group";
+    private static final String NAMESPACE_ID = "test_namespace";
+
+    private final CacheRegisterTable cacheRegisterTable = new CacheRegisterTable();
+
+    @Before
+    public void setUp() {
+        cacheRegisterTable.start();
+    }
+
+    @After
+    public void tearDown() {
+        cacheRegisterTable.close();
+    }
+
+    @Test
+    public void snapshotRebuiltOnlyWhenMembershipChanges() {
+        for (int i = 9; i >= 0; i--) {
+            CacheRegisterTable.addOrUpdate(serverNode("client-" + i));
+        }
+
+        RegisterNodeSnapshot snapshot = CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID);
+        Assert.assertEquals(10, snapshot.size());
+        Assert.assertEquals("client-0", snapshot.getHostIds().get(0));
+        Assert.assertEquals("client-9", snapshot.getHostIds().get(9));
+
+        // 刷新过期时间不生成新的快照
+        for (int i = 0; i < 10; i++) {
+            CacheRegisterTable.refreshExpireAt(serverNode("client-" + i));
+            CacheRegisterTable.addOrUpdate(serverNode("client-" + i));
+        }
+        Assert.assertSame(snapshot, CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID));
+
+        // 新节点通过心跳直接加入
+        CacheRegisterTable.refreshExpireAt(serverNode("client-10"));
+        RegisterNodeSnapshot joined = CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID);
+        Assert.assertEquals(snapshot.getVersion() + 1, joined.getVersion());
+        Assert.assertEquals(11, joined.size());
+        Assert.assertNotNull(joined.getNode("client-10"));
+
+        CacheRegisterTable.remove(GROUP_NAME, NAMESPACE_ID, "client-3");
+        RegisterNodeSnapshot removed = CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID);
+        Assert.assertEquals(joined.getVersion() + 1, removed.getVersion());
+        Assert.assertNull(removed.getNode("client-3"));
+        Assert.assertEquals(10, CacheRegisterTable.getServerNodeSet(GROUP_NAME, NAMESPACE_ID).size());
+
+        // 删除不存在的节点不生成新的快照
+        CacheRegisterTable.remove(GROUP_NAME, NAMESPACE_ID, "client-3");
+        Assert.assertSame(removed, CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID));
+    }
+
+    @Test
+    public void emptyResultNotCached() {
+        // 客户端注册前DB中没有节点, 不缓存空的快照, 注册后下一次查询即可取到
+        List<ServerNode> serverNodes = new ArrayList<>();
+        AtomicLong selectCount = new AtomicLong();
+        ServerNodeMapper serverNodeMapper = (ServerNodeMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ServerNodeMapper.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(this, args);
+                    }
+                    if (!"selectList".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    selectCount.incrementAndGet();
+                    return new ArrayList<>(serverNodes);
+                });
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("serverNodeMapper", serverNodeMapper);
+        context.refresh();
+        new SpringContext().setApplicationContext(context);
+
+        Assert.assertTrue(CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID).isEmpty());
+        Assert.assertTrue(CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID).isEmpty());
+        Assert.assertEquals(2, selectCount.get());
+
+        serverNodes.add(serverNode("client-0"));
+        Assert.assertNotNull(CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID).getNode("client-0"));
+        Assert.assertNotNull(CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID).getNode("client-0"));
+        Assert.assertEquals(3, selectCount.get());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void serverNodeSetIsReadOnly() {
+        CacheRegisterTable.addOrUpdate(serverNode("client-0"));
+        CacheRegisterTable.getServerNodeSet(GROUP_NAME, NAMESPACE_ID).clear();
+    }
+
+    @Test
+    public void concurrentHeartbeatAndLookup() throws InterruptedException {
+        int nodeSize = 50;
+        for (int i = 0; i < nodeSize; i++) {
+            CacheRegisterTable.addOrUpdate(serverNode(String.format("client-%03d", i)));
+        }
+
+        int threads = 4;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads * 2 + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong heartbeats = new AtomicLong();
+        AtomicLong lookups = new AtomicLong();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(threads * 2 + 1);
+
+        for (int t = 0; t < threads; t++) {
+            executorService.execute(() -> {
+                try {
+                    int i = 0;
+                    while (running.get()) {
+                        CacheRegisterTable.refreshExpireAt(serverNode(String.format("client-%03d", i++ % nodeSize)));
+                        heartbeats.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    latch.countDown();
+                }
+            });
+
+            executorService.execute(() -> {
+                try {
+                    int i = 0;
+                    while (running.get()) {
+                        RegisterNodeSnapshot snapshot = CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID);
+                        List<String> hostIds = snapshot.getHostIds();
+                        for (int j = 1; j < hostIds.size(); j++) {
+                            Assert.assertTrue(hostIds.get(j - 1).compareTo(hostIds.get(j)) < 0);
+                        }
+
+                        String hostId = ClientLoadBalanceManager.getClientLoadBalance(
+                                ClientLoadBalanceManager.AllocationAlgorithmEnum.values()[i % 4].getType())
+                                .route("job-" + (i++ % 100), snapshot);
+                        Assert.assertNotNull(snapshot.getNode(hostId));
+                        lookups.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        // 节点上下线
+        executorService.execute(() -> {
+            try {
+                int i = 0;
+                while (running.get()) {
+                    String hostId = "client-x" + (i++ % 5);
+                    CacheRegisterTable.addOrUpdate(serverNode(hostId));
+                    CacheRegisterTable.remove(GROUP_NAME, NAMESPACE_ID, hostId);
+                    TimeUnit.MILLISECONDS.sleep(1);
+                }
+            } catch (Throwable e) {
+                error.compareAndSet(null, e);
+            } finally {
+                latch.countDown();
+            }
+        });
+
+        TimeUnit.SECONDS.sleep(2);
+        running.set(false);
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+
+        log.info("heartbeats:[{}] lookups:[{}] version:[{}]", heartbeats.get(), lookups.get(),
+                CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID).getVersion());
+        Assert.assertEquals(nodeSize, CacheRegisterTable.getSnapshot(GROUP_NAME, NAMESPACE_ID).size());
+    }
+
+    private static ServerNode serverNode(String hostId) {
+        ServerNode serverNode = new ServerNode();
+        serverNode.setHostId(hostId);
+        serverNode.setHostIp("127.0.0.1");
+        serverNode.setHostPort(1789);
+        serverNode.setGroupName(GROUP_NAME);
+        serverNode.setNamespaceId(NAMESPACE_ID);
+        serverNode.setNodeType(NodeTypeEnum.CLIENT.getType());
+        serverNode.setExpireAt(LocalDateTime.now().plusSeconds(30));
+        return serverNode;
+    }
+}
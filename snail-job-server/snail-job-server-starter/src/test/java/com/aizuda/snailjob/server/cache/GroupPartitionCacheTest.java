@@ -0,0 +1,87 @@
+package com.aizuda.snailjob.server.cache;
+
+import com.aizuda.snailjob.template.datasource.utils.GroupPartitionCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * 组分区缓存在事务内的加载次数, 以及事务提交和回滚后缓存的内容
+ *
+ * @since sj_1.0.0
+ */
+public class GroupPartitionCacheTest {
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+    private final BiFunction<String, String, Integer> loader = (groupName, namespaceId) -> {
+        loadCount.incrementAndGet();
+        return 1;
+    };
+
+    @Before
+    public void setUp() {
+        GroupPartitionCache.invalidateAll();
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(false);
+        }
+        GroupPartitionCache.invalidateAll();
+    }
+
+    @Test
+    public void loadedOncePerTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(Integer.valueOf(1), GroupPartitionCache.get("group", "namespace", loader));
+        }
+        Assert.assertEquals(1, loadCount.get());
+
+        complete(true);
+        GroupPartitionCache.get("group", "namespace", loader);
+        Assert.assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void rolledBackNotCached() {
+        TransactionSynchronizationManager.initSynchronization();
+        GroupPartitionCache.get("group", "namespace", loader);
+        complete(false);
+
+        GroupPartitionCache.get("group", "namespace", loader);
+        Assert.assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void invalidatedWithinTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        GroupPartitionCache.get("group", "namespace", loader);
+        GroupPartitionCache.invalidate("group", "namespace");
+
+        GroupPartitionCache.get("group", "namespace", loader);
+        Assert.assertEquals(2, loadCount.get());
+    }
+
+    /**
+     * 与事务管理器相同: 提交后依次触发afterCommit和afterCompletion
+     */
+    private static void complete(boolean commit) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (commit) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, commit
+                ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+}
@@ -0,0 +1,63 @@
+package com.aizuda.snailjob.server.cache;
+
+import com.aizuda.snailjob.common.core.util.JsonUtil;
+import com.aizuda.snailjob.server.job.task.dto.WorkflowTaskBatchExtAttrs;
+import com.aizuda.snailjob.server.job.task.support.cache.MutableGraphCache;
+import com.aizuda.snailjob.template.datasource.persistence.po.WorkflowTaskBatch;
+import com.google.common.graph.Graph;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 工作流DAG图缓存按工作流ID + 版本号共享图对象
+ *
+ * @since sj_1.0.0
+ */
+public class MutableGraphCacheTest {
+
+    private static final String FLOW_INFO_V1 = "{\"0\":[1],\"1\":[2],\"2\":[]}";
+    private static final String FLOW_INFO_V2 = "{\"0\":[1,2],\"1\":[],\"2\":[]}";
+
+    @Test
+    public void sameVersionShared() {
+        long workflowId = System.nanoTime();
+        long hit = MutableGraphCache.getHitCount();
+        long miss = MutableGraphCache.getMissCount();
+
+        Graph<Long> first = MutableGraphCache.getOrDefault(newBatch(workflowId, 1, FLOW_INFO_V1));
+        Graph<Long> second = MutableGraphCache.getOrDefault(newBatch(workflowId, 1, FLOW_INFO_V1));
+        Assert.assertSame(first, second);
+        Assert.assertEquals(hit + 1, MutableGraphCache.getHitCount());
+        Assert.assertEquals(miss + 1, MutableGraphCache.getMissCount());
+
+        // 工作流更新后版本号递增, 使用新的图对象
+        Graph<Long> updated = MutableGraphCache.getOrDefault(newBatch(workflowId, 2, FLOW_INFO_V2));
+        Assert.assertNotSame(first, updated);
+        Assert.assertEquals(2, updated.successors(0L).size());
+        Assert.assertEquals(1, first.successors(0L).size());
+        Assert.assertEquals(miss + 2, MutableGraphCache.getMissCount());
+    }
+
+    @Test
+    public void withoutVersionNotCached() {
+        long workflowId = System.nanoTime();
+        WorkflowTaskBatch workflowTaskBatch = newBatch(workflowId, null, FLOW_INFO_V1);
+        workflowTaskBatch.setExtAttrs("");
+
+        Graph<Long> first = MutableGraphCache.getOrDefault(workflowTaskBatch);
+        Graph<Long> second = MutableGraphCache.getOrDefault(workflowTaskBatch);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first, second);
+    }
+
+    private static WorkflowTaskBatch newBatch(long workflowId, Integer version, String flowInfo) {
+        WorkflowTaskBatchExtAttrs extAttrs = new WorkflowTaskBatchExtAttrs();
+        extAttrs.setVersion(version);
+
+        WorkflowTaskBatch workflowTaskBatch = new WorkflowTaskBatch();
+        workflowTaskBatch.setWorkflowId(workflowId);
+        workflowTaskBatch.setFlowInfo(flowInfo);
+        workflowTaskBatch.setExtAttrs(JsonUtil.toJsonString(extAttrs));
+        return workflowTaskBatch;
+    }
+}
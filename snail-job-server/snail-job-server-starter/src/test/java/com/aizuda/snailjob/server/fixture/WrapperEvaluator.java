@@ -0,0 +1,205 @@
+package com.aizuda.snailjob.server.fixture;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.Assert;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 在内存中执行条件构造器生成的条件, 测试中以内存中的数据代替表
+ * 支持 AND、OR、括号、比较和IN, 列按照实体的表信息对应到字段; 出现无法解析的条件或者未使用的参数时断言失败
+ *
+ * @since sj_1.0.0
+ */
+public final class WrapperEvaluator<T> {
+
+    private static final Pattern TOKEN = Pattern.compile(
+            "\\(|\\)|,|>=|<=|=|>|<|#\\{ew\\.paramNameValuePairs\\.(\\w+)}|\\w+");
+
+    private final Class<T> entityClass;
+    private final Map<String/*column*/, Field> columns = new HashMap<>();
+
+    public WrapperEvaluator(Class<T> entityClass) {
+        this.entityClass = entityClass;
+        TableInfo tableInfo = TableInfoHelper.initTableInfo(
+                new MapperBuilderAssistant(new MybatisConfiguration(), ""), entityClass);
+        columns.put(tableInfo.getKeyColumn(), field(tableInfo.getKeyProperty()));
+        for (TableFieldInfo fieldInfo : tableInfo.getFieldList()) {
+            columns.put(fieldInfo.getColumn(), field(fieldInfo.getProperty()));
+        }
+    }
+
+    /**
+     * 解析条件, ORDER BY 之后的内容忽略
+     */
+    public Condition<T> parse(AbstractWrapper<T, ?, ?> query) {
+        return new Condition<>(this, query);
+    }
+
+    public boolean matches(T row, AbstractWrapper<T, ?, ?> query) {
+        return parse(query).test(row);
+    }
+
+    public Object get(T row, String column) {
+        Field field = columns.get(column);
+        Assert.assertNotNull(column, field);
+        try {
+            return field.get(row);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public T copy(T entity) {
+        try {
+            T copy = entityClass.getDeclaredConstructor().newInstance();
+            for (Field field : columns.values()) {
+                field.set(copy, field.get(entity));
+            }
+            return copy;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 与 update(entity, wrapper) 相同, 只写入不为空的字段
+     */
+    public void update(T row, T entity) {
+        try {
+            for (Field field : columns.values()) {
+                Object value = field.get(entity);
+                if (Objects.nonNull(value)) {
+                    field.set(row, value);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Field field(String name) {
+        try {
+            Field field = entityClass.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 将条件中的 AND、OR、比较和IN 转换为对行的判断
+     */
+    public static final class Condition<T> implements Predicate<T> {
+
+        private final WrapperEvaluator<T> evaluator;
+        private final List<String> tokens = new ArrayList<>();
+        private final Map<String, Object> params;
+        private final Set<String> usedParams = new HashSet<>();
+        private final List<Object> inValues = new ArrayList<>();
+        private final Predicate<T> predicate;
+        private int position;
+
+        private Condition(WrapperEvaluator<T> evaluator, AbstractWrapper<T, ?, ?> query) {
+            this.evaluator = evaluator;
+            String sqlSegment = query.getSqlSegment();
+            int orderBy = sqlSegment.indexOf("ORDER BY");
+            Matcher matcher = TOKEN.matcher(orderBy < 0 ? sqlSegment : sqlSegment.substring(0, orderBy));
+            while (matcher.find()) {
+                tokens.add(Objects.nonNull(matcher.group(1)) ? "#" + matcher.group(1) : matcher.group());
+            }
+            params = query.getParamNameValuePairs();
+
+            predicate = tokens.isEmpty() ? row -> true : or();
+            Assert.assertEquals(tokens.size(), position);
+            Assert.assertEquals(params.keySet(), usedParams);
+        }
+
+        @Override
+        public boolean test(T row) {
+            return predicate.test(row);
+        }
+
+        /**
+         * IN条件中的所有值
+         */
+        public List<Object> getInValues() {
+            return Collections.unmodifiableList(inValues);
+        }
+
+        private Predicate<T> or() {
+            Predicate<T> predicate = and();
+            while (position < tokens.size() && "OR".equals(tokens.get(position))) {
+                position++;
+                predicate = predicate.or(and());
+            }
+            return predicate;
+        }
+
+        private Predicate<T> and() {
+            Predicate<T> predicate = comparison();
+            while (position < tokens.size() && "AND".equals(tokens.get(position))) {
+                position++;
+                predicate = predicate.and(comparison());
+            }
+            return predicate;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Predicate<T> comparison() {
+            String token = tokens.get(position++);
+            if ("(".equals(token)) {
+                Predicate<T> predicate = or();
+                Assert.assertEquals(")", tokens.get(position++));
+                return predicate;
+            }
+
+            String column = token;
+            String operator = tokens.get(position++);
+            if ("IN".equals(operator)) {
+                Assert.assertEquals("(", tokens.get(position++));
+                List<Object> values = new ArrayList<>();
+                for (String value = tokens.get(position++); !")".equals(value); value = tokens.get(position++)) {
+                    if (!",".equals(value)) {
+                        values.add(param(value));
+                    }
+                }
+                inValues.addAll(values);
+                return row -> values.contains(evaluator.get(row, column));
+            }
+
+            Object value = param(tokens.get(position++));
+            return switch (operator) {
+                case "=" -> row -> Objects.equals(evaluator.get(row, column), value);
+                case ">" -> row -> ((Comparable) evaluator.get(row, column)).compareTo(value) > 0;
+                case ">=" -> row -> ((Comparable) evaluator.get(row, column)).compareTo(value) >= 0;
+                case "<" -> row -> ((Comparable) evaluator.get(row, column)).compareTo(value) < 0;
+                case "<=" -> row -> ((Comparable) evaluator.get(row, column)).compareTo(value) <= 0;
+                default -> throw new UnsupportedOperationException(operator);
+            };
+        }
+
+        private Object param(String token) {
+            Assert.assertTrue(token, token.startsWith("#") && params.containsKey(token.substring(1)));
+            usedParams.add(token.substring(1));
+            return params.get(token.substring(1));
+        }
+    }
+}
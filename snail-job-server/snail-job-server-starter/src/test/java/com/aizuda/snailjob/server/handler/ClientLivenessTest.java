@@ -0,0 +1,152 @@
+package com.aizuda.snailjob.server.handler;
+
+import com.aizuda.snailjob.server.common.handler.ClientLiveness;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * 客户端存活状态测试, 时间由测试推进, server_node表由内存中的Set代替
+ * 并对比一批到期重试在下发前逐条查询DB与使用内存存活状态的耗时
+ *
+ * @since sj_1.0.0
+ */
+@Slf4j
+public class ClientLivenessTest {
+
+    private static final long STALENESS = 40000;
+    private static final int POD_COUNT = 50;
+    private static final int RETRY_COUNT = 10000;
+    private static final long DB_LATENCY_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Set<String> serverNodeTable = new HashSet<>();
+    private final AtomicInteger dbQueryCount = new AtomicInteger();
+    private long now;
+
+    private final Predicate<String> dbChecker = hostId -> {
+        dbQueryCount.incrementAndGet();
+        return serverNodeTable.contains(hostId);
+    };
+
+    @Test
+    public void heartbeatIsAnsweredFromMemoryWithinStaleness() {
+        ClientLiveness liveness = new ClientLiveness(STALENESS, 0, dbChecker, () -> now);
+        serverNodeTable.add("client-0");
+        liveness.onHeartbeat("client-0");
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(liveness.isAlive("client-0"));
+        }
+        Assert.assertEquals(0, dbQueryCount.get());
+
+        // 超过有效期后到DB中确认, 确认后重新计算有效期
+        now += STALENESS;
+        Assert.assertTrue(liveness.isAlive("client-0"));
+        Assert.assertTrue(liveness.isAlive("client-0"));
+        Assert.assertEquals(1, dbQueryCount.get());
+
+        // 客户端宕机且DB中的记录被删除, 最多在有效期之后判定为下线
+        serverNodeTable.remove("client-0");
+        now += STALENESS - 1;
+        Assert.assertTrue(liveness.isAlive("client-0"));
+        now += 1;
+        Assert.assertFalse(liveness.isAlive("client-0"));
+        Assert.assertEquals(0, liveness.size());
+    }
+
+    @Test
+    public void unknownClientIsVerifiedOnce() {
+        ClientLiveness liveness = new ClientLiveness(STALENESS, 0, dbChecker, () -> now);
+        serverNodeTable.add("client-1");
+
+        // 心跳由其他服务端节点接收, 第一次查询DB后缓存结果
+        Assert.assertTrue(liveness.isAlive("client-1"));
+        Assert.assertTrue(liveness.isAlive("client-1"));
+        Assert.assertEquals(1, dbQueryCount.get());
+
+        // DB中不存在的节点不缓存
+        Assert.assertFalse(liveness.isAlive("client-2"));
+        Assert.assertFalse(liveness.isAlive("client-2"));
+        Assert.assertEquals(3, dbQueryCount.get());
+
+        // 下线后重新到DB中确认
+        liveness.remove("client-1");
+        Assert.assertTrue(liveness.isAlive("client-1"));
+        Assert.assertEquals(4, dbQueryCount.get());
+
+        now += STALENESS;
+        liveness.removeExpired();
+        Assert.assertEquals(0, liveness.size());
+    }
+
+    @Test
+    public void verifySampleDetectsRemovedClient() {
+        ClientLiveness liveness = new ClientLiveness(STALENESS, 0.1, dbChecker, () -> now);
+        serverNodeTable.add("client-0");
+        liveness.onHeartbeat("client-0");
+
+        for (int i = 0; i < RETRY_COUNT; i++) {
+            Assert.assertTrue(liveness.isAlive("client-0"));
+        }
+        Assert.assertTrue(dbQueryCount.get() > RETRY_COUNT * 0.05 && dbQueryCount.get() < RETRY_COUNT * 0.15);
+
+        // 其他服务端节点删除了DB中的记录, 有效期内也能通过抽样发现
+        serverNodeTable.remove("client-0");
+        int checks = 0;
+        while (liveness.isAlive("client-0")) {
+            checks++;
+        }
+        Assert.assertTrue(checks < 1000);
+    }
+
+    @Test
+    public void retryDispatchWithAndWithoutDbCheck() {
+        for (int i = 0; i < POD_COUNT; i++) {
+            serverNodeTable.add("client-" + i);
+        }
+        Predicate<String> slowDbChecker = hostId -> {
+            LockSupport.parkNanos(DB_LATENCY_NANOS);
+            return dbChecker.test(hostId);
+        };
+
+        // 每条到期的重试下发前都查询一次DB
+        long startTime = System.nanoTime();
+        int dispatched = 0;
+        for (int i = 0; i < RETRY_COUNT; i++) {
+            if (slowDbChecker.test("client-" + (i % POD_COUNT))) {
+                dispatched++;
+            }
+        }
+        long dbCost = System.nanoTime() - startTime;
+        int dbQueries = dbQueryCount.getAndSet(0);
+        Assert.assertEquals(RETRY_COUNT, dispatched);
+        Assert.assertEquals(RETRY_COUNT, dbQueries);
+
+        // 一半的客户端心跳由当前节点接收, 另一半只在第一次下发时查询DB
+        ClientLiveness liveness = new ClientLiveness(STALENESS, 0, slowDbChecker, () -> now);
+        for (int i = 0; i < POD_COUNT / 2; i++) {
+            liveness.onHeartbeat("client-" + i);
+        }
+        startTime = System.nanoTime();
+        dispatched = 0;
+        for (int i = 0; i < RETRY_COUNT; i++) {
+            if (liveness.isAlive("client-" + (i % POD_COUNT))) {
+                dispatched++;
+            }
+        }
+        long livenessCost = System.nanoTime() - startTime;
+        Assert.assertEquals(RETRY_COUNT, dispatched);
+        Assert.assertEquals(POD_COUNT / 2, dbQueryCount.get());
+
+        log.info("dispatch [{}] retries. db check: [{}]ms [{}] queries, liveness: [{}]ms [{}] queries",
+                RETRY_COUNT, TimeUnit.NANOSECONDS.toMillis(dbCost), dbQueries,
+                TimeUnit.NANOSECONDS.toMillis(livenessCost), dbQueryCount.get());
+    }
+}
@@ -0,0 +1,278 @@
+package com.aizuda.snailjob.server.handler;
+
+import com.aizuda.snailjob.common.core.enums.NodeTypeEnum;
+import com.aizuda.snailjob.server.common.dto.RegisterNodeInfo;
+import com.aizuda.snailjob.server.common.handler.ServerMembership;
+import com.aizuda.snailjob.template.datasource.persistence.po.ServerNode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 模拟多个服务端节点通过心跳感知节点变化, 统计节点加入、下线和重新加入被其他节点发现的耗时
+ * 时间由测试推进, server_node表由内存中的Map代替
+ *
+ * @since sj_1.0.0
+ */
+@Slf4j
+public class ServerMembershipTest {
+
+    private static final long HEARTBEAT_INTERVAL = 1000;
+    private static final int MAX_FAILURES = 2;
+    private static final long RECONCILE_INTERVAL = 10000;
+    private static final long REGISTER_INTERVAL = 20000;
+    private static final long EXPIRE_TIME = 30000;
+
+    private final LocalDateTime startTime = LocalDateTime.of(2024, 5, 13, 0, 0);
+    private final Map<String, ServerNode> serverNodeTable = new LinkedHashMap<>();
+    private final Map<String, Server> servers = new LinkedHashMap<>();
+    private final Set<String> unreachable = new HashSet<>();
+    private long now;
+
+    @Test
+    public void detectShutdownWithinFailureThreshold() {
+        for (int i = 0; i < 5; i++) {
+            startServer("server-" + i);
+        }
+        runUntil(now + 5000);
+        assertAllMembers("server-0", "server-1", "server-2", "server-3", "server-4");
+
+        // 正常停止时删除server_node中的记录, 心跳失败后立即对账即可发现
+        long shutdownTime = now;
+        servers.get("server-3").alive = false;
+        serverNodeTable.remove("server-3");
+        long detectTime = runUntilAll(server -> !server.membership.isMember("server-3"), 60000);
+        log.info("shutdown detected in [{}]ms", detectTime - shutdownTime);
+        Assert.assertTrue(detectTime - shutdownTime <= MAX_FAILURES * HEARTBEAT_INTERVAL);
+        assertAllMembers("server-0", "server-1", "server-2", "server-4");
+    }
+
+    @Test
+    public void detectCrashWithinFailureThreshold() {
+        for (int i = 0; i < 5; i++) {
+            startServer("server-" + i);
+        }
+        runUntil(now + 5000);
+
+        // 宕机的节点在DB中的记录过期前即被移出集群
+        long crashTime = now;
+        servers.get("server-3").alive = false;
+        LocalDateTime expireAt = serverNodeTable.get("server-3").getExpireAt();
+        long detectTime = runUntilAll(server -> !server.membership.isMember("server-3"), 60000);
+        log.info("crash detected in [{}]ms", detectTime - crashTime);
+        Assert.assertTrue(detectTime - crashTime <= MAX_FAILURES * HEARTBEAT_INTERVAL);
+
+        // 周期对账时DB中未过期的记录不会使节点重新加入
+        while (!currentTime().isAfter(expireAt.plusNanos(RECONCILE_INTERVAL * 1_000_000))) {
+            tick();
+            assertAllMembers("server-0", "server-1", "server-2", "server-4");
+        }
+    }
+
+    @Test
+    public void detectJoinWithinOneInterval() {
+        for (int i = 0; i < 3; i++) {
+            startServer("server-" + i);
+        }
+        runUntil(now + 5000);
+
+        long joinTime = now;
+        startServer("server-new");
+        long detectTime = runUntilAll(server -> server.membership.isMember("server-new"), 60000);
+        log.info("join detected in [{}]ms", detectTime - joinTime);
+        Assert.assertTrue(detectTime - joinTime <= HEARTBEAT_INTERVAL);
+        assertAllMembers("server-0", "server-1", "server-2", "server-new");
+    }
+
+    @Test
+    public void rejoinAfterTransientFailure() {
+        for (int i = 0; i < 3; i++) {
+            startServer("server-" + i);
+        }
+        runUntil(now + 5000);
+
+        // GC停顿、暂停读取等短暂不可用时移出集群, 恢复后重新收到心跳即加入
+        servers.get("server-1").alive = false;
+        runUntilAll(server -> !server.membership.isMember("server-1"), 60000);
+
+        long resumeTime = now;
+        servers.get("server-1").alive = true;
+        long detectTime = runUntilAll(server -> server.membership.isMember("server-1"), 60000);
+        log.info("rejoin detected in [{}]ms", detectTime - resumeTime);
+        Assert.assertTrue(detectTime - resumeTime <= HEARTBEAT_INTERVAL);
+        assertAllMembers("server-0", "server-1", "server-2");
+    }
+
+    @Test
+    public void rejoinAfterRegisterRefreshed() {
+        for (int i = 0; i < 3; i++) {
+            startServer("server-" + i);
+        }
+        runUntil(now + 5000);
+
+        // server-1与其他节点双向不通时移出集群, 网络恢复前刷新了DB中的过期时间, 对账时重新加入
+        unreachable.add("server-0->server-1");
+        unreachable.add("server-1->server-0");
+        runUntil(now + 3000);
+        Assert.assertFalse(servers.get("server-0").membership.isMember("server-1"));
+
+        unreachable.clear();
+        servers.get("server-1").register();
+        servers.get("server-0").membership.reconcile(aliveServerNodes());
+        Assert.assertTrue(servers.get("server-0").membership.isMember("server-1"));
+    }
+
+    @Test
+    public void unregisteredBeatQueriedOncePerCycle() {
+        AtomicInteger loadCount = new AtomicInteger();
+        ServerMembership membership = new ServerMembership("server-0", MAX_FAILURES, hostId -> {
+            loadCount.incrementAndGet();
+            return null;
+        });
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertFalse(membership.onPeerBeat("server-unknown"));
+        }
+        Assert.assertEquals(1, loadCount.get());
+
+        membership.reconcile(new ArrayList<>());
+        membership.onPeerBeat("server-unknown");
+        Assert.assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void keepMemberDuringOneWayFailure() {
+        for (int i = 0; i < 3; i++) {
+            startServer("server-" + i);
+        }
+        runUntil(now + 5000);
+
+        // server-0无法访问server-1, 但server-1仍可以访问server-0, 集群成员不会反复变化
+        unreachable.add("server-0->server-1");
+        for (int i = 0; i < 30; i++) {
+            tick();
+            assertAllMembers("server-0", "server-1", "server-2");
+        }
+    }
+
+    private void startServer(String hostId) {
+        Server server = new Server(hostId);
+        servers.put(hostId, server);
+        server.register();
+        server.membership.reconcile(aliveServerNodes());
+    }
+
+    private void runUntil(long time) {
+        while (now < time) {
+            tick();
+        }
+    }
+
+    private long runUntilAll(java.util.function.Predicate<Server> predicate, long timeout) {
+        long deadline = now + timeout;
+        while (now < deadline) {
+            tick();
+            if (aliveServers().stream().allMatch(predicate)) {
+                return now;
+            }
+        }
+        throw new AssertionError("condition not reached in " + timeout + "ms");
+    }
+
+    private void tick() {
+        now += HEARTBEAT_INTERVAL;
+        for (Server server : aliveServers()) {
+            if (now - server.lastRegisterTime >= REGISTER_INTERVAL) {
+                server.register();
+            }
+
+            boolean reconcileRequested = false;
+            for (RegisterNodeInfo peer : server.membership.getPeers()) {
+                Server target = servers.get(peer.getHostId());
+                if (Objects.nonNull(target) && target.alive
+                        && !unreachable.contains(server.hostId + "->" + peer.getHostId())) {
+                    target.membership.onPeerBeat(server.hostId);
+                    server.membership.onBeatSuccess(peer.getHostId());
+                } else {
+                    reconcileRequested |= server.membership.onBeatFailure(peer.getHostId());
+                }
+            }
+
+            if (reconcileRequested || now - server.lastReconcileTime >= RECONCILE_INTERVAL) {
+                server.membership.reconcile(aliveServerNodes());
+                server.lastReconcileTime = now;
+            }
+        }
+    }
+
+    private void assertAllMembers(String... hostIds) {
+        List<String> expected = List.of(hostIds);
+        for (Server server : aliveServers()) {
+            List<String> members = server.membership.getMembers().stream()
+                    .map(RegisterNodeInfo::getHostId).collect(Collectors.toList());
+            Assert.assertEquals(server.hostId, expected, members);
+        }
+    }
+
+    private List<Server> aliveServers() {
+        return servers.values().stream().filter(server -> server.alive).collect(Collectors.toList());
+    }
+
+    private List<ServerNode> aliveServerNodes() {
+        List<ServerNode> nodes = new ArrayList<>();
+        for (ServerNode node : serverNodeTable.values()) {
+            if (!node.getExpireAt().isBefore(currentTime())) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    private ServerNode getAliveServerNode(String hostId) {
+        ServerNode node = serverNodeTable.get(hostId);
+        return Objects.nonNull(node) && !node.getExpireAt().isBefore(currentTime()) ? node : null;
+    }
+
+    private LocalDateTime currentTime() {
+        return startTime.plusNanos(now * 1_000_000);
+    }
+
+    private class Server {
+
+        private final String hostId;
+        private final ServerMembership membership;
+        private boolean alive = true;
+        private long lastRegisterTime;
+        private long lastReconcileTime;
+
+        private Server(String hostId) {
+            this.hostId = hostId;
+            this.membership = new ServerMembership(hostId, MAX_FAILURES, ServerMembershipTest.this::getAliveServerNode);
+            this.lastReconcileTime = now;
+        }
+
+        private void register() {
+            ServerNode serverNode = new ServerNode();
+            serverNode.setHostId(hostId);
+            serverNode.setHostIp("127.0.0.1");
+            serverNode.setHostPort(1788);
+            serverNode.setGroupName("DEFAULT_SERVER");
+            serverNode.setNamespaceId("DEFAULT_SERVER_NAMESPACE_ID");
+            serverNode.setNodeType(NodeTypeEnum.SERVER.getType());
+            serverNode.setExpireAt(currentTime().plusNanos(EXPIRE_TIME * 1_000_000));
+            serverNodeTable.put(hostId, serverNode);
+            lastRegisterTime = now;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.aizuda.snailjob.server.lock;
+
+import com.aizuda.snailjob.server.common.config.SystemProperties;
+import com.aizuda.snailjob.server.common.dto.LockConfig;
+import com.aizuda.snailjob.server.common.lock.persistence.JdbcLockProvider;
+import com.aizuda.snailjob.server.fixture.WrapperEvaluator;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.DistributedLockMapper;
+import com.aizuda.snailjob.template.datasource.persistence.po.DistributedLock;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 多个节点竞争常驻锁, 对比租约模式开启前后的吞吐和DB访问次数
+ * sj_distributed_lock表由内存中的数据代替, 按照实际生成的条件执行, 每条语句模拟1ms的网络和DB耗时
+ *
+ * @since sj_1.0.0
+ */
+@Slf4j
+public class JdbcLockProviderTest {
+
+    private static final WrapperEvaluator<DistributedLock> EVALUATOR = new WrapperEvaluator<>(DistributedLock.class);
+
+    private final Map<String, DistributedLock> table = new HashMap<>();
+    private final AtomicLong statements = new AtomicLong();
+    private final List<JdbcLockProvider> nodes = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        nodes.forEach(JdbcLockProvider::close);
+    }
+
+    @Test
+    public void contention() throws Exception {
+        double[] withoutLease = contention(false);
+        table.clear();
+        double[] withLease = contention(true);
+
+        log.info("without lease: [{}] locks/s [{}] statements/attempt", withoutLease[0], withoutLease[1]);
+        log.info("with lease: [{}] locks/s [{}] statements/attempt", withLease[0], withLease[1]);
+        // 持有租约的节点不访问DB, 只有未持有锁的节点需要通过DB竞争
+        Assert.assertTrue(withLease[1] < withoutLease[1]);
+    }
+
+    @Test
+    public void leaseExpiredAfterNodeStopped() throws Exception {
+        JdbcLockProvider a = newNode("node-a", true, 1);
+        JdbcLockProvider b = newNode("node-b", true, 1);
+        String lockName = "clearLogSchedule";
+
+        Assert.assertTrue(a.createLock(lockConfig(lockName)));
+        a.releaseLockWithUpdate(lockName, LocalDateTime.now());
+        // 通过DB获取后建立租约, 之后的加锁和释放不访问DB
+        Assert.assertTrue(a.renewal(lockConfig(lockName)));
+        long count = statements.get();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(a.releaseLockWithUpdate(lockName, LocalDateTime.now()));
+            Assert.assertTrue(a.renewal(lockConfig(lockName)));
+        }
+        Assert.assertEquals(count, statements.get());
+        a.releaseLockWithUpdate(lockName, LocalDateTime.now());
+
+        // 租约由续期任务延长, 其他节点无法获取
+        long deadline = System.currentTimeMillis() + 1500;
+        while (System.currentTimeMillis() < deadline) {
+            Assert.assertFalse(b.renewal(lockConfig(lockName)));
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+
+        // 停止续期后, 当前节点先放弃租约, 其他节点在租约到期后获取
+        ((ScheduledExecutorService) ReflectionTestUtils.getField(a, "renewalExecutor")).shutdownNow();
+        LocalDateTime stoppedAt = LocalDateTime.now();
+        LocalDateTime lastLocal = null;
+        LocalDateTime acquiredByB = null;
+        boolean localLease = true;
+        deadline = System.currentTimeMillis() + 3000;
+        while (Objects.isNull(acquiredByB) && System.currentTimeMillis() < deadline) {
+            LockConfig lockConfig = lockConfig(lockName);
+            if (localLease && a.renewal(lockConfig)) {
+                lastLocal = lockConfig.getCreateDt();
+                a.releaseLockWithUpdate(lockName, LocalDateTime.now());
+            } else {
+                localLease = false;
+            }
+            lockConfig = lockConfig(lockName);
+            if (b.renewal(lockConfig)) {
+                acquiredByB = lockConfig.getCreateDt();
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        Assert.assertNotNull(acquiredByB);
+        Assert.assertFalse(localLease);
+        Assert.assertTrue(acquiredByB.isAfter(stoppedAt));
+        Assert.assertTrue(Objects.isNull(lastLocal) || lastLocal.isBefore(acquiredByB));
+        Assert.assertEquals("node-b", table.get(lockName).getLockedBy());
+        Assert.assertFalse(a.renewal(lockConfig(lockName)));
+    }
+
+    /**
+     * @return [每秒获取锁的次数, 每次尝试加锁的DB语句数]
+     */
+    private double[] contention(boolean lease) throws Exception {
+        int nodeCount = 4;
+        int threadsPerNode = 2;
+        int lockCount = 20;
+        long millis = 2000;
+        Map<String, String> holders = new ConcurrentHashMap<>();
+        AtomicInteger acquired = new AtomicInteger();
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(nodeCount * threadsPerNode);
+        statements.set(0);
+
+        for (int n = 0; n < nodeCount; n++) {
+            String lockedBy = "node-" + lease + "-" + n;
+            JdbcLockProvider node = newNode(lockedBy, lease, 30);
+            // 与ResidentLockProvider相同, 本地记录已经创建过的锁, 之后只更新
+            Set<String> created = ConcurrentHashMap.newKeySet();
+            for (int t = 0; t < threadsPerNode; t++) {
+                int offset = t;
+                new Thread(() -> {
+                    try {
+                        long deadline = System.currentTimeMillis() + millis;
+                        for (int i = offset; System.currentTimeMillis() < deadline; i++) {
+                            String lockName = "schedule-" + i % lockCount;
+                            LockConfig lockConfig = lockConfig(lockName);
+                            attempts.incrementAndGet();
+                            boolean lock = false;
+                            if (!created.contains(lockName) && node.createLock(lockConfig)) {
+                                lock = true;
+                            }
+                            created.add(lockName);
+                            if (!lock) {
+                                lock = node.renewal(lockConfig);
+                            }
+                            if (!lock) {
+                                continue;
+                            }
+
+                            // 同一时刻只有一个持有者
+                            Assert.assertNull(holders.putIfAbsent(lockName, lockedBy));
+                            acquired.incrementAndGet();
+                            Assert.assertTrue(holders.remove(lockName, lockedBy));
+                            node.releaseLockWithUpdate(lockName, lockConfig.getLockAtLeast());
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }).start();
+            }
+        }
+
+        Assert.assertTrue(latch.await(millis * 5, TimeUnit.MILLISECONDS));
+        if (Objects.nonNull(error.get())) {
+            throw new AssertionError(error.get());
+        }
+        Assert.assertTrue(acquired.get() > 0);
+        return new double[]{acquired.get() * 1000D / millis, (double) statements.get() / attempts.get()};
+    }
+
+    private JdbcLockProvider newNode(String lockedBy, boolean lease, int duration) {
+        SystemProperties systemProperties = new SystemProperties();
+        systemProperties.getLockLease().setEnabled(lease);
+        systemProperties.getLockLease().setDuration(duration);
+        JdbcLockProvider node = new JdbcLockProvider(newMapper(), new NoopTransactionManager(), systemProperties);
+        ReflectionTestUtils.setField(node, "lockedBy", lockedBy);
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private static LockConfig lockConfig(String lockName) {
+        LockConfig lockConfig = new LockConfig();
+        lockConfig.setLockName(lockName);
+        lockConfig.setCreateDt(LocalDateTime.now());
+        lockConfig.setLockAtLeast(Duration.ZERO);
+        // 小于租约时长, DB中的锁定时间由租约决定
+        lockConfig.setLockAtMost(Duration.ofMillis(100));
+        return lockConfig;
+    }
+
+    @SuppressWarnings("unchecked")
+    private DistributedLockMapper newMapper() {
+        return (DistributedLockMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{DistributedLockMapper.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(this, args);
+                    }
+
+                    statements.incrementAndGet();
+                    TimeUnit.MILLISECONDS.sleep(1);
+                    switch (method.getName()) {
+                        case "insert":
+                            return insert((DistributedLock) args[0]);
+                        case "update":
+                            return update((DistributedLock) args[0], (AbstractWrapper<DistributedLock, ?, ?>) args[1]);
+                        case "selectList":
+                            return selectList((AbstractWrapper<DistributedLock, ?, ?>) args[0]);
+                        case "delete":
+                            return delete((AbstractWrapper<DistributedLock, ?, ?>) args[0]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private synchronized int insert(DistributedLock distributedLock) {
+        if (table.containsKey(distributedLock.getName())) {
+            throw new DuplicateKeyException(distributedLock.getName());
+        }
+
+        table.put(distributedLock.getName(), EVALUATOR.copy(distributedLock));
+        return 1;
+    }
+
+    private synchronized int update(DistributedLock distributedLock, AbstractWrapper<DistributedLock, ?, ?> query) {
+        WrapperEvaluator.Condition<DistributedLock> condition = EVALUATOR.parse(query);
+        int rows = 0;
+        for (DistributedLock row : table.values()) {
+            if (condition.test(row)) {
+                EVALUATOR.update(row, distributedLock);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private synchronized List<DistributedLock> selectList(AbstractWrapper<DistributedLock, ?, ?> query) {
+        WrapperEvaluator.Condition<DistributedLock> condition = EVALUATOR.parse(query);
+        List<DistributedLock> rows = new ArrayList<>();
+        for (DistributedLock row : table.values()) {
+            if (condition.test(row)) {
+                rows.add(EVALUATOR.copy(row));
+            }
+        }
+        return rows;
+    }
+
+    private synchronized int delete(AbstractWrapper<DistributedLock, ?, ?> query) {
+        WrapperEvaluator.Condition<DistributedLock> condition = EVALUATOR.parse(query);
+        int rows = 0;
+        for (DistributedLock row : new ArrayList<>(table.values())) {
+            if (condition.test(row)) {
+                table.remove(row.getName());
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static final class NoopTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package com.aizuda.snailjob.server.schedule;
+
+import com.aizuda.snailjob.common.core.enums.JobTaskBatchStatusEnum;
+import com.aizuda.snailjob.common.core.util.JsonUtil;
+import com.aizuda.snailjob.server.common.config.SystemProperties;
+import com.aizuda.snailjob.server.fixture.WrapperEvaluator;
+import com.aizuda.snailjob.server.job.task.dto.JobPartitionTaskDTO;
+import com.aizuda.snailjob.server.job.task.support.schedule.JobLogMergeSchedule;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.JobLogMessageMapper;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.JobTaskBatchMapper;
+import com.aizuda.snailjob.template.datasource.persistence.po.JobLogMessage;
+import com.aizuda.snailjob.template.datasource.persistence.po.JobTaskBatch;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 日志合并测试
+ * sj_job_log_message表由按行号生成的日志代替, 查询按照实际生成的条件执行, 更新和删除在事务提交时生效
+ *
+ * @since sj_1.0.0
+ */
+@Slf4j
+public class JobLogMergeScheduleTest {
+
+    private static final WrapperEvaluator<JobLogMessage> EVALUATOR = new WrapperEvaluator<>(JobLogMessage.class);
+    private static final WrapperEvaluator<JobTaskBatch> BATCH_EVALUATOR = new WrapperEvaluator<>(JobTaskBatch.class);
+    private static final String LINE = "{\"time_stamp\":\"1715750400000\",\"level\":\"INFO\","
+            + "\"thread\":\"snail-job-job-1\",\"location\":\"com.example.job.DemoJob.jobExecute:42\","
+            + "\"host\":\"127.0.0.1\",\"port\":\"1789\",\"message\":\"%s\"}";
+
+    private final SystemProperties systemProperties = new SystemProperties();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong writeStatements = new AtomicLong();
+    private final AtomicLong transactions = new AtomicLong();
+    private final ThreadLocal<List<Runnable>> transaction = new ThreadLocal<>();
+    private LogTable table;
+    private long statementMillis;
+    private int failAtTransaction = -1;
+    /**
+     * 执行到第几条语句时将合并的截止时间提前到当前, 模拟合并超时
+     */
+    private long timeoutAtStatement = -1;
+    private JobLogMergeSchedule schedule;
+
+    @Test
+    public void mergeKeepsOrder() {
+        table = new LogTable(5, 4, 300, true);
+        systemProperties.getLogMerge().setThrottleRatio(0);
+        // 小块和小页, 同一个任务的合并跨越多个页和事务
+        systemProperties.getLogMerge().setPageSize(37);
+        systemProperties.getLogMerge().setChunkLength(64 * 1024);
+
+        merge(1, 5);
+
+        Assert.assertTrue(transactions.get() > 5);
+        table.verify();
+        Assert.assertTrue(table.remaining() < table.rows / 5);
+    }
+
+    @Test
+    public void resumeAfterFailedTransaction() {
+        table = new LogTable(3, 3, 200, true);
+        systemProperties.getLogMerge().setThrottleRatio(0);
+        systemProperties.getLogMerge().setPageSize(50);
+        systemProperties.getLogMerge().setChunkLength(32 * 1024);
+
+        failAtTransaction = 4;
+        try {
+            merge(1, 3);
+            Assert.fail();
+        } catch (IllegalStateException ignored) {
+        }
+        // 已提交的块保持合并后的顺序
+        table.verify();
+
+        failAtTransaction = -1;
+        int remaining = table.remaining();
+        merge(1, 3);
+        table.verify();
+        Assert.assertTrue(table.remaining() < remaining);
+
+        // 再次合并没有可以合并的日志
+        long committed = transactions.get();
+        merge(1, 3);
+        Assert.assertEquals(committed, transactions.get());
+    }
+
+    @Test
+    public void throttle() {
+        table = new LogTable(1, 2, 400, false);
+        systemProperties.getLogMerge().setThrottleRatio(1);
+        systemProperties.getLogMerge().setChunkLength(64 * 1024);
+        statementMillis = 2;
+
+        long start = System.nanoTime();
+        merge(1, 1);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 每个事务之后休眠与事务耗时相同的时间, 查询耗时不计入
+        long dbMillis = statements.get() * statementMillis;
+        long transactionMillis = writeStatements.get() * statementMillis;
+        log.info("elapsed [{}]ms statements [{}] writeStatements [{}]", elapsed, statements.get(), writeStatements.get());
+        Assert.assertTrue(elapsed >= dbMillis + transactionMillis);
+    }
+
+    @Test
+    public void resumeAfterTimeout() {
+        table = new LogTable(30, 2, 40, true);
+        systemProperties.getLogMerge().setThrottleRatio(0);
+        systemProperties.getLogMerge().setPageSize(20);
+        systemProperties.getLogMerge().setChunkLength(16 * 1024);
+        schedule = newSchedule();
+        ReflectionTestUtils.setField(JobLogMergeSchedule.class, "lastMergeLogTime", 0L);
+
+        timeoutAtStatement = 60;
+        ReflectionTestUtils.invokeMethod(schedule, "doExecute");
+        long lastMergedTaskBatchId = (long) ReflectionTestUtils.getField(schedule, "lastMergedTaskBatchId");
+        Assert.assertTrue(lastMergedTaskBatchId > 0 && lastMergedTaskBatchId < table.batches);
+        table.verify();
+
+        // 下次调度从已经合并完成的批次之后继续, 不再读取之前批次的日志
+        timeoutAtStatement = -1;
+        table.minSelectedBatchId = Long.MAX_VALUE;
+        ReflectionTestUtils.invokeMethod(schedule, "doExecute");
+        Assert.assertEquals(lastMergedTaskBatchId + 1, table.minSelectedBatchId);
+        Assert.assertEquals(0L, ReflectionTestUtils.getField(schedule, "lastMergedTaskBatchId"));
+        table.verify();
+        Assert.assertTrue(table.remaining() < table.rows / 5);
+    }
+
+    @Test
+    @Ignore("耗时较长的容量测试, 需要时手动执行")
+    public void mergeTenMillionLines() {
+        // 约64万行日志, 每行1~20条, 部分行600条
+        table = new LogTable(2000, 16, 20, false);
+        systemProperties.getLogMerge().setThrottleRatio(0);
+        Assert.assertTrue(table.lines >= 10_000_000);
+
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long start = System.nanoTime();
+        // 与调度相同, 每1000个批次一个分区
+        for (int batch = 1; batch <= table.batches; batch += 1000) {
+            merge(batch, Math.min(batch + 999, table.batches));
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long peak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+        log.info("merged [{}] lines in [{}] rows into [{}] rows, [{}]ms [{}] transactions, peak heap [{}]MB",
+                table.lines, table.rows, table.remaining(), elapsed, transactions.get(), peak >> 20);
+        Assert.assertEquals(table.lines, table.remainingLines());
+        Assert.assertTrue(table.remaining() < table.rows / 5);
+    }
+
+    private void merge(int fromBatchId, int toBatchId) {
+        List<JobPartitionTaskDTO> partitionTasks = new ArrayList<>();
+        for (long id = fromBatchId; id <= toBatchId; id++) {
+            JobPartitionTaskDTO partitionTask = new JobPartitionTaskDTO();
+            partitionTask.setId(id);
+            partitionTasks.add(partitionTask);
+        }
+
+        newSchedule().processJobLogPartitionTasks(partitionTasks);
+    }
+
+    private JobLogMergeSchedule newSchedule() {
+        return new JobLogMergeSchedule(systemProperties, newBatchMapper(), newMapper(),
+                new TransactionTemplate(new BufferedTransactionManager()));
+    }
+
+    /**
+     * 批次id从1到table.batches, 均已完成
+     */
+    @SuppressWarnings("unchecked")
+    private JobTaskBatchMapper newBatchMapper() {
+        return (JobTaskBatchMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{JobTaskBatchMapper.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(this, args);
+                    }
+                    if (!"selectPage".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+
+                    IPage<JobTaskBatch> page = (IPage<JobTaskBatch>) args[0];
+                    WrapperEvaluator.Condition<JobTaskBatch> condition =
+                            BATCH_EVALUATOR.parse((AbstractWrapper<JobTaskBatch, ?, ?>) args[1]);
+                    List<JobTaskBatch> records = new ArrayList<>();
+                    for (long id = 1; id <= table.batches && records.size() < page.getSize(); id++) {
+                        JobTaskBatch jobTaskBatch = new JobTaskBatch();
+                        jobTaskBatch.setId(id);
+                        jobTaskBatch.setTaskBatchStatus(JobTaskBatchStatusEnum.SUCCESS.getStatus());
+                        jobTaskBatch.setCreateDt(LocalDateTime.now().minusDays(7));
+                        if (condition.test(jobTaskBatch)) {
+                            records.add(jobTaskBatch);
+                        }
+                    }
+                    return page.setRecords(records);
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private JobLogMessageMapper newMapper() {
+        return (JobLogMessageMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{JobLogMessageMapper.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(this, args);
+                    }
+
+                    if (statements.incrementAndGet() == timeoutAtStatement) {
+                        ReflectionTestUtils.setField(schedule, "mergeDeadline", 0L);
+                    }
+                    if (statementMillis > 0) {
+                        TimeUnit.MILLISECONDS.sleep(statementMillis);
+                    }
+                    switch (method.getName()) {
+                        case "selectPage":
+                            IPage<JobLogMessage> page = (IPage<JobLogMessage>) args[0];
+                            page.setRecords(table.select((AbstractWrapper<JobLogMessage, ?, ?>) args[1],
+                                    (int) page.getSize()));
+                            return page;
+                        case "updateById":
+                            writeStatements.incrementAndGet();
+                            JobLogMessage jobLogMessage = (JobLogMessage) args[0];
+                            transaction.get().add(() -> table.update(jobLogMessage));
+                            return 1;
+                        case "deleteBatchIds":
+                            writeStatements.incrementAndGet();
+                            List<Long> ids = new ArrayList<>((Collection<Long>) args[0]);
+                            transaction.get().add(() -> table.delete(ids));
+                            return ids.size();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * 事务中的更新和删除在提交时生效, 回滚时丢弃
+     */
+    private final class BufferedTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            transaction.set(new ArrayList<>());
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            if (transactions.get() == failAtTransaction) {
+                transaction.remove();
+                throw new IllegalStateException("commit failed");
+            }
+
+            transaction.get().forEach(Runnable::run);
+            transaction.remove();
+            transactions.incrementAndGet();
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            transaction.remove();
+        }
+    }
+
+    /**
+     * 按行号生成的日志表, 行号按(taskBatchId, taskId, id)排序, 同一个批次中不同任务的id交错
+     */
+    private static final class LogTable {
+
+        private final int batches;
+        private final int tasks;
+        private final int rowsPerTask;
+        private final int rows;
+        private final long lines;
+        private final BitSet deleted = new BitSet();
+        /**
+         * 查询条件中最小的批次id
+         */
+        private long minSelectedBatchId = Long.MAX_VALUE;
+        private final int[] logNums;
+        /**
+         * 合并后的日志内容, 只在需要校验内容时保存
+         */
+        private final Map<Integer, String> messages;
+
+        private LogTable(int batches, int tasks, int rowsPerTask, boolean keepMessages) {
+            this.batches = batches;
+            this.tasks = tasks;
+            this.rowsPerTask = rowsPerTask;
+            this.rows = batches * tasks * rowsPerTask;
+            this.logNums = new int[rows];
+            this.messages = keepMessages ? new HashMap<>() : null;
+            long lines = 0;
+            for (int i = 0; i < rows; i++) {
+                logNums[i] = originalLogNum(i);
+                lines += logNums[i];
+            }
+            this.lines = lines;
+        }
+
+        private static int originalLogNum(int i) {
+            if (i % 97 == 0) {
+                // 超过合并条数的日志
+                return 600;
+            }
+            return i * 7 % 20 + 1;
+        }
+
+        private static String originalMessage(int i) {
+            if (i % 1009 == 0) {
+                // 无法拼接的日志
+                return "";
+            }
+
+            StringBuilder message = new StringBuilder("[");
+            for (int k = 0, logNum = originalLogNum(i); k < logNum; k++) {
+                if (k > 0) {
+                    message.append(',');
+                }
+                message.append(String.format(LINE, i + "-" + k));
+            }
+            return message.append(']').toString();
+        }
+
+        private long id(int i) {
+            int task = i / rowsPerTask;
+            return (long) (i % rowsPerTask) * batches * tasks + task + 1;
+        }
+
+        private int index(long id) {
+            long k = id - 1;
+            int task = (int) (k % ((long) batches * tasks));
+            return task * rowsPerTask + (int) (k / ((long) batches * tasks));
+        }
+
+        private JobLogMessage row(int i) {
+            int task = i / rowsPerTask;
+            JobLogMessage jobLogMessage = new JobLogMessage();
+            jobLogMessage.setId(id(i));
+            jobLogMessage.setTaskBatchId((long) task / tasks + 1);
+            jobLogMessage.setTaskId((long) task + 1);
+            jobLogMessage.setLogNum(logNums[i]);
+            jobLogMessage.setMessage(message(i));
+            return jobLogMessage;
+        }
+
+        private String message(int i) {
+            if (Objects.nonNull(messages) && messages.containsKey(i)) {
+                return messages.get(i);
+            }
+
+            Assert.assertEquals(originalLogNum(i), logNums[i]);
+            return originalMessage(i);
+        }
+
+        private synchronized List<JobLogMessage> select(AbstractWrapper<JobLogMessage, ?, ?> query, int limit) {
+            WrapperEvaluator.Condition<JobLogMessage> predicate = EVALUATOR.parse(query);
+            long maxBatchId = predicate.getInValues().stream().mapToLong(Long.class::cast).max().orElse(0);
+            minSelectedBatchId = Math.min(minSelectedBatchId,
+                    predicate.getInValues().stream().mapToLong(Long.class::cast).min().orElse(Long.MAX_VALUE));
+            // 条件中的批次是连续的, 游标之后的行在其中是连续的, 二分查找第一行
+            int from = 0;
+            int to = rows;
+            while (from < to) {
+                int mid = (from + to) >>> 1;
+                JobLogMessage row = key(mid);
+                if (predicate.test(row) || row.getTaskBatchId() > maxBatchId) {
+                    to = mid;
+                } else {
+                    from = mid + 1;
+                }
+            }
+
+            List<JobLogMessage> records = new ArrayList<>();
+            for (int i = from; i < rows && records.size() < limit; i++) {
+                if (!deleted.get(i) && predicate.test(key(i))) {
+                    records.add(row(i));
+                }
+            }
+            return records;
+        }
+
+        private JobLogMessage key(int i) {
+            int task = i / rowsPerTask;
+            JobLogMessage jobLogMessage = new JobLogMessage();
+            jobLogMessage.setId(id(i));
+            jobLogMessage.setTaskBatchId((long) task / tasks + 1);
+            jobLogMessage.setTaskId((long) task + 1);
+            return jobLogMessage;
+        }
+
+        private synchronized void update(JobLogMessage jobLogMessage) {
+            int i = index(jobLogMessage.getId());
+            Assert.assertFalse(deleted.get(i));
+            Assert.assertNull(jobLogMessage.getTaskId());
+            logNums[i] = jobLogMessage.getLogNum();
+            if (Objects.nonNull(messages)) {
+                messages.put(i, jobLogMessage.getMessage());
+            }
+        }
+
+        private synchronized void delete(List<Long> ids) {
+            for (Long id : ids) {
+                int i = index(id);
+                Assert.assertFalse(deleted.get(i));
+                deleted.set(i);
+                if (Objects.nonNull(messages)) {
+                    messages.remove(i);
+                }
+            }
+        }
+
+        private synchronized int remaining() {
+            return rows - deleted.cardinality();
+        }
+
+        private synchronized long remainingLines() {
+            long remainingLines = 0;
+            for (int i = deleted.nextClearBit(0); i < rows; i = deleted.nextClearBit(i + 1)) {
+                remainingLines += logNums[i];
+            }
+            return remainingLines;
+        }
+
+        /**
+         * 每个任务按id顺序展示的日志与合并前相同
+         */
+        @SuppressWarnings("unchecked")
+        private synchronized void verify() {
+            for (int task = 0; task < batches * tasks; task++) {
+                List<Object> expected = new ArrayList<>();
+                List<Object> actual = new ArrayList<>();
+                for (int i = task * rowsPerTask; i < (task + 1) * rowsPerTask; i++) {
+                    String original = originalMessage(i);
+                    if (original.isEmpty()) {
+                        expected.add(original);
+                    } else {
+                        expected.addAll(JsonUtil.parseObject(original, List.class));
+                    }
+
+                    // 同一个任务中行号顺序与id顺序相同
+                    if (deleted.get(i)) {
+                        continue;
+                    }
+                    String message = message(i);
+                    if (message.isEmpty()) {
+                        actual.add(message);
+                        continue;
+                    }
+                    List<Object> messageLines = JsonUtil.parseObject(message, List.class);
+                    Assert.assertEquals(logNums[i], messageLines.size());
+                    actual.addAll(messageLines);
+                }
+                Assert.assertEquals(expected, actual);
+            }
+        }
+    }
+}
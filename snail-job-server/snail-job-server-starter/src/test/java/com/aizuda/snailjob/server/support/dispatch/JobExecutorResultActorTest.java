@@ -0,0 +1,213 @@
+package com.aizuda.snailjob.server.support.dispatch;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import com.aizuda.snailjob.common.core.context.SpringContext;
+import com.aizuda.snailjob.common.core.enums.JobTaskBatchStatusEnum;
+import com.aizuda.snailjob.common.core.enums.JobTaskStatusEnum;
+import com.aizuda.snailjob.common.core.enums.JobTaskTypeEnum;
+import com.aizuda.snailjob.server.common.config.SystemProperties;
+import com.aizuda.snailjob.server.job.task.dto.JobExecutorResultDTO;
+import com.aizuda.snailjob.server.job.task.support.LockExecutor;
+import com.aizuda.snailjob.server.job.task.support.cache.JobTaskBatchCompletionCache;
+import com.aizuda.snailjob.server.job.task.support.dispatch.JobExecutorResultActor;
+import com.aizuda.snailjob.server.job.task.support.handler.DistributedLockHandler;
+import com.aizuda.snailjob.server.job.task.support.handler.JobTaskBatchHandler;
+import com.aizuda.snailjob.server.job.task.support.handler.WorkflowBatchHandler;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.JobTaskBatchMapper;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.JobTaskMapper;
+import com.aizuda.snailjob.template.datasource.persistence.po.JobTask;
+import com.aizuda.snailjob.template.datasource.persistence.po.JobTaskBatch;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 本节点有批次完成计数时只通过计数完成批次, 计数未完成时不查询数据库也不加锁; 没有计数时通过数据库查询完成批次
+ * sj_job_task和sj_job_task_batch表由内存中的数据代替
+ *
+ * @since sj_1.0.0
+ */
+public class JobExecutorResultActorTest {
+
+    private static final long TASK_BATCH_ID = 100L;
+
+    private final Map<Long, Integer> taskStatusMap = new ConcurrentHashMap<>();
+    private final AtomicInteger selectCount = new AtomicInteger();
+    private final AtomicInteger lockCount = new AtomicInteger();
+    private volatile Integer batchStatus;
+    private ActorSystem actorSystem;
+    private JobTaskBatchHandler jobTaskBatchHandler;
+    private JobTaskMapper jobTaskMapper;
+
+    @BeforeClass
+    public static void init() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), JobTask.class);
+
+        // ActorGenerator.stop 从容器中读取actor池配置, 任务失败时发布告警事件
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("systemProperties", new SystemProperties());
+        context.refresh();
+        SpringContext springContext = new SpringContext();
+        springContext.postProcessBeanFactory(context.getBeanFactory());
+        springContext.setApplicationContext(context);
+    }
+
+    @Before
+    public void setUp() {
+        taskStatusMap.put(1L, JobTaskStatusEnum.RUNNING.getStatus());
+        taskStatusMap.put(2L, JobTaskStatusEnum.RUNNING.getStatus());
+        batchStatus = JobTaskBatchStatusEnum.RUNNING.getStatus();
+
+        jobTaskMapper = (JobTaskMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{JobTaskMapper.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(this, args);
+                    }
+                    switch (method.getName()) {
+                        case "update":
+                            AbstractWrapper<?, ?, ?> wrapper = (AbstractWrapper<?, ?, ?>) args[1];
+                            wrapper.getSqlSegment();
+                            Long taskId = (Long) wrapper.getParamNameValuePairs().values().iterator().next();
+                            taskStatusMap.put(taskId, ((JobTask) args[0]).getTaskStatus());
+                            return 1;
+                        case "selectList":
+                            selectCount.incrementAndGet();
+                            List<JobTask> jobTasks = new ArrayList<>();
+                            taskStatusMap.forEach((id, status) -> {
+                                JobTask jobTask = new JobTask();
+                                jobTask.setId(id);
+                                jobTask.setTaskStatus(status);
+                                jobTasks.add(jobTask);
+                            });
+                            return jobTasks;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        JobTaskBatchMapper jobTaskBatchMapper = (JobTaskBatchMapper) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[]{JobTaskBatchMapper.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(this, args);
+                    }
+                    if (!"update".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    synchronized (this) {
+                        if (!JobTaskBatchStatusEnum.NOT_COMPLETE.contains(batchStatus)) {
+                            return 0;
+                        }
+                        batchStatus = ((JobTaskBatch) args[0]).getTaskBatchStatus();
+                        return 1;
+                    }
+                });
+
+        jobTaskBatchHandler = new JobTaskBatchHandler(jobTaskMapper, jobTaskBatchMapper,
+                new WorkflowBatchHandler(null, null, jobTaskBatchMapper));
+
+        List<JobTask> jobTasks = new ArrayList<>();
+        for (Long taskId : taskStatusMap.keySet()) {
+            JobTask jobTask = new JobTask();
+            jobTask.setId(taskId);
+            jobTasks.add(jobTask);
+        }
+        JobTaskBatchCompletionCache.register(TASK_BATCH_ID, jobTasks);
+
+        actorSystem = ActorSystem.create("job-executor-result-test");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        JobTaskBatchCompletionCache.invalidate(TASK_BATCH_ID);
+        actorSystem.terminate();
+        actorSystem.getWhenTerminated().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void withoutCounterCompletesByDb() throws Exception {
+        // 节点重启或者批次由其他节点生成时本节点没有计数
+        JobTaskBatchCompletionCache.invalidate(TASK_BATCH_ID);
+        taskStatusMap.put(1L, JobTaskStatusEnum.FAIL.getStatus());
+
+        tell(2L, JobTaskStatusEnum.SUCCESS.getStatus());
+
+        awaitBatchCompleted();
+        Assert.assertEquals(Integer.valueOf(JobTaskBatchStatusEnum.FAIL.getStatus()), batchStatus);
+        Assert.assertTrue(selectCount.get() > 0);
+    }
+
+    @Test
+    public void lastResultCompletesByCounter() throws Exception {
+        tell(1L, JobTaskStatusEnum.FAIL.getStatus());
+        // 计数未完成时不查询数据库也不加锁
+        await(() -> Integer.valueOf(JobTaskStatusEnum.FAIL.getStatus()).equals(taskStatusMap.get(1L)));
+        Thread.sleep(100);
+        Assert.assertEquals(Integer.valueOf(JobTaskBatchStatusEnum.RUNNING.getStatus()), batchStatus);
+        Assert.assertEquals(0, selectCount.get());
+        Assert.assertEquals(0, lockCount.get());
+
+        tell(2L, JobTaskStatusEnum.SUCCESS.getStatus());
+
+        awaitBatchCompleted();
+        Assert.assertEquals(Integer.valueOf(JobTaskBatchStatusEnum.FAIL.getStatus()), batchStatus);
+        Assert.assertEquals(0, selectCount.get());
+        Assert.assertEquals(0, lockCount.get());
+    }
+
+    private void tell(Long taskId, Integer taskStatus) {
+        JobExecutorResultDTO result = new JobExecutorResultDTO();
+        result.setJobId(1L);
+        result.setTaskBatchId(TASK_BATCH_ID);
+        result.setTaskId(taskId);
+        result.setTaskStatus(taskStatus);
+        result.setTaskType(JobTaskTypeEnum.CLUSTER.getType());
+
+        ActorRef actorRef = actorSystem.actorOf(Props.create(JobExecutorResultActor.class, () -> {
+            JobExecutorResultActor actor = new JobExecutorResultActor();
+            ReflectionTestUtils.setField(actor, "jobTaskMapper", jobTaskMapper);
+            ReflectionTestUtils.setField(actor, "jobTaskBatchHandler", jobTaskBatchHandler);
+            ReflectionTestUtils.setField(actor, "distributedLockHandler", new DistributedLockHandler() {
+                @Override
+                public void lockWithDisposableAndRetry(LockExecutor lockExecutor, String lockName,
+                                                       Duration lockAtMost, Duration sleepTime, Integer maxRetryTimes) {
+                    lockExecutor.execute();
+                    lockCount.incrementAndGet();
+                }
+            });
+            return actor;
+        }));
+        actorRef.tell(result, actorRef);
+    }
+
+    private void awaitBatchCompleted() throws InterruptedException {
+        await(() -> !JobTaskBatchStatusEnum.NOT_COMPLETE.contains(batchStatus));
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("timeout", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -4,16 +4,32 @@ import com.aizuda.snailjob.common.core.constant.SystemConstants;
 import com.aizuda.snailjob.common.log.SnailJobLog;
 import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
 import com.aizuda.snailjob.server.common.generator.id.IdGenerator;
-import com.aizuda.snailjob.server.common.generator.id.IdGenerator;
+import com.aizuda.snailjob.server.common.generator.id.SegmentIdGenerator;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.SequenceAllocMapper;
+import com.aizuda.snailjob.template.datasource.persistence.po.SequenceAlloc;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 测试多线程情况下号段模式的运行情况
@@ -26,6 +42,8 @@ import java.util.concurrent.CountDownLatch;
 @Slf4j
 public class SegmentIdGeneratorTest {
 
+    private static final Pattern STEP_SQL = Pattern.compile("max_id = max_id \\+ (\\w+)");
+
     @Autowired
     @Qualifier("segmentIdGenerator")
     private IdGenerator idGenerator;
@@ -59,4 +77,150 @@ public class SegmentIdGeneratorTest {
 
         count.await();
     }
+
+    /**
+     * 多线程获取数值id的吞吐量和号段切换时的尾延迟, sj_sequence_alloc表由内存中的一行数据代替, 每次读写DB耗时2ms
+     */
+    @Test
+    public void nextIdThroughputTest() throws Exception {
+        AtomicInteger loadCount = new AtomicInteger();
+        SegmentIdGenerator segmentIdGenerator = newSegmentIdGenerator(100, 2, false, loadCount);
+
+        int threads = 8;
+        int idsPerThread = 500000;
+        long[][] ids = new long[threads][idsPerThread];
+        // 按耗时的二进制位数统计次数, 第i个桶为[2^(i-1), 2^i)纳秒
+        long[][] latencies = new long[threads][64];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch end = new CountDownLatch(threads);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        for (int t = 0; t < threads; t++) {
+            long[] threadIds = ids[t];
+            long[] threadLatencies = latencies[t];
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < idsPerThread; i++) {
+                        long begin = System.nanoTime();
+                        threadIds[i] = segmentIdGenerator.nextId("example_group", SystemConstants.DEFAULT_NAMESPACE);
+                        threadLatencies[64 - Long.numberOfLeadingZeros(System.nanoTime() - begin)]++;
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                } finally {
+                    end.countDown();
+                }
+            }).start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        Assert.assertTrue(end.await(60, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - begin;
+        Assert.assertNull(error.get());
+
+        long[] all = Arrays.stream(ids).flatMapToLong(Arrays::stream).sorted().toArray();
+        Assert.assertTrue("exception id " + all[0], all[0] > 0);
+        for (int i = 1; i < all.length; i++) {
+            Assert.assertNotEquals("duplicate id", all[i - 1], all[i]);
+        }
+
+        long[] histogram = new long[64];
+        for (long[] threadLatencies : latencies) {
+            for (int i = 0; i < 64; i++) {
+                histogram[i] += threadLatencies[i];
+            }
+        }
+        log.info("threads:[{}] ids/s:[{}] segment loads:[{}] p99:[<{}ns] p99.99:[<{}ns] max:[<{}ns]",
+                threads, all.length * TimeUnit.SECONDS.toNanos(1) / elapsed, loadCount.get(),
+                percentile(histogram, all.length, 0.99), percentile(histogram, all.length, 0.9999),
+                percentile(histogram, all.length, 1));
+    }
+
+    /**
+     * 预加载失败时由获取id的线程重新加载, 不返回异常码
+     */
+    @Test
+    public void reloadWhenPreloadFailedTest() {
+        AtomicInteger loadCount = new AtomicInteger();
+        SegmentIdGenerator segmentIdGenerator = newSegmentIdGenerator(10, 0, true, loadCount);
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            long id = segmentIdGenerator.nextId("example_group", SystemConstants.DEFAULT_NAMESPACE);
+            Assert.assertTrue("exception id " + id, id > 0);
+            Assert.assertTrue(ids.add(id));
+        }
+        Assert.assertTrue(loadCount.get() > 1);
+    }
+
+    private static long percentile(long[] histogram, long total, double percentile) {
+        long target = (long) Math.ceil(total * percentile);
+        long count = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            count += histogram[i];
+            if (count >= target) {
+                return 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @param failPreload 异步预加载时DB是否不可用
+     * @param loadCount   成功加载号段的次数
+     */
+    private static SegmentIdGenerator newSegmentIdGenerator(int step, long dbMillis, boolean failPreload,
+                                                            AtomicInteger loadCount) {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), SequenceAlloc.class);
+        SequenceAlloc row = new SequenceAlloc();
+        row.setGroupName("example_group");
+        row.setNamespaceId(SystemConstants.DEFAULT_NAMESPACE);
+        row.setMaxId(1L);
+        row.setStep(step);
+
+        SequenceAllocMapper mapper = (SequenceAllocMapper) Proxy.newProxyInstance(
+                SegmentIdGeneratorTest.class.getClassLoader(), new Class[]{SequenceAllocMapper.class},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(row, args);
+                    }
+
+                    TimeUnit.MILLISECONDS.sleep(dbMillis);
+                    synchronized (row) {
+                        switch (method.getName()) {
+                            case "selectList":
+                                return Collections.singletonList(copy(row));
+                            case "selectOne":
+                                return copy(row);
+                            case "update":
+                                if (failPreload && Thread.currentThread().getName().startsWith("Thread-Segment-Update-")) {
+                                    throw new IllegalStateException("db unavailable");
+                                }
+                                loadCount.incrementAndGet();
+                                LambdaUpdateWrapper<?> wrapper = (LambdaUpdateWrapper<?>) args[args.length - 1];
+                                Matcher matcher = STEP_SQL.matcher(wrapper.getSqlSet());
+                                Assert.assertTrue(matcher.find());
+                                String increment = matcher.group(1);
+                                row.setMaxId(row.getMaxId() + ("step".equals(increment) ? row.getStep() : Long.parseLong(increment)));
+                                return 1;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    }
+                });
+
+        SegmentIdGenerator segmentIdGenerator = new SegmentIdGenerator();
+        ReflectionTestUtils.setField(segmentIdGenerator, "sequenceAllocMapper", mapper);
+        segmentIdGenerator.start();
+        return segmentIdGenerator;
+    }
+
+    private static SequenceAlloc copy(SequenceAlloc sequenceAlloc) {
+        SequenceAlloc copy = new SequenceAlloc();
+        copy.setGroupName(sequenceAlloc.getGroupName());
+        copy.setNamespaceId(sequenceAlloc.getNamespaceId());
+        copy.setMaxId(sequenceAlloc.getMaxId());
+        copy.setStep(sequenceAlloc.getStep());
+        return copy;
+    }
 }
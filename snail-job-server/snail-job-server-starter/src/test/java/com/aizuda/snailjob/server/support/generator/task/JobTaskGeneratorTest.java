@@ -0,0 +1,131 @@
+package com.aizuda.snailjob.server.support.generator.task;
+
+import com.aizuda.snailjob.common.core.context.SpringContext;
+import com.aizuda.snailjob.common.core.enums.JobTaskTypeEnum;
+import com.aizuda.snailjob.server.job.task.support.generator.task.AbstractJobTaskGenerator;
+import com.aizuda.snailjob.server.job.task.support.generator.task.JobTaskGenerateContext;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.JobTaskMapper;
+import com.aizuda.snailjob.template.datasource.persistence.po.JobTask;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * 按数据库类型批量或者逐条新增任务实例, 新增后每个任务实例都回填主键
+ *
+ * @since sj_1.0.0
+ */
+public class JobTaskGeneratorTest {
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger statements = new AtomicInteger();
+
+    @Test
+    public void mariadbInsertsRowByRow() {
+        List<JobTask> jobTasks = save("jdbc:mariadb://localhost:3306/snail_job", 3);
+
+        Assert.assertEquals(3, statements.get());
+        assertIds(jobTasks);
+    }
+
+    @Test
+    public void sqlServerAssignsReturnedIds() {
+        List<JobTask> jobTasks = save("jdbc:sqlserver://localhost:1433;DatabaseName=snail_job", 450);
+
+        // 每批最多200个任务实例
+        Assert.assertEquals(3, statements.get());
+        assertIds(jobTasks);
+    }
+
+    @Test
+    public void mysqlInsertsInBatches() {
+        List<JobTask> jobTasks = save("jdbc:mysql://localhost:3306/snail_job", 450);
+
+        Assert.assertEquals(1, statements.get());
+        assertIds(jobTasks);
+    }
+
+    private List<JobTask> save(String url, int count) {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getEnvironment().getPropertySources()
+                .addFirst(new MapPropertySource("test", Map.of("spring.datasource.url", url)));
+        context.refresh();
+        new SpringContext().setApplicationContext(context);
+
+        List<JobTask> jobTasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            JobTask jobTask = new JobTask();
+            jobTask.setArgsStr(String.valueOf(i));
+            jobTasks.add(jobTask);
+        }
+
+        TestJobTaskGenerator generator = new TestJobTaskGenerator(newMapper());
+        generator.save(jobTasks);
+        return jobTasks;
+    }
+
+    private void assertIds(List<JobTask> jobTasks) {
+        // 主键按新增顺序分配, 与任务实例一一对应
+        for (JobTask jobTask : jobTasks) {
+            Assert.assertEquals(Long.valueOf(jobTask.getArgsStr()) + 1, (long) jobTask.getId());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private JobTaskMapper newMapper() {
+        return (JobTaskMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{JobTaskMapper.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(this, args);
+                    }
+
+                    statements.incrementAndGet();
+                    switch (method.getName()) {
+                        case "insert":
+                            ((JobTask) args[0]).setId(sequence.incrementAndGet());
+                            return 1;
+                        case "batchInsert":
+                            List<JobTask> list = (List<JobTask>) args[0];
+                            list.forEach(jobTask -> jobTask.setId(sequence.incrementAndGet()));
+                            return list.size();
+                        case "batchInsertReturningIds":
+                            int size = ((List<JobTask>) args[0]).size();
+                            return LongStream.rangeClosed(1, size).map(i -> sequence.incrementAndGet())
+                                    .boxed().collect(Collectors.toList());
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static final class TestJobTaskGenerator extends AbstractJobTaskGenerator {
+
+        private TestJobTaskGenerator(JobTaskMapper jobTaskMapper) {
+            this.jobTaskMapper = jobTaskMapper;
+        }
+
+        private void save(List<JobTask> jobTasks) {
+            batchSaveJobTasks(jobTasks);
+        }
+
+        @Override
+        public JobTaskTypeEnum getTaskInstanceType() {
+            return JobTaskTypeEnum.CLUSTER;
+        }
+
+        @Override
+        protected List<JobTask> doGenerate(JobTaskGenerateContext context) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
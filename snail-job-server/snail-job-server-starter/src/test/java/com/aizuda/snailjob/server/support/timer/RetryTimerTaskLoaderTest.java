@@ -0,0 +1,294 @@
+package com.aizuda.snailjob.server.support.timer;
+
+import com.aizuda.snailjob.common.core.enums.RetryStatusEnum;
+import com.aizuda.snailjob.server.fixture.WrapperEvaluator;
+import com.aizuda.snailjob.server.retry.task.dto.RetryPartitionTask;
+import com.aizuda.snailjob.server.retry.task.support.RetryTaskConverter;
+import com.aizuda.snailjob.server.retry.task.support.timer.RetryTimerContext;
+import com.aizuda.snailjob.server.retry.task.support.timer.RetryTimerTaskLoader;
+import com.aizuda.snailjob.template.datasource.access.TaskAccess;
+import com.aizuda.snailjob.template.datasource.persistence.mapper.RetryTaskMapper;
+import com.aizuda.snailjob.template.datasource.persistence.po.RetryTask;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 时间轮携带任务快照时, 控制台并发修改任务后触发的正确性
+ * sj_retry_task表由内存中的一行数据代替, 查询和更新按照实际生成的条件在行锁内执行, 批量更新按照SQL中的条件执行
+ *
+ * @since sj_1.0.0
+ */
+public class RetryTimerTaskLoaderTest {
+
+    private static final WrapperEvaluator<RetryTask> EVALUATOR = new WrapperEvaluator<>(RetryTask.class);
+
+    private final AtomicInteger selectCount = new AtomicInteger();
+    private final ThreadLocal<RetryTask> observed = new ThreadLocal<>();
+    private RetryTask row;
+    private TaskAccess<RetryTask> retryTaskAccess;
+    private RetryTaskMapper retryTaskMapper;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        row = new RetryTask();
+        row.setId(1L);
+        row.setNamespaceId("namespace");
+        row.setGroupName("group");
+        row.setSceneName("scene");
+        row.setUniqueId("unique-1");
+        row.setExecutorName("executor-0");
+        row.setArgsStr("[]");
+        row.setRetryCount(3);
+        row.setRetryStatus(RetryStatusEnum.RUNNING.getStatus());
+        row.setUpdateDt(LocalDateTime.now());
+
+        retryTaskAccess = (TaskAccess<RetryTask>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{TaskAccess.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "one":
+                            return selectOne((AbstractWrapper<RetryTask, ?, ?>) args[2]);
+                        case "update":
+                            return update((RetryTask) args[2], (AbstractWrapper<RetryTask, ?, ?>) args[3]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        retryTaskMapper = (RetryTaskMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{RetryTaskMapper.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "updateBatchNextTriggerAtById":
+                            return updateBatch((List<RetryTask>) args[1], null);
+                        case "updateBatchNextTriggerAtByIdAndUpdateDt":
+                            return updateBatch((List<RetryTask>) args[2], (LocalDateTime) args[1]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    public void unchangedTaskUsesSnapshot() {
+        RetryTimerContext context = scan();
+
+        RetryTask retryTask = RetryTimerTaskLoader.load(retryTaskAccess, context);
+        Assert.assertEquals("executor-0", retryTask.getExecutorName());
+        Assert.assertEquals(0, selectCount.get());
+
+        // 执行过程中修改返回的任务不影响快照
+        retryTask.setRetryCount(retryTask.getRetryCount() + 1);
+        Assert.assertEquals(Integer.valueOf(3), context.getRetryTask().getRetryCount());
+    }
+
+    @Test
+    public void editedTaskIsReloaded() {
+        RetryTimerContext context = scan();
+        consoleUpdateExecutorName("executor-1");
+
+        RetryTask retryTask = RetryTimerTaskLoader.load(retryTaskAccess, context);
+        Assert.assertEquals("executor-1", retryTask.getExecutorName());
+        Assert.assertEquals(1, selectCount.get());
+    }
+
+    @Test
+    public void editedBeforeBatchUpdateIsReloaded() {
+        // 查询之后、批量更新之前修改了参数, 快照作废, 下次触发时间仍然更新
+        RetryTimerContext context = scan(() -> consoleUpdateArgs("[1]"));
+        Assert.assertNull(context.getRetryTask());
+        Assert.assertNotNull(row.getNextTriggerAt());
+
+        RetryTask retryTask = RetryTimerTaskLoader.load(retryTaskAccess, context);
+        Assert.assertEquals("[1]", retryTask.getArgsStr());
+        Assert.assertEquals(1, selectCount.get());
+    }
+
+    @Test
+    public void suspendedOrDeletedTaskIsSkipped() {
+        RetryTimerContext context = scan();
+        consoleUpdateStatus(RetryStatusEnum.SUSPEND.getStatus());
+        Assert.assertNull(RetryTimerTaskLoader.load(retryTaskAccess, context));
+
+        consoleUpdateStatus(RetryStatusEnum.RUNNING.getStatus());
+        context = scan();
+        synchronized (this) {
+            row = null;
+        }
+        Assert.assertNull(RetryTimerTaskLoader.load(retryTaskAccess, context));
+    }
+
+    @Test
+    public void concurrentConsoleEdits() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread console = new Thread(() -> {
+            int version = 0;
+            while (running.get()) {
+                if (version % 5 == 0) {
+                    consoleUpdateStatus(RetryStatusEnum.SUSPEND.getStatus());
+                    consoleUpdateStatus(RetryStatusEnum.RUNNING.getStatus());
+                } else {
+                    consoleUpdateExecutorName("executor-" + version);
+                }
+                version++;
+            }
+        });
+
+        int fireThreads = 4;
+        AtomicInteger fired = new AtomicInteger();
+        AtomicInteger fromSnapshot = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(fireThreads);
+        Throwable[] error = new Throwable[1];
+        for (int i = 0; i < fireThreads; i++) {
+            new Thread(() -> {
+                try {
+                    long deadline = System.currentTimeMillis() + 1000;
+                    while (System.currentTimeMillis() < deadline) {
+                        RetryTimerContext context = scan();
+                        if (Objects.isNull(context)) {
+                            continue;
+                        }
+
+                        observed.remove();
+                        int selects = selectCount.get();
+                        RetryTask retryTask = RetryTimerTaskLoader.load(retryTaskAccess, context);
+                        RetryTask confirmed = observed.get();
+                        if (Objects.isNull(retryTask)) {
+                            Assert.assertNull(confirmed);
+                            continue;
+                        }
+
+                        // 执行的任务必须与确认时DB中的数据一致
+                        Assert.assertNotNull(confirmed);
+                        Assert.assertEquals(RetryStatusEnum.RUNNING.getStatus(), confirmed.getRetryStatus());
+                        Assert.assertEquals(confirmed.getExecutorName(), retryTask.getExecutorName());
+                        Assert.assertEquals(confirmed.getRetryCount(), retryTask.getRetryCount());
+                        fired.incrementAndGet();
+                        if (selects == selectCount.get()) {
+                            fromSnapshot.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    error[0] = e;
+                } finally {
+                    latch.countDown();
+                }
+            }).start();
+        }
+
+        console.start();
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        running.set(false);
+        console.join();
+
+        if (Objects.nonNull(error[0])) {
+            throw new AssertionError(error[0]);
+        }
+        Assert.assertTrue(fired.get() > 0);
+        Assert.assertTrue(fromSnapshot.get() > 0);
+    }
+
+    private RetryTimerContext scan() {
+        return scan(() -> {
+        });
+    }
+
+    /**
+     * 与扫描任务相同: 查询任务后批量更新下次触发时间, 并携带快照进入时间轮
+     *
+     * @param beforeUpdate 查询之后、批量更新之前执行
+     */
+    private RetryTimerContext scan(Runnable beforeUpdate) {
+        RetryTask snapshot;
+        synchronized (this) {
+            if (!RetryStatusEnum.RUNNING.getStatus().equals(row.getRetryStatus())) {
+                return null;
+            }
+            snapshot = EVALUATOR.copy(row);
+        }
+
+        RetryPartitionTask partitionTask = new RetryPartitionTask();
+        partitionTask.setId(snapshot.getId());
+        partitionTask.setUniqueId(snapshot.getUniqueId());
+        partitionTask.setNamespaceId(snapshot.getNamespaceId());
+        partitionTask.setGroupName(snapshot.getGroupName());
+        partitionTask.setRetryTask(snapshot);
+
+        beforeUpdate.run();
+
+        RetryTask retryTask = new RetryTask();
+        retryTask.setId(snapshot.getId());
+        retryTask.setNextTriggerAt(LocalDateTime.now().plusSeconds(10));
+        RetryTimerTaskLoader.updateNextTriggerAt(retryTaskMapper, 0, List.of(partitionTask), List.of(retryTask));
+        return RetryTaskConverter.INSTANCE.toRetryTimerContext(partitionTask);
+    }
+
+    /**
+     * 与控制台相同: 修改后更新时间为当前时间
+     */
+    private synchronized void consoleUpdateExecutorName(String executorName) {
+        row.setExecutorName(executorName);
+        row.setUpdateDt(LocalDateTime.now());
+    }
+
+    private synchronized void consoleUpdateArgs(String argsStr) {
+        row.setArgsStr(argsStr);
+        row.setUpdateDt(LocalDateTime.now());
+    }
+
+    private synchronized void consoleUpdateStatus(Integer retryStatus) {
+        row.setRetryStatus(retryStatus);
+        row.setUpdateDt(LocalDateTime.now());
+    }
+
+    private synchronized RetryTask selectOne(AbstractWrapper<RetryTask, ?, ?> query) {
+        selectCount.incrementAndGet();
+        if (Objects.isNull(row) || !EVALUATOR.matches(row, query)) {
+            return null;
+        }
+
+        observed.set(EVALUATOR.copy(row));
+        return EVALUATOR.copy(row);
+    }
+
+    private synchronized int update(RetryTask retryTask, AbstractWrapper<RetryTask, ?, ?> query) {
+        if (Objects.isNull(row) || !EVALUATOR.matches(row, query)) {
+            return 0;
+        }
+
+        observed.set(EVALUATOR.copy(row));
+        EVALUATOR.update(row, retryTask);
+        return 1;
+    }
+
+    /**
+     * @param updateDt 为空时按id更新, 否则仅更新update_dt与查询时一致的任务
+     */
+    private synchronized int updateBatch(List<RetryTask> retryTasks, LocalDateTime updateDt) {
+        int updated = 0;
+        for (RetryTask retryTask : retryTasks) {
+            if (Objects.isNull(row) || !row.getId().equals(retryTask.getId())) {
+                continue;
+            }
+            if (Objects.nonNull(updateDt)) {
+                if (!Objects.equals(row.getUpdateDt(), retryTask.getUpdateDt())) {
+                    continue;
+                }
+                row.setUpdateDt(updateDt);
+            }
+            row.setNextTriggerAt(retryTask.getNextTriggerAt());
+            updated++;
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,116 @@
+package com.aizuda.snailjob.server.timer;
+
+import com.aizuda.snailjob.server.common.timer.HierarchicalWheelTimer;
+import io.netty.util.Timeout;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分层时间轮测试
+ *
+ * @since sj_1.0.0
+ */
+public class HierarchicalWheelTimerTest {
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 10, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(16), new CustomizableThreadFactory("timer-test-"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private HierarchicalWheelTimer timer;
+
+    @After
+    public void tearDown() {
+        if (timer != null) {
+            timer.stop();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void fireNotBeforeDeadline() throws Exception {
+        timer = newTimer(10, 0);
+        // 覆盖tick层和秒层, 秒层的任务需要降层后执行
+        int count = 2000;
+        CountDownLatch latch = new CountDownLatch(count);
+        AtomicInteger early = new AtomicInteger();
+        AtomicLong maxLag = new AtomicLong();
+        for (int i = 0; i < count; i++) {
+            long delay = i * 3 % 2500;
+            long deadline = System.currentTimeMillis() + delay;
+            timer.newTimeout(timeout -> {
+                long lag = System.currentTimeMillis() - deadline;
+                if (lag < 0) {
+                    early.incrementAndGet();
+                }
+                maxLag.accumulateAndGet(lag, Math::max);
+                latch.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, early.get());
+        Assert.assertTrue("max lag " + maxLag.get(), maxLag.get() < 200);
+        Assert.assertEquals(0, timer.getPendingTimeouts());
+        Assert.assertTrue(timer.getMaxFireLagMillis() < 200);
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        timer = newTimer(10, 0);
+        AtomicInteger fired = new AtomicInteger();
+        Timeout cancelled = timer.newTimeout(timeout -> fired.incrementAndGet(), 1500, TimeUnit.MILLISECONDS);
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(timeout -> latch.countDown(), 1600, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(2, timer.getPendingTimeouts());
+
+        Assert.assertTrue(cancelled.cancel());
+        Assert.assertFalse(cancelled.cancel());
+        Assert.assertEquals(1, timer.getPendingTimeouts());
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, fired.get());
+        Assert.assertTrue(cancelled.isCancelled());
+        Assert.assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    @Test
+    public void maxPendingTimeouts() {
+        timer = newTimer(100, 2);
+        timer.newTimeout(timeout -> {
+        }, 1, TimeUnit.HOURS);
+        Timeout timeout = timer.newTimeout(t -> {
+        }, 2, TimeUnit.DAYS);
+        try {
+            timer.newTimeout(t -> {
+            }, 1, TimeUnit.HOURS);
+            Assert.fail();
+        } catch (RejectedExecutionException ignored) {
+        }
+
+        // 取消后可以继续加入
+        timeout.cancel();
+        timer.newTimeout(t -> {
+        }, 1, TimeUnit.MINUTES);
+        Assert.assertEquals(2, timer.getPendingTimeouts());
+
+        Set<Timeout> unprocessed = timer.stop();
+        timer = null;
+        Assert.assertEquals(2, unprocessed.size());
+    }
+
+    private HierarchicalWheelTimer newTimer(long tickDuration, long maxPendingTimeouts) {
+        return new HierarchicalWheelTimer(new CustomizableThreadFactory("timer-test-wheel-"),
+                tickDuration, TimeUnit.MILLISECONDS, maxPendingTimeouts, executor, 8);
+    }
+}
@@ -0,0 +1,114 @@
+package com.aizuda.snailjob.server.util;
+
+import com.aizuda.snailjob.common.core.util.CronExpression;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * 位图计算下次触发时间与Calendar计算结果的差分校验
+ *
+ * @since sj_1.0.0
+ */
+public class CronExpressionTest {
+
+    /**
+     * 偏移量固定或者已不再变化的时区, 位图计算只在这些时区生效
+     */
+    private static final String[] ZONES = {"UTC", "GMT+8", "Asia/Shanghai", "Asia/Tokyo", "Asia/Kolkata",
+            "Asia/Kathmandu", "America/Sao_Paulo", "Africa/Nairobi"};
+
+    private static final String[] DAYS_OF_WEEK = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+
+    private static final long START = LocalDateTime.of(2020, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC) * 1000;
+    private static final long END = LocalDateTime.of(2035, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC) * 1000;
+
+    @Test
+    public void sameAsCalendar() throws ParseException {
+        Random random = new Random(20240511L);
+        for (int i = 0; i < 20000; i++) {
+            CronExpression expression = new CronExpression(randomExpression(random));
+            expression.setTimeZone(TimeZone.getTimeZone(ZONES[random.nextInt(ZONES.length)]));
+
+            Date after = new Date(START + (long) (random.nextDouble() * (END - START)));
+            // 连续取几次触发时间, 覆盖跨分钟、跨天、跨月的进位
+            for (int j = 0; j < 3 && after != null; j++) {
+                Date expected = expression.getTimeAfterByCalendar(after);
+                Date actual = expression.getTimeAfter(after);
+                Assert.assertEquals(expression.getCronExpression() + " " + expression.getTimeZone().getID()
+                        + " after " + after.getTime(), expected, actual);
+                after = actual;
+            }
+        }
+    }
+
+    @Test
+    public void specialCharacters() throws ParseException {
+        // L、W、#以及夏令时时区仍由Calendar计算, 结果保持不变
+        String[] expressions = {"0 0 12 L * ?", "0 0 12 15W * ?", "0 0 12 ? * 6#3", "0 0 12 ? * 5L"};
+        for (String cron : expressions) {
+            CronExpression expression = new CronExpression(cron);
+            expression.setTimeZone(TimeZone.getTimeZone("America/New_York"));
+            Date after = new Date(START);
+            Assert.assertEquals(cron, expression.getTimeAfterByCalendar(after), expression.getTimeAfter(after));
+        }
+    }
+
+    @Test
+    public void noNextFireTime() throws ParseException {
+        CronExpression expression = new CronExpression("0 0 0 1 1 ? 2021");
+        expression.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Assert.assertNull(expression.getTimeAfter(new Date(START + 400L * 24 * 3600 * 1000)));
+    }
+
+    private static String randomExpression(Random random) {
+        StringBuilder cron = new StringBuilder();
+        cron.append(randomField(random, 0, 59)).append(' ');
+        cron.append(randomField(random, 0, 59)).append(' ');
+        cron.append(randomField(random, 0, 23)).append(' ');
+        if (random.nextBoolean()) {
+            cron.append(randomField(random, 1, 31)).append(' ');
+            cron.append(randomField(random, 1, 12)).append(" ?");
+        } else {
+            cron.append("? ");
+            cron.append(randomField(random, 1, 12)).append(' ');
+            cron.append(randomDayOfWeek(random));
+        }
+
+        if (random.nextInt(4) == 0) {
+            int year = 2020 + random.nextInt(15);
+            cron.append(' ').append(year).append('-').append(year + random.nextInt(5));
+        }
+        return cron.toString();
+    }
+
+    private static String randomField(Random random, int min, int max) {
+        int from = min + random.nextInt(max - min + 1);
+        int to = from + random.nextInt(max - from + 1);
+        return switch (random.nextInt(6)) {
+            case 0 -> "*";
+            case 1 -> String.valueOf(from);
+            case 2 -> from + "-" + to;
+            case 3 -> from + "/" + (1 + random.nextInt(max - min));
+            case 4 -> from + "-" + to + "/" + (1 + random.nextInt(5));
+            default -> from + "," + to + "," + (min + random.nextInt(max - min + 1));
+        };
+    }
+
+    private static String randomDayOfWeek(Random random) {
+        int from = random.nextInt(7);
+        int to = from + random.nextInt(7 - from);
+        return switch (random.nextInt(4)) {
+            case 0 -> "*";
+            case 1 -> DAYS_OF_WEEK[from];
+            case 2 -> DAYS_OF_WEEK[from] + "-" + DAYS_OF_WEEK[to];
+            default -> (from + 1) + "," + (to + 1);
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package com.aizuda.snailjob.server.util;
+
+import com.aizuda.snailjob.server.common.util.ExpiringLongSet;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 带过期时间的long集合测试, 时间由测试推进
+ *
+ * @since sj_1.0.0
+ */
+@Slf4j
+public class ExpiringLongSetTest {
+
+    private static final long EXPIRE = 20000;
+
+    private long now;
+
+    @Test
+    public void sameAsHashSet() {
+        ExpiringLongSet set = new ExpiringLongSet(EXPIRE, () -> now);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 200000; i++) {
+            // key范围较小, 保证大量的重复写入和删除
+            long key = random.nextInt(5000) - 100;
+            if (random.nextInt(3) == 0) {
+                set.remove(key);
+                expected.remove(key);
+            } else {
+                set.add(key);
+                expected.add(key);
+            }
+            Assert.assertEquals(expected.contains(key), set.contains(key));
+        }
+
+        Assert.assertEquals(expected.size(), set.size());
+        for (long key = -100; key < 4900; key++) {
+            Assert.assertEquals(expected.contains(key), set.contains(key));
+        }
+    }
+
+    @Test
+    public void expireAfterWrite() {
+        ExpiringLongSet set = new ExpiringLongSet(EXPIRE, () -> now);
+        set.add(1L);
+        set.add(0L);
+
+        // 写入后至少保留一个过期时间, 最多保留两个过期时间
+        now = EXPIRE - 1;
+        Assert.assertTrue(set.contains(1L));
+        Assert.assertTrue(set.contains(0L));
+        now = EXPIRE * 2;
+        Assert.assertFalse(set.contains(1L));
+        Assert.assertFalse(set.contains(0L));
+
+        // 重复写入重新计算过期时间
+        set.add(2L);
+        now += EXPIRE - 1;
+        set.add(2L);
+        now += EXPIRE - 1;
+        set.add(2L);
+        now += 3;
+        Assert.assertTrue(set.contains(2L));
+        now += EXPIRE * 2;
+        Assert.assertFalse(set.contains(2L));
+        Assert.assertEquals(0, set.size());
+
+        // 长时间没有访问时全部过期
+        set.add(3L);
+        now += EXPIRE * 5;
+        Assert.assertFalse(set.contains(3L));
+    }
+
+    @Test
+    public void concurrentAddAndRemove() throws Exception {
+        ExpiringLongSet set = new ExpiringLongSet(20, TimeUnit.SECONDS);
+        int threads = 8;
+        int keysPerThread = 100000;
+        CountDownLatch latch = new CountDownLatch(threads);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        for (int t = 0; t < threads; t++) {
+            long base = (long) t * keysPerThread;
+            new Thread(() -> {
+                try {
+                    for (long key = base; key < base + keysPerThread; key++) {
+                        set.add(key);
+                        Assert.assertTrue(set.contains(key));
+                        if (key % 2 == 0) {
+                            set.remove(key);
+                            Assert.assertFalse(set.contains(key));
+                        }
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                } finally {
+                    latch.countDown();
+                }
+            }).start();
+        }
+
+        Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        Assert.assertNull(error.get());
+        Assert.assertEquals(threads * keysPerThread / 2, set.size());
+    }
+
+    @Test
+    public void footprintOfOneMillionTimers() {
+        ExpiringLongSet set = new ExpiringLongSet(EXPIRE, () -> now);
+        int count = 1000000;
+        for (long key = 1; key <= count; key++) {
+            set.add(3L << 56 ^ key);
+        }
+        Assert.assertEquals(count, set.size());
+
+        // 每个key一个long, 负载因子0.5, 扩容后最多4倍
+        long bytes = set.capacity() * Long.BYTES;
+        log.info("[{}] keys use [{}]MB", count, bytes >> 20);
+        Assert.assertTrue(bytes <= (long) count * Long.BYTES * 4);
+
+        // 过期后释放内存
+        now += EXPIRE * 2;
+        Assert.assertEquals(0, set.size());
+        now += EXPIRE;
+        Assert.assertEquals(0, set.size());
+        Assert.assertTrue(set.capacity() * Long.BYTES < 64 * 1024);
+    }
+}
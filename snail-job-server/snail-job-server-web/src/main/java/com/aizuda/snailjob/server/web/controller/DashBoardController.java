@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -66,6 +67,12 @@ public class DashBoardController {
         return dashBoardService.pods(serverNodeQueryVO);
     }
 
+    @LoginRequired
+    @GetMapping("/metrics")
+    public Map<String, Long> metrics() {
+        return dashBoardService.metrics();
+    }
+
     @GetMapping("/consumer/bucket")
     public Set<Integer> allConsumerGroupName() {
         return DistributeInstance.INSTANCE.getConsumerBucket();
@@ -14,6 +14,7 @@ import com.aizuda.snailjob.server.web.model.response.DashboardRetryLineResponseV
 import com.aizuda.snailjob.server.web.model.response.ServerNodeResponseVO;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author: opensnail
@@ -28,4 +29,6 @@ public interface DashBoardService {
     DashboardRetryLineResponseVO jobLineList(BaseQueryVO baseQueryVO, String mode, String groupName, String type, String startTime, String endTime);
 
     PageResult<List<ServerNodeResponseVO>> pods(ServerNodeQueryVO serverNodeQueryVO);
+
+    Map<String, Long> metrics();
 }
@@ -17,6 +17,7 @@ import com.aizuda.snailjob.template.datasource.persistence.mapper.WorkflowNodeMa
 import com.aizuda.snailjob.template.datasource.persistence.po.WorkflowNode;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.graph.Graph;
 import com.google.common.graph.MutableGraph;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -48,7 +49,7 @@ public class WorkflowHandler {
      * @param workflowNodeMap 工作流节点Map
      * @return 构建的节点配置
      */
-    public NodeConfig buildNodeConfig(MutableGraph<Long> graph,
+    public NodeConfig buildNodeConfig(Graph<Long> graph,
                                       Long parentId,
                                       Map<Long, NodeConfig> nodeConfigMap,
                                       Map<Long, NodeInfo> workflowNodeMap) {
@@ -106,7 +107,7 @@ public class WorkflowHandler {
         return currentConfig;
     }
 
-    private void findCommonAncestor(Long predecessor, Set<Long> set, MutableGraph<Long> graph) {
+    private void findCommonAncestor(Long predecessor, Set<Long> set, Graph<Long> graph) {
 
         Set<Long> predecessors = graph.predecessors(predecessor);
         if (CollectionUtils.isEmpty(predecessors)) {
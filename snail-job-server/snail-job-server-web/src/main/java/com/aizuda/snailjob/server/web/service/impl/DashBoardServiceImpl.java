@@ -9,12 +9,17 @@ import com.aizuda.snailjob.common.core.util.JsonUtil;
 import com.aizuda.snailjob.common.core.util.NetUtil;
 import com.aizuda.snailjob.common.core.util.StreamUtils;
 import com.aizuda.snailjob.common.log.SnailJobLog;
+import com.aizuda.snailjob.server.common.cache.CacheClientLiveness;
 import com.aizuda.snailjob.server.common.dto.DistributeInstance;
 import com.aizuda.snailjob.server.common.dto.ServerNodeExtAttrs;
 import com.aizuda.snailjob.server.common.enums.DashboardLineEnum;
 import com.aizuda.snailjob.server.common.enums.SyetemTaskTypeEnum;
 import com.aizuda.snailjob.server.common.enums.SystemModeEnum;
+import com.aizuda.snailjob.server.common.register.ClientRegister;
 import com.aizuda.snailjob.server.common.register.ServerRegister;
+import com.aizuda.snailjob.server.job.task.support.cache.MutableGraphCache;
+import com.aizuda.snailjob.server.job.task.support.timer.JobTimerWheel;
+import com.aizuda.snailjob.server.retry.task.support.timer.RetryTimerWheel;
 import com.aizuda.snailjob.server.web.model.base.BaseQueryVO;
 import com.aizuda.snailjob.server.web.model.base.PageResult;
 import com.aizuda.snailjob.server.web.model.enums.DateTypeEnum;
@@ -38,6 +43,7 @@ import com.aizuda.snailjob.template.datasource.persistence.mapper.RetrySummaryMa
 import com.aizuda.snailjob.template.datasource.persistence.mapper.ServerNodeMapper;
 import com.aizuda.snailjob.template.datasource.persistence.po.*;
 import com.aizuda.snailjob.template.datasource.utils.DbUtils;
+import com.aizuda.snailjob.template.datasource.utils.GroupPartitionCache;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.toolkit.StringUtils;
@@ -327,4 +333,25 @@ public class DashBoardServiceImpl implements DashBoardService {
         return new PageResult<>(serverNodePageDTO, responseVOList);
     }
 
+    @Override
+    public Map<String, Long> metrics() {
+        // 当前节点的运行指标
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("groupPartitionCache.hitCount", GroupPartitionCache.getHitCount());
+        metrics.put("groupPartitionCache.missCount", GroupPartitionCache.getMissCount());
+        metrics.put("workflowGraphCache.hitCount", MutableGraphCache.getHitCount());
+        metrics.put("workflowGraphCache.missCount", MutableGraphCache.getMissCount());
+        metrics.put("clientRegister.pendingCount", (long) ClientRegister.getPendingCount());
+        metrics.put("clientRegister.dropCount", ClientRegister.getDropCount());
+        metrics.put("clientRegister.flushNodeCount", ClientRegister.getFlushNodeCount());
+        metrics.put("clientRegister.lastFlushCost", ClientRegister.getLastFlushCost());
+        metrics.put("clientRegister.maxFlushCost", ClientRegister.getMaxFlushCost());
+        metrics.put("clientLiveness.hitCount", CacheClientLiveness.getHitCount());
+        metrics.put("clientLiveness.verifyCount", CacheClientLiveness.getVerifyCount());
+        metrics.put("jobTimerWheel.pendingTimeouts", JobTimerWheel.pendingTimeouts());
+        metrics.put("jobTimerWheel.fireLagMillis", JobTimerWheel.fireLagMillis());
+        metrics.put("retryTimerWheel.pendingTimeouts", RetryTimerWheel.pendingTimeouts());
+        metrics.put("retryTimerWheel.fireLagMillis", RetryTimerWheel.fireLagMillis());
+        return metrics;
+    }
 }
@@ -5,9 +5,11 @@ import cn.hutool.core.lang.Assert;
 import cn.hutool.core.util.HashUtil;
 import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
+import com.aizuda.snailjob.common.core.context.SpringContext;
 import com.aizuda.snailjob.common.core.util.StreamUtils;
 import com.aizuda.snailjob.server.common.config.SystemProperties;
 import com.aizuda.snailjob.server.common.enums.IdGeneratorModeEnum;
+import com.aizuda.snailjob.server.common.event.GroupConfigChangeEvent;
 import com.aizuda.snailjob.server.common.exception.SnailJobServerException;
 import com.aizuda.snailjob.server.common.handler.ConfigVersionSyncHandler;
 import com.aizuda.snailjob.server.web.model.base.PageResult;
@@ -28,6 +30,7 @@ import com.aizuda.snailjob.template.datasource.persistence.mapper.SequenceAllocM
 import com.aizuda.snailjob.template.datasource.persistence.mapper.ServerNodeMapper;
 import com.aizuda.snailjob.template.datasource.persistence.po.*;
 import com.aizuda.snailjob.template.datasource.utils.DbUtils;
+import com.aizuda.snailjob.template.datasource.utils.GroupPartitionCache;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.PageDTO;
@@ -38,6 +41,8 @@ import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 
 import javax.sql.DataSource;
@@ -85,6 +90,9 @@ public class GroupConfigServiceImpl implements GroupConfigService {
         // 保存生成唯一id配置
         doSaveSequenceAlloc(systemUser, groupConfigRequestVO);
 
+        SpringContext.getContext().publishEvent(
+                new GroupConfigChangeEvent(groupConfigRequestVO.getGroupName(), systemUser.getNamespaceId()));
+
         return isSuccess;
     }
 
@@ -146,6 +154,10 @@ public class GroupConfigServiceImpl implements GroupConfigService {
                 () -> new SnailJobServerException("exception occurred while adding group. groupConfigVO[{}]",
                         groupConfigRequestVO));
 
+        // 分区可能发生变更, 事务提交后失效本地分区缓存
+        invalidateGroupPartition(groupName, namespaceId);
+        SpringContext.getContext().publishEvent(new GroupConfigChangeEvent(groupName, namespaceId));
+
         // 同步版本， 版本为0代表需要同步到客户端
         boolean add = configVersionSyncHandler.addSyncTask(groupName, namespaceId, 0);
         // 若添加失败则强制发起同步
@@ -159,11 +171,17 @@ public class GroupConfigServiceImpl implements GroupConfigService {
     public Boolean updateGroupStatus(String groupName, Integer status) {
         GroupConfig groupConfig = new GroupConfig();
         groupConfig.setGroupStatus(status);
+        String namespaceId = UserSessionUtils.currentUserSession().getNamespaceId();
         ConfigAccess<GroupConfig> groupConfigAccess = accessTemplate.getGroupConfigAccess();
-        return groupConfigAccess.update(groupConfig,
+        boolean updated = groupConfigAccess.update(groupConfig,
                 new LambdaUpdateWrapper<GroupConfig>()
-                        .eq(GroupConfig::getNamespaceId, UserSessionUtils.currentUserSession().getNamespaceId())
+                        .eq(GroupConfig::getNamespaceId, namespaceId)
                         .eq(GroupConfig::getGroupName, groupName)) == 1;
+        if (updated) {
+            SpringContext.getContext().publishEvent(new GroupConfigChangeEvent(groupName, namespaceId));
+        }
+
+        return updated;
     }
 
     @Override
@@ -239,6 +257,22 @@ public class GroupConfigServiceImpl implements GroupConfigService {
         return Boolean.TRUE;
     }
 
+    /**
+     * 事务结束后失效本地分区缓存, 避免回滚的分区变更残留在缓存中
+     */
+    private void invalidateGroupPartition(String groupName, String namespaceId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    GroupPartitionCache.invalidate(groupName, namespaceId);
+                }
+            });
+        } else {
+            GroupPartitionCache.invalidate(groupName, namespaceId);
+        }
+    }
+
     /**
      * 校验retry_task_x和retry_dead_letter_x是否存在
      */